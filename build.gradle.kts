@@ -1,3 +1,7 @@
+import java.security.MessageDigest
+import java.util.zip.Deflater
+import java.util.zip.GZIPOutputStream
+
 plugins {
     id("java")
     id("application")
@@ -10,6 +14,16 @@ repositories {
     mavenCentral()
 }
 
+// End-to-end load generator (src/loadtest), kept out of the application jar
+val loadtest by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+val loadtestImplementation by configurations.getting {
+    extendsFrom(configurations.implementation.get())
+}
+
 dependencies {
     // Javalin web framework
     implementation("io.javalin:javalin:6.1.3")
@@ -20,6 +34,10 @@ dependencies {
     // JSON processing
     implementation("com.google.code.gson:gson:2.10.1")
     
+    // Primitive collections for in-memory indexes
+    implementation("it.unimi.dsi:fastutil-core:8.5.13")
+    implementation("org.roaringbitmap:RoaringBitmap:1.0.6")
+    
     // Logging
     implementation("org.slf4j:slf4j-api:2.0.12")
     implementation("ch.qos.logback:logback-classic:1.5.3")
@@ -28,6 +46,9 @@ dependencies {
     testImplementation(platform("org.junit:junit-bom:5.10.0"))
     testImplementation("org.junit.jupiter:junit-jupiter")
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+    
+    // Load testing
+    loadtestImplementation("org.hdrhistogram:HdrHistogram:2.1.12")
 }
 
 application {
@@ -38,6 +59,110 @@ tasks.test {
     useJUnitPlatform()
 }
 
+// Fingerprinted, precompressed copy of the frontend, served by StaticAssetController.
+// app.js and styles.css move to /assets/ with a content hash in their names and
+// index.html is rewritten to match; every file gets a .gz variant, and a .br
+// variant when the brotli CLI is installed.
+val staticAssets by tasks.registering {
+    group = "build"
+    description = "Fingerprints and precompresses the static frontend assets."
+    
+    val sourceDir = layout.projectDirectory.dir("src/main/resources/public").asFile
+    val outputDir = layout.buildDirectory.dir("generated/assets").get().asFile
+    inputs.dir(sourceDir)
+    outputs.dir(outputDir)
+    
+    doLast {
+        val publicDir = outputDir.resolve("public")
+        publicDir.deleteRecursively()
+        publicDir.resolve("assets").mkdirs()
+        
+        val renamed = linkedMapOf<String, String>()
+        sourceDir.listFiles()!!.filter { it.isFile && it.name != "index.html" }.sortedBy { it.name }.forEach { file ->
+            val bytes = file.readBytes()
+            val hash = MessageDigest.getInstance("SHA-256").digest(bytes)
+                .joinToString("") { "%02x".format(it) }.take(10)
+            val name = "/assets/${file.nameWithoutExtension}.$hash.${file.extension}"
+            publicDir.resolve(name.removePrefix("/")).writeBytes(bytes)
+            renamed[file.name] = name
+        }
+        var html = sourceDir.resolve("index.html").readText()
+        renamed.forEach { (original, name) ->
+            html = html.replace("href=\"$original\"", "href=\"$name\"").replace("src=\"$original\"", "src=\"$name\"")
+        }
+        publicDir.resolve("index.html").writeText(html)
+        
+        val served = listOf("/index.html") + renamed.values
+        val brotli = try {
+            ProcessBuilder("brotli", "--version").start().waitFor() == 0
+        } catch (e: java.io.IOException) {
+            false
+        }
+        if (!brotli) {
+            logger.warn("brotli not found on PATH; static assets get .gz variants only")
+        }
+        served.forEach { path ->
+            val file = publicDir.resolve(path.removePrefix("/"))
+            val gzip = object : GZIPOutputStream(file.resolveSibling(file.name + ".gz").outputStream()) {
+                init {
+                    def.setLevel(Deflater.BEST_COMPRESSION)
+                }
+            }
+            gzip.use { it.write(file.readBytes()) }
+            if (brotli) {
+                val exit = ProcessBuilder("brotli", "--best", "--force", "--output=${file.path}.br", file.path)
+                    .inheritIO().start().waitFor()
+                check(exit == 0) { "brotli failed for $path" }
+            }
+        }
+        publicDir.resolve("asset-manifest.txt").writeText(served.joinToString("\n", postfix = "\n"))
+    }
+}
+
+tasks.processResources {
+    exclude("public/**")
+    from(staticAssets)
+}
+
+// Usage: ./gradlew loadTest -PloadTestArgs="--mode=open --rate=400 --duration=60"
+val loadTest by tasks.registering(JavaExec::class) {
+    group = "verification"
+    description = "Runs the HTTP load generator against an in-process server with a seeded database."
+    classpath = loadtest.runtimeClasspath
+    mainClass.set("com.hashim.loadtest.LoadTest")
+    args((project.findProperty("loadTestArgs") as String? ?: "").split(" ").filter { it.isNotBlank() })
+}
+
+// Usage: ./gradlew trigramBenchmark -PbenchmarkArgs="10000 100000 1000000"
+val trigramBenchmark by tasks.registering(JavaExec::class) {
+    group = "verification"
+    description = "Compares trigram-index search with the LIKE scan on seeded databases."
+    classpath = loadtest.runtimeClasspath
+    mainClass.set("com.hashim.loadtest.TrigramBenchmark")
+    maxHeapSize = "2g"
+    args((project.findProperty("benchmarkArgs") as String? ?: "").split(" ").filter { it.isNotBlank() })
+}
+
+// Usage: ./gradlew relatedBenchmark -PbenchmarkArgs="10000 100000 1000000"
+val relatedBenchmark by tasks.registering(JavaExec::class) {
+    group = "verification"
+    description = "Measures heap footprint and query latency of the related-bookmark index."
+    classpath = loadtest.runtimeClasspath
+    mainClass.set("com.hashim.loadtest.RelatedBenchmark")
+    maxHeapSize = "2g"
+    args((project.findProperty("benchmarkArgs") as String? ?: "").split(" ").filter { it.isNotBlank() })
+}
+
+// Usage: ./gradlew snapshotBenchmark -PbenchmarkArgs="10000 100000 1000000"
+val snapshotBenchmark by tasks.registering(JavaExec::class) {
+    group = "verification"
+    description = "Compares warming up from the binary snapshot with streaming the table over JDBC."
+    classpath = loadtest.runtimeClasspath
+    mainClass.set("com.hashim.loadtest.SnapshotBenchmark")
+    maxHeapSize = "2g"
+    args((project.findProperty("benchmarkArgs") as String? ?: "").split(" ").filter { it.isNotBlank() })
+}
+
 tasks.jar {
     manifest {
         attributes["Main-Class"] = "com.hashim.Main"
@@ -45,4 +170,29 @@ tasks.jar {
     // Include all dependencies in the JAR
     duplicatesStrategy = DuplicatesStrategy.EXCLUDE
     from(configurations.runtimeClasspath.get().map { if (it.isDirectory) it else zipTree(it) })
-}
\ No newline at end of file
+}
+
+// AppCDS archive from a training run of the fat jar (see TrainingRun).
+// Run with: java -XX:SharedArchiveFile=build/libs/app.jsa -jar build/libs/<jar>
+val cdsArchive by tasks.registering(Exec::class) {
+    group = "build"
+    description = "Generates an AppCDS archive by running the application jar in training mode."
+    dependsOn(tasks.jar)
+    
+    val jarFile = tasks.jar.get().archiveFile.get().asFile
+    val archiveFile = layout.buildDirectory.file("libs/app.jsa").get().asFile
+    val trainingDb = layout.buildDirectory.file("tmp/cds-training.db").get().asFile
+    
+    inputs.file(jarFile)
+    outputs.file(archiveFile)
+    
+    environment("STARTUP_TRAINING", "true")
+    environment("PORT", "0")
+    environment("DB_URL", "jdbc:sqlite:${trainingDb.absolutePath}")
+    commandLine("java", "-XX:ArchiveClassesAtExit=${archiveFile.absolutePath}", "-jar", jarFile.absolutePath)
+    
+    doFirst {
+        trainingDb.parentFile.mkdirs()
+        trainingDb.delete()
+    }
+}
@@ -0,0 +1,45 @@
+package com.hashim.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Ids of bookmarks known to exist, for operations that target an existing row.
+ */
+class IdPool {
+    private final List<Long> ids = new ArrayList<>();
+
+    synchronized void add(long id) {
+        ids.add(id);
+    }
+
+    /**
+     * Returns a random id, or -1 if the pool is empty.
+     */
+    synchronized long random() {
+        if (ids.isEmpty()) {
+            return -1;
+        }
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    /**
+     * Removes and returns a random id (for deletes), or -1 if the pool is empty.
+     */
+    synchronized long take() {
+        if (ids.isEmpty()) {
+            return -1;
+        }
+        int index = ThreadLocalRandom.current().nextInt(ids.size());
+        long id = ids.get(index);
+        // Swap-remove keeps this O(1)
+        ids.set(index, ids.get(ids.size() - 1));
+        ids.remove(ids.size() - 1);
+        return id;
+    }
+
+    synchronized int size() {
+        return ids.size();
+    }
+}
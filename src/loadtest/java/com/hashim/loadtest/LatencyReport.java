@@ -0,0 +1,76 @@
+package com.hashim.loadtest;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Per-route latency histograms (microsecond resolution) and error counts.
+ */
+class LatencyReport {
+    // Latencies above one minute are clamped
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private volatile boolean recording = true;
+
+    /**
+     * Stops recording; used to discard the warm-up period.
+     */
+    void setRecording(boolean recording) {
+        this.recording = recording;
+    }
+
+    void reset() {
+        histograms.clear();
+        errors.clear();
+    }
+
+    void record(String route, long latencyNanos, boolean error) {
+        if (!recording) {
+            return;
+        }
+        long micros = Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_MICROS);
+        histograms.computeIfAbsent(route, r -> new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3))
+                  .recordValue(micros);
+        if (error) {
+            errors.computeIfAbsent(route, r -> new LongAdder()).increment();
+        }
+    }
+
+    String format(double durationSeconds) {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%-34s %9s %8s %10s %9s %9s %9s %9s %9s%n",
+                "route", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        
+        Histogram total = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        long totalErrors = 0;
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(histograms).entrySet()) {
+            Histogram histogram = entry.getValue();
+            long routeErrors = errors.containsKey(entry.getKey()) ? errors.get(entry.getKey()).sum() : 0;
+            total.add(histogram);
+            totalErrors += routeErrors;
+            out.append(line(entry.getKey(), histogram, routeErrors, durationSeconds));
+        }
+        out.append(line("TOTAL", total, totalErrors, durationSeconds));
+        return out.toString();
+    }
+
+    private String line(String label, Histogram histogram, long errorCount, double durationSeconds) {
+        return String.format("%-34s %9d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                label, histogram.getTotalCount(), errorCount, histogram.getTotalCount() / durationSeconds,
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,192 @@
+package com.hashim.loadtest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.hashim.util.RequestRecorder;
+
+/**
+ * Issues HTTP traffic against a running server in one of three models:
+ * closed loop (fixed number of workers, each waiting for its response),
+ * open loop (fixed arrival rate, latency measured from the intended send time
+ * so queueing delay is not hidden), and replay of a recorded request log.
+ */
+class LoadDriver {
+    private static final Pattern ID_FIELD = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+    private static final Pattern NUMERIC_SEGMENT = Pattern.compile("/\\d+(?=/|$)");
+    private static final Pattern SEARCH_PARAM = Pattern.compile("[?&]q=");
+    
+    private final HttpClient client;
+    private final String baseUrl;
+    private final WorkloadMix mix;
+    private final IdPool idPool;
+    private final LatencyReport report;
+
+    LoadDriver(String baseUrl, WorkloadMix mix, IdPool idPool, LatencyReport report) {
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()))
+                .build();
+        this.baseUrl = baseUrl;
+        this.mix = mix;
+        this.idPool = idPool;
+        this.report = report;
+    }
+
+    /**
+     * Runs {@code workers} threads that each send the next request as soon as
+     * the previous response arrives.
+     */
+    void runClosedLoop(int workers, long durationNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + durationNanos;
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        for (int i = 0; i < workers; i++) {
+            pool.execute(() -> {
+                while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+                    Operation operation = mix.next();
+                    long intendedStart = System.nanoTime();
+                    try {
+                        HttpResponse<String> response = client.send(request(operation), HttpResponse.BodyHandlers.ofString());
+                        complete(operation, response, intendedStart);
+                    } catch (IOException e) {
+                        report.record(operation.route(), System.nanoTime() - intendedStart, true);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(durationNanos + TimeUnit.SECONDS.toNanos(30), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sends requests at a fixed rate regardless of how fast responses come back.
+     */
+    void runOpenLoop(double requestsPerSecond, long durationNanos) throws InterruptedException {
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+        long start = System.nanoTime();
+        long deadline = start + durationNanos;
+        List<CompletableFuture<?>> inFlight = new ArrayList<>();
+        
+        for (long n = 0; ; n++) {
+            long intendedStart = start + n * intervalNanos;
+            if (intendedStart >= deadline) {
+                break;
+            }
+            waitUntil(intendedStart);
+            
+            Operation operation = mix.next();
+            inFlight.add(client.sendAsync(request(operation), HttpResponse.BodyHandlers.ofString())
+                    .handle((response, error) -> {
+                        if (error != null) {
+                            report.record(operation.route(), System.nanoTime() - intendedStart, true);
+                        } else {
+                            complete(operation, response, intendedStart);
+                        }
+                        return null;
+                    }));
+            inFlight.removeIf(CompletableFuture::isDone);
+        }
+        CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0])).join();
+    }
+
+    /**
+     * Replays a log written by RequestRecorder, preserving the recorded spacing
+     * divided by {@code speed}. Requests are reported by method and path with
+     * numeric segments folded to {id}.
+     */
+    void replay(Path log, double speed) throws IOException {
+        List<CompletableFuture<?>> inFlight = new ArrayList<>();
+        long start = System.nanoTime();
+        
+        try (BufferedReader reader = Files.newBufferedReader(log, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", 4);
+                if (fields.length < 3) {
+                    continue;
+                }
+                long intendedStart = start + (long) (TimeUnit.MILLISECONDS.toNanos(Long.parseLong(fields[0])) / speed);
+                String method = fields[1];
+                String target = fields[2];
+                String body = fields.length == 4 ? RequestRecorder.unescape(fields[3]) : "";
+                String route = method + " " + routeOf(target);
+                waitUntil(intendedStart);
+                
+                HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + target))
+                        .method(method, body.isEmpty()
+                                ? HttpRequest.BodyPublishers.noBody()
+                                : HttpRequest.BodyPublishers.ofString(body))
+                        .header("Content-Type", "application/json")
+                        .build();
+                inFlight.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                        .handle((response, error) -> {
+                            boolean failed = error != null || response.statusCode() >= 500;
+                            report.record(route, System.nanoTime() - intendedStart, failed);
+                            return null;
+                        }));
+                inFlight.removeIf(CompletableFuture::isDone);
+            }
+        }
+        CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0])).join();
+    }
+
+    private HttpRequest request(Operation operation) {
+        long id = -1;
+        if (operation.needsId()) {
+            id = operation == Operation.DELETE ? idPool.take() : idPool.random();
+        }
+        String body = operation.body();
+        return HttpRequest.newBuilder(URI.create(baseUrl + operation.path(id)))
+                .method(operation.method(), body != null
+                        ? HttpRequest.BodyPublishers.ofString(body)
+                        : HttpRequest.BodyPublishers.noBody())
+                .header("Content-Type", "application/json")
+                .build();
+    }
+
+    private void complete(Operation operation, HttpResponse<String> response, long intendedStart) {
+        long latency = System.nanoTime() - intendedStart;
+        // 404s are expected when a delete races another operation on the same id
+        boolean failed = response.statusCode() >= 500;
+        report.record(operation.route(), latency, failed);
+        
+        if (operation == Operation.CREATE && response.statusCode() == 201) {
+            Matcher matcher = ID_FIELD.matcher(response.body());
+            if (matcher.find()) {
+                idPool.add(Long.parseLong(matcher.group(1)));
+            }
+        }
+    }
+
+    private static String routeOf(String target) {
+        int query = target.indexOf('?');
+        String path = query >= 0 ? target.substring(0, query) : target;
+        return NUMERIC_SEGMENT.matcher(path).replaceAll("/{id}") + (SEARCH_PARAM.matcher(target).find() ? "?q" : "");
+    }
+
+    private static void waitUntil(long nanoTime) {
+        long remaining;
+        while ((remaining = nanoTime - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.hashim.loadtest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import com.hashim.Main;
+import com.hashim.config.AppConfig;
+import com.hashim.repository.DatabaseInitializer;
+
+import io.javalin.Javalin;
+
+/**
+ * End-to-end load generator for the full stack (Javalin, Gson, service, SQLite).
+ *
+ * <p>Unless {@code --target} points at a running server, it starts the application
+ * in-process against a temporary database seeded with {@code --seed} bookmarks.
+ * It then drives a weighted mix of operations in a closed-loop ({@code --mode=closed},
+ * {@code --workers}) or open-loop ({@code --mode=open}, {@code --rate} req/s)
+ * model, or replays a recorded request log ({@code --replay=<file>}). Latency
+ * percentiles are reported per controller route.
+ *
+ * <pre>
+ * ./gradlew loadTest -PloadTestArgs="--mode=open --rate=400 --duration=60 --seed=50000"
+ * </pre>
+ */
+public class LoadTest {
+    private static final String DEFAULT_MIX = "list:40,search:20,get:15,create:10,update:7,status:5,delete:3";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        String mode = options.getOrDefault("mode", "closed");
+        long durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("duration", "30")));
+        long warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("warmup", "5")));
+        WorkloadMix mix = WorkloadMix.parse(options.getOrDefault("mix", DEFAULT_MIX));
+        
+        IdPool idPool = new IdPool();
+        Javalin app = null;
+        Path tempDir = null;
+        String baseUrl = options.get("target");
+        
+        if (baseUrl == null) {
+            tempDir = Files.createTempDirectory("bookmark-loadtest");
+            String databaseUrl = "jdbc:sqlite:" + tempDir.resolve("loadtest.db");
+            
+            DatabaseInitializer databaseInitializer = new DatabaseInitializer(databaseUrl);
+            databaseInitializer.initialize();
+            int seed = Integer.parseInt(options.getOrDefault("seed", "10000"));
+            long seedStart = System.nanoTime();
+            new Seeder(databaseInitializer).seed(seed, idPool);
+            System.out.printf("Seeded %d bookmarks in %d ms%n", seed,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - seedStart));
+            
+            Properties overrides = new Properties();
+            overrides.setProperty("server.port", "0");
+            overrides.setProperty("database.url", databaseUrl);
+            overrides.setProperty("maintenance.enabled", "false");
+            overrides.setProperty("request-log.file", "");
+            app = Main.start(new AppConfig(overrides));
+            baseUrl = "http://localhost:" + app.port();
+        }
+        
+        LatencyReport report = new LatencyReport();
+        LoadDriver driver = new LoadDriver(baseUrl, mix, idPool, report);
+        
+        try {
+            if (options.containsKey("replay")) {
+                double speed = Double.parseDouble(options.getOrDefault("speed", "1"));
+                System.out.printf("Replaying %s at %.1fx against %s%n", options.get("replay"), speed, baseUrl);
+                long start = System.nanoTime();
+                driver.replay(Path.of(options.get("replay")), speed);
+                printReport(report, System.nanoTime() - start);
+                return;
+            }
+            
+            System.out.printf("Running %s-loop load against %s (mix: %s)%n", mode, baseUrl, mix);
+            if (warmupNanos > 0) {
+                report.setRecording(false);
+                run(driver, mode, options, warmupNanos);
+                report.reset();
+                report.setRecording(true);
+            }
+            run(driver, mode, options, durationNanos);
+            printReport(report, durationNanos);
+            
+        } finally {
+            if (app != null) {
+                app.stop();
+            }
+            if (tempDir != null) {
+                deleteRecursively(tempDir);
+            }
+            System.exit(0);
+        }
+    }
+
+    private static void run(LoadDriver driver, String mode, Map<String, String> options, long durationNanos)
+            throws InterruptedException {
+        switch (mode) {
+            case "closed" -> driver.runClosedLoop(Integer.parseInt(options.getOrDefault("workers", "16")), durationNanos);
+            case "open" -> driver.runOpenLoop(Double.parseDouble(options.getOrDefault("rate", "200")), durationNanos);
+            default -> throw new IllegalArgumentException("Unknown mode: " + mode + " (expected closed or open)");
+        }
+    }
+
+    private static void printReport(LatencyReport report, long durationNanos) {
+        System.out.println();
+        System.out.print(report.format(durationNanos / 1e9));
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    static void deleteRecursively(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (Exception e) {
+            System.err.println("Could not delete " + dir + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.hashim.loadtest;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The request types in a synthetic workload, each tied to the
+ * BookmarkController route it exercises.
+ */
+enum Operation {
+    LIST("GET", "/api/bookmarks"),
+    SEARCH("GET", "/api/bookmarks?q"),
+    GET("GET", "/api/bookmarks/{id}"),
+    CREATE("POST", "/api/bookmarks"),
+    UPDATE("PUT", "/api/bookmarks/{id}"),
+    STATUS("PATCH", "/api/bookmarks/{id}/status"),
+    DELETE("DELETE", "/api/bookmarks/{id}");
+
+    private static final String[] WORDS = {
+        "java", "sqlite", "javalin", "gradle", "docker", "tutorial", "reading", "performance",
+        "design", "testing", "security", "cloud", "frontend", "database", "patterns", "notes"
+    };
+
+    private final String method;
+    private final String route;
+
+    Operation(String method, String route) {
+        this.method = method;
+        this.route = route;
+    }
+
+    String method() {
+        return method;
+    }
+
+    /**
+     * Route label used when reporting latencies.
+     */
+    String route() {
+        return method + " " + route;
+    }
+
+    /**
+     * Whether the operation needs an existing bookmark id.
+     */
+    boolean needsId() {
+        return this == GET || this == UPDATE || this == STATUS || this == DELETE;
+    }
+
+    String path(long id) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return switch (this) {
+            case LIST -> "/api/bookmarks?status=" + (random.nextBoolean() ? "INBOX" : "DONE")
+                    + "&sort=created_at&order=desc&limit=50";
+            case SEARCH -> "/api/bookmarks?q=" + URLEncoder.encode(word(), StandardCharsets.UTF_8) + "&limit=50";
+            case CREATE -> "/api/bookmarks";
+            case GET, UPDATE, DELETE -> "/api/bookmarks/" + id;
+            case STATUS -> "/api/bookmarks/" + id + "/status";
+        };
+    }
+
+    String body() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return switch (this) {
+            case CREATE -> bookmarkJson(random, null);
+            case UPDATE -> bookmarkJson(random, random.nextBoolean() ? "INBOX" : "DONE");
+            case STATUS -> "{\"status\":\"" + (random.nextBoolean() ? "INBOX" : "DONE") + "\"}";
+            default -> null;
+        };
+    }
+
+    static String word() {
+        return WORDS[ThreadLocalRandom.current().nextInt(WORDS.length)];
+    }
+
+    private static String bookmarkJson(ThreadLocalRandom random, String status) {
+        String first = word();
+        String second = word();
+        StringBuilder json = new StringBuilder("{")
+                .append("\"url\":\"https://").append(first).append(".example.com/").append(second)
+                .append('/').append(random.nextInt(1_000_000)).append("\",")
+                .append("\"title\":\"Notes on ").append(first).append(' ').append(second).append("\",")
+                .append("\"tags\":\"").append(first).append(',').append(second).append("\",")
+                .append("\"notes\":\"Load test bookmark about ").append(first).append(" and ").append(second).append('"');
+        if (status != null) {
+            json.append(",\"status\":\"").append(status).append('"');
+        }
+        return json.append('}').toString();
+    }
+}
@@ -0,0 +1,100 @@
+package com.hashim.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+
+import com.hashim.index.RelatedIndex;
+import com.hashim.model.Bookmark;
+
+/**
+ * Heap footprint and query latency of the related-bookmark index, for
+ * collections of increasing size. Bookmarks are fed to the index directly
+ * (no database) with 1-6 tags drawn from a Zipf-like vocabulary, so that a
+ * few tags are very common and most are rare, as in real collections.
+ *
+ * <pre>
+ * ./gradlew relatedBenchmark -PbenchmarkArgs="10000 100000 1000000"
+ * </pre>
+ */
+public class RelatedBenchmark {
+    private static final int VOCABULARY = 5_000;
+    private static final int MAX_TAGS = 6;
+    private static final int QUERIES = 20_000;
+    private static final int WARMUP_QUERIES = 5_000;
+    private static final int LIMIT = 10;
+
+    public static void main(String[] args) {
+        int[] sizes = args.length > 0
+                ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+                : new int[] {10_000, 100_000, 1_000_000};
+
+        for (int size : sizes) {
+            run(size);
+        }
+    }
+
+    private static void run(int size) {
+        SplittableRandom random = new SplittableRandom(42);
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        long buildStart = System.nanoTime();
+
+        // Only the change-listener path is used, so no repository is needed
+        RelatedIndex index = new RelatedIndex(null);
+        for (int i = 1; i <= size; i++) {
+            index.onCreated(bookmark(i, random));
+        }
+        long buildMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - buildStart);
+        System.gc();
+        long heapBytes = runtime.totalMemory() - runtime.freeMemory() - heapBefore;
+        Map<String, Object> footprint = index.getFootprint();
+
+        System.out.printf("%n%,d bookmarks: built in %d ms, %,d tags, %,d tag pairs%n", size, buildMs,
+                footprint.get("tags"), footprint.get("tagPairs"));
+        System.out.printf("heap: ~%d MB measured (%.1f MB per 100k), ~%d MB estimated%n",
+                heapBytes / (1024 * 1024), heapBytes * 100_000.0 / size / (1024 * 1024),
+                (Long) footprint.get("totalBytesEstimate") / (1024 * 1024));
+
+        Histogram latency = new Histogram(3);
+        long results = 0;
+        for (int i = 0; i < WARMUP_QUERIES + QUERIES; i++) {
+            long id = 1 + random.nextInt(size);
+            long start = System.nanoTime();
+            results += index.related(id, LIMIT).size();
+            long nanos = System.nanoTime() - start;
+            if (i >= WARMUP_QUERIES) {
+                latency.recordValue(nanos);
+            }
+        }
+        System.out.printf("related(limit=%d): p50 %.1fus, p99 %.1fus, max %.1fus, %.1f results on average%n", LIMIT,
+                latency.getValueAtPercentile(50) / 1000.0, latency.getValueAtPercentile(99) / 1000.0,
+                latency.getMaxValue() / 1000.0, (double) results / (WARMUP_QUERIES + QUERIES));
+    }
+
+    private static Bookmark bookmark(long id, SplittableRandom random) {
+        int count = 1 + random.nextInt(MAX_TAGS);
+        StringBuilder tags = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                tags.append(',');
+            }
+            tags.append("tag").append(zipf(random));
+        }
+        Bookmark bookmark = new Bookmark();
+        bookmark.setId(id);
+        bookmark.setTags(tags.toString());
+        return bookmark;
+    }
+
+    /**
+     * A tag rank in [0, VOCABULARY), with rank r drawn roughly in proportion to 1 / (r + 1).
+     */
+    private static int zipf(SplittableRandom random) {
+        return (int) Math.min(VOCABULARY - 1, Math.exp(random.nextDouble() * Math.log(VOCABULARY)) - 1);
+    }
+}
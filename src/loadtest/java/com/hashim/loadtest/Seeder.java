@@ -0,0 +1,62 @@
+package com.hashim.loadtest;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.hashim.repository.DatabaseInitializer;
+
+/**
+ * Fills a fresh database with synthetic bookmarks in one batched transaction.
+ */
+class Seeder {
+    private final DatabaseInitializer databaseInitializer;
+
+    Seeder(DatabaseInitializer databaseInitializer) {
+        this.databaseInitializer = databaseInitializer;
+    }
+
+    /**
+     * Inserts {@code count} bookmarks and adds their ids to the pool.
+     */
+    void seed(int count, IdPool idPool) throws SQLException {
+        String sql = "INSERT INTO bookmarks (url, title, tags, notes, status, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDateTime start = LocalDateTime.now().minusDays(365);
+        
+        try (Connection conn = databaseInitializer.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < count; i++) {
+                    String first = Operation.word();
+                    String second = Operation.word();
+                    String timestamp = start.plusSeconds((long) i * 365 * 24 * 3600 / Math.max(count, 1)).toString();
+                    pstmt.setString(1, "https://" + first + ".example.com/" + second + "/" + i);
+                    pstmt.setString(2, "Seeded " + first + " " + second + " #" + i);
+                    pstmt.setString(3, first + "," + second);
+                    pstmt.setString(4, "Seeded bookmark about " + first + " and " + second);
+                    pstmt.setString(5, random.nextInt(3) == 0 ? "DONE" : "INBOX");
+                    pstmt.setString(6, timestamp);
+                    pstmt.setString(7, timestamp);
+                    pstmt.addBatch();
+                    if (i % 1000 == 999) {
+                        pstmt.executeBatch();
+                    }
+                }
+                pstmt.executeBatch();
+            }
+            conn.commit();
+            
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT id FROM bookmarks")) {
+                while (rs.next()) {
+                    idPool.add(rs.getLong(1));
+                }
+            }
+        }
+    }
+}
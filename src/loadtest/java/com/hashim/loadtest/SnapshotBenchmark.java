@@ -0,0 +1,82 @@
+package com.hashim.loadtest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import com.hashim.repository.BookmarkRepository;
+import com.hashim.repository.BookmarkSnapshot;
+import com.hashim.repository.DatabaseInitializer;
+import com.hashim.repository.QueryInstrumentation;
+import com.hashim.repository.WarmStart;
+
+/**
+ * Time to stream every bookmark over JDBC, as index builds do on a cold
+ * start, against mapping a binary snapshot, reconciling it with the table and
+ * streaming it, on seeded databases of increasing size.
+ *
+ * <pre>
+ * ./gradlew snapshotBenchmark -PbenchmarkArgs="10000 100000 1000000"
+ * </pre>
+ */
+public class SnapshotBenchmark {
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = args.length > 0
+                ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+                : new int[] {10_000, 100_000, 1_000_000};
+
+        for (int size : sizes) {
+            run(size);
+        }
+    }
+
+    private static void run(int size) throws Exception {
+        Path tempDir = Files.createTempDirectory("bookmark-snapshot-bench");
+        try {
+            DatabaseInitializer databaseInitializer = new DatabaseInitializer("jdbc:sqlite:" + tempDir.resolve("bench.db"));
+            databaseInitializer.initialize();
+            new Seeder(databaseInitializer).seed(size, new IdPool());
+
+            // Threshold high enough that nothing lands in the slow-query log
+            QueryInstrumentation instrumentation = new QueryInstrumentation(databaseInitializer, Long.MAX_VALUE, 1);
+            BookmarkRepository bookmarkRepository = new BookmarkRepository(databaseInitializer, instrumentation);
+            Path file = tempDir.resolve("bookmarks.snapshot");
+
+            long writeStart = System.nanoTime();
+            BookmarkSnapshot.Info info = BookmarkSnapshot.write(file, databaseInitializer.getDatabaseId(),
+                    bookmarkRepository::forEach);
+            long writeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - writeStart);
+            System.out.printf("%n%,d bookmarks: snapshot of %,d KB (%.0f bytes per row) written in %d ms%n", size,
+                    info.bytes() / 1024, (double) info.bytes() / Math.max(1, info.rows()), writeMs);
+            System.out.printf("%-7s %12s %14s %12s %12s%n", "round", "jdbc ms", "reconcile ms", "stream ms",
+                    "warm ms");
+
+            for (int round = 1; round <= ROUNDS; round++) {
+                long[] rows = new long[2];
+                long start = System.nanoTime();
+                bookmarkRepository.forEach(bookmark -> rows[0]++);
+                long jdbcMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+                start = System.nanoTime();
+                WarmStart warmStart = new WarmStart(BookmarkSnapshot.open(file));
+                warmStart.reconcile(bookmarkRepository, 1.0);
+                long reconcileMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                long streamStart = System.nanoTime();
+                warmStart.forEachInRange(bookmarkRepository, Long.MIN_VALUE, Long.MAX_VALUE, bookmark -> rows[1]++);
+                long streamMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - streamStart);
+                long warmMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                warmStart.release();
+
+                if (rows[0] != rows[1]) {
+                    throw new IllegalStateException("Snapshot streamed " + rows[1] + " rows, table " + rows[0]);
+                }
+                System.out.printf("%-7d %12d %14d %12d %12d%n", round, jdbcMs, reconcileMs, streamMs, warmMs);
+            }
+        } finally {
+            LoadTest.deleteRecursively(tempDir);
+        }
+    }
+}
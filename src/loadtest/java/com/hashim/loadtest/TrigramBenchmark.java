@@ -0,0 +1,105 @@
+package com.hashim.loadtest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+
+import com.hashim.index.TrigramIndex;
+import com.hashim.model.Bookmark;
+import com.hashim.repository.BookmarkQueryRepository;
+import com.hashim.repository.BookmarkRepository;
+import com.hashim.repository.DatabaseInitializer;
+import com.hashim.repository.QueryInstrumentation;
+
+/**
+ * Compares substring search through the trigram index against the plain
+ * {@code LIKE '%...%'} scan, on seeded databases of increasing size.
+ *
+ * <pre>
+ * ./gradlew trigramBenchmark -PbenchmarkArgs="10000 100000 1000000"
+ * </pre>
+ */
+public class TrigramBenchmark {
+    private static final int ITERATIONS = 50;
+    private static final int WARMUP_ITERATIONS = 10;
+    private static final int LIMIT = 50;
+
+    // Selective URL fragment, host fragment, path fragment, broad word, miss
+    private static final List<String> QUERIES = List.of("/4242", "docker.exa", "/tutorial/", "performance", "zzqx");
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = args.length > 0
+                ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+                : new int[] {10_000, 100_000, 1_000_000};
+        
+        for (int size : sizes) {
+            run(size);
+        }
+    }
+
+    private static void run(int size) throws Exception {
+        Path tempDir = Files.createTempDirectory("bookmark-trigram-bench");
+        try {
+            DatabaseInitializer databaseInitializer = new DatabaseInitializer("jdbc:sqlite:" + tempDir.resolve("bench.db"));
+            databaseInitializer.initialize();
+            new Seeder(databaseInitializer).seed(size, new IdPool());
+            
+            // Threshold high enough that nothing lands in the slow-query log
+            QueryInstrumentation instrumentation = new QueryInstrumentation(databaseInitializer, Long.MAX_VALUE, 1);
+            BookmarkRepository bookmarkRepository = new BookmarkRepository(databaseInitializer, instrumentation);
+            BookmarkQueryRepository queryRepository = new BookmarkQueryRepository(databaseInitializer, instrumentation);
+            
+            Runtime runtime = Runtime.getRuntime();
+            System.gc();
+            long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+            long buildStart = System.nanoTime();
+            TrigramIndex index = new TrigramIndex(bookmarkRepository);
+            index.rebuild();
+            long buildMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - buildStart);
+            System.gc();
+            long heapMb = (runtime.totalMemory() - runtime.freeMemory() - heapBefore) / (1024 * 1024);
+            
+            System.out.printf("%n%,d bookmarks: index built in %d ms, ~%d MB heap%n", size, buildMs, heapMb);
+            System.out.printf("%-14s %10s %10s %10s %10s %12s%n",
+                    "query", "like p50", "like p99", "index p50", "index p99", "candidates");
+            
+            for (String query : QUERIES) {
+                Histogram like = new Histogram(3);
+                Histogram indexed = new Histogram(3);
+                int candidateCount = 0;
+                for (int i = 0; i < WARMUP_ITERATIONS + ITERATIONS; i++) {
+                    long start = System.nanoTime();
+                    List<Bookmark> expected = queryRepository.findWithFilters(query, null, null, "created_at", "desc", LIMIT, 0);
+                    long likeNanos = System.nanoTime() - start;
+                    
+                    start = System.nanoTime();
+                    int[] candidates = index.candidates(query);
+                    List<Bookmark> actual = candidates.length == 0
+                            ? List.of()
+                            : queryRepository.findWithFilters(query, null, null, "created_at", "desc", LIMIT, 0, candidates);
+                    long indexNanos = System.nanoTime() - start;
+                    
+                    if (expected.size() != actual.size()) {
+                        throw new IllegalStateException("Index result differs from LIKE for '" + query + "'");
+                    }
+                    if (i >= WARMUP_ITERATIONS) {
+                        like.recordValue(likeNanos / 1000);
+                        indexed.recordValue(indexNanos / 1000);
+                    }
+                    candidateCount = candidates.length;
+                }
+                System.out.printf("%-14s %8.2fms %8.2fms %8.2fms %8.2fms %12d%n", query,
+                        like.getValueAtPercentile(50) / 1000.0, like.getValueAtPercentile(99) / 1000.0,
+                        indexed.getValueAtPercentile(50) / 1000.0, indexed.getValueAtPercentile(99) / 1000.0,
+                        candidateCount);
+            }
+            index.close();
+        } finally {
+            LoadTest.deleteRecursively(tempDir);
+        }
+    }
+}
@@ -1,30 +1,98 @@
 package com.hashim;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.hashim.config.AppConfig;
+import com.hashim.config.GsonMapper;
+import com.hashim.controller.AdminController;
 import com.hashim.controller.BookmarkController;
+import com.hashim.controller.ReplicationController;
+import com.hashim.controller.SavedSearchController;
+import com.hashim.controller.StaticAssetController;
+import com.hashim.controller.StatsController;
+import com.hashim.controller.SuggestController;
+import com.hashim.index.BitmapIndex;
+import com.hashim.index.NearDuplicateIndex;
+import com.hashim.index.ReadModel;
+import com.hashim.index.RelatedIndex;
+import com.hashim.index.SuggestIndex;
+import com.hashim.index.TrigramIndex;
+import com.hashim.repository.ActivityRepository;
+import com.hashim.repository.ArchiveRepository;
 import com.hashim.repository.BookmarkQueryRepository;
 import com.hashim.repository.BookmarkRepository;
+import com.hashim.repository.ColumnCodec;
 import com.hashim.repository.DatabaseInitializer;
+import com.hashim.repository.JobCheckpointRepository;
+import com.hashim.repository.QueryInstrumentation;
+import com.hashim.repository.ReplicationLog;
+import com.hashim.repository.SavedSearchRepository;
+import com.hashim.service.ActivityService;
+import com.hashim.service.BackupService;
 import com.hashim.service.BookmarkService;
+import com.hashim.service.CompressionService;
+import com.hashim.service.MaintenanceScheduler;
+import com.hashim.service.RenormalizationService;
+import com.hashim.service.TieringService;
+import com.hashim.service.WarmUpService;
+import com.hashim.service.ReplicationFollower;
+import com.hashim.service.ReplicationLeader;
+import com.hashim.service.SavedSearchService;
+import com.hashim.service.SnapshotService;
+import com.hashim.service.StatusWriteBehind;
+import com.hashim.util.RequestRateTracker;
+import com.hashim.util.RequestRecorder;
+import com.hashim.util.StartupTimeline;
+import com.hashim.util.Tracer;
 
 import io.javalin.Javalin;
 import io.javalin.http.staticfiles.Location;
-import io.javalin.json.JsonMapper;
 
 public class Main {
     private static final Logger logger = LoggerFactory.getLogger(Main.class);
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        StartupTimeline startupTimeline = new StartupTimeline();
+        
         // Load configuration (reads PORT, DB_URL env vars with defaults)
         AppConfig config = new AppConfig();
+        startupTimeline.mark("config");
+        
+        Javalin app = start(config, startupTimeline);
+        
+        logger.info("✅ Bookmark Manager started successfully");
+        logger.info("🌐 Access the application at http://localhost:{}", app.port());
+        logger.info("🏥 Health check at http://localhost:{}/health, readiness at /ready", app.port());
+        logger.info("📚 API docs at http://localhost:{}/api/bookmarks", app.port());
+        logger.info("Started in {} ms (phases: {})", startupTimeline.uptimeMs(), startupTimeline.toMap().get("phasesMs"));
         
+        // Training run for the AppCDS archive: exercise the routes once, then exit
+        if (config.isStartupTraining()) {
+            new TrainingRun(app.port()).run();
+            app.stop();
+            System.exit(0);
+        }
+    }
+
+    /**
+     * Wires all layers and starts the server.
+     *
+     * @param config The application configuration
+     * @return The started Javalin instance
+     */
+    public static Javalin start(AppConfig config) {
+        return start(config, new StartupTimeline());
+    }
+
+    private static Javalin start(AppConfig config, StartupTimeline startupTimeline) {
         logger.info("Starting Bookmark Manager...");
         logger.info("Port: {}", config.getServerPort());
         logger.info("Database: {}", config.getDatabaseUrl());
@@ -32,52 +100,293 @@ public class Main {
         // Initialize database
         DatabaseInitializer databaseInitializer = new DatabaseInitializer(config.getDatabaseUrl());
         databaseInitializer.initialize();
+        startupTimeline.mark("database");
+        
+        // Compressed values must stay readable even with compression turned off,
+        // so the codec and its SQL function are always installed
+        Set<String> compressedColumns = config.isCompressionEnabled()
+                ? Arrays.stream(config.getCompressionColumns().split(",")).map(String::trim)
+                        .filter(column -> !column.isEmpty()).collect(Collectors.toSet())
+                : Set.of();
+        ColumnCodec columnCodec = new ColumnCodec(databaseInitializer, compressedColumns,
+                config.getCompressionMinLength());
+        databaseInitializer.setConnectionInitializer(columnCodec::registerFunctions);
         
         // Initialize layers
-        BookmarkRepository bookmarkRepository = new BookmarkRepository(databaseInitializer);
-        BookmarkQueryRepository queryRepository = new BookmarkQueryRepository(databaseInitializer);
-        BookmarkService bookmarkService = new BookmarkService(bookmarkRepository, queryRepository);
+        QueryInstrumentation queryInstrumentation = new QueryInstrumentation(databaseInitializer,
+                config.getSlowQueryThresholdMs(), config.getSlowQueryCapacity());
+        BookmarkRepository bookmarkRepository = new BookmarkRepository(databaseInitializer, queryInstrumentation);
+        bookmarkRepository.setColumnCodec(columnCodec);
+        BookmarkQueryRepository queryRepository = new BookmarkQueryRepository(databaseInitializer, queryInstrumentation);
+        queryRepository.setColumnCodec(columnCodec);
+        
+        // Replication has to settle the local data (a follower may bootstrap from a
+        // snapshot) before any in-memory index is built from it
+        ReplicationController replicationController = createReplication(config, databaseInitializer, bookmarkRepository);
+        startupTimeline.mark("replication");
+        columnCodec.load();
+        
+        // Followers get their data from the leader, already compressed or as text
+        CompressionService compressionService = null;
+        if (config.isCompressionEnabled() && !"follower".equalsIgnoreCase(config.getReplicationRole().trim())) {
+            compressionService = new CompressionService(columnCodec, config.getCompressionTrainingSamples(),
+                    config.getCompressionMinTrainingRows(), config.getCompressionDictionarySize(),
+                    config.getCompressionBatchSize(), config.getCompressionBatchPauseMs());
+            compressionService.start();
+        }
+        
+        // A leader stamps each write with the log seq that covers it, which a queued change has no seq in yet
+        StatusWriteBehind statusWriteBehind = null;
+        if (config.isStatusWriteBehindEnabled() && "leader".equalsIgnoreCase(config.getReplicationRole().trim())) {
+            logger.info("Status write-behind is not used on a replication leader; status changes are written directly");
+            // Still commit what a previous run acknowledged but did not write
+            if (Files.exists(Path.of(config.getStatusWriteBehindJournal()))) {
+                try (StatusWriteBehind leftover = new StatusWriteBehind(bookmarkRepository,
+                        Path.of(config.getStatusWriteBehindJournal()), config.getStatusWriteBehindFlushIntervalMs())) {
+                    leftover.start();
+                }
+            }
+        } else if (config.isStatusWriteBehindEnabled()) {
+            statusWriteBehind = new StatusWriteBehind(bookmarkRepository,
+                    Path.of(config.getStatusWriteBehindJournal()), config.getStatusWriteBehindFlushIntervalMs());
+            statusWriteBehind.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(statusWriteBehind::close, "status-write-behind-shutdown"));
+        }
+        
+        BookmarkService bookmarkService = new BookmarkService(bookmarkRepository, queryRepository, statusWriteBehind);
+        
+        // Archived bookmarks stay reachable whether or not the archiving job runs
+        ArchiveRepository archiveRepository = new ArchiveRepository(databaseInitializer, queryInstrumentation,
+                bookmarkRepository);
+        archiveRepository.setColumnCodec(columnCodec);
+        queryRepository.setArchiveRepository(archiveRepository);
+        bookmarkService.setArchiveRepository(archiveRepository);
+        // Followers receive archive moves from the leader
+        TieringService tieringService = null;
+        if (config.isTieringEnabled() && !"follower".equalsIgnoreCase(config.getReplicationRole().trim())) {
+            tieringService = new TieringService(archiveRepository, statusWriteBehind, config.getTieringAgeDays(),
+                    config.getTieringBatchSize(), config.getTieringBatchPauseMs());
+            tieringService.start(config.getTieringIntervalMinutes());
+        }
+        
+        // Indexes below are built from the mapped snapshot when there is a usable one
+        SnapshotService snapshotService = null;
+        if (config.isSnapshotEnabled()) {
+            snapshotService = new SnapshotService(bookmarkRepository, databaseInitializer,
+                    Path.of(config.getSnapshotPath()), config.getSnapshotMaxStalePercent());
+            bookmarkRepository.addChangeListener(snapshotService);
+            snapshotService.beginWarmStart();
+            startupTimeline.mark("snapshot");
+        }
+        
+        TrigramIndex trigramIndex = null;
+        if (config.isTrigramIndexEnabled()) {
+            trigramIndex = new TrigramIndex(bookmarkRepository);
+            bookmarkRepository.addChangeListener(trigramIndex);
+            trigramIndex.rebuild();
+            bookmarkService.setTrigramIndex(trigramIndex, config.getTrigramMaxCandidates());
+            startupTimeline.mark("trigram-index");
+        }
+        
+        ReadModel readModel = null;
+        if (config.isReadModelEnabled()) {
+            readModel = new ReadModel(bookmarkRepository);
+            bookmarkRepository.addChangeListener(readModel);
+            readModel.load();
+            bookmarkService.setReadModel(readModel);
+            startupTimeline.mark("read-model");
+        }
+        
+        BitmapIndex bitmapIndex = null;
+        if (config.isBitmapIndexEnabled()) {
+            bitmapIndex = new BitmapIndex(bookmarkRepository, config.getBitmapIndexMaxKeys());
+            bookmarkRepository.addChangeListener(bitmapIndex);
+            bitmapIndex.rebuild(config.getBitmapIndexBuildThreads());
+            bookmarkService.setBitmapIndex(bitmapIndex, config.getBitmapIndexMaxCandidates());
+            startupTimeline.mark("bitmap-index");
+        }
+        
+        NearDuplicateIndex nearDuplicateIndex = null;
+        if (config.isSimilarityEnabled()) {
+            // Followers receive the stored signatures through replication
+            boolean writeBack = !"follower".equalsIgnoreCase(config.getReplicationRole().trim());
+            nearDuplicateIndex = new NearDuplicateIndex(bookmarkRepository, config.getSimilarityMaxDistance(),
+                    config.getSimilarityThreads(), writeBack);
+            bookmarkRepository.addChangeListener(nearDuplicateIndex);
+            nearDuplicateIndex.rebuild();
+            bookmarkService.setNearDuplicateIndex(nearDuplicateIndex);
+            startupTimeline.mark("near-duplicate-index");
+        }
+        
+        RelatedIndex relatedIndex = null;
+        if (config.isRelatedEnabled()) {
+            relatedIndex = new RelatedIndex(bookmarkRepository);
+            bookmarkRepository.addChangeListener(relatedIndex);
+            relatedIndex.build();
+            bookmarkService.setRelatedIndex(relatedIndex);
+            startupTimeline.mark("related-index");
+        }
         BookmarkController bookmarkController = new BookmarkController(bookmarkService);
         
-        // Configure Gson for JSON serialization
-        Gson gson = new GsonBuilder()
-                .setPrettyPrinting()
-                .serializeNulls()
-                .registerTypeAdapter(java.time.LocalDateTime.class, 
-                    (com.google.gson.JsonSerializer<java.time.LocalDateTime>) (src, typeOfSrc, context) -> 
-                        new com.google.gson.JsonPrimitive(src.toString()))
-                .registerTypeAdapter(java.time.LocalDateTime.class,
-                    (com.google.gson.JsonDeserializer<java.time.LocalDateTime>) (json, typeOfT, context) ->
-                        java.time.LocalDateTime.parse(json.getAsString()))
-                .create();
+        SuggestController suggestController = null;
+        SuggestIndex suggestIndex = null;
+        if (config.isSuggestEnabled()) {
+            suggestIndex = new SuggestIndex(bookmarkRepository);
+            bookmarkRepository.addChangeListener(suggestIndex);
+            suggestIndex.build();
+            suggestController = new SuggestController(suggestIndex);
+            startupTimeline.mark("suggest-index");
+        }
+        
+        SavedSearchController savedSearchController = null;
+        SavedSearchService savedSearchService = null;
+        if (config.isSavedSearchesEnabled()) {
+            savedSearchService = new SavedSearchService(
+                    new SavedSearchRepository(databaseInitializer, queryInstrumentation), bookmarkRepository,
+                    queryRepository, statusWriteBehind);
+            savedSearchService.load();
+            bookmarkRepository.addChangeListener(savedSearchService);
+            Runtime.getRuntime().addShutdownHook(new Thread(savedSearchService::close, "saved-search-shutdown"));
+            savedSearchController = new SavedSearchController(savedSearchService);
+            startupTimeline.mark("saved-searches");
+        }
+        if (snapshotService != null) {
+            snapshotService.endWarmStart();
+            snapshotService.start(config.getSnapshotIntervalMinutes());
+        }
+        
+        // Activity rollups are maintained by triggers; only history from before them needs counting
+        ActivityService activityService = new ActivityService(
+                new ActivityRepository(databaseInitializer, queryInstrumentation), config.getActivityBackfillThreads());
+        activityService.startBackfill();
+        StatsController statsController = new StatsController(activityService);
+        
+        BackupService backupService = null;
+        if (config.isBackupEnabled()) {
+            backupService = new BackupService(databaseInitializer, Path.of(config.getBackupDir()),
+                    config.getBackupRetention(), config.getBackupPagesPerStep(), config.getBackupStepPauseMs());
+            // First, so that followers stop reading the old epoch's log
+            if (replicationController != null) {
+                backupService.addRestoreListener(replicationController::onRestore);
+            }
+            // A restore replaces the table behind every in-memory copy of it
+            backupService.addRestoreListener(columnCodec::load);
+            if (trigramIndex != null) {
+                backupService.addRestoreListener(trigramIndex::rebuild);
+            }
+            if (readModel != null) {
+                backupService.addRestoreListener(readModel::load);
+            }
+            if (bitmapIndex != null) {
+                BitmapIndex restoredBitmapIndex = bitmapIndex;
+                backupService.addRestoreListener(() -> restoredBitmapIndex.rebuild(config.getBitmapIndexBuildThreads()));
+            }
+            if (nearDuplicateIndex != null) {
+                backupService.addRestoreListener(nearDuplicateIndex::rebuild);
+            }
+            if (relatedIndex != null) {
+                backupService.addRestoreListener(relatedIndex::build);
+            }
+            if (suggestIndex != null) {
+                backupService.addRestoreListener(suggestIndex::build);
+            }
+            if (savedSearchService != null) {
+                backupService.addRestoreListener(savedSearchService::refreshAll);
+            }
+            if (snapshotService != null) {
+                backupService.addRestoreListener(snapshotService::invalidate);
+            }
+            backupService.start(config.getBackupIntervalMinutes());
+        }
+        
+        // Request rate feeds idle detection for background maintenance
+        RequestRateTracker requestRateTracker = new RequestRateTracker(config.getMaintenanceIdleWindowSeconds());
+        MaintenanceScheduler maintenanceScheduler = null;
+        if (config.isMaintenanceEnabled()) {
+            maintenanceScheduler = new MaintenanceScheduler(databaseInitializer, requestRateTracker,
+                    config.getMaintenanceIdleWindowSeconds(), config.getMaintenanceIdleMaxRequests(),
+                    config.getMaintenanceMinIntervalMinutes());
+            maintenanceScheduler.start(config.getMaintenanceCheckIntervalSeconds());
+        }
+        
+        // Rewrites rows, so only where writes are accepted
+        RenormalizationService renormalizationService = null;
+        if (!"follower".equalsIgnoreCase(config.getReplicationRole().trim())) {
+            renormalizationService = new RenormalizationService(bookmarkRepository,
+                    new JobCheckpointRepository(databaseInitializer, queryInstrumentation), requestRateTracker,
+                    config.getRenormalizeThreads(), config.getRenormalizeBatchSize(),
+                    config.getRenormalizeMaxRowsPerSecond(), config.getRenormalizeBusyRequestsPerSecond());
+            renormalizationService.resumeInterrupted();
+        }
+        
+        Tracer tracer = config.isTracingEnabled()
+                ? new Tracer(config.getTraceSampleRate(), config.getTraceSlowThresholdMs(), config.getTraceCapacity())
+                : null;
+        
+        AdminController adminController = new AdminController(config.getAdminToken());
+        adminController.setBackupService(backupService);
+        adminController.setMaintenanceScheduler(maintenanceScheduler);
+        adminController.setQueryInstrumentation(queryInstrumentation);
+        adminController.setStartupTimeline(startupTimeline);
+        adminController.setBitmapIndex(bitmapIndex);
+        adminController.setTracer(tracer);
+        adminController.setTieringService(tieringService);
+        adminController.setCompressionService(compressionService);
+        adminController.setNearDuplicateIndex(nearDuplicateIndex);
+        adminController.setRelatedIndex(relatedIndex);
+        adminController.setRenormalizationService(renormalizationService);
+        adminController.setSnapshotService(snapshotService);
+        startupTimeline.mark("wiring");
+        
+        // Fingerprinted, precompressed frontend from the build; plain static files when run from sources
+        StaticAssetController staticAssetController = StaticAssetController.fromClasspath("/public");
+        
+        // Built lazily on first use; shared with the warm-up so that its adapters are the ones warmed
+        GsonMapper jsonMapper = new GsonMapper();
+        WarmUpService warmUpService = new WarmUpService(jsonMapper, compressedColumns,
+                config.getCompressionMinLength(), config.getWarmUpRounds(), config.getWarmUpMaxMs());
+        bookmarkController.setWarmUpService(warmUpService);
         
         // Create and configure Javalin app
         Javalin app = Javalin.create(javalinConfig -> {
             // Static files for frontend
-            javalinConfig.staticFiles.add("/public", Location.CLASSPATH);
+            if (staticAssetController == null) {
+                javalinConfig.staticFiles.add("/public", Location.CLASSPATH);
+            }
             
             // Default content type
             javalinConfig.http.defaultContentType = "application/json";
             
             // Configure JSON mapper with Gson
-            javalinConfig.jsonMapper(new JsonMapper() {
-                @Override
-                public String toJsonString(Object obj, Type type) {
-                    return gson.toJson(obj, type);
-                }
-
-                @Override
-                public <T> T fromJsonString(String json, Type targetType) {
-                    return gson.fromJson(json, targetType);
-                }
-            });
+            javalinConfig.jsonMapper(jsonMapper);
         }).start(config.getServerPort());
+        startupTimeline.mark("server");
+        
+        // Trace API requests; registered first so the trace covers the other handlers
+        if (tracer != null) {
+            app.before("/api/*", ctx -> ctx.header("X-Trace-Id",
+                    tracer.begin(ctx.method().toString(), ctx.path(), ctx.header("X-Trace-Id"))));
+            app.after("/api/*", ctx -> tracer.end(ctx.statusCode()));
+        }
+        
+        // Track request rate for idle detection
+        app.before(ctx -> requestRateTracker.record());
+        app.after(ctx -> startupTimeline.markFirstResponse());
+        
+        // Optionally capture API traffic for replay by the load test harness
+        if (!config.getRequestLogFile().isEmpty()) {
+            RequestRecorder requestRecorder = createRequestRecorder(config.getRequestLogFile());
+            app.after("/api/*", ctx -> requestRecorder.record(ctx.method().toString(), ctx.path(),
+                    ctx.queryString(), ctx.body()));
+            Runtime.getRuntime().addShutdownHook(new Thread(requestRecorder::close, "request-recorder-shutdown"));
+        }
         
         // Enable CORS for local development
         app.before(ctx -> {
             ctx.header("Access-Control-Allow-Origin", "*");
             ctx.header("Access-Control-Allow-Methods", "GET, POST, PUT, PATCH, DELETE, OPTIONS");
-            ctx.header("Access-Control-Allow-Headers", "Content-Type, Authorization");
+            ctx.header("Access-Control-Allow-Headers", "Content-Type, Authorization, If-Match, If-None-Match, X-Min-Seq, X-Trace-Id");
+            ctx.header("Access-Control-Expose-Headers", "ETag, X-Replication-Seq, X-Trace-Id");
         });
         
         // Handle OPTIONS requests for CORS preflight
@@ -85,13 +394,70 @@ public class Main {
         
         // Register routes
         bookmarkController.registerRoutes(app);
+        adminController.registerRoutes(app);
+        if (replicationController != null) {
+            replicationController.registerRoutes(app);
+        }
+        if (suggestController != null) {
+            suggestController.registerRoutes(app);
+        }
+        if (savedSearchController != null) {
+            savedSearchController.registerRoutes(app);
+        }
+        statsController.registerRoutes(app);
+        if (staticAssetController != null) {
+            staticAssetController.registerRoutes(app);
+        }
         
         // Root endpoint redirects to index.html
         app.get("/", ctx -> ctx.redirect("/index.html"));
+        startupTimeline.mark("routes");
         
-        logger.info("✅ Bookmark Manager started successfully");
-        logger.info("🌐 Access the application at http://localhost:{}", config.getServerPort());
-        logger.info("🏥 Health check at http://localhost:{}/health", config.getServerPort());
-        logger.info("📚 API docs at http://localhost:{}/api/bookmarks", config.getServerPort());
+        // Live from here on (/health), ready (/ready) once the request path is warm
+        warmUpService.start();
+        
+        return app;
+    }
+
+    private static ReplicationController createReplication(AppConfig config, DatabaseInitializer databaseInitializer,
+                                                           BookmarkRepository bookmarkRepository) {
+        ReplicationLog replicationLog = new ReplicationLog(databaseInitializer, bookmarkRepository);
+        String role = config.getReplicationRole().trim().toLowerCase();
+        
+        switch (role) {
+            case "leader" -> {
+                ReplicationLeader leader = new ReplicationLeader(replicationLog, config.getReplicationLogRetention());
+                leader.start();
+                Runtime.getRuntime().addShutdownHook(new Thread(leader::close, "replication-leader-shutdown"));
+                logger.info("Replication role: leader");
+                return ReplicationController.forLeader(leader, config.getReplicationBatchSize());
+            }
+            case "follower" -> {
+                if (config.getReplicationLeaderUrl().isEmpty()) {
+                    throw new IllegalStateException("replication.leader-url is required for a follower");
+                }
+                ReplicationFollower follower = new ReplicationFollower(replicationLog, config.getReplicationLeaderUrl(),
+                        config.getAdminToken(), config.getReplicationPollIntervalMs(), config.getReplicationBatchSize());
+                follower.bootstrap();
+                follower.start();
+                Runtime.getRuntime().addShutdownHook(new Thread(follower::close, "replication-follower-shutdown"));
+                logger.info("Replication role: follower of {}", config.getReplicationLeaderUrl());
+                return ReplicationController.forFollower(follower, config.getReplicationReadWaitMs());
+            }
+            case "standalone" -> {
+                // Drop capture triggers left behind by a former leader
+                replicationLog.disableCapture();
+                return null;
+            }
+            default -> throw new IllegalStateException("Unknown replication.role: " + role);
+        }
+    }
+
+    private static RequestRecorder createRequestRecorder(String file) {
+        try {
+            return new RequestRecorder(Path.of(file));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open request log " + file, e);
+        }
     }
 }
@@ -0,0 +1,73 @@
+package com.hashim;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exercises every route once so that a training run loads (and an AppCDS
+ * dump captures) the classes used on the request path.
+ * Started with STARTUP_TRAINING=true by the cdsArchive Gradle task and the Dockerfile.
+ */
+class TrainingRun {
+    private static final Logger logger = LoggerFactory.getLogger(TrainingRun.class);
+    private static final Pattern ID_FIELD = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final String baseUrl;
+
+    TrainingRun(int port) {
+        this.baseUrl = "http://localhost:" + port;
+    }
+
+    void run() throws Exception {
+        long start = System.nanoTime();
+        
+        send("GET", "/health", null);
+        send("GET", "/ready", null);
+        send("GET", "/", null);
+        String created = send("POST", "/api/bookmarks",
+                "{\"url\":\"example.com/training\",\"title\":\"Training run\",\"tags\":\"cds,startup\",\"notes\":\"warm\"}");
+        
+        Matcher matcher = ID_FIELD.matcher(created);
+        if (matcher.find()) {
+            String id = matcher.group(1);
+            send("GET", "/api/bookmarks/" + id, null);
+            send("PUT", "/api/bookmarks/" + id,
+                    "{\"url\":\"https://example.com/training\",\"title\":\"Training run\",\"tags\":\"cds\",\"notes\":\"\",\"status\":\"INBOX\"}");
+            send("PATCH", "/api/bookmarks/" + id + "/status", "{\"status\":\"DONE\"}");
+            send("PATCH", "/api/bookmarks/" + id, "{\"notes\":null}");
+            send("GET", "/api/bookmarks?q=training&status=DONE&tag=cds&sort=title&order=desc&limit=10&offset=0", null);
+            send("DELETE", "/api/bookmarks/" + id, null);
+        }
+        send("GET", "/api/bookmarks", null);
+        send("GET", "/api/bookmarks?fields=id,title,url,tags,status&limit=10", null);
+        send("GET", "/api/suggest?prefix=tr", null);
+        send("GET", "/api/bookmarks/count?status=INBOX&tag=cds&domain=example.com", null);
+        send("GET", "/api/stats/timeseries?interval=week", null);
+        // Error paths load the exception handlers
+        send("GET", "/api/bookmarks/not-a-number", null);
+        send("GET", "/api/bookmarks/0", null);
+        send("POST", "/api/bookmarks", "{\"url\":\"\",\"title\":\"\"}");
+        
+        logger.info("Training run completed in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private String send(String method, String path, String body) throws Exception {
+        HttpRequest.BodyPublisher publisher = body != null
+                ? HttpRequest.BodyPublishers.ofString(body)
+                : HttpRequest.BodyPublishers.noBody();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .method(method, publisher)
+                .header("Content-Type", "application/json")
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+    }
+}
@@ -12,8 +12,17 @@ public class AppConfig {
     private final Properties properties;
 
     public AppConfig() {
+        this(new Properties());
+    }
+
+    /**
+     * Creates a configuration with explicit overrides applied on top of
+     * application.properties and environment variables (used by the load test harness).
+     */
+    public AppConfig(Properties overrides) {
         properties = new Properties();
         loadProperties();
+        properties.putAll(overrides);
     }
 
     private void loadProperties() {
@@ -37,6 +46,71 @@ public class AppConfig {
     private void setDefaults() {
         properties.setProperty("server.port", "7070");
         properties.setProperty("database.url", "jdbc:sqlite:bookmarks.db");
+        properties.setProperty("status.write-behind.enabled", "false");
+        properties.setProperty("status.write-behind.journal", "status-journal.log");
+        properties.setProperty("status.write-behind.flush-interval-ms", "250");
+        properties.setProperty("backup.enabled", "false");
+        properties.setProperty("backup.dir", "backups");
+        properties.setProperty("backup.interval-minutes", "60");
+        properties.setProperty("backup.retention", "7");
+        properties.setProperty("backup.pages-per-step", "100");
+        properties.setProperty("backup.step-pause-ms", "10");
+        properties.setProperty("maintenance.enabled", "true");
+        properties.setProperty("maintenance.check-interval-seconds", "60");
+        properties.setProperty("maintenance.idle-window-seconds", "120");
+        properties.setProperty("maintenance.idle-max-requests", "10");
+        properties.setProperty("maintenance.min-interval-minutes", "360");
+        properties.setProperty("slow-query.threshold-ms", "100");
+        properties.setProperty("slow-query.capacity", "100");
+        properties.setProperty("startup.training", "false");
+        properties.setProperty("request-log.file", "");
+        properties.setProperty("search.trigram.enabled", "true");
+        properties.setProperty("search.trigram.max-candidates", "20000");
+        properties.setProperty("suggest.enabled", "true");
+        properties.setProperty("filter.bitmap.enabled", "true");
+        properties.setProperty("filter.bitmap.max-keys", "100000");
+        properties.setProperty("filter.bitmap.build-threads", "4");
+        properties.setProperty("filter.bitmap.max-candidates", "20000");
+        properties.setProperty("read-model.enabled", "false");
+        properties.setProperty("replication.role", "standalone");
+        properties.setProperty("replication.leader-url", "");
+        properties.setProperty("replication.poll-interval-ms", "500");
+        properties.setProperty("replication.batch-size", "500");
+        properties.setProperty("replication.log-retention", "100000");
+        properties.setProperty("replication.read-wait-ms", "2000");
+        properties.setProperty("trace.enabled", "true");
+        properties.setProperty("trace.sample-rate", "0.01");
+        properties.setProperty("trace.slow-threshold-ms", "250");
+        properties.setProperty("trace.capacity", "1000");
+        properties.setProperty("tiering.enabled", "false");
+        properties.setProperty("tiering.age-days", "365");
+        properties.setProperty("tiering.batch-size", "500");
+        properties.setProperty("tiering.batch-pause-ms", "50");
+        properties.setProperty("tiering.interval-minutes", "60");
+        properties.setProperty("compression.enabled", "false");
+        properties.setProperty("compression.columns", "notes");
+        properties.setProperty("compression.min-length", "64");
+        properties.setProperty("compression.dictionary-size", "16384");
+        properties.setProperty("compression.training-samples", "1000");
+        properties.setProperty("compression.min-training-rows", "100");
+        properties.setProperty("compression.batch-size", "500");
+        properties.setProperty("compression.batch-pause-ms", "20");
+        properties.setProperty("similarity.enabled", "true");
+        properties.setProperty("similarity.max-distance", "3");
+        properties.setProperty("similarity.threads", "4");
+        properties.setProperty("renormalize.threads", "2");
+        properties.setProperty("renormalize.batch-size", "500");
+        properties.setProperty("renormalize.max-rows-per-second", "2000");
+        properties.setProperty("renormalize.busy-requests-per-second", "50");
+        properties.setProperty("saved-searches.enabled", "true");
+        properties.setProperty("related.enabled", "true");
+        properties.setProperty("activity.backfill-threads", "4");
+        properties.setProperty("snapshot.enabled", "true");
+        properties.setProperty("snapshot.path", "bookmarks.snapshot");
+        properties.setProperty("snapshot.interval-minutes", "10");
+        properties.setProperty("snapshot.max-stale-percent", "50");
+        properties.setProperty("warmup.rounds", "1000");
+        properties.setProperty("warmup.max-ms", "15000");
     }
 
     private void overrideWithEnvVars() {
@@ -63,6 +137,80 @@ public class AppConfig {
         if (databaseUrl != null) {
             properties.setProperty("database.url", databaseUrl);
         }
+        
+        overrideWithEnvVar("STATUS_WRITE_BEHIND_ENABLED", "status.write-behind.enabled");
+        overrideWithEnvVar("STATUS_WRITE_BEHIND_JOURNAL", "status.write-behind.journal");
+        overrideWithEnvVar("STATUS_WRITE_BEHIND_FLUSH_INTERVAL_MS", "status.write-behind.flush-interval-ms");
+        overrideWithEnvVar("ADMIN_TOKEN", "admin.token");
+        overrideWithEnvVar("BACKUP_ENABLED", "backup.enabled");
+        overrideWithEnvVar("BACKUP_DIR", "backup.dir");
+        overrideWithEnvVar("BACKUP_INTERVAL_MINUTES", "backup.interval-minutes");
+        overrideWithEnvVar("BACKUP_RETENTION", "backup.retention");
+        overrideWithEnvVar("BACKUP_PAGES_PER_STEP", "backup.pages-per-step");
+        overrideWithEnvVar("BACKUP_STEP_PAUSE_MS", "backup.step-pause-ms");
+        overrideWithEnvVar("MAINTENANCE_ENABLED", "maintenance.enabled");
+        overrideWithEnvVar("MAINTENANCE_CHECK_INTERVAL_SECONDS", "maintenance.check-interval-seconds");
+        overrideWithEnvVar("MAINTENANCE_IDLE_WINDOW_SECONDS", "maintenance.idle-window-seconds");
+        overrideWithEnvVar("MAINTENANCE_IDLE_MAX_REQUESTS", "maintenance.idle-max-requests");
+        overrideWithEnvVar("MAINTENANCE_MIN_INTERVAL_MINUTES", "maintenance.min-interval-minutes");
+        overrideWithEnvVar("SLOW_QUERY_THRESHOLD_MS", "slow-query.threshold-ms");
+        overrideWithEnvVar("SLOW_QUERY_CAPACITY", "slow-query.capacity");
+        overrideWithEnvVar("STARTUP_TRAINING", "startup.training");
+        overrideWithEnvVar("REQUEST_LOG_FILE", "request-log.file");
+        overrideWithEnvVar("SEARCH_TRIGRAM_ENABLED", "search.trigram.enabled");
+        overrideWithEnvVar("SEARCH_TRIGRAM_MAX_CANDIDATES", "search.trigram.max-candidates");
+        overrideWithEnvVar("SUGGEST_ENABLED", "suggest.enabled");
+        overrideWithEnvVar("FILTER_BITMAP_ENABLED", "filter.bitmap.enabled");
+        overrideWithEnvVar("FILTER_BITMAP_MAX_KEYS", "filter.bitmap.max-keys");
+        overrideWithEnvVar("FILTER_BITMAP_BUILD_THREADS", "filter.bitmap.build-threads");
+        overrideWithEnvVar("FILTER_BITMAP_MAX_CANDIDATES", "filter.bitmap.max-candidates");
+        overrideWithEnvVar("READ_MODEL_ENABLED", "read-model.enabled");
+        overrideWithEnvVar("REPLICATION_ROLE", "replication.role");
+        overrideWithEnvVar("REPLICATION_LEADER_URL", "replication.leader-url");
+        overrideWithEnvVar("REPLICATION_POLL_INTERVAL_MS", "replication.poll-interval-ms");
+        overrideWithEnvVar("REPLICATION_BATCH_SIZE", "replication.batch-size");
+        overrideWithEnvVar("REPLICATION_LOG_RETENTION", "replication.log-retention");
+        overrideWithEnvVar("REPLICATION_READ_WAIT_MS", "replication.read-wait-ms");
+        overrideWithEnvVar("TRACE_ENABLED", "trace.enabled");
+        overrideWithEnvVar("TRACE_SAMPLE_RATE", "trace.sample-rate");
+        overrideWithEnvVar("TRACE_SLOW_THRESHOLD_MS", "trace.slow-threshold-ms");
+        overrideWithEnvVar("TRACE_CAPACITY", "trace.capacity");
+        overrideWithEnvVar("TIERING_ENABLED", "tiering.enabled");
+        overrideWithEnvVar("TIERING_AGE_DAYS", "tiering.age-days");
+        overrideWithEnvVar("TIERING_BATCH_SIZE", "tiering.batch-size");
+        overrideWithEnvVar("TIERING_BATCH_PAUSE_MS", "tiering.batch-pause-ms");
+        overrideWithEnvVar("TIERING_INTERVAL_MINUTES", "tiering.interval-minutes");
+        overrideWithEnvVar("COMPRESSION_ENABLED", "compression.enabled");
+        overrideWithEnvVar("COMPRESSION_COLUMNS", "compression.columns");
+        overrideWithEnvVar("COMPRESSION_MIN_LENGTH", "compression.min-length");
+        overrideWithEnvVar("COMPRESSION_DICTIONARY_SIZE", "compression.dictionary-size");
+        overrideWithEnvVar("COMPRESSION_TRAINING_SAMPLES", "compression.training-samples");
+        overrideWithEnvVar("COMPRESSION_MIN_TRAINING_ROWS", "compression.min-training-rows");
+        overrideWithEnvVar("COMPRESSION_BATCH_SIZE", "compression.batch-size");
+        overrideWithEnvVar("COMPRESSION_BATCH_PAUSE_MS", "compression.batch-pause-ms");
+        overrideWithEnvVar("SIMILARITY_ENABLED", "similarity.enabled");
+        overrideWithEnvVar("SIMILARITY_MAX_DISTANCE", "similarity.max-distance");
+        overrideWithEnvVar("SIMILARITY_THREADS", "similarity.threads");
+        overrideWithEnvVar("RENORMALIZE_THREADS", "renormalize.threads");
+        overrideWithEnvVar("RENORMALIZE_BATCH_SIZE", "renormalize.batch-size");
+        overrideWithEnvVar("RENORMALIZE_MAX_ROWS_PER_SECOND", "renormalize.max-rows-per-second");
+        overrideWithEnvVar("RENORMALIZE_BUSY_REQUESTS_PER_SECOND", "renormalize.busy-requests-per-second");
+        overrideWithEnvVar("SAVED_SEARCHES_ENABLED", "saved-searches.enabled");
+        overrideWithEnvVar("RELATED_ENABLED", "related.enabled");
+        overrideWithEnvVar("ACTIVITY_BACKFILL_THREADS", "activity.backfill-threads");
+        overrideWithEnvVar("SNAPSHOT_ENABLED", "snapshot.enabled");
+        overrideWithEnvVar("SNAPSHOT_PATH", "snapshot.path");
+        overrideWithEnvVar("SNAPSHOT_INTERVAL_MINUTES", "snapshot.interval-minutes");
+        overrideWithEnvVar("SNAPSHOT_MAX_STALE_PERCENT", "snapshot.max-stale-percent");
+        overrideWithEnvVar("WARMUP_ROUNDS", "warmup.rounds");
+        overrideWithEnvVar("WARMUP_MAX_MS", "warmup.max-ms");
+    }
+    
+    private void overrideWithEnvVar(String envVar, String key) {
+        String value = System.getenv(envVar);
+        if (value != null) {
+            properties.setProperty(key, value);
+        }
     }
 
     public int getServerPort() {
@@ -72,4 +220,274 @@ public class AppConfig {
     public String getDatabaseUrl() {
         return properties.getProperty("database.url", "jdbc:sqlite:bookmarks.db");
     }
+
+    public boolean isStatusWriteBehindEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("status.write-behind.enabled", "false"));
+    }
+
+    public String getStatusWriteBehindJournal() {
+        return properties.getProperty("status.write-behind.journal", "status-journal.log");
+    }
+
+    public long getStatusWriteBehindFlushIntervalMs() {
+        return Long.parseLong(properties.getProperty("status.write-behind.flush-interval-ms", "250"));
+    }
+
+    public String getAdminToken() {
+        return properties.getProperty("admin.token", "");
+    }
+
+    public boolean isBackupEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("backup.enabled", "false"));
+    }
+
+    public String getBackupDir() {
+        return properties.getProperty("backup.dir", "backups");
+    }
+
+    public long getBackupIntervalMinutes() {
+        return Long.parseLong(properties.getProperty("backup.interval-minutes", "60"));
+    }
+
+    public int getBackupRetention() {
+        return Integer.parseInt(properties.getProperty("backup.retention", "7"));
+    }
+
+    public int getBackupPagesPerStep() {
+        return Integer.parseInt(properties.getProperty("backup.pages-per-step", "100"));
+    }
+
+    public long getBackupStepPauseMs() {
+        return Long.parseLong(properties.getProperty("backup.step-pause-ms", "10"));
+    }
+
+    public boolean isMaintenanceEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("maintenance.enabled", "true"));
+    }
+
+    public long getMaintenanceCheckIntervalSeconds() {
+        return Long.parseLong(properties.getProperty("maintenance.check-interval-seconds", "60"));
+    }
+
+    public int getMaintenanceIdleWindowSeconds() {
+        return Integer.parseInt(properties.getProperty("maintenance.idle-window-seconds", "120"));
+    }
+
+    public long getMaintenanceIdleMaxRequests() {
+        return Long.parseLong(properties.getProperty("maintenance.idle-max-requests", "10"));
+    }
+
+    public long getMaintenanceMinIntervalMinutes() {
+        return Long.parseLong(properties.getProperty("maintenance.min-interval-minutes", "360"));
+    }
+
+    public long getSlowQueryThresholdMs() {
+        return Long.parseLong(properties.getProperty("slow-query.threshold-ms", "100"));
+    }
+
+    public int getSlowQueryCapacity() {
+        return Integer.parseInt(properties.getProperty("slow-query.capacity", "100"));
+    }
+
+    /**
+     * Training mode used to build the AppCDS archive: start, exercise every route once, exit.
+     */
+    public boolean isStartupTraining() {
+        return Boolean.parseBoolean(properties.getProperty("startup.training", "false"));
+    }
+
+    /**
+     * File to record API requests to for later replay; empty disables recording.
+     */
+    public String getRequestLogFile() {
+        return properties.getProperty("request-log.file", "");
+    }
+
+    public boolean isTrigramIndexEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("search.trigram.enabled", "true"));
+    }
+
+    public int getTrigramMaxCandidates() {
+        return Integer.parseInt(properties.getProperty("search.trigram.max-candidates", "20000"));
+    }
+
+    public boolean isSuggestEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("suggest.enabled", "true"));
+    }
+
+    public boolean isBitmapIndexEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("filter.bitmap.enabled", "true"));
+    }
+
+    public int getBitmapIndexMaxKeys() {
+        return Integer.parseInt(properties.getProperty("filter.bitmap.max-keys", "100000"));
+    }
+
+    public int getBitmapIndexBuildThreads() {
+        return Integer.parseInt(properties.getProperty("filter.bitmap.build-threads", "4"));
+    }
+
+    public int getBitmapIndexMaxCandidates() {
+        return Integer.parseInt(properties.getProperty("filter.bitmap.max-candidates", "20000"));
+    }
+
+    public boolean isReadModelEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("read-model.enabled", "false"));
+    }
+
+    public String getReplicationRole() {
+        return properties.getProperty("replication.role", "standalone");
+    }
+
+    public String getReplicationLeaderUrl() {
+        return properties.getProperty("replication.leader-url", "");
+    }
+
+    public long getReplicationPollIntervalMs() {
+        return Long.parseLong(properties.getProperty("replication.poll-interval-ms", "500"));
+    }
+
+    public int getReplicationBatchSize() {
+        return Integer.parseInt(properties.getProperty("replication.batch-size", "500"));
+    }
+
+    public long getReplicationLogRetention() {
+        return Long.parseLong(properties.getProperty("replication.log-retention", "100000"));
+    }
+
+    public long getReplicationReadWaitMs() {
+        return Long.parseLong(properties.getProperty("replication.read-wait-ms", "2000"));
+    }
+
+    public boolean isTracingEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("trace.enabled", "true"));
+    }
+
+    public double getTraceSampleRate() {
+        return Double.parseDouble(properties.getProperty("trace.sample-rate", "0.01"));
+    }
+
+    public long getTraceSlowThresholdMs() {
+        return Long.parseLong(properties.getProperty("trace.slow-threshold-ms", "250"));
+    }
+
+    public int getTraceCapacity() {
+        return Integer.parseInt(properties.getProperty("trace.capacity", "1000"));
+    }
+
+    public boolean isTieringEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("tiering.enabled", "false"));
+    }
+
+    public int getTieringAgeDays() {
+        return Integer.parseInt(properties.getProperty("tiering.age-days", "365"));
+    }
+
+    public int getTieringBatchSize() {
+        return Integer.parseInt(properties.getProperty("tiering.batch-size", "500"));
+    }
+
+    public long getTieringBatchPauseMs() {
+        return Long.parseLong(properties.getProperty("tiering.batch-pause-ms", "50"));
+    }
+
+    public long getTieringIntervalMinutes() {
+        return Long.parseLong(properties.getProperty("tiering.interval-minutes", "60"));
+    }
+
+    public boolean isCompressionEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("compression.enabled", "false"));
+    }
+
+    public String getCompressionColumns() {
+        return properties.getProperty("compression.columns", "notes");
+    }
+
+    public int getCompressionMinLength() {
+        return Integer.parseInt(properties.getProperty("compression.min-length", "64"));
+    }
+
+    public int getCompressionDictionarySize() {
+        return Integer.parseInt(properties.getProperty("compression.dictionary-size", "16384"));
+    }
+
+    public int getCompressionTrainingSamples() {
+        return Integer.parseInt(properties.getProperty("compression.training-samples", "1000"));
+    }
+
+    public int getCompressionMinTrainingRows() {
+        return Integer.parseInt(properties.getProperty("compression.min-training-rows", "100"));
+    }
+
+    public int getCompressionBatchSize() {
+        return Integer.parseInt(properties.getProperty("compression.batch-size", "500"));
+    }
+
+    public long getCompressionBatchPauseMs() {
+        return Long.parseLong(properties.getProperty("compression.batch-pause-ms", "20"));
+    }
+
+    public boolean isSimilarityEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("similarity.enabled", "true"));
+    }
+
+    public int getSimilarityMaxDistance() {
+        return Integer.parseInt(properties.getProperty("similarity.max-distance", "3"));
+    }
+
+    public int getSimilarityThreads() {
+        return Integer.parseInt(properties.getProperty("similarity.threads", "4"));
+    }
+
+    public int getRenormalizeThreads() {
+        return Integer.parseInt(properties.getProperty("renormalize.threads", "2"));
+    }
+
+    public int getRenormalizeBatchSize() {
+        return Integer.parseInt(properties.getProperty("renormalize.batch-size", "500"));
+    }
+
+    public int getRenormalizeMaxRowsPerSecond() {
+        return Integer.parseInt(properties.getProperty("renormalize.max-rows-per-second", "2000"));
+    }
+
+    public long getRenormalizeBusyRequestsPerSecond() {
+        return Long.parseLong(properties.getProperty("renormalize.busy-requests-per-second", "50"));
+    }
+
+    public boolean isSavedSearchesEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("saved-searches.enabled", "true"));
+    }
+
+    public boolean isRelatedEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("related.enabled", "true"));
+    }
+
+    public int getActivityBackfillThreads() {
+        return Integer.parseInt(properties.getProperty("activity.backfill-threads", "4"));
+    }
+
+    public boolean isSnapshotEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("snapshot.enabled", "true"));
+    }
+
+    public String getSnapshotPath() {
+        return properties.getProperty("snapshot.path", "bookmarks.snapshot");
+    }
+
+    public long getSnapshotIntervalMinutes() {
+        return Long.parseLong(properties.getProperty("snapshot.interval-minutes", "10"));
+    }
+
+    public int getSnapshotMaxStalePercent() {
+        return Integer.parseInt(properties.getProperty("snapshot.max-stale-percent", "50"));
+    }
+
+    public int getWarmUpRounds() {
+        return Integer.parseInt(properties.getProperty("warmup.rounds", "1000"));
+    }
+
+    public long getWarmUpMaxMs() {
+        return Long.parseLong(properties.getProperty("warmup.max-ms", "15000"));
+    }
 }
@@ -0,0 +1,99 @@
+package com.hashim.config;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.time.LocalDateTime;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializer;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.hashim.model.Bookmark;
+import com.hashim.util.Tracer;
+
+import io.javalin.json.JsonMapper;
+
+/**
+ * Javalin JSON mapper backed by Gson.
+ * The Gson instance is built on first use rather than at startup, so the
+ * reflection-heavy setup stays off the boot path.
+ */
+public class GsonMapper implements JsonMapper {
+    private volatile Gson gson;
+
+    @Override
+    public String toJsonString(Object obj, Type type) {
+        try (Tracer.Span span = Tracer.span(Tracer.Layer.SERIALIZATION, "toJson")) {
+            return gson().toJson(obj, type);
+        }
+    }
+
+    @Override
+    public <T> T fromJsonString(String json, Type targetType) {
+        try (Tracer.Span span = Tracer.span(Tracer.Layer.SERIALIZATION, "fromJson")) {
+            return gson().fromJson(json, targetType);
+        }
+    }
+
+    public Gson gson() {
+        Gson result = gson;
+        if (result == null) {
+            synchronized (this) {
+                result = gson;
+                if (result == null) {
+                    result = createGson();
+                    gson = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Gson createGson() {
+        return new GsonBuilder()
+                .setPrettyPrinting()
+                .serializeNulls()
+                .registerTypeAdapter(LocalDateTime.class,
+                    (JsonSerializer<LocalDateTime>) (src, typeOfSrc, context) ->
+                        new JsonPrimitive(src.toString()))
+                .registerTypeAdapter(LocalDateTime.class,
+                    (JsonDeserializer<LocalDateTime>) (json, typeOfT, context) ->
+                        LocalDateTime.parse(json.getAsString()))
+                .registerTypeAdapterFactory(new LazyFieldsFactory())
+                .create();
+    }
+
+    /**
+     * Gson writes fields directly, so lazily decoded bookmark notes are
+     * resolved just before a bookmark is written.
+     */
+    private static final class LazyFieldsFactory implements TypeAdapterFactory {
+        @Override
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            if (type.getRawType() != Bookmark.class) {
+                return null;
+            }
+            TypeAdapter<T> delegate = gson.getDelegateAdapter(this, type);
+            return new TypeAdapter<T>() {
+                @Override
+                public void write(JsonWriter out, T value) throws IOException {
+                    if (value != null) {
+                        ((Bookmark) value).getNotes();
+                    }
+                    delegate.write(out, value);
+                }
+
+                @Override
+                public T read(JsonReader in) throws IOException {
+                    return delegate.read(in);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.hashim.controller;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hashim.dto.ErrorResponse;
+import com.hashim.exception.NotFoundException;
+import com.hashim.exception.UnauthorizedException;
+import com.hashim.index.BitmapIndex;
+import com.hashim.index.NearDuplicateIndex;
+import com.hashim.index.RelatedIndex;
+import com.hashim.repository.QueryInstrumentation;
+import com.hashim.service.BackupService;
+import com.hashim.service.CompressionService;
+import com.hashim.service.MaintenanceScheduler;
+import com.hashim.service.RenormalizationService;
+import com.hashim.service.SnapshotService;
+import com.hashim.service.TieringService;
+import com.hashim.util.StartupTimeline;
+import com.hashim.util.Tracer;
+import com.hashim.util.ValidationUtils;
+
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+
+/**
+ * Operational endpoints under /admin (and the token check for /replication).
+ * When an admin token is configured every request must send it as
+ * {@code Authorization: Bearer <token>}.
+ */
+public class AdminController {
+    private static final Logger logger = LoggerFactory.getLogger(AdminController.class);
+    private static final int DEFAULT_TRACES = 20;
+    private static final int MAX_TRACES = 200;
+    private static final int DEFAULT_CLUSTERS = 20;
+    private static final int MAX_CLUSTERS = 500;
+    private final String adminToken;
+    
+    // Optional subsystems; endpoints are only registered for the ones that are enabled
+    private BackupService backupService;
+    private MaintenanceScheduler maintenanceScheduler;
+    private QueryInstrumentation queryInstrumentation;
+    private StartupTimeline startupTimeline;
+    private BitmapIndex bitmapIndex;
+    private Tracer tracer;
+    private TieringService tieringService;
+    private CompressionService compressionService;
+    private NearDuplicateIndex nearDuplicateIndex;
+    private RelatedIndex relatedIndex;
+    private RenormalizationService renormalizationService;
+    private SnapshotService snapshotService;
+
+    public AdminController(String adminToken) {
+        this.adminToken = adminToken;
+    }
+
+    public void setBackupService(BackupService backupService) {
+        this.backupService = backupService;
+    }
+
+    public void setMaintenanceScheduler(MaintenanceScheduler maintenanceScheduler) {
+        this.maintenanceScheduler = maintenanceScheduler;
+    }
+
+    public void setQueryInstrumentation(QueryInstrumentation queryInstrumentation) {
+        this.queryInstrumentation = queryInstrumentation;
+    }
+
+    public void setStartupTimeline(StartupTimeline startupTimeline) {
+        this.startupTimeline = startupTimeline;
+    }
+
+    public void setBitmapIndex(BitmapIndex bitmapIndex) {
+        this.bitmapIndex = bitmapIndex;
+    }
+
+    public void setTracer(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    public void setTieringService(TieringService tieringService) {
+        this.tieringService = tieringService;
+    }
+
+    public void setCompressionService(CompressionService compressionService) {
+        this.compressionService = compressionService;
+    }
+
+    public void setNearDuplicateIndex(NearDuplicateIndex nearDuplicateIndex) {
+        this.nearDuplicateIndex = nearDuplicateIndex;
+    }
+
+    public void setRelatedIndex(RelatedIndex relatedIndex) {
+        this.relatedIndex = relatedIndex;
+    }
+
+    public void setRenormalizationService(RenormalizationService renormalizationService) {
+        this.renormalizationService = renormalizationService;
+    }
+
+    public void setSnapshotService(SnapshotService snapshotService) {
+        this.snapshotService = snapshotService;
+    }
+
+    public void registerRoutes(Javalin app) {
+        if (adminToken == null || adminToken.isEmpty()) {
+            logger.warn("No admin token configured, /admin endpoints are unauthenticated");
+        }
+        app.before("/admin/*", this::authorize);
+        // The replication stream exposes every row, so it is guarded by the same token
+        app.before("/replication/*", this::authorize);
+        
+        // Backup endpoints (only when backups are enabled)
+        if (backupService != null) {
+            app.get("/admin/backups", this::listBackups);
+            app.post("/admin/backups", this::createBackup);
+            app.get("/admin/backups/metrics", this::backupMetrics);
+            // Replaces the whole database, so never without a token
+            if (adminToken == null || adminToken.isEmpty()) {
+                logger.warn("No admin token configured, POST /admin/backups/{name}/restore is disabled");
+            } else {
+                app.post("/admin/backups/{name}/restore", this::restoreBackup);
+            }
+        }
+        
+        // Database maintenance endpoints
+        if (maintenanceScheduler != null) {
+            app.get("/admin/maintenance", this::lastMaintenanceRun);
+            app.post("/admin/maintenance", this::runMaintenance);
+        }
+        
+        // Slow-query log
+        if (queryInstrumentation != null) {
+            app.get("/admin/slow-queries", this::slowQueries);
+            app.delete("/admin/slow-queries", this::resetSlowQueries);
+        }
+        
+        // Startup timeline
+        if (startupTimeline != null) {
+            app.get("/admin/startup", ctx -> ctx.json(startupTimeline.toMap()));
+        }
+        
+        // Bitmap filter index memory footprint
+        if (bitmapIndex != null) {
+            app.get("/admin/filter-index", ctx -> ctx.json(bitmapIndex.getFootprint()));
+        }
+        
+        // Slowest recent request traces with per-layer timings
+        if (tracer != null) {
+            app.get("/admin/traces", this::traces);
+        }
+        
+        // Hot/cold tiering: archive sizes and on-demand runs
+        if (tieringService != null) {
+            app.get("/admin/tiering", ctx -> ctx.json(tieringService.getStatus()));
+            app.post("/admin/tiering", ctx -> ctx.json(tieringService.runNow()));
+        }
+        
+        // Column compression: sizes per column and on-demand dictionary retraining
+        if (compressionService != null) {
+            app.get("/admin/compression", ctx -> ctx.json(compressionService.getStatus()));
+            app.post("/admin/compression", ctx -> ctx.json(compressionService.retrain()));
+        }
+        
+        // Near-duplicate index: footprint and full-corpus cluster scan
+        if (nearDuplicateIndex != null) {
+            app.get("/admin/near-duplicates", ctx -> ctx.json(nearDuplicateIndex.getFootprint()));
+            app.get("/admin/near-duplicates/clusters", this::nearDuplicateClusters);
+        }
+        if (relatedIndex != null) {
+            app.get("/admin/related", ctx -> ctx.json(relatedIndex.getFootprint()));
+        }
+        
+        // Re-normalization of stored rows: start or resume, progress/ETA, stop
+        if (renormalizationService != null) {
+            app.get("/admin/renormalize", ctx -> ctx.json(renormalizationService.getStatus()));
+            app.post("/admin/renormalize", ctx -> ctx.json(
+                    renormalizationService.start(Boolean.parseBoolean(ctx.queryParam("restart")))));
+            app.delete("/admin/renormalize", ctx -> ctx.json(renormalizationService.stop()));
+        }
+        
+        // Binary snapshot of all bookmarks: status, write now, download as an export
+        if (snapshotService != null) {
+            app.get("/admin/snapshot", ctx -> ctx.json(snapshotService.getStatus()));
+            app.post("/admin/snapshot", ctx -> ctx.json(snapshotService.write()));
+            app.get("/admin/snapshot/file", this::downloadSnapshot);
+        }
+        
+        app.exception(UnauthorizedException.class, (e, ctx) -> {
+            logger.warn("Unauthorized: {}", e.getMessage());
+            ErrorResponse error = new ErrorResponse("UNAUTHORIZED", e.getMessage());
+            ctx.status(401).json(error);
+        });
+    }
+    
+    private void authorize(Context ctx) {
+        if (adminToken == null || adminToken.isEmpty()) {
+            return;
+        }
+        String header = ctx.header("Authorization");
+        String expected = "Bearer " + adminToken;
+        if (header == null || !MessageDigest.isEqual(header.getBytes(StandardCharsets.UTF_8),
+                expected.getBytes(StandardCharsets.UTF_8))) {
+            throw new UnauthorizedException("Missing or invalid admin token");
+        }
+    }
+
+    private void listBackups(Context ctx) {
+        ctx.json(backupService.listSnapshots());
+    }
+
+    private void createBackup(Context ctx) {
+        ctx.status(201).json(backupService.takeSnapshot());
+    }
+
+    private void backupMetrics(Context ctx) {
+        ctx.json(backupService.getMetrics());
+    }
+
+    private void restoreBackup(Context ctx) {
+        BackupService.Snapshot previous = backupService.restore(ctx.pathParam("name"));
+        ctx.json(previous);
+    }
+
+    private void downloadSnapshot(Context ctx) throws IOException {
+        Path file = snapshotService.getFile();
+        if (file == null) {
+            throw new NotFoundException("No snapshot has been written yet");
+        }
+        // The open stream keeps reading this file even if a newer one is moved into place
+        ctx.contentType("application/octet-stream");
+        ctx.header("Content-Disposition", "attachment; filename=\"" + file.getFileName() + "\"");
+        ctx.result(Files.newInputStream(file));
+    }
+
+    private void lastMaintenanceRun(Context ctx) {
+        ctx.json(maintenanceScheduler.getLastRun());
+    }
+
+    /**
+     * {@code convertAutoVacuum=true} also switches a database created without
+     * incremental auto-vacuum over to it, with a full VACUUM.
+     */
+    private void runMaintenance(Context ctx) {
+        ctx.json(maintenanceScheduler.runNow(Boolean.parseBoolean(ctx.queryParam("convertAutoVacuum"))));
+    }
+
+    private void slowQueries(Context ctx) {
+        ctx.json(queryInstrumentation.getSummary());
+    }
+
+    private void resetSlowQueries(Context ctx) {
+        queryInstrumentation.reset();
+        ctx.status(204);
+    }
+
+    private void traces(Context ctx) {
+        Integer limit = ctx.queryParamAsClass("limit", Integer.class).allowNullable().get();
+        ValidationUtils.validatePositive(limit, "limit");
+        ctx.json(tracer.getSummary(limit != null ? Math.min(limit, MAX_TRACES) : DEFAULT_TRACES));
+    }
+
+    private void nearDuplicateClusters(Context ctx) {
+        Integer minSize = ctx.queryParamAsClass("minSize", Integer.class).allowNullable().get();
+        Integer limit = ctx.queryParamAsClass("limit", Integer.class).allowNullable().get();
+        ValidationUtils.validatePositive(minSize, "minSize");
+        ValidationUtils.validatePositive(limit, "limit");
+        ctx.json(nearDuplicateIndex.clusters(minSize != null ? Math.max(minSize, 2) : 2,
+                limit != null ? Math.min(limit, MAX_CLUSTERS) : DEFAULT_CLUSTERS));
+    }
+}
@@ -1,41 +1,63 @@
 package com.hashim.controller;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
 import com.hashim.dto.CreateBookmarkRequest;
 import com.hashim.dto.ErrorResponse;
 import com.hashim.dto.UpdateBookmarkRequest;
 import com.hashim.dto.UpdateStatusRequest;
 import com.hashim.exception.NotFoundException;
+import com.hashim.exception.PreconditionFailedException;
 import com.hashim.exception.ValidationException;
 import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkField;
+import com.hashim.service.BookmarkListing;
 import com.hashim.service.BookmarkService;
+import com.hashim.service.WarmUpService;
+import com.hashim.util.ValidationUtils;
 
 import io.javalin.Javalin;
 import io.javalin.http.Context;
 
 public class BookmarkController {
     private static final Logger logger = LoggerFactory.getLogger(BookmarkController.class);
+    private static final int DEFAULT_SIMILAR_LIMIT = 10;
+    private static final int MAX_SIMILAR_LIMIT = 50;
     private final BookmarkService bookmarkService;
+    // Optional; /ready waits for it to finish
+    private WarmUpService warmUpService;
 
     public BookmarkController(BookmarkService bookmarkService) {
         this.bookmarkService = bookmarkService;
     }
 
+    public void setWarmUpService(WarmUpService warmUpService) {
+        this.warmUpService = warmUpService;
+    }
+
     public void registerRoutes(Javalin app) {
         // Health check endpoint
         app.get("/health", this::health);
+        app.get("/ready", this::ready);
         
         // Bookmark CRUD endpoints
         app.get("/api/bookmarks", this::getAllBookmarks);
+        app.get("/api/bookmarks/count", this::countBookmarks);
         app.get("/api/bookmarks/{id}", this::getBookmarkById);
+        app.get("/api/bookmarks/similar/{id}", this::getSimilarBookmarks);
+        app.get("/api/bookmarks/{id}/related", this::getRelatedBookmarks);
         app.post("/api/bookmarks", this::createBookmark);
         app.put("/api/bookmarks/{id}", this::updateBookmark);
+        app.patch("/api/bookmarks/{id}", this::patchBookmark);
         app.patch("/api/bookmarks/{id}/status", this::updateBookmarkStatus);
         app.delete("/api/bookmarks/{id}", this::deleteBookmark);
         
@@ -56,6 +78,12 @@ public class BookmarkController {
             ctx.status(404).json(error);
         });
         
+        app.exception(PreconditionFailedException.class, (e, ctx) -> {
+            logger.warn("Precondition failed: {}", e.getMessage());
+            ErrorResponse error = new ErrorResponse("PRECONDITION_FAILED", e.getMessage());
+            ctx.status(412).json(error);
+        });
+        
         app.exception(IllegalArgumentException.class, (e, ctx) -> {
             logger.warn("Invalid argument: {}", e.getMessage());
             ErrorResponse error = new ErrorResponse("INVALID_PARAMETER", e.getMessage());
@@ -76,52 +104,132 @@ public class BookmarkController {
         ctx.json(health);
     }
 
+    /**
+     * Readiness, as opposed to liveness: 503 until the warm-up has finished.
+     */
+    private void ready(Context ctx) {
+        Map<String, Object> ready = new LinkedHashMap<>();
+        boolean warm = warmUpService == null || warmUpService.isReady();
+        ready.put("status", warm ? "READY" : "WARMING_UP");
+        ready.put("timestamp", System.currentTimeMillis());
+        if (warmUpService != null && warm) {
+            ready.put("warmUp", warmUpService.getResult());
+        }
+        ctx.status(warm ? 200 : 503).json(ready);
+    }
+
     private void getAllBookmarks(Context ctx) {
         String search = ctx.queryParam("q");
         String status = ctx.queryParam("status");
-        String tag = ctx.queryParam("tag");
+        List<String> tags = ctx.queryParams("tag");
+        List<String> excludedTags = ctx.queryParams("excludeTag");
+        List<String> domains = ctx.queryParams("domain");
         String sortBy = ctx.queryParam("sort");
         String order = ctx.queryParam("order");
         Integer limit = ctx.queryParamAsClass("limit", Integer.class).allowNullable().get();
         Integer offset = ctx.queryParamAsClass("offset", Integer.class).allowNullable().get();
+        String fields = ctx.queryParam("fields");
         
-        List<Bookmark> bookmarks;
+        // Identical concurrent listings share one query and one serialized response
+        BookmarkListing listing = bookmarkService.listBookmarks(search, status, tags, excludedTags, domains,
+                sortBy, order, limit, offset, fields, includeArchived(ctx));
+        byte[] body = listing.toJsonBytes(bookmarks -> ctx.jsonMapper().toJsonString(
+                listing.getFields() != null ? BookmarkField.project(bookmarks, listing.getFields()) : bookmarks,
+                List.class));
         
-        // Use advanced filtering if any filter is present
-        if (search != null || status != null || tag != null || sortBy != null || 
-            order != null || limit != null || offset != null) {
-            bookmarks = bookmarkService.getBookmarksWithFilters(search, status, tag, sortBy, order, limit, offset);
-        } else {
-            bookmarks = bookmarkService.getAllBookmarks();
+        ctx.contentType("application/json").result(body);
+    }
+
+    private void countBookmarks(Context ctx) {
+        long count = bookmarkService.countBookmarks(ctx.queryParam("q"), ctx.queryParam("status"),
+                ctx.queryParams("tag"), ctx.queryParams("excludeTag"), ctx.queryParams("domain"),
+                includeArchived(ctx));
+        ctx.json(Map.of("count", count));
+    }
+    
+    /**
+     * {@code include=archived} adds the archive tier to a listing or count.
+     */
+    private static boolean includeArchived(Context ctx) {
+        String include = ctx.queryParam("include");
+        if (include == null) {
+            return false;
         }
-        
-        ctx.json(bookmarks);
+        if (!"archived".equalsIgnoreCase(include.trim())) {
+            throw new ValidationException("include must be archived");
+        }
+        return true;
     }
 
     private void getBookmarkById(Context ctx) {
         Long id = parseId(ctx.pathParam("id"));
-        Bookmark bookmark = bookmarkService.getBookmarkById(id);
-        ctx.json(bookmark);
+        // A revalidation must be answered with the stored version, not one a queued status change will replace
+        String ifNoneMatch = ctx.header("If-None-Match");
+        Bookmark bookmark = ifNoneMatch != null
+                ? bookmarkService.getCurrentBookmarkById(id)
+                : bookmarkService.getBookmarkById(id);
+        String etag = etag(bookmark);
+        if (etag != null && etag.equals(ifNoneMatch)) {
+            ctx.header("ETag", etag).status(304);
+            return;
+        }
+        withETag(ctx, bookmark).json(bookmark);
+    }
+
+    private void getSimilarBookmarks(Context ctx) {
+        Long id = parseId(ctx.pathParam("id"));
+        Integer limit = ctx.queryParamAsClass("limit", Integer.class).allowNullable().get();
+        ValidationUtils.validatePositive(limit, "limit");
+        int actualLimit = limit != null ? Math.min(limit, MAX_SIMILAR_LIMIT) : DEFAULT_SIMILAR_LIMIT;
+        
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("id", id);
+        response.put("similar", bookmarkService.findSimilar(id, actualLimit));
+        ctx.json(response);
+    }
+
+    private void getRelatedBookmarks(Context ctx) {
+        Long id = parseId(ctx.pathParam("id"));
+        Integer limit = ctx.queryParamAsClass("limit", Integer.class).allowNullable().get();
+        ValidationUtils.validatePositive(limit, "limit");
+        int actualLimit = limit != null ? Math.min(limit, MAX_SIMILAR_LIMIT) : DEFAULT_SIMILAR_LIMIT;
+        
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("id", id);
+        response.put("related", bookmarkService.findRelated(id, actualLimit));
+        ctx.json(response);
     }
 
     private void createBookmark(Context ctx) {
         CreateBookmarkRequest request = ctx.bodyAsClass(CreateBookmarkRequest.class);
         Bookmark bookmark = bookmarkService.createBookmark(request);
-        ctx.status(201).json(bookmark);
+        withETag(ctx, bookmark).status(201).json(bookmark);
     }
 
     private void updateBookmark(Context ctx) {
         Long id = parseId(ctx.pathParam("id"));
+        Long expectedVersion = parseIfMatch(ctx.header("If-Match"));
         UpdateBookmarkRequest request = ctx.bodyAsClass(UpdateBookmarkRequest.class);
-        Bookmark bookmark = bookmarkService.updateBookmark(id, request);
-        ctx.json(bookmark);
+        Bookmark bookmark = bookmarkService.updateBookmark(id, request, expectedVersion);
+        withETag(ctx, bookmark).json(bookmark);
+    }
+    
+    /**
+     * JSON merge patch (RFC 7396) over url, title, tags, notes and status.
+     */
+    private void patchBookmark(Context ctx) {
+        Long id = parseId(ctx.pathParam("id"));
+        Long expectedVersion = parseIfMatch(ctx.header("If-Match"));
+        Bookmark bookmark = bookmarkService.patchBookmark(id, parseMergePatch(ctx.body()), expectedVersion);
+        withETag(ctx, bookmark).json(bookmark);
     }
     
     private void updateBookmarkStatus(Context ctx) {
         Long id = parseId(ctx.pathParam("id"));
+        Long expectedVersion = parseIfMatch(ctx.header("If-Match"));
         UpdateStatusRequest request = ctx.bodyAsClass(UpdateStatusRequest.class);
-        Bookmark bookmark = bookmarkService.updateBookmarkStatus(id, request);
-        ctx.json(bookmark);
+        Bookmark bookmark = bookmarkService.updateBookmarkStatus(id, request, expectedVersion);
+        withETag(ctx, bookmark).json(bookmark);
     }
 
     private void deleteBookmark(Context ctx) {
@@ -130,6 +238,64 @@ public class BookmarkController {
         ctx.status(204);
     }
     
+    private static Map<String, String> parseMergePatch(String body) {
+        JsonElement json;
+        try {
+            json = JsonParser.parseString(body);
+        } catch (JsonParseException e) {
+            throw new ValidationException("Request body must be a JSON object");
+        }
+        if (!json.isJsonObject()) {
+            throw new ValidationException("Request body must be a JSON object");
+        }
+        
+        // Keeps explicit nulls, which clear a property, apart from absent properties
+        Map<String, String> changes = new LinkedHashMap<>();
+        for (Map.Entry<String, JsonElement> entry : json.getAsJsonObject().entrySet()) {
+            JsonElement value = entry.getValue();
+            if (value.isJsonNull()) {
+                changes.put(entry.getKey(), null);
+            } else if (value.isJsonPrimitive() && value.getAsJsonPrimitive().isString()) {
+                changes.put(entry.getKey(), value.getAsString());
+            } else {
+                throw new ValidationException("Field " + entry.getKey() + " must be a string or null");
+            }
+        }
+        return changes;
+    }
+    
+    private static String etag(Bookmark bookmark) {
+        return bookmark.getVersion() != null ? "\"" + bookmark.getVersion() + "\"" : null;
+    }
+    
+    private static Context withETag(Context ctx, Bookmark bookmark) {
+        String etag = etag(bookmark);
+        return etag != null ? ctx.header("ETag", etag) : ctx;
+    }
+    
+    /**
+     * Reads the expected version from an If-Match header ({@code "3"}). Absent
+     * or {@code *} means no version check. If-Match compares strongly, so a
+     * weak tag ({@code W/"3"}) never matches.
+     */
+    private static Long parseIfMatch(String header) {
+        if (header == null || header.isBlank() || header.trim().equals("*")) {
+            return null;
+        }
+        String value = header.trim();
+        if (value.startsWith("W/")) {
+            throw new PreconditionFailedException("If-Match needs a strong ETag, got " + value);
+        }
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1);
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid If-Match header: " + header);
+        }
+    }
+    
     private Long parseId(String idStr) {
         try {
             return Long.parseLong(idStr);
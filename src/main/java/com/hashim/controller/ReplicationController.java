@@ -0,0 +1,158 @@
+package com.hashim.controller;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hashim.dto.ErrorResponse;
+import com.hashim.exception.ReadOnlyReplicaException;
+import com.hashim.exception.ReplicaLagException;
+import com.hashim.exception.ValidationException;
+import com.hashim.service.ReplicationFollower;
+import com.hashim.service.ReplicationLeader;
+import com.hashim.util.ValidationUtils;
+
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+import io.javalin.http.HandlerType;
+
+/**
+ * Replication endpoints. A leader serves its change stream and snapshots under
+ * /replication and stamps every successful write with the sequence number a
+ * client can pass back to a follower as a read-your-writes token
+ * ({@code X-Min-Seq} header or {@code minSeq} query param). A follower rejects
+ * writes and holds token-carrying reads until it has caught up.
+ */
+public class ReplicationController {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicationController.class);
+    private static final String SEQ_HEADER = "X-Replication-Seq";
+    private static final String MIN_SEQ_HEADER = "X-Min-Seq";
+    private static final int MAX_BATCH = 5000;
+
+    private final ReplicationLeader leader;
+    private final ReplicationFollower follower;
+    private final int defaultBatchSize;
+    private final long readWaitMs;
+
+    private ReplicationController(ReplicationLeader leader, ReplicationFollower follower,
+                                  int defaultBatchSize, long readWaitMs) {
+        this.leader = leader;
+        this.follower = follower;
+        this.defaultBatchSize = defaultBatchSize;
+        this.readWaitMs = readWaitMs;
+    }
+
+    public static ReplicationController forLeader(ReplicationLeader leader, int defaultBatchSize) {
+        return new ReplicationController(leader, null, defaultBatchSize, 0);
+    }
+
+    public static ReplicationController forFollower(ReplicationFollower follower, long readWaitMs) {
+        return new ReplicationController(null, follower, 0, readWaitMs);
+    }
+
+    public void registerRoutes(Javalin app) {
+        if (leader != null) {
+            app.get("/replication/status", ctx -> ctx.json(leader.getStatus()));
+            app.get("/replication/changes", this::changes);
+            app.get("/replication/snapshot", this::snapshot);
+            app.after("/api/*", this::stampWrite);
+        } else {
+            app.get("/replication/status", ctx -> ctx.json(follower.getStatus()));
+            app.before("/api/*", this::guardFollower);
+            app.after("/api/*", ctx -> ctx.header(SEQ_HEADER, String.valueOf(follower.appliedSeq())));
+            registerFollowerExceptionHandlers(app);
+        }
+    }
+
+    /**
+     * Brings the leader or follower in line with a database restored from a backup.
+     */
+    public void onRestore() {
+        if (leader != null) {
+            leader.onRestore();
+        } else {
+            follower.onRestore();
+        }
+    }
+
+    private void registerFollowerExceptionHandlers(Javalin app) {
+        app.exception(ReadOnlyReplicaException.class, (e, ctx) -> {
+            logger.debug("Rejected write on follower: {}", e.getMessage());
+            ErrorResponse error = new ErrorResponse("READ_ONLY_REPLICA", e.getMessage());
+            ctx.header("X-Replication-Leader", follower.getLeaderUrl());
+            ctx.status(409).json(error);
+        });
+        
+        app.exception(ReplicaLagException.class, (e, ctx) -> {
+            logger.warn("Replica lag: {}", e.getMessage());
+            ErrorResponse error = new ErrorResponse("REPLICA_LAGGING", e.getMessage());
+            ctx.header("Retry-After", "1");
+            ctx.status(503).json(error);
+        });
+    }
+
+    private void changes(Context ctx) {
+        Long after = ctx.queryParamAsClass("after", Long.class).allowNullable().get();
+        Integer limit = ctx.queryParamAsClass("limit", Integer.class).allowNullable().get();
+        String epoch = ctx.queryParam("epoch");
+        if (after != null && after < 0) {
+            throw new ValidationException("after must be non-negative");
+        }
+        ValidationUtils.validatePositive(limit, "limit");
+        
+        ReplicationLeader.ChangeBatch batch = leader.changes(after != null ? after : 0,
+                limit != null ? Math.min(limit, MAX_BATCH) : defaultBatchSize, epoch);
+        if (batch.snapshotRequired()) {
+            ctx.status(410);
+        }
+        ctx.json(batch);
+    }
+
+    private void snapshot(Context ctx) throws IOException {
+        long seq = leader.lastSeq();
+        Path file = leader.snapshot();
+        // The temp file goes away once Javalin has streamed and closed it
+        ctx.header(SEQ_HEADER, String.valueOf(seq));
+        ctx.contentType("application/octet-stream");
+        ctx.result(Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE));
+    }
+
+    private void stampWrite(Context ctx) {
+        if (isWrite(ctx.method()) && ctx.statusCode() < 400) {
+            ctx.header(SEQ_HEADER, String.valueOf(leader.lastSeq()));
+        }
+    }
+
+    private void guardFollower(Context ctx) throws InterruptedException {
+        if (isWrite(ctx.method())) {
+            throw new ReadOnlyReplicaException("This instance is a read-only replica; send writes to "
+                    + follower.getLeaderUrl());
+        }
+        
+        String token = ctx.header(MIN_SEQ_HEADER);
+        if (token == null) {
+            token = ctx.queryParam("minSeq");
+        }
+        if (token == null) {
+            return;
+        }
+        long minSeq;
+        try {
+            minSeq = Long.parseLong(token.trim());
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Invalid replication token: " + token);
+        }
+        if (!follower.awaitSeq(minSeq, readWaitMs)) {
+            throw new ReplicaLagException("Replica has applied seq " + follower.appliedSeq()
+                    + " but the request requires " + minSeq);
+        }
+    }
+
+    private static boolean isWrite(HandlerType method) {
+        return method != HandlerType.GET && method != HandlerType.HEAD && method != HandlerType.OPTIONS;
+    }
+}
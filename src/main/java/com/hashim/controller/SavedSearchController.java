@@ -0,0 +1,65 @@
+package com.hashim.controller;
+
+import com.hashim.dto.SavedSearchRequest;
+import com.hashim.service.SavedSearchService;
+
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+
+/**
+ * Saved searches under /api/saved-searches. Results are read from the
+ * materialized result set kept by {@link SavedSearchService}.
+ */
+public class SavedSearchController {
+    private final SavedSearchService savedSearchService;
+
+    public SavedSearchController(SavedSearchService savedSearchService) {
+        this.savedSearchService = savedSearchService;
+    }
+
+    public void registerRoutes(Javalin app) {
+        app.get("/api/saved-searches", this::listSavedSearches);
+        app.post("/api/saved-searches", this::createSavedSearch);
+        app.get("/api/saved-searches/{id}", this::getSavedSearch);
+        app.delete("/api/saved-searches/{id}", this::deleteSavedSearch);
+        app.get("/api/saved-searches/{id}/bookmarks", this::getResults);
+        app.post("/api/saved-searches/{id}/refresh", this::refreshSavedSearch);
+    }
+
+    private void listSavedSearches(Context ctx) {
+        ctx.json(savedSearchService.list());
+    }
+
+    private void createSavedSearch(Context ctx) {
+        SavedSearchRequest request = ctx.bodyAsClass(SavedSearchRequest.class);
+        ctx.status(201).json(savedSearchService.create(request));
+    }
+
+    private void getSavedSearch(Context ctx) {
+        ctx.json(savedSearchService.get(parseId(ctx.pathParam("id"))));
+    }
+
+    private void deleteSavedSearch(Context ctx) {
+        savedSearchService.delete(parseId(ctx.pathParam("id")));
+        ctx.status(204);
+    }
+
+    private void getResults(Context ctx) {
+        Long id = parseId(ctx.pathParam("id"));
+        Integer limit = ctx.queryParamAsClass("limit", Integer.class).allowNullable().get();
+        Integer offset = ctx.queryParamAsClass("offset", Integer.class).allowNullable().get();
+        ctx.json(savedSearchService.getResults(id, limit, offset));
+    }
+
+    private void refreshSavedSearch(Context ctx) {
+        ctx.json(savedSearchService.refresh(parseId(ctx.pathParam("id"))));
+    }
+
+    private Long parseId(String idStr) {
+        try {
+            return Long.parseLong(idStr);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid saved search ID format: " + idStr);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.hashim.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+
+/**
+ * Serves the frontend produced by the {@code staticAssets} Gradle task: files
+ * listed in {@code asset-manifest.txt}, each with precompressed {@code .gz}
+ * and (when brotli was available at build time) {@code .br} variants.
+ *
+ * <p>All variants are read into memory once at startup and written to the
+ * servlet output stream as they are, bypassing per-request compression and
+ * file reads. Files under {@code /assets/} carry a content hash in their name
+ * and are cached as immutable; {@code index.html}, which references them, is
+ * revalidated with an ETag on every load. Each encoding has its own ETag, since
+ * its bytes differ: a cache holding the gzip variant must not be told that the
+ * brotli one is the same.
+ */
+public class StaticAssetController {
+    private static final Logger logger = LoggerFactory.getLogger(StaticAssetController.class);
+    private static final String MANIFEST = "asset-manifest.txt";
+    private static final String IMMUTABLE_PREFIX = "/assets/";
+    private static final String IMMUTABLE_CACHE = "public, max-age=31536000, immutable";
+    private static final String REVALIDATE_CACHE = "no-cache";
+
+    private final Map<String, Asset> assets;
+
+    /**
+     * One file with its encodings; {@code gzip} and {@code brotli} are null when missing.
+     * {@code hash} identifies the content, and is suffixed per encoding in the ETag.
+     */
+    private record Asset(String contentType, String hash, boolean immutable, byte[] identity, byte[] gzip,
+                         byte[] brotli) {
+    }
+
+    private StaticAssetController(Map<String, Asset> assets) {
+        this.assets = assets;
+    }
+
+    /**
+     * Loads the assets under a classpath directory, or returns null if it has
+     * no manifest (sources run without the Gradle build).
+     */
+    public static StaticAssetController fromClasspath(String root) {
+        try (InputStream manifest = StaticAssetController.class.getResourceAsStream(root + "/" + MANIFEST)) {
+            if (manifest == null) {
+                return null;
+            }
+            Map<String, Asset> assets = new LinkedHashMap<>();
+            long bytes = 0;
+            for (String line : new String(manifest.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+                String path = line.trim();
+                if (path.isEmpty()) {
+                    continue;
+                }
+                byte[] identity = read(root + path);
+                if (identity == null) {
+                    throw new IllegalStateException("Asset listed in manifest is missing: " + path);
+                }
+                Asset asset = new Asset(contentType(path), hash(identity), path.startsWith(IMMUTABLE_PREFIX),
+                        identity, read(root + path + ".gz"), read(root + path + ".br"));
+                assets.put(path, asset);
+                bytes += identity.length + (asset.gzip() != null ? asset.gzip().length : 0)
+                        + (asset.brotli() != null ? asset.brotli().length : 0);
+            }
+            logger.info("Loaded {} precompressed static assets ({} KB)", assets.size(), bytes / 1024);
+            return new StaticAssetController(assets);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load static assets from " + root, e);
+        }
+    }
+
+    public void registerRoutes(Javalin app) {
+        for (Map.Entry<String, Asset> entry : assets.entrySet()) {
+            Asset asset = entry.getValue();
+            app.get(entry.getKey(), ctx -> serve(ctx, asset));
+        }
+    }
+
+    private void serve(Context ctx, Asset asset) throws IOException {
+        String acceptEncoding = ctx.header("Accept-Encoding");
+        String encoding = null;
+        byte[] body = asset.identity();
+        if (asset.brotli() != null && accepts(acceptEncoding, "br")) {
+            encoding = "br";
+            body = asset.brotli();
+        } else if (asset.gzip() != null && accepts(acceptEncoding, "gzip")) {
+            encoding = "gzip";
+            body = asset.gzip();
+        }
+        String etag = "\"" + asset.hash() + (encoding != null ? "-" + encoding : "") + "\"";
+
+        ctx.header("Cache-Control", asset.immutable() ? IMMUTABLE_CACHE : REVALIDATE_CACHE);
+        ctx.header("ETag", etag);
+        ctx.header("Vary", "Accept-Encoding");
+        if (noneMatch(ctx.header("If-None-Match"), etag)) {
+            ctx.status(304);
+            return;
+        }
+
+        if (encoding != null) {
+            ctx.header("Content-Encoding", encoding);
+        }
+        ctx.contentType(asset.contentType());
+        // Written directly so the response compression does not encode it again
+        ctx.res().setContentLengthLong(body.length);
+        ctx.res().getOutputStream().write(body);
+    }
+
+    /**
+     * Whether an If-None-Match header ({@code *} or a list of entity tags)
+     * matches the ETag, using the weak comparison the header calls for.
+     */
+    private static boolean noneMatch(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether an Accept-Encoding header allows the coding, i.e. lists it (or
+     * {@code *}) without {@code q=0}.
+     */
+    private static boolean accepts(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean wildcard = false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String name = params[0].trim().toLowerCase(Locale.ROOT);
+            boolean allowed = true;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        allowed = Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        allowed = false;
+                    }
+                }
+            }
+            if (name.equals(coding)) {
+                return allowed;
+            }
+            if (name.equals("*")) {
+                wildcard = allowed;
+            }
+        }
+        return wildcard;
+    }
+
+    private static byte[] read(String resource) throws IOException {
+        try (InputStream in = StaticAssetController.class.getResourceAsStream(resource)) {
+            return in != null ? in.readAllBytes() : null;
+        }
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String contentType(String path) {
+        String extension = path.substring(path.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        return switch (extension) {
+            case "html" -> "text/html; charset=utf-8";
+            case "js" -> "text/javascript; charset=utf-8";
+            case "css" -> "text/css; charset=utf-8";
+            case "json" -> "application/json";
+            case "svg" -> "image/svg+xml";
+            case "png" -> "image/png";
+            case "ico" -> "image/x-icon";
+            default -> "application/octet-stream";
+        };
+    }
+}
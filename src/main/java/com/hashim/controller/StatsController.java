@@ -0,0 +1,26 @@
+package com.hashim.controller;
+
+import com.hashim.service.ActivityService;
+
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+
+/**
+ * Dashboard statistics under /api/stats, answered from rollup tables.
+ */
+public class StatsController {
+    private final ActivityService activityService;
+
+    public StatsController(ActivityService activityService) {
+        this.activityService = activityService;
+    }
+
+    public void registerRoutes(Javalin app) {
+        app.get("/api/stats/timeseries", this::timeseries);
+    }
+
+    private void timeseries(Context ctx) {
+        ctx.json(activityService.getTimeseries(ctx.queryParam("interval"), ctx.queryParam("from"),
+                ctx.queryParam("to")));
+    }
+}
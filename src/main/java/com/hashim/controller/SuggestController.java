@@ -0,0 +1,43 @@
+package com.hashim.controller;
+
+import com.hashim.exception.ValidationException;
+import com.hashim.index.SuggestIndex;
+import com.hashim.util.ValidationUtils;
+
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+
+/**
+ * Typeahead endpoint for the search box, answered from memory without touching SQLite.
+ */
+public class SuggestController {
+    private static final int DEFAULT_LIMIT = 5;
+    private static final int MAX_LIMIT = 20;
+    private static final int MAX_PREFIX_LENGTH = 100;
+
+    private final SuggestIndex suggestIndex;
+
+    public SuggestController(SuggestIndex suggestIndex) {
+        this.suggestIndex = suggestIndex;
+    }
+
+    public void registerRoutes(Javalin app) {
+        app.get("/api/suggest", this::suggest);
+    }
+
+    private void suggest(Context ctx) {
+        String prefix = ctx.queryParam("prefix");
+        if (prefix == null || prefix.trim().isEmpty()) {
+            throw new ValidationException("prefix is required");
+        }
+        if (prefix.length() > MAX_PREFIX_LENGTH) {
+            throw new ValidationException("prefix must be at most " + MAX_PREFIX_LENGTH + " characters");
+        }
+        
+        Integer limit = ctx.queryParamAsClass("limit", Integer.class).allowNullable().get();
+        ValidationUtils.validatePositive(limit, "limit");
+        int actualLimit = limit != null ? Math.min(limit, MAX_LIMIT) : DEFAULT_LIMIT;
+        
+        ctx.json(suggestIndex.suggest(prefix.trim(), actualLimit));
+    }
+}
@@ -0,0 +1,7 @@
+package com.hashim.exception;
+
+public class ReplicaLagException extends RuntimeException {
+    public ReplicaLagException(String message) {
+        super(message);
+    }
+}
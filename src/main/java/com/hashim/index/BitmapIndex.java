@@ -0,0 +1,473 @@
+package com.hashim.index;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkFilter;
+import com.hashim.model.BookmarkStatus;
+import com.hashim.repository.BookmarkChangeListener;
+import com.hashim.repository.BookmarkRepository;
+import com.hashim.repository.Tombstones;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+/**
+ * Compressed bitmaps of bookmark ids, one per status, tag and domain, so that
+ * combined filters resolve as bitmap AND / OR / AND-NOT and counts come from
+ * cardinality.
+ *
+ * <p>Tag criteria keep the substring semantics of the SQL filter, restricted to
+ * a single tag: a criterion selects the union of every tag containing it. The
+ * result is therefore a superset of the {@code tags LIKE} matches and the
+ * listing query still re-checks it. Domain criteria match the host or any
+ * subdomain of it.
+ *
+ * <p>Memory is bounded by {@code maxKeys}, the number of distinct tags and
+ * domains. Past it new keys are no longer indexed, and filters on tags or
+ * domains fall back to SQL until the next rebuild.
+ *
+ * <p>Each id's entry carries its row version, and deleted ids leave a
+ * tombstone, so that change callbacks arriving out of order never replace a
+ * newer state with an older one.
+ */
+public class BitmapIndex implements BookmarkChangeListener {
+    private static final Logger logger = LoggerFactory.getLogger(BitmapIndex.class);
+    // Rough per-entry overhead of the id -> terms map (entry, record, version, array headers)
+    private static final int ENTRY_OVERHEAD_BYTES = 80;
+
+    private final BookmarkRepository bookmarkRepository;
+    private final int maxKeys;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Bitmaps bitmaps = new Bitmaps();
+    private boolean saturated;
+    // Changes made while a rebuild reads the table, replayed onto the new bitmaps
+    private List<Consumer<Bitmaps>> replayLog;
+
+    public BitmapIndex(BookmarkRepository bookmarkRepository, int maxKeys) {
+        this.bookmarkRepository = bookmarkRepository;
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Builds the index by reading id ranges of the table on {@code threads}
+     * threads and OR-ing the partial bitmaps together, replacing the current
+     * contents. Writes arriving meanwhile are replayed onto the new bitmaps.
+     */
+    public void rebuild(int threads) {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            replayLog = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        long maxId = bookmarkRepository.findMaxId();
+        int parts = (int) Math.max(1, Math.min(threads, maxId / 10_000 + 1));
+        long step = maxId / parts + 1;
+        
+        ExecutorService executor = Executors.newFixedThreadPool(parts, r -> {
+            Thread thread = new Thread(r, "bitmap-index-build");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Bitmaps>> futures = new ArrayList<>();
+            for (int i = 0; i < parts; i++) {
+                long fromId = i == 0 ? Long.MIN_VALUE : i * step;
+                long toId = i == parts - 1 ? Long.MAX_VALUE : (i + 1) * step;
+                futures.add(executor.submit(() -> {
+                    Bitmaps partial = new Bitmaps();
+                    bookmarkRepository.forEachInRange(fromId, toId, bookmark -> partial.add(bookmark, Integer.MAX_VALUE));
+                    return partial;
+                }));
+            }
+            
+            Bitmaps merged = new Bitmaps();
+            for (Future<Bitmaps> future : futures) {
+                merged.merge(future.get());
+            }
+            boolean overLimit = merged.keyCount() > maxKeys;
+            if (overLimit) {
+                // Term bitmaps would not be used anyway; keep only status filtering
+                merged.tags.clear();
+                merged.domains.clear();
+            }
+            merged.optimize();
+            
+            lock.writeLock().lock();
+            try {
+                bitmaps = merged;
+                saturated = overLimit;
+                replayLog.forEach(event -> event.accept(merged));
+                replayLog = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (overLimit) {
+                logger.warn("Bitmap index is over the limit of {} tag/domain keys; term filters will use SQL", maxKeys);
+            }
+            logger.info("Bitmap index built: {} bookmarks, {} tags, {} domains, {} KB in {} ms ({} threads)",
+                    merged.all.getCardinality(), merged.tags.size(), merged.domains.size(),
+                    merged.bitmapBytes() / 1024, (System.nanoTime() - start) / 1_000_000, parts);
+            
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            discardReplayLog();
+            throw new RuntimeException("Interrupted while building bitmap index", e);
+        } catch (ExecutionException e) {
+            discardReplayLog();
+            throw new RuntimeException("Failed to build bitmap index", e.getCause());
+        } catch (RuntimeException e) {
+            discardReplayLog();
+            throw e;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Resolves the status and term criteria of {@code filter} (not its search
+     * query) to a bitmap of ids, or returns null when the index cannot answer.
+     */
+    public RoaringBitmap resolve(BookmarkFilter filter) {
+        lock.readLock().lock();
+        try {
+            if (bitmaps.unindexable || (saturated && filter.hasTermFilters())) {
+                return null;
+            }
+            
+            RoaringBitmap result;
+            if (filter.status() != null) {
+                RoaringBitmap status = bitmaps.statuses.get(filter.status());
+                result = status != null ? status.clone() : new RoaringBitmap();
+            } else {
+                result = bitmaps.all.clone();
+            }
+            
+            for (String tag : filter.tags()) {
+                RoaringBitmap matches = matchTags(tag);
+                if (matches == null) {
+                    return null;
+                }
+                result.and(matches);
+            }
+            for (String tag : filter.excludedTags()) {
+                RoaringBitmap matches = matchTags(tag);
+                if (matches == null) {
+                    return null;
+                }
+                result.andNot(matches);
+            }
+            if (!filter.domains().isEmpty()) {
+                RoaringBitmap anyDomain = new RoaringBitmap();
+                for (String domain : filter.domains()) {
+                    anyDomain.or(matchDomain(domain));
+                }
+                result.and(anyDomain);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Memory use and key counts, for the admin endpoint.
+     */
+    public Map<String, Object> getFootprint() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> footprint = new LinkedHashMap<>();
+            long bitmapBytes = bitmaps.bitmapBytes();
+            long entryBytes = (long) bitmaps.entries.size() * ENTRY_OVERHEAD_BYTES;
+            footprint.put("bookmarks", bitmaps.all.getCardinality());
+            footprint.put("statuses", bitmaps.statuses.size());
+            footprint.put("tags", bitmaps.tags.size());
+            footprint.put("domains", bitmaps.domains.size());
+            footprint.put("maxKeys", maxKeys);
+            footprint.put("saturated", saturated);
+            footprint.put("bitmapBytes", bitmapBytes);
+            footprint.put("entryBytesEstimate", entryBytes);
+            footprint.put("totalBytesEstimate", bitmapBytes + entryBytes);
+            return footprint;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onCreated(Bookmark bookmark) {
+        update(bookmark);
+    }
+
+    @Override
+    public void onUpdated(Bookmark bookmark) {
+        update(bookmark);
+    }
+
+    @Override
+    public void onStatusChanged(Long id, BookmarkStatus status, LocalDateTime updatedAt, long version) {
+        apply(target -> target.setStatus(id, status, version));
+    }
+
+    @Override
+    public void onDeleted(Long id, long version) {
+        apply(target -> target.delete(id, version));
+    }
+
+    private void update(Bookmark bookmark) {
+        apply(target -> {
+            if (target.isStale(bookmark.getId(), bookmark.getVersion())) {
+                return;
+            }
+            target.remove(bookmark.getId());
+            int room = maxKeys - target.keyCount();
+            if (!target.add(bookmark, room)) {
+                if (!saturated) {
+                    logger.warn("Bitmap index reached {} tag/domain keys; term filters will use SQL", maxKeys);
+                }
+                saturated = true;
+            }
+        });
+    }
+
+    private void apply(Consumer<Bitmaps> event) {
+        lock.writeLock().lock();
+        try {
+            event.accept(bitmaps);
+            if (replayLog != null) {
+                replayLog.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void discardReplayLog() {
+        lock.writeLock().lock();
+        try {
+            replayLog = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private RoaringBitmap matchTags(String criterion) {
+        String term = BookmarkTerms.normalize(criterion);
+        // LIKE wildcards and separators can match across or beyond single tags
+        if (term.isEmpty() || term.indexOf(',') >= 0 || term.indexOf('%') >= 0 || term.indexOf('_') >= 0) {
+            return null;
+        }
+        RoaringBitmap exact = bitmaps.tags.get(term);
+        RoaringBitmap result = exact != null ? exact.clone() : new RoaringBitmap();
+        for (Map.Entry<String, RoaringBitmap> entry : bitmaps.tags.entrySet()) {
+            if (entry.getKey().length() > term.length() && entry.getKey().contains(term)) {
+                result.or(entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    private RoaringBitmap matchDomain(String criterion) {
+        String domain = BookmarkTerms.domainCriterion(criterion);
+        String suffix = "." + domain;
+        RoaringBitmap exact = bitmaps.domains.get(domain);
+        RoaringBitmap result = exact != null ? exact.clone() : new RoaringBitmap();
+        for (Map.Entry<String, RoaringBitmap> entry : bitmaps.domains.entrySet()) {
+            if (entry.getKey().endsWith(suffix)) {
+                result.or(entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The bitmaps plus what each id was indexed under, so that updates and
+     * deletes clear exactly the bits that were set, and at which version.
+     */
+    private static final class Bitmaps {
+        private final Map<BookmarkStatus, RoaringBitmap> statuses = new EnumMap<>(BookmarkStatus.class);
+        private final Map<String, RoaringBitmap> tags = new HashMap<>();
+        private final Map<String, RoaringBitmap> domains = new HashMap<>();
+        private final RoaringBitmap all = new RoaringBitmap();
+        private final Int2ObjectOpenHashMap<Entry> entries = new Int2ObjectOpenHashMap<>();
+        private final Tombstones tombstones = new Tombstones();
+        private boolean unindexable;
+
+        /**
+         * Indexes a bookmark, creating at most {@code room} new keys. Returns
+         * false if some of its tags or its domain had to be left out.
+         */
+        boolean add(Bookmark bookmark, int room) {
+            Long bookmarkId = bookmark.getId();
+            if (bookmarkId == null || bookmarkId < 0 || bookmarkId > Integer.MAX_VALUE) {
+                unindexable = true;
+                return true;
+            }
+            int id = bookmarkId.intValue();
+            
+            String[] tagTerms = BookmarkTerms.tags(bookmark.getTags());
+            String domain = BookmarkTerms.domain(bookmark.getUrl());
+            boolean complete = true;
+            
+            all.add(id);
+            statuses.computeIfAbsent(bookmark.getStatus(), s -> new RoaringBitmap()).add(id);
+            for (String tag : tagTerms) {
+                RoaringBitmap bitmap = tags.get(tag);
+                if (bitmap == null) {
+                    if (room <= 0) {
+                        complete = false;
+                        continue;
+                    }
+                    bitmap = new RoaringBitmap();
+                    tags.put(tag, bitmap);
+                    room--;
+                }
+                bitmap.add(id);
+            }
+            if (domain != null) {
+                RoaringBitmap bitmap = domains.get(domain);
+                if (bitmap == null && room > 0) {
+                    bitmap = new RoaringBitmap();
+                    domains.put(domain, bitmap);
+                }
+                if (bitmap != null) {
+                    bitmap.add(id);
+                } else {
+                    complete = false;
+                }
+            }
+            entries.put(id, new Entry(bookmark.getStatus(), tagTerms, domain, bookmark.getVersion()));
+            return complete;
+        }
+
+        /**
+         * Whether a change of {@code bookmarkId} at {@code version} is older
+         * than what is indexed for it, or than its delete.
+         */
+        boolean isStale(Long bookmarkId, Long version) {
+            if (bookmarkId == null || bookmarkId < 0 || bookmarkId > Integer.MAX_VALUE || version == null) {
+                return false;
+            }
+            if (tombstones.covers(bookmarkId, version)) {
+                return true;
+            }
+            Entry entry = entries.get(bookmarkId.intValue());
+            return entry != null && entry.version != null && entry.version >= version;
+        }
+
+        void setStatus(Long bookmarkId, BookmarkStatus status, long version) {
+            Entry entry = bookmarkId != null && bookmarkId <= Integer.MAX_VALUE ? entries.get(bookmarkId.intValue()) : null;
+            if (entry == null || isStale(bookmarkId, version)) {
+                return;
+            }
+            int id = bookmarkId.intValue();
+            statuses.get(entry.status).remove(id);
+            statuses.computeIfAbsent(status, s -> new RoaringBitmap()).add(id);
+            entries.put(id, new Entry(status, entry.tags, entry.domain, version));
+        }
+
+        void delete(Long bookmarkId, long version) {
+            if (bookmarkId == null) {
+                return;
+            }
+            tombstones.add(bookmarkId, version);
+            Entry entry = bookmarkId <= Integer.MAX_VALUE ? entries.get(bookmarkId.intValue()) : null;
+            // Restored since, at a higher version
+            if (entry != null && entry.version != null && entry.version > version) {
+                return;
+            }
+            remove(bookmarkId);
+        }
+
+        void remove(Long bookmarkId) {
+            if (bookmarkId == null || bookmarkId < 0 || bookmarkId > Integer.MAX_VALUE) {
+                return;
+            }
+            int id = bookmarkId.intValue();
+            Entry entry = entries.remove(id);
+            if (entry == null) {
+                return;
+            }
+            all.remove(id);
+            statuses.get(entry.status).remove(id);
+            for (String tag : entry.tags) {
+                removeFrom(tags, tag, id);
+            }
+            if (entry.domain != null) {
+                removeFrom(domains, entry.domain, id);
+            }
+        }
+
+        /**
+         * Adds a partial index covering a disjoint id range.
+         */
+        void merge(Bitmaps other) {
+            all.or(other.all);
+            other.statuses.forEach((status, bitmap) ->
+                    statuses.computeIfAbsent(status, s -> new RoaringBitmap()).or(bitmap));
+            other.tags.forEach((tag, bitmap) -> tags.computeIfAbsent(tag, t -> new RoaringBitmap()).or(bitmap));
+            other.domains.forEach((domain, bitmap) ->
+                    domains.computeIfAbsent(domain, d -> new RoaringBitmap()).or(bitmap));
+            entries.putAll(other.entries);
+            unindexable |= other.unindexable;
+        }
+
+        void optimize() {
+            all.runOptimize();
+            statuses.values().forEach(RoaringBitmap::runOptimize);
+            tags.values().forEach(RoaringBitmap::runOptimize);
+            domains.values().forEach(RoaringBitmap::runOptimize);
+            entries.trim();
+        }
+
+        int keyCount() {
+            return tags.size() + domains.size();
+        }
+
+        long bitmapBytes() {
+            long bytes = all.getLongSizeInBytes();
+            for (RoaringBitmap bitmap : statuses.values()) {
+                bytes += bitmap.getLongSizeInBytes();
+            }
+            for (RoaringBitmap bitmap : tags.values()) {
+                bytes += bitmap.getLongSizeInBytes();
+            }
+            for (RoaringBitmap bitmap : domains.values()) {
+                bytes += bitmap.getLongSizeInBytes();
+            }
+            return bytes;
+        }
+
+        private static void removeFrom(Map<String, RoaringBitmap> bitmaps, String key, int id) {
+            RoaringBitmap bitmap = bitmaps.get(key);
+            if (bitmap != null) {
+                bitmap.remove(id);
+                if (bitmap.isEmpty()) {
+                    bitmaps.remove(key);
+                }
+            }
+        }
+    }
+
+    private record Entry(BookmarkStatus status, String[] tags, String domain, Long version) {
+    }
+}
@@ -0,0 +1,105 @@
+package com.hashim.index;
+
+import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkFilter;
+
+/**
+ * Evaluates a {@link BookmarkFilter} in Java with the same semantics as the SQL
+ * built by {@code BookmarkQueryRepository}: {@code LIKE} with {@code %} and
+ * {@code _} wildcards, case-insensitive for ASCII letters only, and false on
+ * NULL columns for both {@code LIKE} and {@code NOT LIKE}. Domains are matched
+ * on the URL host, like the bitmap index.
+ */
+public final class BookmarkMatcher {
+
+    private BookmarkMatcher() {
+    }
+
+    public static boolean matches(BookmarkFilter filter, Bookmark bookmark) {
+        return matches(filter, bookmark.getUrl(), bookmark.getTitle(), bookmark.getTags(), bookmark.getNotes(),
+                bookmark.getStatus() != null ? bookmark.getStatus().name() : null);
+    }
+
+    static boolean matches(BookmarkFilter filter, String url, String title, String tags, String notes,
+                           String status) {
+        if (filter.status() != null && !filter.status().name().equals(status)) {
+            return false;
+        }
+        
+        String query = filter.searchQuery();
+        if (query != null && !query.trim().isEmpty()) {
+            String pattern = "%" + query + "%";
+            if (!like(url, pattern) && !like(title, pattern) && !like(tags, pattern) && !like(notes, pattern)) {
+                return false;
+            }
+        }
+        
+        for (String tag : filter.tags()) {
+            if (!like(tags, "%" + tag + "%")) {
+                return false;
+            }
+        }
+        for (String tag : filter.excludedTags()) {
+            if (tags == null || like(tags, "%" + tag + "%")) {
+                return false;
+            }
+        }
+        
+        if (!filter.domains().isEmpty()) {
+            String host = BookmarkTerms.domain(url);
+            if (host == null) {
+                return false;
+            }
+            boolean any = false;
+            for (String domain : filter.domains()) {
+                String normalized = BookmarkTerms.normalize(domain);
+                if (host.equals(normalized) || host.endsWith("." + normalized)) {
+                    any = true;
+                    break;
+                }
+            }
+            if (!any) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * SQLite {@code value LIKE pattern} without an ESCAPE clause.
+     */
+    public static boolean like(String value, String pattern) {
+        if (value == null) {
+            return false;
+        }
+        
+        // Greedy matching with backtracking to the last '%'
+        int v = 0;
+        int p = 0;
+        int starP = -1;
+        int starV = 0;
+        while (v < value.length()) {
+            if (p < pattern.length() && pattern.charAt(p) == '%') {
+                starP = p++;
+                starV = v;
+            } else if (p < pattern.length()
+                    && (pattern.charAt(p) == '_' || foldAscii(pattern.charAt(p)) == foldAscii(value.charAt(v)))) {
+                p++;
+                v++;
+            } else if (starP >= 0) {
+                p = starP + 1;
+                v = ++starV;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '%') {
+            p++;
+        }
+        return p == pattern.length();
+    }
+
+    private static char foldAscii(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+}
@@ -0,0 +1,82 @@
+package com.hashim.index;
+
+import java.net.URI;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Normalized terms extracted from bookmark fields, shared by the in-memory indexes.
+ */
+public final class BookmarkTerms {
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int MIN_WORD_LENGTH = 2;
+
+    private BookmarkTerms() {
+    }
+
+    /**
+     * Distinct lower-cased tags from a comma-separated tag string.
+     */
+    static String[] tags(String tags) {
+        Set<String> result = new LinkedHashSet<>();
+        if (tags != null) {
+            for (String tag : tags.split(",")) {
+                String normalized = normalize(tag);
+                if (!normalized.isEmpty()) {
+                    result.add(normalized);
+                }
+            }
+        }
+        return result.toArray(new String[0]);
+    }
+
+    /**
+     * Distinct lower-cased words of at least two letters or digits.
+     */
+    static String[] words(String text) {
+        Set<String> result = new LinkedHashSet<>();
+        if (text != null) {
+            for (String word : WORD_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+                if (word.length() >= MIN_WORD_LENGTH) {
+                    result.add(word);
+                }
+            }
+        }
+        return result.toArray(new String[0]);
+    }
+
+    /**
+     * Lower-cased host of a URL without a leading {@code www.}, or null if it has none.
+     */
+    public static String domain(String url) {
+        if (url == null) {
+            return null;
+        }
+        try {
+            String host = URI.create(url).getHost();
+            if (host == null) {
+                return null;
+            }
+            return withoutWww(host.toLowerCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A domain filter criterion in the form {@link #domain} indexes hosts.
+     */
+    static String domainCriterion(String criterion) {
+        return withoutWww(normalize(criterion));
+    }
+
+    private static String withoutWww(String host) {
+        return host.startsWith("www.") ? host.substring(4) : host;
+    }
+
+    static String normalize(String term) {
+        return term.trim().toLowerCase(Locale.ROOT);
+    }
+}
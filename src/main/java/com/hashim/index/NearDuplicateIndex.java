@@ -0,0 +1,577 @@
+package com.hashim.index;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkStatus;
+import com.hashim.repository.BookmarkChangeListener;
+import com.hashim.repository.BookmarkRepository;
+import com.hashim.repository.Tombstones;
+import com.hashim.util.SimHash;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2LongOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+/**
+ * Finds bookmarks whose SimHash (see {@link SimHash}) is at most
+ * {@code maxDistance} bits away from another's, i.e. near-duplicates.
+ *
+ * <p>Signatures are split into {@code maxDistance + 1} bands and every bookmark
+ * is bucketed under each of its band values. Two signatures that differ in at
+ * most {@code maxDistance} bits must agree on at least one band, so comparing
+ * a bookmark with the other members of its buckets finds every near-duplicate
+ * without scanning the whole corpus.
+ *
+ * <p>Signatures are read from the {@code simhash} column at startup. Rows that
+ * have none yet (written before the column existed, or restored from the
+ * archive) are hashed on a fork-join pool and, unless {@code writeBack} is off,
+ * stored. Afterwards the index follows writes, hashing the committed row.
+ * The version of each indexed row is kept, and deleted ids leave a tombstone,
+ * so that a late callback never brings back an older signature or a deleted
+ * bookmark.
+ */
+public class NearDuplicateIndex implements BookmarkChangeListener {
+    private static final Logger logger = LoggerFactory.getLogger(NearDuplicateIndex.class);
+    // Rows hashed and stored per backfill task
+    private static final int BACKFILL_BATCH = 1000;
+    // Buckets compared per cluster scan task
+    private static final int SCAN_BATCH = 256;
+    // Rough per-entry overhead of the id -> signature and id -> version maps, and of a bucket slot
+    private static final int SIGNATURE_BYTES = 32;
+    private static final int BUCKET_SLOT_BYTES = 8;
+
+    private final BookmarkRepository bookmarkRepository;
+    private final int maxDistance;
+    private final int bands;
+    private final int threads;
+    // Followers leave the column to replication
+    private final boolean writeBack;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Signatures signatures;
+    // Changes made while a rebuild reads the table, replayed onto the new signatures
+    private List<Consumer<Signatures>> replayLog;
+
+    public NearDuplicateIndex(BookmarkRepository bookmarkRepository, int maxDistance, int threads, boolean writeBack) {
+        if (maxDistance < 1 || maxDistance > 15) {
+            throw new IllegalArgumentException("similarity.max-distance must be between 1 and 15");
+        }
+        this.bookmarkRepository = bookmarkRepository;
+        this.maxDistance = maxDistance;
+        this.bands = maxDistance + 1;
+        this.threads = Math.max(1, threads);
+        this.writeBack = writeBack;
+        this.signatures = new Signatures(bands);
+    }
+
+    /**
+     * Loads the stored signatures, computes the missing ones in parallel and
+     * builds the buckets, replacing the current contents. Writes arriving
+     * meanwhile are replayed onto the new signatures.
+     */
+    public void rebuild() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            replayLog = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Signatures built = new Signatures(bands);
+        try {
+            LongArrayList missing = new LongArrayList();
+            bookmarkRepository.forEachSignature((id, simhash, version) -> {
+                if (id < 0 || id > Integer.MAX_VALUE) {
+                    return;
+                }
+                built.versions.put((int) id, version);
+                if (simhash == null) {
+                    missing.add(id);
+                } else {
+                    built.add((int) id, simhash);
+                }
+            });
+
+            if (!missing.isEmpty()) {
+                long[] ids = missing.toLongArray();
+                long[] computed = new long[ids.length];
+                ForkJoinPool pool = newPool("near-duplicate-backfill");
+                try {
+                    pool.invoke(new Backfill(ids, computed, 0, ids.length));
+                } finally {
+                    pool.shutdownNow();
+                }
+                for (int i = 0; i < ids.length; i++) {
+                    built.add((int) ids[i], computed[i]);
+                }
+                logger.info("Computed {} missing bookmark signatures{}", ids.length,
+                        writeBack ? " and stored them" : "");
+            }
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                replayLog = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            replayLog.forEach(event -> event.accept(built));
+            replayLog = null;
+            signatures = built;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Near-duplicate index built: {} signatures, {} buckets in {} ms ({} threads)",
+                built.byId.size(), built.buckets.size(), (System.nanoTime() - start) / 1_000_000, threads);
+    }
+
+    /**
+     * Bookmarks within {@code maxDistance} bits of the given one, closest first.
+     * Empty if the bookmark is not indexed or has no words to hash.
+     */
+    public List<Match> similar(long bookmarkId, int limit) {
+        if (bookmarkId < 0 || bookmarkId > Integer.MAX_VALUE) {
+            return List.of();
+        }
+        int id = (int) bookmarkId;
+        List<Match> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (!signatures.byId.containsKey(id)) {
+                return List.of();
+            }
+            long signature = signatures.byId.get(id);
+            if (signature == 0) {
+                return List.of();
+            }
+            IntOpenHashSet seen = new IntOpenHashSet();
+            seen.add(id);
+            for (int band = 0; band < bands; band++) {
+                IntArrayList bucket = signatures.buckets.get(signatures.bucketKey(band, signature));
+                for (int i = 0; i < bucket.size(); i++) {
+                    int candidate = bucket.getInt(i);
+                    if (!seen.add(candidate)) {
+                        continue;
+                    }
+                    int distance = SimHash.distance(signature, signatures.byId.get(candidate));
+                    if (distance <= maxDistance) {
+                        matches.add(new Match(candidate, distance));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        matches.sort(Comparator.comparingInt(Match::distance).thenComparingLong(Match::id));
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    /**
+     * Groups of near-duplicates across the whole corpus, largest first. Buckets
+     * are compared on a fork-join pool and linked pairs are merged transitively,
+     * so members of a group can be further apart than {@code maxDistance}.
+     * The scan works on a copy of the signatures, so writes only wait for the copy.
+     */
+    public Map<String, Object> clusters(int minSize, int limit) {
+        long start = System.nanoTime();
+        Int2LongOpenHashMap byId;
+        List<IntArrayList> shared = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            byId = new Int2LongOpenHashMap(signatures.byId);
+            // Buckets with a single member cannot hold a pair
+            for (IntArrayList bucket : signatures.buckets.values()) {
+                if (bucket.size() > 1) {
+                    shared.add(new IntArrayList(bucket));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        IntArrayList[] buckets = shared.toArray(new IntArrayList[0]);
+        int scanned = buckets.length;
+        long[] pairs;
+        ForkJoinPool pool = newPool("near-duplicate-scan");
+        try {
+            pairs = pool.invoke(new PairScan(byId, buckets, 0, buckets.length)).toLongArray();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // Union-find over the linked pairs
+        Int2IntOpenHashMap parent = new Int2IntOpenHashMap();
+        parent.defaultReturnValue(-1);
+        for (long pair : pairs) {
+            int a = root(parent, (int) (pair >>> 32));
+            int b = root(parent, (int) pair);
+            if (a != b) {
+                parent.put(Math.max(a, b), Math.min(a, b));
+            }
+        }
+        Int2ObjectOpenHashMap<IntArrayList> groups = new Int2ObjectOpenHashMap<>();
+        IntOpenHashSet grouped = new IntOpenHashSet();
+        for (long pair : pairs) {
+            for (int id : new int[] { (int) (pair >>> 32), (int) pair }) {
+                if (!grouped.add(id)) {
+                    continue;
+                }
+                int root = root(parent, id);
+                IntArrayList group = groups.get(root);
+                if (group == null) {
+                    group = new IntArrayList();
+                    groups.put(root, group);
+                }
+                group.add(id);
+            }
+        }
+
+        List<int[]> clusters = new ArrayList<>();
+        for (IntArrayList group : groups.values()) {
+            if (group.size() >= minSize) {
+                int[] ids = group.toIntArray();
+                Arrays.sort(ids);
+                clusters.add(ids);
+            }
+        }
+        clusters.sort(Comparator.<int[]>comparingInt(ids -> -ids.length).thenComparingInt(ids -> ids[0]));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("maxDistance", maxDistance);
+        result.put("bucketsScanned", scanned);
+        result.put("clusterCount", clusters.size());
+        result.put("clusters", clusters.subList(0, Math.min(limit, clusters.size())));
+        result.put("scanMs", (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    /**
+     * Signature and bucket counts and estimated memory use, for the admin endpoint.
+     */
+    public Map<String, Object> getFootprint() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> footprint = new LinkedHashMap<>();
+            long slots = 0;
+            int largest = 0;
+            for (IntArrayList bucket : signatures.buckets.values()) {
+                slots += bucket.size();
+                largest = Math.max(largest, bucket.size());
+            }
+            long bytes = (long) signatures.byId.size() * SIGNATURE_BYTES + slots * BUCKET_SLOT_BYTES;
+            footprint.put("signatures", signatures.byId.size());
+            footprint.put("maxDistance", maxDistance);
+            footprint.put("bands", bands);
+            footprint.put("buckets", signatures.buckets.size());
+            footprint.put("largestBucket", largest);
+            footprint.put("totalBytesEstimate", bytes);
+            return footprint;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onCreated(Bookmark bookmark) {
+        update(bookmark);
+    }
+
+    @Override
+    public void onUpdated(Bookmark bookmark) {
+        update(bookmark);
+    }
+
+    @Override
+    public void onStatusChanged(Long id, BookmarkStatus status, LocalDateTime updatedAt, long version) {
+        // Status is not part of the signature, but an update older than this one must no longer apply
+        if (id == null || id < 0 || id > Integer.MAX_VALUE) {
+            return;
+        }
+        apply(target -> target.advance(id.intValue(), version));
+    }
+
+    @Override
+    public void onDeleted(Long id, long version) {
+        if (id == null || id < 0 || id > Integer.MAX_VALUE) {
+            return;
+        }
+        apply(target -> target.delete(id.intValue(), version));
+    }
+
+    private void update(Bookmark bookmark) {
+        Long id = bookmark.getId();
+        if (id == null || id < 0 || id > Integer.MAX_VALUE) {
+            return;
+        }
+        // Same function as the column, so the index agrees with the stored value
+        long signature = SimHash.of(bookmark.getUrl(), bookmark.getTitle(), bookmark.getNotes());
+        Long version = bookmark.getVersion();
+        apply(target -> {
+            if (target.isStale(id.intValue(), version)) {
+                return;
+            }
+            target.remove(id.intValue());
+            target.add(id.intValue(), signature);
+            if (version != null) {
+                target.versions.put(id.intValue(), version.longValue());
+            }
+        });
+    }
+
+    private void apply(Consumer<Signatures> event) {
+        lock.writeLock().lock();
+        try {
+            event.accept(signatures);
+            if (replayLog != null) {
+                replayLog.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private ForkJoinPool newPool(String name) {
+        return new ForkJoinPool(threads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(name + "-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    private static int root(Int2IntOpenHashMap parent, int id) {
+        int current = id;
+        int next;
+        while ((next = parent.get(current)) != -1) {
+            int grandparent = parent.get(next);
+            if (grandparent != -1) {
+                // Path halving keeps the trees shallow
+                parent.put(current, grandparent);
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    /**
+     * A near-duplicate of the bookmark looked up and its distance in bits.
+     */
+    public record Match(long id, int distance) {
+    }
+
+    /**
+     * Signature and row version per id, and the ids bucketed by each band of
+     * their signature. Bookmarks without words or domain (signature 0) are
+     * kept out of the buckets.
+     */
+    private static final class Signatures {
+        private final int bands;
+        private final int bandBits;
+        private final Int2LongOpenHashMap byId = new Int2LongOpenHashMap();
+        private final Int2LongOpenHashMap versions = new Int2LongOpenHashMap();
+        private final Tombstones tombstones = new Tombstones();
+        private final Long2ObjectOpenHashMap<IntArrayList> buckets = new Long2ObjectOpenHashMap<>();
+
+        Signatures(int bands) {
+            this.bands = bands;
+            this.bandBits = 64 / bands;
+            versions.defaultReturnValue(-1);
+        }
+
+        /**
+         * Whether a change of {@code id} at {@code version} is older than what
+         * is indexed for it, or than its delete.
+         */
+        boolean isStale(int id, Long version) {
+            return version != null && (tombstones.covers(id, version) || versions.get(id) >= version);
+        }
+
+        void advance(int id, long version) {
+            if (versions.containsKey(id) && versions.get(id) < version) {
+                versions.put(id, version);
+            }
+        }
+
+        void delete(int id, long version) {
+            tombstones.add(id, version);
+            // Unless restored since, at a higher version
+            if (versions.get(id) <= version) {
+                remove(id);
+                versions.remove(id);
+            }
+        }
+
+        void add(int id, long signature) {
+            byId.put(id, signature);
+            if (signature == 0) {
+                return;
+            }
+            for (int band = 0; band < bands; band++) {
+                long key = bucketKey(band, signature);
+                IntArrayList bucket = buckets.get(key);
+                if (bucket == null) {
+                    bucket = new IntArrayList(2);
+                    buckets.put(key, bucket);
+                }
+                bucket.add(id);
+            }
+        }
+
+        void remove(int id) {
+            if (!byId.containsKey(id)) {
+                return;
+            }
+            long signature = byId.remove(id);
+            if (signature == 0) {
+                return;
+            }
+            for (int band = 0; band < bands; band++) {
+                long key = bucketKey(band, signature);
+                IntArrayList bucket = buckets.get(key);
+                if (bucket != null && bucket.rem(id) && bucket.isEmpty()) {
+                    buckets.remove(key);
+                }
+            }
+        }
+
+        /**
+         * Band number in the high half, band bits in the low half. The last band
+         * takes the bits left over when 64 does not divide evenly (at most 32 in all).
+         */
+        long bucketKey(int band, long signature) {
+            int shift = band * bandBits;
+            int width = band == bands - 1 ? 64 - shift : bandBits;
+            long value = (signature >>> shift) & (width == 64 ? -1L : (1L << width) - 1);
+            return (long) band << 32 | value;
+        }
+    }
+
+    /**
+     * Hashes the rows in a slice of the missing ids, reading them as one id
+     * range, and stores the results.
+     */
+    private final class Backfill extends RecursiveAction {
+        private final long[] ids;
+        private final long[] computed;
+        private final int from;
+        private final int to;
+
+        Backfill(long[] ids, long[] computed, int from, int to) {
+            this.ids = ids;
+            this.computed = computed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BACKFILL_BATCH) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Backfill(ids, computed, from, middle), new Backfill(ids, computed, middle, to));
+                return;
+            }
+            bookmarkRepository.forEachInRange(ids[from], ids[to - 1] + 1, bookmark -> {
+                int i = Arrays.binarySearch(ids, from, to, bookmark.getId());
+                if (i >= 0) {
+                    computed[i] = SimHash.of(bookmark.getUrl(), bookmark.getTitle(), bookmark.getNotes());
+                }
+            });
+            if (writeBack) {
+                bookmarkRepository.saveSignatures(Arrays.copyOfRange(ids, from, to),
+                        Arrays.copyOfRange(computed, from, to));
+            }
+        }
+    }
+
+    /**
+     * Links the members of a range of buckets that are within
+     * {@code maxDistance} of each other, as (id, id) pairs packed into longs.
+     * Equal signatures are linked in a chain and compared only once.
+     */
+    private final class PairScan extends RecursiveTask<LongArrayList> {
+        private final Int2LongOpenHashMap byId;
+        private final IntArrayList[] buckets;
+        private final int from;
+        private final int to;
+
+        PairScan(Int2LongOpenHashMap byId, IntArrayList[] buckets, int from, int to) {
+            this.byId = byId;
+            this.buckets = buckets;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected LongArrayList compute() {
+            if (to - from > SCAN_BATCH) {
+                int middle = (from + to) >>> 1;
+                PairScan left = new PairScan(byId, buckets, from, middle);
+                left.fork();
+                LongArrayList pairs = new PairScan(byId, buckets, middle, to).compute();
+                pairs.addAll(left.join());
+                return pairs;
+            }
+
+            LongArrayList pairs = new LongArrayList();
+            Long2IntOpenHashMap firstWithSignature = new Long2IntOpenHashMap();
+            firstWithSignature.defaultReturnValue(-1);
+            LongArrayList distinct = new LongArrayList();
+            IntArrayList distinctIds = new IntArrayList();
+            for (int b = from; b < to; b++) {
+                IntArrayList bucket = buckets[b];
+                if (bucket.size() < 2) {
+                    continue;
+                }
+                firstWithSignature.clear();
+                distinct.clear();
+                distinctIds.clear();
+                for (int i = 0; i < bucket.size(); i++) {
+                    int id = bucket.getInt(i);
+                    long signature = byId.get(id);
+                    int first = firstWithSignature.get(signature);
+                    if (first == -1) {
+                        firstWithSignature.put(signature, id);
+                        distinct.add(signature);
+                        distinctIds.add(id);
+                    } else {
+                        pairs.add((long) first << 32 | id);
+                    }
+                }
+                for (int i = 0; i < distinct.size(); i++) {
+                    for (int j = i + 1; j < distinct.size(); j++) {
+                        if (SimHash.distance(distinct.getLong(i), distinct.getLong(j)) <= maxDistance) {
+                            pairs.add((long) distinctIds.getInt(i) << 32 | distinctIds.getInt(j));
+                        }
+                    }
+                }
+            }
+            return pairs;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.hashim.index;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Compressed prefix tree (radix tree) of terms with occurrence counts.
+ *
+ * <p>Chains of single-child nodes are collapsed into one edge label, and every
+ * node caches the highest count found in its subtree. That lets
+ * {@link #top(String, int)} walk the subtree best-first and stop after
+ * {@code k} terms instead of visiting every completion of a short prefix.
+ *
+ * <p>Not thread-safe; callers synchronize.
+ */
+public class RadixTrie {
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final Node root = new Node("");
+    private int terms;
+
+    /**
+     * A suggested term and how many bookmarks contain it.
+     */
+    public record Entry(String term, int count) {
+    }
+
+    /**
+     * Adjusts the count of {@code term} by {@code delta}, removing it when the
+     * count drops to zero.
+     */
+    public void add(String term, int delta) {
+        if (term.isEmpty() || delta == 0) {
+            return;
+        }
+        add(root, term, 0, delta);
+    }
+
+    public int count(String term) {
+        Node node = root;
+        int position = 0;
+        while (position < term.length()) {
+            Node child = node.child(term.charAt(position));
+            if (child == null || !term.startsWith(child.edge, position)) {
+                return 0;
+            }
+            position += child.edge.length();
+            node = child;
+        }
+        return node.count;
+    }
+
+    /**
+     * Number of distinct terms.
+     */
+    public int size() {
+        return terms;
+    }
+
+    /**
+     * Returns up to {@code limit} terms starting with {@code prefix}, most
+     * frequent first, ties broken alphabetically.
+     */
+    public List<Entry> top(String prefix, int limit) {
+        // Descend to the node covering the prefix; it may end part-way along an edge
+        Node node = root;
+        StringBuilder path = new StringBuilder();
+        int position = 0;
+        while (position < prefix.length()) {
+            Node child = node.child(prefix.charAt(position));
+            if (child == null) {
+                return List.of();
+            }
+            int common = commonPrefix(child.edge, prefix, position);
+            if (common < child.edge.length() && position + common < prefix.length()) {
+                return List.of();
+            }
+            path.append(child.edge);
+            position += common;
+            node = child;
+        }
+        
+        List<Entry> result = new ArrayList<>(limit);
+        PriorityQueue<Candidate> queue = new PriorityQueue<>(Candidate.ORDER);
+        queue.add(new Candidate(node, path.toString(), node.best, false));
+        while (!queue.isEmpty() && result.size() < limit) {
+            Candidate candidate = queue.poll();
+            if (candidate.terminal) {
+                result.add(new Entry(candidate.text, candidate.score));
+                continue;
+            }
+            Node current = candidate.node;
+            if (current.count > 0) {
+                queue.add(new Candidate(current, candidate.text, current.count, true));
+            }
+            for (Node child : current.children) {
+                queue.add(new Candidate(child, candidate.text + child.edge, child.best, false));
+            }
+        }
+        return result;
+    }
+
+    private void add(Node node, String term, int position, int delta) {
+        if (position == term.length()) {
+            int before = node.count;
+            node.count = Math.max(0, node.count + delta);
+            if (before == 0 && node.count > 0) {
+                terms++;
+            } else if (before > 0 && node.count == 0) {
+                terms--;
+            }
+        } else {
+            char first = term.charAt(position);
+            Node child = node.child(first);
+            if (child == null) {
+                if (delta < 0) {
+                    return;
+                }
+                child = new Node(term.substring(position));
+                node.addChild(child);
+            } else {
+                int common = commonPrefix(child.edge, term, position);
+                if (common < child.edge.length()) {
+                    if (delta < 0) {
+                        return;
+                    }
+                    child = node.split(child, common);
+                }
+            }
+            add(child, term, position + child.edge.length(), delta);
+            
+            if (child.count == 0 && child.children.length == 0) {
+                node.removeChild(child);
+            } else if (child.count == 0 && child.children.length == 1) {
+                node.replaceChild(child, child.merged());
+            }
+        }
+        node.updateBest();
+    }
+
+    private static int commonPrefix(String edge, String term, int offset) {
+        int max = Math.min(edge.length(), term.length() - offset);
+        int i = 0;
+        while (i < max && edge.charAt(i) == term.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static final class Node {
+        private String edge;
+        private Node[] children = NO_CHILDREN;
+        private int count;
+        private int best;
+
+        Node(String edge) {
+            this.edge = edge;
+        }
+
+        /**
+         * Children are kept sorted by the first character of their edge.
+         */
+        Node child(char first) {
+            int index = indexOf(first);
+            return index >= 0 ? children[index] : null;
+        }
+
+        void addChild(Node child) {
+            int index = -indexOf(child.edge.charAt(0)) - 1;
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, index);
+            grown[index] = child;
+            System.arraycopy(children, index, grown, index + 1, children.length - index);
+            children = grown;
+        }
+
+        void removeChild(Node child) {
+            int index = indexOf(child.edge.charAt(0));
+            Node[] shrunk = new Node[children.length - 1];
+            System.arraycopy(children, 0, shrunk, 0, index);
+            System.arraycopy(children, index + 1, shrunk, index, children.length - index - 1);
+            children = shrunk.length == 0 ? NO_CHILDREN : shrunk;
+        }
+
+        void replaceChild(Node child, Node replacement) {
+            children[indexOf(child.edge.charAt(0))] = replacement;
+        }
+
+        /**
+         * Splits {@code child}'s edge after {@code length} characters and
+         * returns the new intermediate node.
+         */
+        Node split(Node child, int length) {
+            int index = indexOf(child.edge.charAt(0));
+            Node middle = new Node(child.edge.substring(0, length));
+            child.edge = child.edge.substring(length);
+            middle.children = new Node[] {child};
+            middle.best = child.best;
+            children[index] = middle;
+            return middle;
+        }
+
+        /**
+         * Collapses this count-less node into its only child.
+         */
+        Node merged() {
+            Node only = children[0];
+            only.edge = edge + only.edge;
+            return only;
+        }
+
+        void updateBest() {
+            int max = count;
+            for (Node child : children) {
+                max = Math.max(max, child.best);
+            }
+            best = max;
+        }
+
+        private int indexOf(char first) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char c = children[mid].edge.charAt(0);
+                if (c < first) {
+                    low = mid + 1;
+                } else if (c > first) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+
+    private record Candidate(Node node, String text, int score, boolean terminal) {
+        // Higher score first; at equal score terms come out alphabetically, and a
+        // term is emitted before subtrees that could only tie with it
+        static final Comparator<Candidate> ORDER = Comparator.comparingInt(Candidate::score).reversed()
+                .thenComparing(Candidate::text)
+                .thenComparing(candidate -> !candidate.terminal);
+    }
+}
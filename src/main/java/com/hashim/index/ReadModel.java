@@ -0,0 +1,370 @@
+package com.hashim.index;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkFilter;
+import com.hashim.model.BookmarkStatus;
+import com.hashim.repository.BookmarkChangeListener;
+import com.hashim.repository.BookmarkRepository;
+import com.hashim.repository.Tombstones;
+
+/**
+ * The whole bookmark table held in memory as an immutable snapshot, so reads
+ * never touch SQLite. SQLite stays the durable store.
+ *
+ * <p>Rows are kept in id order in fixed-size chunks. A committed write copies
+ * only the chunk it touches plus the chunk directory, and publishes the new
+ * snapshot through a volatile field; readers just load that field and never
+ * block or retry. Writers are serialized among themselves, and a row is only
+ * replaced by one with a higher version. Deleted rows leave a tombstone, so a
+ * late callback of an earlier write does not bring them back.
+ */
+public class ReadModel implements BookmarkChangeListener {
+    private static final Logger logger = LoggerFactory.getLogger(ReadModel.class);
+    private static final int CHUNK_SIZE = 64;
+
+    private final BookmarkRepository bookmarkRepository;
+    private final Object writeLock = new Object();
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    // Guarded by writeLock
+    private final Tombstones tombstones = new Tombstones();
+    // Changes published while load() reads the table, re-applied to what it read; null otherwise
+    private List<UnaryOperator<Snapshot>> changesDuringLoad;
+
+    public ReadModel(BookmarkRepository bookmarkRepository) {
+        this.bookmarkRepository = bookmarkRepository;
+    }
+
+    /**
+     * Loads every bookmark from the database and replaces the snapshot. Writes
+     * committed while it runs are applied again to the loaded rows, so it can
+     * also run while writes are being accepted (e.g. after a restore).
+     */
+    public synchronized void load() {
+        long start = System.nanoTime();
+        synchronized (writeLock) {
+            changesDuringLoad = new ArrayList<>();
+            // The table is the truth again, and after a restore it may hold lower versions
+            tombstones.clear();
+        }
+        try {
+            List<Row[]> chunks = new ArrayList<>();
+            List<Row> current = new ArrayList<>(CHUNK_SIZE);
+            int[] size = new int[1];
+            bookmarkRepository.forEach(bookmark -> {
+                current.add(Row.of(bookmark));
+                size[0]++;
+                if (current.size() == CHUNK_SIZE) {
+                    chunks.add(current.toArray(new Row[0]));
+                    current.clear();
+                }
+            });
+            if (!current.isEmpty()) {
+                chunks.add(current.toArray(new Row[0]));
+            }
+            
+            synchronized (writeLock) {
+                Snapshot loaded = new Snapshot(chunks.toArray(new Row[0][]), size[0]);
+                for (UnaryOperator<Snapshot> change : changesDuringLoad) {
+                    loaded = change.apply(loaded);
+                }
+                snapshot = loaded;
+            }
+            logger.info("Read model loaded: {} bookmarks in {} ms", size[0], (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            synchronized (writeLock) {
+                changesDuringLoad = null;
+            }
+        }
+    }
+
+    /**
+     * The current snapshot. It never changes; later writes publish new ones.
+     */
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public void onCreated(Bookmark bookmark) {
+        put(Row.of(bookmark));
+    }
+
+    @Override
+    public void onUpdated(Bookmark bookmark) {
+        put(Row.of(bookmark));
+    }
+
+    @Override
+    public void onStatusChanged(Long id, BookmarkStatus status, LocalDateTime updatedAt, long version) {
+        apply(current -> {
+            Row row = current.row(id);
+            if (row == null || (row.version != null && row.version >= version)) {
+                return current;
+            }
+            return current.with(new Row(row.id, row.url, row.title, row.tags, row.notes, status, row.createdAt,
+                    updatedAt != null ? updatedAt : row.updatedAt, version));
+        });
+    }
+
+    @Override
+    public void onDeleted(Long id, long version) {
+        apply(current -> {
+            tombstones.add(id, version);
+            Row existing = current.row(id);
+            // Restored since, at a higher version
+            if (existing != null && existing.version != null && existing.version > version) {
+                return current;
+            }
+            return current.without(id);
+        });
+    }
+
+    private void put(Row row) {
+        apply(current -> {
+            // Callbacks of concurrent writes can arrive out of order; never go back to an older
+            // row, nor bring back one deleted since
+            if (tombstones.covers(row.id, row.version)) {
+                return current;
+            }
+            Row existing = current.row(row.id);
+            if (existing != null && existing.version != null && row.version != null
+                    && existing.version >= row.version) {
+                return current;
+            }
+            return current.with(row);
+        });
+    }
+
+    private void apply(UnaryOperator<Snapshot> change) {
+        synchronized (writeLock) {
+            snapshot = change.apply(snapshot);
+            if (changesDuringLoad != null) {
+                changesDuringLoad.add(change);
+            }
+        }
+    }
+
+    /**
+     * An immutable view of all bookmarks. Results are fresh {@link Bookmark}
+     * copies that callers may modify.
+     */
+    public static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(new Row[0][], 0);
+
+        private final Row[][] chunks;
+        private final int size;
+
+        private Snapshot(Row[][] chunks, int size) {
+            this.chunks = chunks;
+            this.size = size;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public Bookmark findById(long id) {
+            Row row = row(id);
+            return row != null ? row.toBookmark() : null;
+        }
+
+        /**
+         * Filters, sorts and paginates in memory. {@code candidateIds}, when not
+         * null, restricts the scan to those ids; a negative {@code limit} means all.
+         */
+        public List<Bookmark> find(BookmarkFilter filter, int[] candidateIds, String sortBy, String order,
+                                   int limit, int offset) {
+            List<Row> matches = matching(filter, candidateIds);
+            matches.sort(comparator(sortBy, order));
+            
+            int from = Math.min(offset, matches.size());
+            int to = limit < 0 ? matches.size() : (int) Math.min(matches.size(), (long) from + limit);
+            List<Bookmark> page = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                page.add(matches.get(i).toBookmark());
+            }
+            return page;
+        }
+
+        public long count(BookmarkFilter filter, int[] candidateIds) {
+            return matching(filter, candidateIds).size();
+        }
+
+        private List<Row> matching(BookmarkFilter filter, int[] candidateIds) {
+            List<Row> matches = new ArrayList<>();
+            if (candidateIds != null) {
+                for (int id : candidateIds) {
+                    Row row = row(id);
+                    if (row != null && row.matches(filter)) {
+                        matches.add(row);
+                    }
+                }
+            } else {
+                for (Row[] chunk : chunks) {
+                    for (Row row : chunk) {
+                        if (row.matches(filter)) {
+                            matches.add(row);
+                        }
+                    }
+                }
+            }
+            return matches;
+        }
+
+        Row row(long id) {
+            int chunkIndex = chunkFor(id);
+            if (chunkIndex < 0) {
+                return null;
+            }
+            Row[] chunk = chunks[chunkIndex];
+            int position = search(chunk, id);
+            return position >= 0 ? chunk[position] : null;
+        }
+
+        /**
+         * Returns a snapshot with {@code row} inserted or replaced; untouched
+         * chunks are shared with this one.
+         */
+        Snapshot with(Row row) {
+            if (chunks.length == 0) {
+                return new Snapshot(new Row[][] {{row}}, 1);
+            }
+            int chunkIndex = Math.max(chunkFor(row.id), 0);
+            Row[] chunk = chunks[chunkIndex];
+            int position = search(chunk, row.id);
+            
+            if (position >= 0) {
+                Row[] replaced = chunk.clone();
+                replaced[position] = row;
+                return replaceChunk(chunkIndex, replaced, size);
+            }
+            
+            int insertAt = -position - 1;
+            Row[] grown = new Row[chunk.length + 1];
+            System.arraycopy(chunk, 0, grown, 0, insertAt);
+            grown[insertAt] = row;
+            System.arraycopy(chunk, insertAt, grown, insertAt + 1, chunk.length - insertAt);
+            if (grown.length <= CHUNK_SIZE * 2) {
+                return replaceChunk(chunkIndex, grown, size + 1);
+            }
+            
+            // Split an oversized chunk in two
+            Row[][] directory = new Row[chunks.length + 1][];
+            System.arraycopy(chunks, 0, directory, 0, chunkIndex);
+            directory[chunkIndex] = Arrays.copyOfRange(grown, 0, CHUNK_SIZE);
+            directory[chunkIndex + 1] = Arrays.copyOfRange(grown, CHUNK_SIZE, grown.length);
+            System.arraycopy(chunks, chunkIndex + 1, directory, chunkIndex + 2, chunks.length - chunkIndex - 1);
+            return new Snapshot(directory, size + 1);
+        }
+
+        Snapshot without(long id) {
+            int chunkIndex = chunkFor(id);
+            if (chunkIndex < 0) {
+                return this;
+            }
+            Row[] chunk = chunks[chunkIndex];
+            int position = search(chunk, id);
+            if (position < 0) {
+                return this;
+            }
+            
+            if (chunk.length == 1) {
+                Row[][] directory = new Row[chunks.length - 1][];
+                System.arraycopy(chunks, 0, directory, 0, chunkIndex);
+                System.arraycopy(chunks, chunkIndex + 1, directory, chunkIndex, chunks.length - chunkIndex - 1);
+                return new Snapshot(directory, size - 1);
+            }
+            Row[] shrunk = new Row[chunk.length - 1];
+            System.arraycopy(chunk, 0, shrunk, 0, position);
+            System.arraycopy(chunk, position + 1, shrunk, position, chunk.length - position - 1);
+            return replaceChunk(chunkIndex, shrunk, size - 1);
+        }
+
+        private Snapshot replaceChunk(int chunkIndex, Row[] chunk, int newSize) {
+            Row[][] directory = chunks.clone();
+            directory[chunkIndex] = chunk;
+            return new Snapshot(directory, newSize);
+        }
+
+        /**
+         * Index of the last chunk whose first id is at most {@code id}, or -1.
+         */
+        private int chunkFor(long id) {
+            int low = 0;
+            int high = chunks.length - 1;
+            int result = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (chunks[mid][0].id <= id) {
+                    result = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return result;
+        }
+
+        private static int search(Row[] chunk, long id) {
+            int low = 0;
+            int high = chunk.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long midId = chunk[mid].id;
+                if (midId < id) {
+                    low = mid + 1;
+                } else if (midId > id) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        private static Comparator<Row> comparator(String sortBy, String order) {
+            Comparator<Row> comparator = switch (sortBy != null ? sortBy.toLowerCase() : "created_at") {
+                case "updated_at" -> Comparator.comparing((Row row) -> row.updatedAt,
+                        Comparator.nullsFirst(Comparator.naturalOrder()));
+                case "title" -> Comparator.comparing((Row row) -> row.title,
+                        Comparator.nullsFirst(Comparator.naturalOrder()));
+                default -> Comparator.comparing((Row row) -> row.createdAt,
+                        Comparator.nullsFirst(Comparator.naturalOrder()));
+            };
+            comparator = comparator.thenComparingLong(row -> row.id);
+            return "desc".equalsIgnoreCase(order) ? comparator.reversed() : comparator;
+        }
+    }
+
+    /**
+     * Immutable copy of one bookmark row.
+     */
+    private record Row(long id, String url, String title, String tags, String notes, BookmarkStatus status,
+                       LocalDateTime createdAt, LocalDateTime updatedAt, Long version) {
+        static Row of(Bookmark bookmark) {
+            return new Row(bookmark.getId(), bookmark.getUrl(), bookmark.getTitle(), bookmark.getTags(),
+                    bookmark.getNotes(), bookmark.getStatus(), bookmark.getCreatedAt(), bookmark.getUpdatedAt(),
+                    bookmark.getVersion());
+        }
+
+        boolean matches(BookmarkFilter filter) {
+            return BookmarkMatcher.matches(filter, url, title, tags, notes, status != null ? status.name() : null);
+        }
+
+        Bookmark toBookmark() {
+            Bookmark bookmark = new Bookmark(id, url, title, tags, notes, status, createdAt, updatedAt);
+            bookmark.setVersion(version);
+            return bookmark;
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package com.hashim.index;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkStatus;
+import com.hashim.repository.BookmarkChangeListener;
+import com.hashim.repository.BookmarkRepository;
+import com.hashim.repository.Tombstones;
+
+import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+/**
+ * Related-bookmark recommendations from tag co-occurrence, kept in memory.
+ *
+ * <p>Tags are interned to int ids. The index holds each bookmark's tag ids, the
+ * bookmarks per tag, and a sparse symmetric matrix counting how many bookmarks
+ * carry each pair of tags. To recommend for a bookmark, its tags are weighted
+ * by inverse document frequency and expanded with the tags that co-occur with
+ * them (weighted by how often they do); bookmarks sharing the heaviest tags are
+ * candidates, scored by the summed weight of their tags over the square root
+ * of their tag count so that bookmarks with many tags are not favoured.
+ *
+ * <p>Only hot bookmarks are indexed. Tag ids are not reused, so the dictionary
+ * holds every distinct tag seen since the index was built. The row version
+ * last indexed for each bookmark is kept, and deleted ids leave a tombstone,
+ * so that a late callback never re-indexes older tags or a deleted bookmark.
+ */
+public class RelatedIndex implements BookmarkChangeListener {
+    private static final Logger logger = LoggerFactory.getLogger(RelatedIndex.class);
+    // Share of a co-occurring tag's weight relative to a tag the bookmark has
+    private static final double EXPANSION_WEIGHT = 0.5;
+    // Bookmarks scored per query; postings of popular tags are cut off here
+    private static final int MAX_CANDIDATES = 5_000;
+    // Rough heap cost per entry of each structure, for the footprint estimate
+    private static final int TAG_BYTES = 96;
+    private static final int COOCCURRENCE_ENTRY_BYTES = 11;
+    private static final int POSTING_ENTRY_BYTES = 11;
+    private static final int VECTOR_BYTES = 40;
+    private static final int VERSION_ENTRY_BYTES = 17;
+    // Ascending by score, then by id so that newer bookmarks win ties
+    private static final Comparator<Match> BY_SCORE = Comparator.comparingDouble(Match::score)
+            .thenComparingLong(Match::id);
+
+    private final BookmarkRepository bookmarkRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object2IntOpenHashMap<String> tagIds = new Object2IntOpenHashMap<>();
+    private final List<String> tagNames = new ArrayList<>();
+    private final Int2ObjectOpenHashMap<LongOpenHashSet> postings = new Int2ObjectOpenHashMap<>();
+    private final Int2ObjectOpenHashMap<Int2IntOpenHashMap> cooccurrence = new Int2ObjectOpenHashMap<>();
+    private final Long2ObjectOpenHashMap<int[]> vectors = new Long2ObjectOpenHashMap<>();
+    // Of every indexed bookmark, tagged or not
+    private final Long2LongOpenHashMap versions = new Long2LongOpenHashMap();
+    private final Tombstones tombstones = new Tombstones();
+    private long cooccurrenceEntries;
+
+    /**
+     * A recommended bookmark with its score and the tags it shares with the query bookmark.
+     */
+    public record Match(long id, double score, List<String> sharedTags) {
+    }
+
+    public RelatedIndex(BookmarkRepository bookmarkRepository) {
+        this.bookmarkRepository = bookmarkRepository;
+        tagIds.defaultReturnValue(-1);
+        versions.defaultReturnValue(-1);
+    }
+
+    /**
+     * Loads all bookmarks from the database, replacing the current contents.
+     * Writes are held off until it finishes.
+     */
+    public void build() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            tagIds.clear();
+            tagNames.clear();
+            postings.clear();
+            cooccurrence.clear();
+            vectors.clear();
+            versions.clear();
+            tombstones.clear();
+            cooccurrenceEntries = 0;
+            bookmarkRepository.forEach(bookmark -> {
+                index(bookmark.getId(), BookmarkTerms.tags(bookmark.getTags()));
+                setVersion(bookmark.getId(), bookmark.getVersion());
+            });
+            logger.info("Related index built: {} bookmarks, {} tags, {} tag pairs in {} ms", vectors.size(),
+                    postings.size(), cooccurrenceEntries / 2, (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Up to {@code limit} bookmarks related to the given one, best first.
+     * Empty if the bookmark has no tags or is not indexed.
+     */
+    public List<Match> related(long id, int limit) {
+        lock.readLock().lock();
+        try {
+            int[] own = vectors.get(id);
+            if (own == null || own.length == 0) {
+                return List.of();
+            }
+            Int2DoubleOpenHashMap profile = profile(own);
+            LongOpenHashSet candidates = candidates(id, profile);
+
+            PriorityQueue<Match> top = new PriorityQueue<>(limit + 1, BY_SCORE);
+            for (LongIterator it = candidates.iterator(); it.hasNext(); ) {
+                long candidate = it.nextLong();
+                int[] tags = vectors.get(candidate);
+                double score = 0;
+                for (int tag : tags) {
+                    score += profile.get(tag);
+                }
+                score /= Math.sqrt(tags.length);
+                if (top.size() < limit) {
+                    top.add(new Match(candidate, score, null));
+                } else if (compare(score, candidate, top.peek()) > 0) {
+                    top.poll();
+                    top.add(new Match(candidate, score, null));
+                }
+            }
+
+            List<Match> matches = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                Match match = top.poll();
+                matches.add(new Match(match.id(), Math.round(match.score() * 10_000) / 10_000.0,
+                        shared(own, vectors.get(match.id()))));
+            }
+            matches.sort(BY_SCORE.reversed());
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Size of the index and an estimate of its heap usage.
+     */
+    public Map<String, Object> getFootprint() {
+        lock.readLock().lock();
+        try {
+            long postingEntries = 0;
+            for (LongOpenHashSet posting : postings.values()) {
+                postingEntries += posting.size();
+            }
+            long vectorTags = 0;
+            for (int[] vector : vectors.values()) {
+                vectorTags += vector.length;
+            }
+            long bytes = (long) tagNames.size() * TAG_BYTES
+                    + cooccurrenceEntries * COOCCURRENCE_ENTRY_BYTES
+                    + postingEntries * POSTING_ENTRY_BYTES
+                    + (long) vectors.size() * VECTOR_BYTES + vectorTags * Integer.BYTES
+                    + (long) versions.size() * VERSION_ENTRY_BYTES;
+
+            Map<String, Object> footprint = new LinkedHashMap<>();
+            footprint.put("bookmarks", vectors.size());
+            footprint.put("tags", postings.size());
+            footprint.put("tagDictionary", tagNames.size());
+            footprint.put("tagPairs", cooccurrenceEntries / 2);
+            footprint.put("postings", postingEntries);
+            footprint.put("totalBytesEstimate", bytes);
+            footprint.put("bytesPer100k", vectors.isEmpty() ? 0 : bytes * 100_000 / vectors.size());
+            return footprint;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onCreated(Bookmark bookmark) {
+        reindex(bookmark);
+    }
+
+    @Override
+    public void onUpdated(Bookmark bookmark) {
+        reindex(bookmark);
+    }
+
+    @Override
+    public void onStatusChanged(Long id, BookmarkStatus status, LocalDateTime updatedAt, long version) {
+        // The tags stay the same, but an update older than this one must no longer apply
+        lock.writeLock().lock();
+        try {
+            if (versions.containsKey(id) && versions.get(id) < version) {
+                versions.put(id, version);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onDeleted(Long id, long version) {
+        lock.writeLock().lock();
+        try {
+            tombstones.add(id, version);
+            // Unless restored since, at a higher version
+            if (versions.get(id) <= version) {
+                unindex(id);
+                versions.remove(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void reindex(Bookmark bookmark) {
+        String[] tags = BookmarkTerms.tags(bookmark.getTags());
+        Long version = bookmark.getVersion();
+        lock.writeLock().lock();
+        try {
+            if (version != null && (tombstones.covers(bookmark.getId(), version)
+                    || versions.get(bookmark.getId()) >= version)) {
+                return;
+            }
+            unindex(bookmark.getId());
+            index(bookmark.getId(), tags);
+            setVersion(bookmark.getId(), version);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void setVersion(long id, Long version) {
+        if (version != null) {
+            versions.put(id, version);
+        } else {
+            versions.remove(id);
+        }
+    }
+
+    private void index(long id, String[] tags) {
+        if (tags.length == 0) {
+            return;
+        }
+        int[] vector = new int[tags.length];
+        for (int i = 0; i < tags.length; i++) {
+            vector[i] = intern(tags[i]);
+        }
+        Arrays.sort(vector);
+        for (int i = 0; i < vector.length; i++) {
+            postings.computeIfAbsent(vector[i], tag -> new LongOpenHashSet()).add(id);
+            for (int j = i + 1; j < vector.length; j++) {
+                addPair(vector[i], vector[j], 1);
+                addPair(vector[j], vector[i], 1);
+            }
+        }
+        vectors.put(id, vector);
+    }
+
+    private void unindex(long id) {
+        int[] vector = vectors.remove(id);
+        if (vector == null) {
+            return;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            LongOpenHashSet posting = postings.get(vector[i]);
+            posting.remove(id);
+            if (posting.isEmpty()) {
+                postings.remove(vector[i]);
+            }
+            for (int j = i + 1; j < vector.length; j++) {
+                addPair(vector[i], vector[j], -1);
+                addPair(vector[j], vector[i], -1);
+            }
+        }
+    }
+
+    private int intern(String tag) {
+        int id = tagIds.getInt(tag);
+        if (id < 0) {
+            id = tagNames.size();
+            tagIds.put(tag, id);
+            tagNames.add(tag);
+        }
+        return id;
+    }
+
+    private void addPair(int tag, int other, int delta) {
+        Int2IntOpenHashMap row = cooccurrence.computeIfAbsent(tag, key -> new Int2IntOpenHashMap());
+        int previous = row.addTo(other, delta);
+        if (previous == 0) {
+            cooccurrenceEntries++;
+        } else if (previous + delta == 0) {
+            row.remove(other);
+            cooccurrenceEntries--;
+            if (row.size() == 0) {
+                cooccurrence.remove(tag);
+            }
+        }
+    }
+
+    /**
+     * Tag weights for a query: each own tag by its IDF, plus each tag that
+     * co-occurs with it by the share of the own tag's bookmarks that carry it.
+     */
+    private Int2DoubleOpenHashMap profile(int[] own) {
+        int total = vectors.size();
+        Int2DoubleOpenHashMap profile = new Int2DoubleOpenHashMap();
+        for (int tag : own) {
+            int frequency = postings.get(tag).size();
+            profile.addTo(tag, idf(frequency, total));
+            Int2IntOpenHashMap row = cooccurrence.get(tag);
+            if (row != null) {
+                for (Int2IntOpenHashMap.Entry entry : row.int2IntEntrySet()) {
+                    int other = entry.getIntKey();
+                    double share = entry.getIntValue() / (double) frequency;
+                    profile.addTo(other, EXPANSION_WEIGHT * share * idf(postings.get(other).size(), total));
+                }
+            }
+        }
+        return profile;
+    }
+
+    /**
+     * Bookmarks carrying the heaviest tags of the profile, up to {@link #MAX_CANDIDATES}.
+     */
+    private LongOpenHashSet candidates(long id, Int2DoubleOpenHashMap profile) {
+        Int2DoubleOpenHashMap.Entry[] weighted = profile.int2DoubleEntrySet().toArray(new Int2DoubleOpenHashMap.Entry[0]);
+        Arrays.sort(weighted, Comparator.comparingDouble(Int2DoubleOpenHashMap.Entry::getDoubleValue).reversed());
+        LongOpenHashSet candidates = new LongOpenHashSet();
+        for (Int2DoubleOpenHashMap.Entry entry : weighted) {
+            for (LongIterator it = postings.get(entry.getIntKey()).iterator(); it.hasNext(); ) {
+                long candidate = it.nextLong();
+                if (candidate != id) {
+                    candidates.add(candidate);
+                }
+                if (candidates.size() >= MAX_CANDIDATES) {
+                    return candidates;
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private List<String> shared(int[] own, int[] other) {
+        List<String> shared = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < own.length && j < other.length) {
+            if (own[i] == other[j]) {
+                shared.add(tagNames.get(own[i]));
+                i++;
+                j++;
+            } else if (own[i] < other[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return shared;
+    }
+
+    private static double idf(int frequency, int total) {
+        return Math.log(1.0 + (double) total / Math.max(1, frequency));
+    }
+
+    private static int compare(double score, long id, Match match) {
+        int byScore = Double.compare(score, match.score());
+        return byScore != 0 ? byScore : Long.compare(id, match.id());
+    }
+}
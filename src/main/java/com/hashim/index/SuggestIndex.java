@@ -0,0 +1,187 @@
+package com.hashim.index;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkStatus;
+import com.hashim.repository.BookmarkChangeListener;
+import com.hashim.repository.BookmarkRepository;
+import com.hashim.repository.Tombstones;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+/**
+ * Typeahead suggestions for tags, title words and domains, served from
+ * in-memory radix tries ranked by how many bookmarks use each term.
+ *
+ * <p>The terms last indexed for each bookmark are remembered so that updates
+ * and deletes can decrement exactly what was added. Their row version is
+ * remembered too, and deleted ids leave a tombstone, so that a callback
+ * arriving late never counts an older title or a deleted bookmark again.
+ */
+public class SuggestIndex implements BookmarkChangeListener {
+    private static final Logger logger = LoggerFactory.getLogger(SuggestIndex.class);
+
+    private final BookmarkRepository bookmarkRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Replaced by build()
+    private RadixTrie tags = new RadixTrie();
+    private RadixTrie titleWords = new RadixTrie();
+    private RadixTrie domains = new RadixTrie();
+    private final Long2ObjectOpenHashMap<Terms> indexed = new Long2ObjectOpenHashMap<>();
+    private final Tombstones tombstones = new Tombstones();
+
+    /**
+     * Suggestions for one prefix, per category.
+     */
+    public record Suggestions(String prefix, List<RadixTrie.Entry> tags, List<RadixTrie.Entry> titles,
+                              List<RadixTrie.Entry> domains) {
+    }
+
+    public SuggestIndex(BookmarkRepository bookmarkRepository) {
+        this.bookmarkRepository = bookmarkRepository;
+    }
+
+    /**
+     * Loads all bookmarks from the database, replacing the current contents.
+     * Writes are held off until it finishes.
+     */
+    public void build() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            tags = new RadixTrie();
+            titleWords = new RadixTrie();
+            domains = new RadixTrie();
+            indexed.clear();
+            tombstones.clear();
+            bookmarkRepository.forEach(bookmark -> index(bookmark.getId(), Terms.of(bookmark)));
+            logger.info("Suggest index built: {} tags, {} title words, {} domains in {} ms",
+                    tags.size(), titleWords.size(), domains.size(), (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} suggestions per category for a lower-cased prefix.
+     */
+    public Suggestions suggest(String prefix, int limit) {
+        String normalized = prefix.toLowerCase(Locale.ROOT);
+        lock.readLock().lock();
+        try {
+            return new Suggestions(normalized, tags.top(normalized, limit), titleWords.top(normalized, limit),
+                    domains.top(normalized, limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onCreated(Bookmark bookmark) {
+        reindex(bookmark);
+    }
+
+    @Override
+    public void onUpdated(Bookmark bookmark) {
+        reindex(bookmark);
+    }
+
+    @Override
+    public void onStatusChanged(Long id, BookmarkStatus status, LocalDateTime updatedAt, long version) {
+        // The terms stay the same, but an update older than this one must no longer apply
+        lock.writeLock().lock();
+        try {
+            Terms terms = indexed.get(id);
+            if (terms != null && (terms.version == null || terms.version < version)) {
+                indexed.put(id, terms.at(version));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onDeleted(Long id, long version) {
+        lock.writeLock().lock();
+        try {
+            tombstones.add(id, version);
+            Terms terms = indexed.get(id);
+            // Restored since, at a higher version
+            if (terms == null || terms.version == null || terms.version <= version) {
+                unindex(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void reindex(Bookmark bookmark) {
+        Terms terms = Terms.of(bookmark);
+        lock.writeLock().lock();
+        try {
+            if (isStale(bookmark.getId(), terms.version)) {
+                return;
+            }
+            unindex(bookmark.getId());
+            index(bookmark.getId(), terms);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean isStale(long id, Long version) {
+        if (version == null) {
+            return false;
+        }
+        Terms current = indexed.get(id);
+        return tombstones.covers(id, version) || current != null && current.version != null
+                && current.version >= version;
+    }
+
+    private void index(long id, Terms terms) {
+        adjust(terms, 1);
+        indexed.put(id, terms);
+    }
+
+    private void unindex(long id) {
+        Terms previous = indexed.remove(id);
+        if (previous != null) {
+            adjust(previous, -1);
+        }
+    }
+
+    private void adjust(Terms terms, int delta) {
+        for (String tag : terms.tags) {
+            tags.add(tag, delta);
+        }
+        for (String word : terms.titleWords) {
+            titleWords.add(word, delta);
+        }
+        if (terms.domain != null) {
+            domains.add(terms.domain, delta);
+        }
+    }
+
+    /**
+     * Distinct terms contributed by one bookmark, and the version they were
+     * taken from.
+     */
+    private record Terms(String[] tags, String[] titleWords, String domain, Long version) {
+        static Terms of(Bookmark bookmark) {
+            return new Terms(BookmarkTerms.tags(bookmark.getTags()), BookmarkTerms.words(bookmark.getTitle()),
+                    BookmarkTerms.domain(bookmark.getUrl()), bookmark.getVersion());
+        }
+
+        Terms at(long newVersion) {
+            return new Terms(tags, titleWords, domain, newVersion);
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package com.hashim.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hashim.model.Bookmark;
+import com.hashim.repository.BookmarkChangeListener;
+import com.hashim.repository.BookmarkRepository;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
+/**
+ * In-memory trigram index over the searchable bookmark fields (url, title,
+ * tags and notes), used to narrow substring searches before SQLite verifies
+ * them with {@code LIKE}.
+ *
+ * <p>Each trigram maps to a sorted list of bookmark ids. A query is answered by
+ * intersecting the posting lists of its trigrams, shortest first. The result is
+ * a superset of the real matches: trigrams spanning two fields, and trigrams a
+ * bookmark no longer contains after an update, can produce false positives,
+ * which the {@code LIKE} re-check removes. Deleted ids are masked out through a
+ * live-set. Once stale postings pile up the index is rebuilt in the background
+ * from the database; writes arriving meanwhile are replayed onto the new copy.
+ *
+ * <p>Case folding matches SQLite's {@code LIKE}, which ignores case for ASCII
+ * letters only.
+ */
+public class TrigramIndex implements BookmarkChangeListener {
+    private static final Logger logger = LoggerFactory.getLogger(TrigramIndex.class);
+    private static final char FIELD_SEPARATOR = '\0';
+    private static final int MIN_STALE_FOR_REBUILD = 1024;
+
+    private final BookmarkRepository bookmarkRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "trigram-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Postings postings = new Postings();
+    private List<Consumer<Postings>> replayLog;
+
+    public TrigramIndex(BookmarkRepository bookmarkRepository) {
+        this.bookmarkRepository = bookmarkRepository;
+    }
+
+    /**
+     * Builds the index from the database, replacing the current contents.
+     */
+    public void rebuild() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            replayLog = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        
+        Postings fresh = new Postings();
+        try {
+            bookmarkRepository.forEach(fresh::add);
+            fresh.trim();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                replayLog = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        
+        lock.writeLock().lock();
+        try {
+            replayLog.forEach(event -> event.accept(fresh));
+            replayLog = null;
+            postings = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Trigram index built: {} bookmarks, {} trigrams in {} ms",
+                fresh.documents, fresh.trigrams.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Returns the ids of bookmarks that may contain {@code query} as a substring,
+     * in ascending order, or {@code null} when the index cannot narrow the search
+     * (queries shorter than three characters, or containing {@code LIKE} wildcards).
+     */
+    public int[] candidates(String query) {
+        if (query == null || query.length() < 3 || query.indexOf('%') >= 0 || query.indexOf('_') >= 0) {
+            return null;
+        }
+        
+        LongOpenHashSet grams = new LongOpenHashSet();
+        String folded = fold(query);
+        for (int i = 0; i + 3 <= folded.length(); i++) {
+            grams.add(pack(folded, i));
+        }
+        
+        lock.readLock().lock();
+        try {
+            if (postings.unindexable) {
+                return null;
+            }
+            IntArrayList[] lists = new IntArrayList[grams.size()];
+            int n = 0;
+            for (LongIterator it = grams.iterator(); it.hasNext(); ) {
+                long gram = it.nextLong();
+                IntArrayList list = postings.trigrams.get(gram);
+                if (list == null) {
+                    return new int[0];
+                }
+                lists[n++] = list;
+            }
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.size(), b.size()));
+            
+            int[] result = Arrays.copyOf(lists[0].elements(), lists[0].size());
+            int size = result.length;
+            for (int i = 1; i < lists.length && size > 0; i++) {
+                size = intersect(result, size, lists[i]);
+            }
+            
+            int live = 0;
+            for (int i = 0; i < size; i++) {
+                if (postings.live.get(result[i])) {
+                    result[live++] = result[i];
+                }
+            }
+            return Arrays.copyOf(result, live);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return postings.documents;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onCreated(Bookmark bookmark) {
+        apply(target -> target.add(bookmark));
+    }
+
+    @Override
+    public void onUpdated(Bookmark bookmark) {
+        // Trigrams the old text had stay in place until the next rebuild
+        apply(target -> target.update(bookmark));
+        maybeScheduleRebuild();
+    }
+
+    @Override
+    public void onDeleted(Long id, long version) {
+        apply(target -> target.remove(id));
+        maybeScheduleRebuild();
+    }
+
+    public void close() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    private void apply(Consumer<Postings> event) {
+        lock.writeLock().lock();
+        try {
+            event.accept(postings);
+            if (replayLog != null) {
+                replayLog.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void maybeScheduleRebuild() {
+        int stale;
+        int documents;
+        lock.readLock().lock();
+        try {
+            stale = postings.stale;
+            documents = postings.documents;
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        if (stale > Math.max(MIN_STALE_FOR_REBUILD, documents / 4) && rebuilding.compareAndSet(false, true)) {
+            logger.debug("Scheduling trigram index rebuild ({} stale entries)", stale);
+            rebuildExecutor.execute(() -> {
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    logger.error("Trigram index rebuild failed", e);
+                } finally {
+                    rebuilding.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Intersects the first {@code size} entries of {@code into} with a sorted
+     * posting list, in place, and returns the new size.
+     */
+    private static int intersect(int[] into, int size, IntArrayList list) {
+        int[] other = list.elements();
+        int otherSize = list.size();
+        int i = 0;
+        int j = 0;
+        int out = 0;
+        while (i < size && j < otherSize) {
+            if (into[i] < other[j]) {
+                i++;
+            } else if (into[i] > other[j]) {
+                j++;
+            } else {
+                into[out++] = into[i];
+                i++;
+                j++;
+            }
+        }
+        return out;
+    }
+
+    private static String fold(String text) {
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            char c = chars[i];
+            if (c >= 'A' && c <= 'Z') {
+                chars[i] = (char) (c + ('a' - 'A'));
+            }
+        }
+        return new String(chars);
+    }
+
+    private static long pack(String text, int offset) {
+        return ((long) text.charAt(offset) << 32) | ((long) text.charAt(offset + 1) << 16) | text.charAt(offset + 2);
+    }
+
+    /**
+     * One generation of the index. Only touched under the enclosing lock, or by
+     * the rebuild thread before it is published.
+     */
+    private static final class Postings {
+        private final Long2ObjectOpenHashMap<IntArrayList> trigrams = new Long2ObjectOpenHashMap<>();
+        private final BitSet live = new BitSet();
+        private int documents;
+        private int stale;
+        private boolean unindexable;
+
+        void add(Bookmark bookmark) {
+            int id = toIndexId(bookmark.getId());
+            if (id < 0) {
+                // Postings hold int ids; past that the index can no longer answer
+                unindexable = true;
+                return;
+            }
+            if (!live.get(id)) {
+                live.set(id);
+                documents++;
+            }
+            
+            String text = fold(nullToEmpty(bookmark.getUrl()) + FIELD_SEPARATOR
+                    + nullToEmpty(bookmark.getTitle()) + FIELD_SEPARATOR
+                    + nullToEmpty(bookmark.getTags()) + FIELD_SEPARATOR
+                    + nullToEmpty(bookmark.getNotes()));
+            LongOpenHashSet grams = new LongOpenHashSet();
+            for (int i = 0; i + 3 <= text.length(); i++) {
+                grams.add(pack(text, i));
+            }
+            for (LongIterator it = grams.iterator(); it.hasNext(); ) {
+                long gram = it.nextLong();
+                IntArrayList list = trigrams.get(gram);
+                if (list == null) {
+                    list = new IntArrayList(4);
+                    trigrams.put(gram, list);
+                }
+                insertSorted(list, id);
+            }
+        }
+
+        void update(Bookmark bookmark) {
+            stale++;
+            add(bookmark);
+        }
+
+        void remove(Long bookmarkId) {
+            int id = toIndexId(bookmarkId);
+            if (id >= 0 && live.get(id)) {
+                live.clear(id);
+                documents--;
+                stale++;
+            }
+        }
+
+        void trim() {
+            for (IntArrayList list : trigrams.values()) {
+                list.trim();
+            }
+            trigrams.trim();
+        }
+
+        private static void insertSorted(IntArrayList list, int id) {
+            int size = list.size();
+            // Ids are mostly appended in increasing order
+            if (size == 0 || list.getInt(size - 1) < id) {
+                list.add(id);
+                return;
+            }
+            int position = Arrays.binarySearch(list.elements(), 0, size, id);
+            if (position < 0) {
+                list.add(-position - 1, id);
+            }
+        }
+
+        private static int toIndexId(Long id) {
+            return id != null && id >= 0 && id <= Integer.MAX_VALUE ? id.intValue() : -1;
+        }
+
+        private static String nullToEmpty(String value) {
+            return value != null ? value : "";
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.hashim.model;
+
+import java.time.LocalDate;
+
+/**
+ * Number of events of one kind on one day.
+ */
+public record ActivityCount(LocalDate day, ActivityEvent event, long count) {
+}
@@ -0,0 +1,13 @@
+package com.hashim.model;
+
+/**
+ * What is counted per day in the activity rollup.
+ */
+public enum ActivityEvent {
+    // A new bookmark (restored archived bookmarks are not new)
+    CREATED,
+    // Status changed to DONE, or a bookmark created as DONE
+    COMPLETED,
+    // Status changed from DONE back to INBOX
+    REOPENED
+}
@@ -1,6 +1,7 @@
 package com.hashim.model;
 
 import java.time.LocalDateTime;
+import java.util.function.Supplier;
 
 public class Bookmark {
     private Long id;
@@ -8,9 +9,13 @@ public class Bookmark {
     private String title;
     private String tags;
     private String notes;
+    // Compressed notes read from SQLite are only decoded when first asked for
+    private transient Supplier<String> lazyNotes;
     private BookmarkStatus status;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    // Incremented on every write; exposed as the ETag for conditional requests
+    private Long version;
 
     public Bookmark() {
     }
@@ -61,11 +66,29 @@ public class Bookmark {
     }
 
     public String getNotes() {
-        return notes;
+        String value = notes;
+        if (value == null) {
+            Supplier<String> source = lazyNotes;
+            if (source != null) {
+                // Decoding twice under a race is harmless
+                value = source.get();
+                notes = value;
+            }
+        }
+        return value;
     }
 
     public void setNotes(String notes) {
         this.notes = notes;
+        this.lazyNotes = null;
+    }
+
+    /**
+     * Sets notes that are produced on the first call to {@link #getNotes()}.
+     */
+    public void setLazyNotes(Supplier<String> lazyNotes) {
+        this.notes = null;
+        this.lazyNotes = lazyNotes;
     }
 
     public BookmarkStatus getStatus() {
@@ -92,6 +115,14 @@ public class Bookmark {
         this.updatedAt = updatedAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Bookmark{" +
@@ -0,0 +1,70 @@
+package com.hashim.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Bookmark properties that can be selected with {@code fields=}, with their
+ * JSON name and database column.
+ */
+public enum BookmarkField {
+    ID("id", "id", Bookmark::getId),
+    URL("url", "url", Bookmark::getUrl),
+    TITLE("title", "title", Bookmark::getTitle),
+    TAGS("tags", "tags", Bookmark::getTags),
+    NOTES("notes", "notes", Bookmark::getNotes),
+    STATUS("status", "status", Bookmark::getStatus),
+    CREATED_AT("createdAt", "created_at", Bookmark::getCreatedAt),
+    UPDATED_AT("updatedAt", "updated_at", Bookmark::getUpdatedAt),
+    VERSION("version", "version", Bookmark::getVersion);
+
+    private final String jsonName;
+    private final String column;
+    private final Function<Bookmark, Object> getter;
+
+    BookmarkField(String jsonName, String column, Function<Bookmark, Object> getter) {
+        this.jsonName = jsonName;
+        this.column = column;
+        this.getter = getter;
+    }
+
+    public String jsonName() {
+        return jsonName;
+    }
+
+    public String column() {
+        return column;
+    }
+
+    /**
+     * Looks a field up by its JSON name, ignoring case; null if unknown.
+     */
+    public static BookmarkField fromJsonName(String name) {
+        for (BookmarkField field : values()) {
+            if (field.jsonName.equalsIgnoreCase(name)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Copies only the selected properties of each bookmark, in declaration
+     * order, for serialization.
+     */
+    public static List<Map<String, Object>> project(List<Bookmark> bookmarks, Set<BookmarkField> fields) {
+        List<Map<String, Object>> rows = new ArrayList<>(bookmarks.size());
+        for (Bookmark bookmark : bookmarks) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (BookmarkField field : fields) {
+                row.put(field.jsonName, field.getter.apply(bookmark));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,36 @@
+package com.hashim.model;
+
+import java.util.List;
+
+/**
+ * Row filters for bookmark listings and counts. All criteria are combined with AND.
+ *
+ * @param searchQuery  substring of url, title, tags or notes; null for none
+ * @param status       required status; null for any
+ * @param tags         substrings that must each appear in the tags
+ * @param excludedTags substrings that must not appear in the tags
+ * @param domains      hosts (or parent domains) the url must be on, any of them
+ */
+public record BookmarkFilter(String searchQuery, BookmarkStatus status, List<String> tags,
+                             List<String> excludedTags, List<String> domains) {
+
+    public static final BookmarkFilter NONE = new BookmarkFilter(null, null, null, null, null);
+
+    public BookmarkFilter {
+        tags = tags != null ? List.copyOf(tags) : List.of();
+        excludedTags = excludedTags != null ? List.copyOf(excludedTags) : List.of();
+        domains = domains != null ? List.copyOf(domains) : List.of();
+    }
+
+    /**
+     * The same filter without domain criteria, for when they have already been
+     * resolved to candidate ids.
+     */
+    public BookmarkFilter withoutDomains() {
+        return new BookmarkFilter(searchQuery, status, tags, excludedTags, null);
+    }
+
+    public boolean hasTermFilters() {
+        return !tags.isEmpty() || !excludedTags.isEmpty() || !domains.isEmpty();
+    }
+}
@@ -0,0 +1,32 @@
+package com.hashim.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * How far a resumable job over the bookmarks table has got: every row with an
+ * id up to {@code lastId} has been processed.
+ *
+ * @param changed Rows the job rewrote
+ * @param invalid Rows the job had to leave as they were
+ * @param finishedAt Null while the job has rows left
+ */
+public record JobCheckpoint(String name, long lastId, long processed, long changed, long invalid,
+                            LocalDateTime startedAt, LocalDateTime finishedAt) {
+
+    public static JobCheckpoint start(String name) {
+        return new JobCheckpoint(name, 0, 0, 0, 0, LocalDateTime.now(), null);
+    }
+
+    public boolean isFinished() {
+        return finishedAt != null;
+    }
+
+    public JobCheckpoint advance(long lastId, long processed, long changed, long invalid) {
+        return new JobCheckpoint(name, lastId, this.processed + processed, this.changed + changed,
+                this.invalid + invalid, startedAt, null);
+    }
+
+    public JobCheckpoint finish() {
+        return new JobCheckpoint(name, lastId, processed, changed, invalid, startedAt, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,36 @@
+package com.hashim.model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * One entry of the replication change stream: the full row after an insert or
+ * update ({@code UPSERT}) or the id of a deleted row ({@code DELETE}), as a JSON
+ * object keyed by column name. {@code ARCHIVE_UPSERT} and {@code ARCHIVE_DELETE}
+ * are the same for the archive tier, whose compressed notes are hex-encoded;
+ * moving a row between the tiers is an upsert into one and a delete from the
+ * other, in the same order as on the leader.
+ *
+ * <p>Checksums are chained: each one covers the previous entry's checksum, so a
+ * follower that verifies every entry also knows it has seen all of them, in order.
+ */
+public record ReplicationChange(long seq, String op, long bookmarkId, String payload, long checksum) {
+
+    public static final String UPSERT = "UPSERT";
+    public static final String DELETE = "DELETE";
+    public static final String ARCHIVE_UPSERT = "ARCHIVE_UPSERT";
+    public static final String ARCHIVE_DELETE = "ARCHIVE_DELETE";
+
+    public static long checksum(long previousChecksum, long seq, String op, long bookmarkId, String payload) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(24).putLong(previousChecksum).putLong(seq).putLong(bookmarkId).array());
+        crc.update(op.getBytes(StandardCharsets.UTF_8));
+        crc.update(payload.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    public boolean verifies(long previousChecksum) {
+        return checksum == checksum(previousChecksum, seq, op, bookmarkId, payload);
+    }
+}
@@ -0,0 +1,29 @@
+package com.hashim.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * A stored listing query whose matching ids are kept materialized.
+ *
+ * @param sortBy created_at, updated_at or title
+ * @param order  asc or desc
+ */
+public record SavedSearch(Long id, String name, BookmarkFilter filter, String sortBy, String order,
+                          LocalDateTime createdAt) {
+
+    public boolean descending() {
+        return "desc".equals(order);
+    }
+
+    /**
+     * Position of a bookmark in the results, as stored in {@code saved_search_results.sort_key}.
+     * Compares like the column does in the listing's ORDER BY.
+     */
+    public String sortKey(Bookmark bookmark) {
+        return switch (sortBy) {
+            case "updated_at" -> bookmark.getUpdatedAt().toString();
+            case "title" -> bookmark.getTitle();
+            default -> bookmark.getCreatedAt().toString();
+        };
+    }
+}
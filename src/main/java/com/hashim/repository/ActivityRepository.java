@@ -0,0 +1,170 @@
+package com.hashim.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hashim.model.ActivityCount;
+import com.hashim.model.ActivityEvent;
+
+/**
+ * Daily activity rollup in {@code activity_daily}. Writes to the bookmarks
+ * table keep it current through triggers (see {@link DatabaseInitializer});
+ * this class reads it and fills in the history from before the triggers.
+ */
+public class ActivityRepository {
+    private static final Logger logger = LoggerFactory.getLogger(ActivityRepository.class);
+    private static final String UPSERT_SQL = "INSERT INTO activity_daily (day, event, count) VALUES (?, ?, ?) " +
+                                             "ON CONFLICT(day, event) DO UPDATE SET count = count + excluded.count";
+
+    private final DatabaseInitializer databaseInitializer;
+    private final QueryInstrumentation instrumentation;
+
+    /**
+     * The rows a pending backfill has to count: ids up to {@code maxId}, and
+     * completions last updated before {@code cutoff}.
+     */
+    public record Backfill(long maxId, LocalDateTime cutoff, LocalDateTime finishedAt) {
+        public boolean isFinished() {
+            return finishedAt != null;
+        }
+    }
+
+    public ActivityRepository(DatabaseInitializer databaseInitializer, QueryInstrumentation instrumentation) {
+        this.databaseInitializer = databaseInitializer;
+        this.instrumentation = instrumentation;
+    }
+
+    /**
+     * Daily counts between two days, inclusive, in day order. Days without activity have no rows.
+     */
+    public List<ActivityCount> findDaily(LocalDate from, LocalDate to) {
+        String sql = "SELECT day, event, count FROM activity_daily WHERE day BETWEEN ? AND ? ORDER BY day";
+
+        try (Connection conn = databaseInitializer.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, from.toString());
+            pstmt.setString(2, to.toString());
+            return instrumentation.execute(sql, List.of(from, to), () -> {
+                List<ActivityCount> counts = new ArrayList<>();
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        counts.add(new ActivityCount(LocalDate.parse(rs.getString("day")),
+                                ActivityEvent.valueOf(rs.getString("event")), rs.getLong("count")));
+                    }
+                }
+                return counts;
+            }, List::size);
+
+        } catch (SQLException e) {
+            logger.error("Error reading activity from {} to {}", from, to, e);
+            throw new RuntimeException("Failed to read activity", e);
+        }
+    }
+
+    public Optional<Backfill> findBackfill() {
+        String sql = "SELECT max_id, cutoff, finished_at FROM activity_backfill WHERE id = 1";
+
+        try (Connection conn = databaseInitializer.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            return instrumentation.execute(sql, List.of(), () -> {
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) {
+                        return Optional.<Backfill>empty();
+                    }
+                    String finishedAt = rs.getString("finished_at");
+                    return Optional.of(new Backfill(rs.getLong("max_id"), LocalDateTime.parse(rs.getString("cutoff")),
+                            finishedAt != null ? LocalDateTime.parse(finishedAt) : null));
+                }
+            }, found -> found.isPresent() ? 1 : 0);
+
+        } catch (SQLException e) {
+            logger.error("Error reading activity backfill state", e);
+            throw new RuntimeException("Failed to read activity backfill state", e);
+        }
+    }
+
+    /**
+     * Counts the activity of the rows of {@code table} with ids in
+     * [fromId, toId]: each row as created on its created_at day, and each DONE
+     * row last updated before the cutoff as completed on its updated_at day.
+     *
+     * @param table bookmarks or bookmarks_archive
+     */
+    public List<ActivityCount> countHistory(String table, long fromId, long toId, LocalDateTime cutoff) {
+        String sql = "SELECT substr(created_at, 1, 10) AS day, 'CREATED' AS event, COUNT(*) AS count FROM " + table +
+                     " WHERE id BETWEEN ? AND ? GROUP BY 1 " +
+                     "UNION ALL SELECT substr(updated_at, 1, 10), 'COMPLETED', COUNT(*) FROM " + table +
+                     " WHERE id BETWEEN ? AND ? AND status = 'DONE' AND updated_at < ? GROUP BY 1";
+
+        try (Connection conn = databaseInitializer.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, fromId);
+            pstmt.setLong(2, toId);
+            pstmt.setLong(3, fromId);
+            pstmt.setLong(4, toId);
+            pstmt.setString(5, cutoff.toString());
+            return instrumentation.execute(sql, List.of(table, fromId, toId), () -> {
+                List<ActivityCount> counts = new ArrayList<>();
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        counts.add(new ActivityCount(LocalDate.parse(rs.getString("day")),
+                                ActivityEvent.valueOf(rs.getString("event")), rs.getLong("count")));
+                    }
+                }
+                return counts;
+            }, List::size);
+
+        } catch (SQLException e) {
+            logger.error("Error counting activity of {} ids {} to {}", table, fromId, toId, e);
+            throw new RuntimeException("Failed to count activity history", e);
+        }
+    }
+
+    /**
+     * Adds the backfilled counts to the rollup and marks the backfill
+     * finished, in one transaction, so it is applied exactly once.
+     */
+    public void completeBackfill(List<ActivityCount> counts) {
+        try (Connection conn = databaseInitializer.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement upsert = conn.prepareStatement(UPSERT_SQL);
+                 PreparedStatement finish = conn.prepareStatement(
+                         "UPDATE activity_backfill SET finished_at = ? WHERE id = 1 AND finished_at IS NULL")) {
+                finish.setString(1, LocalDateTime.now().toString());
+                if (finish.executeUpdate() == 0) {
+                    // Finished by another process in the meantime
+                    conn.rollback();
+                    return;
+                }
+                for (ActivityCount count : counts) {
+                    upsert.setString(1, count.day().toString());
+                    upsert.setString(2, count.event().name());
+                    upsert.setLong(3, count.count());
+                    upsert.addBatch();
+                }
+                instrumentation.execute(UPSERT_SQL, List.of(), upsert::executeBatch, c -> c.length);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+
+        } catch (SQLException e) {
+            logger.error("Error saving activity backfill of {} rows", counts.size(), e);
+            throw new RuntimeException("Failed to save activity backfill", e);
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package com.hashim.repository;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sqlite.Function;
+
+import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkStatus;
+
+/**
+ * Cold tier for bookmarks. Aged DONE rows are moved from {@code bookmarks} to
+ * {@code bookmarks_archive}, which has no secondary indexes and stores notes
+ * deflate-compressed, so the hot table and its indexes only hold live rows.
+ *
+ * <p>Moves in either direction are one transaction. Change listeners see an
+ * archived row as deleted and a restored one as created, so in-memory indexes
+ * cover the hot tier only.
+ */
+public class ArchiveRepository {
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveRepository.class);
+    // SQL functions registered on connections that read or write archived notes
+    public static final String DEFLATE_FUNCTION = "archive_deflate";
+    public static final String INFLATE_FUNCTION = "archive_inflate";
+    // First byte of a stored value: how the rest is encoded
+    private static final byte RAW = 0;
+    private static final byte DEFLATED = 1;
+
+    /**
+     * Both tiers as one relation with the hot table's columns, for queries
+     * that include archived bookmarks. Needs {@link #registerFunctions}.
+     */
+    public static final String ALL_TIERS =
+            "(SELECT id, url, title, tags, notes, status, created_at, updated_at, version FROM bookmarks " +
+            "UNION ALL SELECT id, url, title, tags, " + INFLATE_FUNCTION + "(notes_z) AS notes, status, " +
+            "created_at, updated_at, version FROM bookmarks_archive)";
+
+    private final DatabaseInitializer databaseInitializer;
+    private final QueryInstrumentation instrumentation;
+    private final BookmarkRepository bookmarkRepository;
+    private final LongAdder rawNoteBytes = new LongAdder();
+    private final LongAdder storedNoteBytes = new LongAdder();
+    // Optional; hot rows may hold values it compressed
+    private ColumnCodec columnCodec;
+
+    public ArchiveRepository(DatabaseInitializer databaseInitializer, QueryInstrumentation instrumentation,
+                             BookmarkRepository bookmarkRepository) {
+        this.databaseInitializer = databaseInitializer;
+        this.instrumentation = instrumentation;
+        this.bookmarkRepository = bookmarkRepository;
+    }
+
+    /**
+     * Decodes hot-table values compressed by the codec before archiving them.
+     */
+    public void setColumnCodec(ColumnCodec columnCodec) {
+        this.columnCodec = columnCodec;
+    }
+
+    /**
+     * Moves up to {@code limit} DONE bookmarks last updated before {@code cutoff}
+     * to the archive, lowest ids first.
+     *
+     * @return Number of bookmarks moved
+     */
+    public int archiveBatch(LocalDateTime cutoff, int limit) {
+        String insertSql = "INSERT INTO bookmarks_archive " +
+                "(id, url, title, tags, notes_z, status, created_at, updated_at, version, archived_at) " +
+                "SELECT id, " + text("url") + ", title, tags, " + DEFLATE_FUNCTION + "(" + text("notes") + "), " +
+                "status, created_at, updated_at, version, ? FROM bookmarks WHERE id IN " +
+                "(SELECT id FROM bookmarks WHERE status = 'DONE' AND updated_at < ? ORDER BY id LIMIT ?) RETURNING id, version";
+        String deleteSql = "DELETE FROM bookmarks WHERE id IN (SELECT value FROM json_each(?))";
+
+        try (Connection conn = databaseInitializer.getConnection()) {
+            registerFunctions(conn);
+            conn.setAutoCommit(false);
+            try {
+                // Version of each moved row by id, for the listeners
+                Map<Long, Long> moved = new LinkedHashMap<>();
+                try (PreparedStatement pstmt = conn.prepareStatement(insertSql)) {
+                    List<Object> params = List.of(LocalDateTime.now().toString(), cutoff.toString(), limit);
+                    for (int i = 0; i < params.size(); i++) {
+                        pstmt.setObject(i + 1, params.get(i));
+                    }
+                    instrumentation.execute(insertSql, params, () -> {
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            while (rs.next()) {
+                                moved.put(rs.getLong(1), rs.getLong(2));
+                            }
+                        }
+                        return moved;
+                    }, Map::size);
+                }
+                if (moved.isEmpty()) {
+                    conn.rollback();
+                    return 0;
+                }
+
+                try (PreparedStatement pstmt = conn.prepareStatement(deleteSql)) {
+                    String ids = moved.keySet().toString().replace(" ", "");
+                    pstmt.setString(1, ids);
+                    instrumentation.execute(deleteSql, List.of(ids), pstmt::executeUpdate, count -> count);
+                }
+                conn.commit();
+
+                logger.debug("Archived {} bookmarks", moved.size());
+                bookmarkRepository.publishDeleted(moved);
+                return moved.size();
+
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            logger.error("Error archiving bookmarks", e);
+            throw new RuntimeException("Failed to archive bookmarks", e);
+        }
+    }
+
+    /**
+     * Moves an archived bookmark back to the hot table, one version past the
+     * one it was archived at, so listeners order it after the archiving.
+     *
+     * @return true if the bookmark was archived and has been restored
+     */
+    public boolean restore(Long id) {
+        String insertSql = "INSERT INTO bookmarks (id, url, title, tags, notes, status, created_at, updated_at, version) " +
+                "SELECT id, url, title, tags, " + INFLATE_FUNCTION + "(notes_z), status, created_at, updated_at, " +
+                "version + 1 FROM bookmarks_archive WHERE id = ?";
+        String deleteSql = "DELETE FROM bookmarks_archive WHERE id = ?";
+
+        try (Connection conn = databaseInitializer.getConnection()) {
+            registerFunctions(conn);
+            conn.setAutoCommit(false);
+            try {
+                int restored;
+                try (PreparedStatement pstmt = conn.prepareStatement(insertSql)) {
+                    pstmt.setLong(1, id);
+                    restored = instrumentation.execute(insertSql, List.of(id), pstmt::executeUpdate, count -> count);
+                }
+                if (restored == 0) {
+                    conn.rollback();
+                    return false;
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement(deleteSql)) {
+                    pstmt.setLong(1, id);
+                    instrumentation.execute(deleteSql, List.of(id), pstmt::executeUpdate, count -> count);
+                }
+                conn.commit();
+
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            logger.error("Error restoring archived bookmark with id: {}", id, e);
+            throw new RuntimeException("Failed to restore archived bookmark", e);
+        }
+
+        logger.debug("Restored archived bookmark with id: {}", id);
+        bookmarkRepository.publishExternalChange(id, true);
+        return true;
+    }
+
+    public Optional<Bookmark> findById(Long id) {
+        String sql = "SELECT * FROM bookmarks_archive WHERE id = ?";
+
+        try (Connection conn = databaseInitializer.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, id);
+            return instrumentation.execute(sql, List.of(id), () -> {
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? Optional.of(mapArchivedRow(rs)) : Optional.<Bookmark>empty();
+                }
+            }, found -> found.isPresent() ? 1 : 0);
+
+        } catch (SQLException e) {
+            logger.error("Error finding archived bookmark by id: {}", id, e);
+            throw new RuntimeException("Failed to find archived bookmark", e);
+        }
+    }
+
+    public boolean delete(Long id) {
+        String sql = "DELETE FROM bookmarks_archive WHERE id = ?";
+
+        try (Connection conn = databaseInitializer.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, id);
+            int affectedRows = instrumentation.execute(sql, List.of(id), pstmt::executeUpdate, count -> count);
+            if (affectedRows > 0) {
+                logger.debug("Deleted archived bookmark with id: {}", id);
+            }
+            return affectedRows > 0;
+
+        } catch (SQLException e) {
+            logger.error("Error deleting archived bookmark with id: {}", id, e);
+            throw new RuntimeException("Failed to delete archived bookmark", e);
+        }
+    }
+
+    /**
+     * Row counts per tier and the archive's note compression.
+     */
+    public Map<String, Object> getStats() {
+        try (Connection conn = databaseInitializer.getConnection();
+             Statement stmt = conn.createStatement()) {
+
+            Map<String, Object> stats = new LinkedHashMap<>();
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM bookmarks")) {
+                stats.put("hotRows", rs.next() ? rs.getLong(1) : 0);
+            }
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT COUNT(*), COALESCE(SUM(LENGTH(notes_z)), 0) FROM bookmarks_archive")) {
+                if (rs.next()) {
+                    stats.put("archivedRows", rs.getLong(1));
+                    stats.put("archivedNoteBytes", rs.getLong(2));
+                }
+            }
+            // Measured over the notes compressed since startup
+            long raw = rawNoteBytes.sum();
+            stats.put("noteCompressionRatio", raw > 0 ? (double) storedNoteBytes.sum() / raw : null);
+            return stats;
+
+        } catch (SQLException e) {
+            logger.error("Error reading archive statistics", e);
+            throw new RuntimeException("Failed to read archive statistics", e);
+        }
+    }
+
+    /**
+     * Registers the archive's compression functions on a connection.
+     */
+    public void registerFunctions(Connection conn) throws SQLException {
+        Function.create(conn, DEFLATE_FUNCTION, new Function() {
+            @Override
+            protected void xFunc() throws SQLException {
+                String text = value_text(0);
+                if (text == null || text.isEmpty()) {
+                    result();
+                    return;
+                }
+                byte[] stored = compress(text);
+                rawNoteBytes.add(text.getBytes(StandardCharsets.UTF_8).length);
+                storedNoteBytes.add(stored.length);
+                result(stored);
+            }
+        }, Function.FLAG_DETERMINISTIC);
+
+        Function.create(conn, INFLATE_FUNCTION, new Function() {
+            @Override
+            protected void xFunc() throws SQLException {
+                result(decompress(value_blob(0)));
+            }
+        }, Function.FLAG_DETERMINISTIC);
+    }
+
+    private String text(String column) {
+        return columnCodec != null ? ColumnCodec.text(column) : column;
+    }
+
+    private Bookmark mapArchivedRow(ResultSet rs) throws SQLException {
+        Bookmark bookmark = new Bookmark();
+        bookmark.setId(rs.getLong("id"));
+        bookmark.setUrl(rs.getString("url"));
+        bookmark.setTitle(rs.getString("title"));
+        bookmark.setTags(rs.getString("tags"));
+        bookmark.setNotes(decompress(rs.getBytes("notes_z")));
+        bookmark.setStatus(BookmarkStatus.valueOf(rs.getString("status")));
+        bookmark.setCreatedAt(LocalDateTime.parse(rs.getString("created_at")));
+        bookmark.setUpdatedAt(LocalDateTime.parse(rs.getString("updated_at")));
+        bookmark.setVersion(rs.getLong("version"));
+        return bookmark;
+    }
+
+    static byte[] compress(String text) {
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+            out.write(DEFLATED);
+            byte[] buffer = new byte[1024];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            if (out.size() < raw.length + 1) {
+                return out.toByteArray();
+            }
+        } finally {
+            deflater.end();
+        }
+
+        // Short notes do not shrink; keep them as they are
+        byte[] stored = new byte[raw.length + 1];
+        stored[0] = RAW;
+        System.arraycopy(raw, 0, stored, 1, raw.length);
+        return stored;
+    }
+
+    static String decompress(byte[] stored) {
+        if (stored == null || stored.length == 0) {
+            return "";
+        }
+        if (stored[0] == RAW) {
+            return new String(stored, 1, stored.length - 1, StandardCharsets.UTF_8);
+        }
+
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(stored, 1, stored.length - 1);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(stored.length * 3);
+            byte[] buffer = new byte[1024];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated archived value");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt archived value", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
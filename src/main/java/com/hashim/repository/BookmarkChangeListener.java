@@ -0,0 +1,38 @@
+package com.hashim.repository;
+
+import java.time.LocalDateTime;
+
+import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkStatus;
+
+/**
+ * Notified by {@link BookmarkRepository} after a write has been committed.
+ * Used to keep in-memory indexes in step with the database. Callbacks run on
+ * the writing thread and must be quick; exceptions are logged and ignored.
+ * Callbacks of concurrent writes are not ordered: a listener that keeps rows
+ * should compare versions rather than assume the last callback is the newest,
+ * and remember deleted ids ({@link Tombstones}) so that a late callback of an
+ * earlier write does not bring a deleted row back.
+ */
+public interface BookmarkChangeListener {
+
+    default void onCreated(Bookmark bookmark) {
+    }
+
+    default void onUpdated(Bookmark bookmark) {
+    }
+
+    /**
+     * A status-only change, as written by the batched status path.
+     *
+     * @param version The row's version after the change
+     */
+    default void onStatusChanged(Long id, BookmarkStatus status, LocalDateTime updatedAt, long version) {
+    }
+
+    /**
+     * @param version The deleted row's version
+     */
+    default void onDeleted(Long id, long version) {
+    }
+}
@@ -7,47 +7,92 @@ import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkField;
+import com.hashim.model.BookmarkFilter;
 import com.hashim.model.BookmarkStatus;
 
 public class BookmarkQueryRepository {
     private static final Logger logger = LoggerFactory.getLogger(BookmarkQueryRepository.class);
     private final DatabaseInitializer databaseInitializer;
+    private final QueryInstrumentation instrumentation;
+    private ArchiveRepository archiveRepository;
+    // Optional; decodes compressed columns and makes searches see their text
+    private ColumnCodec columnCodec;
 
-    public BookmarkQueryRepository(DatabaseInitializer databaseInitializer) {
+    public BookmarkQueryRepository(DatabaseInitializer databaseInitializer, QueryInstrumentation instrumentation) {
         this.databaseInitializer = databaseInitializer;
+        this.instrumentation = instrumentation;
+    }
+
+    /**
+     * Enables queries over the archive tier as well as the hot table.
+     */
+    public void setArchiveRepository(ArchiveRepository archiveRepository) {
+        this.archiveRepository = archiveRepository;
+    }
+
+    /**
+     * Reads columns that {@link BookmarkRepository} may have stored compressed.
+     */
+    public void setColumnCodec(ColumnCodec columnCodec) {
+        this.columnCodec = columnCodec;
     }
 
     public List<Bookmark> findWithFilters(String searchQuery, BookmarkStatus status, String tag, 
                                           String sortBy, String order, int limit, int offset) {
-        StringBuilder sql = new StringBuilder("SELECT * FROM bookmarks WHERE 1=1");
+        return findWithFilters(searchQuery, status, tag, sortBy, order, limit, offset, null);
+    }
+    
+    public List<Bookmark> findWithFilters(String searchQuery, BookmarkStatus status, String tag, 
+                                          String sortBy, String order, int limit, int offset,
+                                          int[] candidateIds) {
+        List<String> tags = tag != null && !tag.trim().isEmpty() ? List.of(tag) : List.of();
+        return findWithFilters(new BookmarkFilter(searchQuery, status, tags, null, null),
+                sortBy, order, limit, offset, candidateIds);
+    }
+    
+    /**
+     * Finds bookmarks matching {@code filter}, restricted to {@code candidateIds}
+     * when not null, e.g. the ids an in-memory index has matched. The filter is
+     * still applied to the candidates.
+     */
+    public List<Bookmark> findWithFilters(BookmarkFilter filter, String sortBy, String order,
+                                          int limit, int offset, int[] candidateIds) {
+        return findWithFilters(filter, sortBy, order, limit, offset, candidateIds, null);
+    }
+    
+    /**
+     * As {@link #findWithFilters(BookmarkFilter, String, String, int, int, int[])},
+     * but reads only the given columns; properties that were not selected are
+     * left null on the returned bookmarks.
+     *
+     * @param fields Columns to read (null for all)
+     */
+    public List<Bookmark> findWithFilters(BookmarkFilter filter, String sortBy, String order,
+                                          int limit, int offset, int[] candidateIds, Set<BookmarkField> fields) {
+        return findWithFilters(filter, sortBy, order, limit, offset, candidateIds, fields, false);
+    }
+    
+    /**
+     * As {@link #findWithFilters(BookmarkFilter, String, String, int, int, int[], Set)},
+     * optionally over archived bookmarks too.
+     *
+     * @param includeArchived Also match bookmarks in the archive tier
+     */
+    public List<Bookmark> findWithFilters(BookmarkFilter filter, String sortBy, String order,
+                                          int limit, int offset, int[] candidateIds, Set<BookmarkField> fields,
+                                          boolean includeArchived) {
+        boolean allTiers = includeArchived && archiveRepository != null;
+        StringBuilder sql = new StringBuilder("SELECT ").append(selectList(fields))
+                .append(" FROM ").append(source(allTiers)).append(" WHERE 1=1");
         List<Object> params = new ArrayList<>();
-        
-        // Add search filter
-        if (searchQuery != null && !searchQuery.trim().isEmpty()) {
-            sql.append(" AND (url LIKE ? OR title LIKE ? OR tags LIKE ? OR notes LIKE ?)");
-            String pattern = "%" + searchQuery + "%";
-            params.add(pattern);
-            params.add(pattern);
-            params.add(pattern);
-            params.add(pattern);
-        }
-        
-        // Add status filter
-        if (status != null) {
-            sql.append(" AND status = ?");
-            params.add(status.name());
-        }
-        
-        // Add tag filter
-        if (tag != null && !tag.trim().isEmpty()) {
-            sql.append(" AND tags LIKE ?");
-            params.add("%" + tag + "%");
-        }
+        appendFilters(sql, params, filter, candidateIds);
         
         // Add sorting
         String sortField = getSortField(sortBy);
@@ -59,7 +104,7 @@ public class BookmarkQueryRepository {
         params.add(limit);
         params.add(offset);
         
-        try (Connection conn = databaseInitializer.getConnection();
+        try (Connection conn = connection(allTiers);
              PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
             
             // Set parameters
@@ -67,14 +112,15 @@ public class BookmarkQueryRepository {
                 pstmt.setObject(i + 1, params.get(i));
             }
             
-            List<Bookmark> bookmarks = new ArrayList<>();
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    bookmarks.add(mapResultSetToBookmark(rs));
+            return instrumentation.execute(sql.toString(), params, () -> {
+                List<Bookmark> bookmarks = new ArrayList<>();
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        bookmarks.add(fields != null ? mapColumns(rs, fields) : mapResultSetToBookmark(rs));
+                    }
                 }
-            }
-            
-            return bookmarks;
+                return bookmarks;
+            }, List::size);
             
         } catch (SQLException e) {
             logger.error("Error executing filtered query", e);
@@ -82,6 +128,154 @@ public class BookmarkQueryRepository {
         }
     }
     
+    /**
+     * A page of a saved search's materialized results, in result order. Reads
+     * one range of the results' primary key and joins the rows by id.
+     */
+    public List<Bookmark> findSavedSearchResults(Long searchId, boolean descending, int limit, int offset) {
+        String direction = descending ? "DESC" : "ASC";
+        String sql = "SELECT b.* FROM saved_search_results r JOIN bookmarks b ON b.id = r.bookmark_id " +
+                     "WHERE r.search_id = ? ORDER BY r.sort_key " + direction + ", r.bookmark_id " + direction +
+                     " LIMIT ? OFFSET ?";
+        List<Object> params = List.of(searchId, limit, offset);
+        
+        try (Connection conn = databaseInitializer.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            
+            return instrumentation.execute(sql, params, () -> {
+                List<Bookmark> bookmarks = new ArrayList<>();
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        bookmarks.add(mapResultSetToBookmark(rs));
+                    }
+                }
+                return bookmarks;
+            }, List::size);
+            
+        } catch (SQLException e) {
+            logger.error("Error reading results of saved search with id: {}", searchId, e);
+            throw new RuntimeException("Failed to read saved search results", e);
+        }
+    }
+    
+    public long countWithFilters(BookmarkFilter filter, int[] candidateIds) {
+        return countWithFilters(filter, candidateIds, false);
+    }
+    
+    public long countWithFilters(BookmarkFilter filter, int[] candidateIds, boolean includeArchived) {
+        boolean allTiers = includeArchived && archiveRepository != null;
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM ").append(source(allTiers)).append(" WHERE 1=1");
+        List<Object> params = new ArrayList<>();
+        appendFilters(sql, params, filter, candidateIds);
+        
+        try (Connection conn = connection(allTiers);
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            
+            return instrumentation.execute(sql.toString(), params, () -> {
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? rs.getLong(1) : 0L;
+                }
+            }, count -> 1);
+            
+        } catch (SQLException e) {
+            logger.error("Error executing count query", e);
+            throw new RuntimeException("Failed to count bookmarks", e);
+        }
+    }
+    
+    private void appendFilters(StringBuilder sql, List<Object> params, BookmarkFilter filter, int[] candidateIds) {
+        // Restrict to candidate ids, passed as one JSON array so the statement shape stays fixed
+        if (candidateIds != null) {
+            sql.append(" AND id IN (SELECT value FROM json_each(?))");
+            params.add(toJsonArray(candidateIds));
+        }
+        
+        // Add search filter
+        String searchQuery = filter.searchQuery();
+        if (searchQuery != null && !searchQuery.trim().isEmpty()) {
+            sql.append(" AND (").append(text("url")).append(" LIKE ? OR title LIKE ? OR tags LIKE ? OR ")
+                    .append(text("notes")).append(" LIKE ?)");
+            String pattern = "%" + searchQuery + "%";
+            params.add(pattern);
+            params.add(pattern);
+            params.add(pattern);
+            params.add(pattern);
+        }
+        
+        // Add status filter
+        if (filter.status() != null) {
+            sql.append(" AND status = ?");
+            params.add(filter.status().name());
+        }
+        
+        // Add tag filters
+        for (String tag : filter.tags()) {
+            sql.append(" AND tags LIKE ?");
+            params.add("%" + tag + "%");
+        }
+        for (String tag : filter.excludedTags()) {
+            sql.append(" AND tags NOT LIKE ?");
+            params.add("%" + tag + "%");
+        }
+        
+        // Add domain filter: the host is the domain or a subdomain of it. An approximation
+        // of the bitmap index's host match, used when the index cannot resolve domains.
+        if (!filter.domains().isEmpty()) {
+            sql.append(" AND (");
+            for (int i = 0; i < filter.domains().size(); i++) {
+                String domain = filter.domains().get(i);
+                String url = text("url");
+                sql.append(i > 0 ? " OR " : "").append(url).append(" LIKE ? OR ").append(url).append(" LIKE ? OR ")
+                        .append(url).append(" LIKE ?");
+                params.add("%://" + domain + "/%");
+                params.add("%://" + domain);
+                params.add("%." + domain + "/%");
+            }
+            sql.append(")");
+        }
+    }
+    
+    private String text(String column) {
+        return columnCodec != null ? ColumnCodec.text(column) : column;
+    }
+    
+    private static String source(boolean allTiers) {
+        return allTiers ? ArchiveRepository.ALL_TIERS : "bookmarks";
+    }
+    
+    private Connection connection(boolean allTiers) throws SQLException {
+        Connection conn = databaseInitializer.getConnection();
+        if (allTiers) {
+            try {
+                // Archived notes are inflated by a SQL function while filtering
+                archiveRepository.registerFunctions(conn);
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
+        }
+        return conn;
+    }
+    
+    private static String toJsonArray(int[] ids) {
+        StringBuilder json = new StringBuilder(ids.length * 7 + 2).append('[');
+        for (int i = 0; i < ids.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(ids[i]);
+        }
+        return json.append(']').toString();
+    }
+    
     private String getSortField(String sortBy) {
         if (sortBy == null) {
             return "created_at";
@@ -93,16 +287,54 @@ public class BookmarkQueryRepository {
         };
     }
     
+    private static String selectList(Set<BookmarkField> fields) {
+        if (fields == null) {
+            return "*";
+        }
+        StringBuilder columns = new StringBuilder();
+        for (BookmarkField field : fields) {
+            columns.append(columns.length() > 0 ? ", " : "").append(field.column());
+        }
+        return columns.toString();
+    }
+    
+    private Bookmark mapColumns(ResultSet rs, Set<BookmarkField> fields) throws SQLException {
+        Bookmark bookmark = new Bookmark();
+        for (BookmarkField field : fields) {
+            switch (field) {
+                case ID -> bookmark.setId(rs.getLong("id"));
+                case URL -> bookmark.setUrl(columnCodec != null ? columnCodec.read(rs, "url") : rs.getString("url"));
+                case TITLE -> bookmark.setTitle(rs.getString("title"));
+                case TAGS -> bookmark.setTags(rs.getString("tags"));
+                case NOTES -> readNotes(rs, bookmark);
+                case STATUS -> bookmark.setStatus(BookmarkStatus.valueOf(rs.getString("status")));
+                case CREATED_AT -> bookmark.setCreatedAt(LocalDateTime.parse(rs.getString("created_at")));
+                case UPDATED_AT -> bookmark.setUpdatedAt(LocalDateTime.parse(rs.getString("updated_at")));
+                case VERSION -> bookmark.setVersion(rs.getLong("version"));
+            }
+        }
+        return bookmark;
+    }
+    
     private Bookmark mapResultSetToBookmark(ResultSet rs) throws SQLException {
         Bookmark bookmark = new Bookmark();
         bookmark.setId(rs.getLong("id"));
-        bookmark.setUrl(rs.getString("url"));
+        bookmark.setUrl(columnCodec != null ? columnCodec.read(rs, "url") : rs.getString("url"));
         bookmark.setTitle(rs.getString("title"));
         bookmark.setTags(rs.getString("tags"));
-        bookmark.setNotes(rs.getString("notes"));
+        readNotes(rs, bookmark);
         bookmark.setStatus(BookmarkStatus.valueOf(rs.getString("status")));
         bookmark.setCreatedAt(LocalDateTime.parse(rs.getString("created_at")));
         bookmark.setUpdatedAt(LocalDateTime.parse(rs.getString("updated_at")));
+        bookmark.setVersion(rs.getLong("version"));
         return bookmark;
     }
+    
+    private void readNotes(ResultSet rs, Bookmark bookmark) throws SQLException {
+        if (columnCodec != null) {
+            columnCodec.readNotes(rs, bookmark);
+        } else {
+            bookmark.setNotes(rs.getString("notes"));
+        }
+    }
 }
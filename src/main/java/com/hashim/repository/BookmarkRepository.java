@@ -4,58 +4,111 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sqlite.Function;
 
 import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkField;
 import com.hashim.model.BookmarkStatus;
+import com.hashim.util.SimHash;
 
 public class BookmarkRepository {
     private static final Logger logger = LoggerFactory.getLogger(BookmarkRepository.class);
+    // Columns a partial update may write; id, timestamps and version are maintained here
+    private static final Set<BookmarkField> EDITABLE_FIELDS = EnumSet.of(
+            BookmarkField.URL, BookmarkField.TITLE, BookmarkField.TAGS, BookmarkField.NOTES, BookmarkField.STATUS);
+    // Fields the simhash column is computed from
+    private static final Set<BookmarkField> SIGNATURE_FIELDS = EnumSet.of(
+            BookmarkField.URL, BookmarkField.TITLE, BookmarkField.NOTES);
+    private static final String SIMHASH_FUNCTION = "bookmark_simhash";
     private final DatabaseInitializer databaseInitializer;
+    private final QueryInstrumentation instrumentation;
+    private final List<BookmarkChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    // Optional; compresses long text columns on write
+    private ColumnCodec columnCodec;
+    // Set while indexes are built at startup; streams rows from a snapshot file
+    private volatile WarmStart warmStart;
 
-    public BookmarkRepository(DatabaseInitializer databaseInitializer) {
+    public BookmarkRepository(DatabaseInitializer databaseInitializer, QueryInstrumentation instrumentation) {
         this.databaseInitializer = databaseInitializer;
+        this.instrumentation = instrumentation;
+    }
+
+    /**
+     * Registers a listener that is notified after each committed write.
+     */
+    public void addChangeListener(BookmarkChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Stores the codec's columns compressed. Must be set before any compressed
+     * value is read, together with the codec's SQL functions on every connection.
+     */
+    public void setColumnCodec(ColumnCodec columnCodec) {
+        this.columnCodec = columnCodec;
+    }
+
+    /**
+     * Serves {@link #forEach} and {@link #forEachInRange} from the given warm
+     * start view instead of the table, until set back to null.
+     */
+    public void setWarmStart(WarmStart warmStart) {
+        this.warmStart = warmStart;
     }
 
     public Bookmark create(Bookmark bookmark) {
-        String sql = "INSERT INTO bookmarks (url, title, tags, notes, status, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        // RETURNING hands back the generated id without a second statement
+        String sql = "INSERT INTO bookmarks (url, title, tags, notes, status, created_at, updated_at, simhash) " +
+                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?) RETURNING id, version";
         
         try (Connection conn = databaseInitializer.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             LocalDateTime now = LocalDateTime.now();
-            pstmt.setString(1, bookmark.getUrl());
-            pstmt.setString(2, bookmark.getTitle());
-            pstmt.setString(3, bookmark.getTags() != null ? bookmark.getTags() : "");
-            pstmt.setString(4, bookmark.getNotes() != null ? bookmark.getNotes() : "");
-            pstmt.setString(5, bookmark.getStatus().name());
-            pstmt.setString(6, now.toString());
-            pstmt.setString(7, now.toString());
-            
-            int affectedRows = pstmt.executeUpdate();
-            
-            if (affectedRows == 0) {
-                throw new SQLException("Creating bookmark failed, no rows affected.");
-            }
+            List<Object> params = List.of(
+                    pack("url", bookmark.getUrl()),
+                    bookmark.getTitle(),
+                    bookmark.getTags() != null ? bookmark.getTags() : "",
+                    pack("notes", bookmark.getNotes() != null ? bookmark.getNotes() : ""),
+                    bookmark.getStatus().name(),
+                    now.toString(),
+                    now.toString(),
+                    signature(bookmark));
+            bindParameters(pstmt, params);
             
-            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    bookmark.setId(generatedKeys.getLong(1));
-                    bookmark.setCreatedAt(now);
-                    bookmark.setUpdatedAt(now);
-                } else {
-                    throw new SQLException("Creating bookmark failed, no ID obtained.");
+            boolean inserted = instrumentation.execute(sql, params, () -> {
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) {
+                        return false;
+                    }
+                    bookmark.setId(rs.getLong("id"));
+                    bookmark.setVersion(rs.getLong("version"));
+                    return true;
                 }
+            }, ok -> ok ? 1 : 0);
+            
+            if (!inserted) {
+                throw new SQLException("Creating bookmark failed, no ID obtained.");
             }
+            bookmark.setCreatedAt(now);
+            bookmark.setUpdatedAt(now);
             
-            logger.info("Created bookmark with id: {}", bookmark.getId());
+            logger.debug("Created bookmark with id: {}", bookmark.getId());
+            notifyListeners(listener -> listener.onCreated(bookmark));
             return bookmark;
             
         } catch (SQLException e) {
@@ -77,18 +130,13 @@ public class BookmarkRepository {
             
             pstmt.setLong(1, id);
             
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return Optional.of(mapResultSetToBookmark(rs));
-                }
-            }
+            List<Bookmark> bookmarks = instrumentation.execute(sql, List.of(id), () -> readAll(pstmt), List::size);
+            return bookmarks.stream().findFirst();
             
         } catch (SQLException e) {
             logger.error("Error finding bookmark by id: {}", id, e);
             throw new RuntimeException("Failed to find bookmark", e);
         }
-        
-        return Optional.empty();
     }
 
     public List<Bookmark> findByStatus(BookmarkStatus status) {
@@ -99,14 +147,7 @@ public class BookmarkRepository {
             
             pstmt.setString(1, status.name());
             
-            List<Bookmark> bookmarks = new ArrayList<>();
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    bookmarks.add(mapResultSetToBookmark(rs));
-                }
-            }
-            
-            return bookmarks;
+            return instrumentation.execute(sql, List.of(status.name()), () -> readAll(pstmt), List::size);
             
         } catch (SQLException e) {
             logger.error("Error finding bookmarks by status: {}", status, e);
@@ -115,7 +156,8 @@ public class BookmarkRepository {
     }
 
     public List<Bookmark> search(String query) {
-        String sql = "SELECT * FROM bookmarks WHERE url LIKE ? OR title LIKE ? OR tags LIKE ? OR notes LIKE ? ORDER BY created_at DESC";
+        String sql = "SELECT * FROM bookmarks WHERE " + text("url") + " LIKE ? OR title LIKE ? OR tags LIKE ? OR " +
+                     text("notes") + " LIKE ? ORDER BY created_at DESC";
         
         try (Connection conn = databaseInitializer.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -126,63 +168,475 @@ public class BookmarkRepository {
             pstmt.setString(3, searchPattern);
             pstmt.setString(4, searchPattern);
             
-            List<Bookmark> bookmarks = new ArrayList<>();
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    bookmarks.add(mapResultSetToBookmark(rs));
+            return instrumentation.execute(sql, List.of(searchPattern, searchPattern, searchPattern, searchPattern),
+                    () -> readAll(pstmt), List::size);
+            
+        } catch (SQLException e) {
+            logger.error("Error searching bookmarks with query: {}", query, e);
+            throw new RuntimeException("Failed to search bookmarks", e);
+        }
+    }
+
+    /**
+     * Overwrites the editable fields of a bookmark in a single statement and
+     * returns the stored row.
+     *
+     * @param bookmark The new field values, identified by its id
+     * @param expectedVersion Only update if the row is still at this version (null: any version)
+     * @return The updated row, or empty if the id does not exist or the version did not match
+     */
+    public Optional<Bookmark> update(Bookmark bookmark, Long expectedVersion) {
+        String sql = "UPDATE bookmarks SET url = ?, title = ?, tags = ?, notes = ?, status = ?, simhash = ?, " +
+                     "updated_at = ?, version = version + 1 WHERE id = ?" + (expectedVersion != null ? " AND version = ?" : "") +
+                     " RETURNING *";
+        
+        List<Object> params = new ArrayList<>(List.of(
+                pack("url", bookmark.getUrl()),
+                bookmark.getTitle(),
+                bookmark.getTags() != null ? bookmark.getTags() : "",
+                pack("notes", bookmark.getNotes() != null ? bookmark.getNotes() : ""),
+                bookmark.getStatus().name(),
+                signature(bookmark),
+                LocalDateTime.now().toString(),
+                bookmark.getId()));
+        if (expectedVersion != null) {
+            params.add(expectedVersion);
+        }
+        
+        try {
+            return updateReturning(sql, params, false);
+        } catch (SQLException e) {
+            logger.error("Error updating bookmark with id: {}", bookmark.getId(), e);
+            throw new RuntimeException("Failed to update bookmark", e);
+        }
+    }
+
+    /**
+     * Writes only the given columns of one bookmark in a single statement and
+     * returns the stored row.
+     *
+     * @param changes New value per field; only url, title, tags, notes and status may be written
+     * @param expectedVersion Only update if the row is still at this version (null: any version)
+     * @return The updated row, or empty if the id does not exist or the version did not match
+     */
+    public Optional<Bookmark> updateFields(Long id, Map<BookmarkField, Object> changes, Long expectedVersion) {
+        StringBuilder sql = new StringBuilder("UPDATE bookmarks SET ");
+        List<Object> params = new ArrayList<>();
+        for (Map.Entry<BookmarkField, Object> change : changes.entrySet()) {
+            if (!EDITABLE_FIELDS.contains(change.getKey())) {
+                throw new IllegalArgumentException("Field cannot be updated: " + change.getKey().jsonName());
+            }
+            sql.append(change.getKey().column()).append(" = ?, ");
+            params.add(change.getValue() instanceof String value ? pack(change.getKey().column(), value)
+                    : change.getValue());
+        }
+        // Recomputed from the new values and, for fields not being written, the stored ones
+        boolean signatureChanged = changes.keySet().stream().anyMatch(SIGNATURE_FIELDS::contains);
+        if (signatureChanged) {
+            sql.append("simhash = ").append(SIMHASH_FUNCTION).append('(');
+            for (BookmarkField field : SIGNATURE_FIELDS) {
+                if (field != BookmarkField.URL) {
+                    sql.append(", ");
+                }
+                if (changes.containsKey(field)) {
+                    sql.append('?');
+                    params.add(changes.get(field));
+                } else {
+                    sql.append(text(field.column()));
+                }
+            }
+            sql.append("), ");
+        }
+        sql.append("updated_at = ?, version = version + 1 WHERE id = ?");
+        params.add(LocalDateTime.now().toString());
+        params.add(id);
+        if (expectedVersion != null) {
+            sql.append(" AND version = ?");
+            params.add(expectedVersion);
+        }
+        sql.append(" RETURNING *");
+        
+        try {
+            return updateReturning(sql.toString(), params, signatureChanged);
+        } catch (SQLException e) {
+            logger.error("Error updating fields {} of bookmark with id: {}", changes.keySet(), id, e);
+            throw new RuntimeException("Failed to update bookmark", e);
+        }
+    }
+
+    /**
+     * Sets the status of one bookmark in a single statement and returns the stored row.
+     *
+     * @param expectedVersion Only update if the row is still at this version (null: any version)
+     * @return The updated row, or empty if the id does not exist or the version did not match
+     */
+    public Optional<Bookmark> updateStatus(Long id, BookmarkStatus status, Long expectedVersion) {
+        String sql = "UPDATE bookmarks SET status = ?, updated_at = ?, version = version + 1 WHERE id = ?" +
+                     (expectedVersion != null ? " AND version = ?" : "") + " RETURNING *";
+        
+        List<Object> params = new ArrayList<>(List.of(status.name(), LocalDateTime.now().toString(), id));
+        if (expectedVersion != null) {
+            params.add(expectedVersion);
+        }
+        
+        try {
+            return updateReturning(sql, params, false);
+        } catch (SQLException e) {
+            logger.error("Error updating status of bookmark with id: {}", id, e);
+            throw new RuntimeException("Failed to update bookmark status", e);
+        }
+    }
+
+    private Optional<Bookmark> updateReturning(String sql, List<Object> params, boolean signatureFunction)
+            throws SQLException {
+        try (Connection conn = databaseInitializer.getConnection()) {
+            if (signatureFunction) {
+                registerSignatureFunction(conn);
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                bindParameters(pstmt, params);
+                List<Bookmark> updated = instrumentation.execute(sql, params, () -> readAll(pstmt), List::size);
+                if (updated.isEmpty()) {
+                    return Optional.empty();
+                }
+                
+                Bookmark bookmark = updated.get(0);
+                logger.debug("Updated bookmark with id: {} (version {})", bookmark.getId(), bookmark.getVersion());
+                notifyListeners(listener -> listener.onUpdated(bookmark));
+                return Optional.of(bookmark);
+            }
+        }
+    }
+
+    /**
+     * Rewrites url, title, tags and notes of several bookmarks in a single
+     * transaction, each only if its row is still at the version the bookmark
+     * carries. updated_at is left alone: the content is the same, only its
+     * stored form changes.
+     *
+     * @return The rows that were rewritten
+     */
+    public List<Bookmark> updateContents(List<Bookmark> bookmarks) {
+        String sql = "UPDATE bookmarks SET url = ?, title = ?, tags = ?, notes = ?, simhash = ?, " +
+                     "version = version + 1 WHERE id = ? AND version = ? RETURNING *";
+        
+        try (Connection conn = databaseInitializer.getConnection()) {
+            conn.setAutoCommit(false);
+            
+            List<Bookmark> updated = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (Bookmark bookmark : bookmarks) {
+                    List<Object> params = List.of(
+                            pack("url", bookmark.getUrl()),
+                            bookmark.getTitle(),
+                            bookmark.getTags(),
+                            pack("notes", bookmark.getNotes()),
+                            signature(bookmark),
+                            bookmark.getId(),
+                            bookmark.getVersion());
+                    bindParameters(pstmt, params);
+                    updated.addAll(instrumentation.execute(sql, params, () -> readAll(pstmt), List::size));
                 }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
             
-            return bookmarks;
+            logger.debug("Rewrote contents of {} of {} bookmarks", updated.size(), bookmarks.size());
+            for (Bookmark bookmark : updated) {
+                notifyListeners(listener -> listener.onUpdated(bookmark));
+            }
+            return updated;
             
         } catch (SQLException e) {
-            logger.error("Error searching bookmarks with query: {}", query, e);
-            throw new RuntimeException("Failed to search bookmarks", e);
+            logger.error("Error rewriting contents of {} bookmarks", bookmarks.size(), e);
+            throw new RuntimeException("Failed to rewrite bookmark contents", e);
         }
     }
 
-    public Bookmark update(Bookmark bookmark) {
-        String sql = "UPDATE bookmarks SET url = ?, title = ?, tags = ?, notes = ?, status = ?, updated_at = ? WHERE id = ?";
+    /**
+     * Applies a batch of status changes in a single transaction.
+     * Only the status and updated_at columns are written.
+     *
+     * @param statuses New status per bookmark id
+     * @param timestamps updated_at value per bookmark id
+     * @return Number of bookmarks updated (ids that no longer exist are skipped)
+     */
+    public int updateStatuses(Map<Long, BookmarkStatus> statuses, Map<Long, LocalDateTime> timestamps) {
+        String sql = "UPDATE bookmarks SET status = ?, updated_at = ?, version = version + 1 WHERE id = ? " +
+                     "RETURNING version";
+        
+        try (Connection conn = databaseInitializer.getConnection()) {
+            conn.setAutoCommit(false);
+            
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                // New version per updated id, so listeners can order this change against others
+                Map<Long, Long> versions = instrumentation.execute(sql, List.of(), () -> {
+                    Map<Long, Long> updated = new LinkedHashMap<>();
+                    for (Map.Entry<Long, BookmarkStatus> entry : statuses.entrySet()) {
+                        pstmt.setString(1, entry.getValue().name());
+                        pstmt.setString(2, timestamps.get(entry.getKey()).toString());
+                        pstmt.setLong(3, entry.getKey());
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            if (rs.next()) {
+                                updated.put(entry.getKey(), rs.getLong(1));
+                            }
+                        }
+                    }
+                    return updated;
+                }, Map::size);
+                conn.commit();
+                
+                logger.debug("Updated status of {} bookmarks in batch", versions.size());
+                versions.forEach((id, version) -> notifyListeners(listener ->
+                        listener.onStatusChanged(id, statuses.get(id), timestamps.get(id), version)));
+                return versions.size();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            
+        } catch (SQLException e) {
+            logger.error("Error updating status of {} bookmarks", statuses.size(), e);
+            throw new RuntimeException("Failed to update bookmark statuses", e);
+        }
+    }
+
+    /**
+     * Streams every bookmark in id order without materializing the whole table.
+     * Used to build in-memory indexes.
+     */
+    public void forEach(Consumer<Bookmark> consumer) {
+        forEachInRange(Long.MIN_VALUE, Long.MAX_VALUE, consumer);
+    }
+
+    /**
+     * Streams bookmarks with {@code fromId <= id < toId} in id order, so that
+     * index builds can split the table across threads.
+     */
+    public void forEachInRange(long fromId, long toId, Consumer<Bookmark> consumer) {
+        WarmStart source = warmStart;
+        if (source != null) {
+            source.forEachInRange(this, fromId, toId, consumer);
+            return;
+        }
+        String sql = "SELECT * FROM bookmarks WHERE id >= ? AND id < ? ORDER BY id";
         
         try (Connection conn = databaseInitializer.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
-            LocalDateTime now = LocalDateTime.now();
-            pstmt.setString(1, bookmark.getUrl());
-            pstmt.setString(2, bookmark.getTitle());
-            pstmt.setString(3, bookmark.getTags() != null ? bookmark.getTags() : "");
-            pstmt.setString(4, bookmark.getNotes() != null ? bookmark.getNotes() : "");
-            pstmt.setString(5, bookmark.getStatus().name());
-            pstmt.setString(6, now.toString());
-            pstmt.setLong(7, bookmark.getId());
-            
-            int affectedRows = pstmt.executeUpdate();
-            
-            if (affectedRows == 0) {
-                throw new SQLException("Updating bookmark failed, no rows affected.");
+            pstmt.setLong(1, fromId);
+            pstmt.setLong(2, toId);
+            long rows = instrumentation.execute(sql, List.of(fromId, toId), () -> {
+                long count = 0;
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        consumer.accept(mapResultSetToBookmark(rs));
+                        count++;
+                    }
+                }
+                return count;
+            }, count -> count);
+            logger.debug("Streamed {} bookmarks", rows);
+            
+        } catch (SQLException e) {
+            logger.error("Error streaming bookmarks", e);
+            throw new RuntimeException("Failed to stream bookmarks", e);
+        }
+    }
+
+    /**
+     * Streams the stored simhash and the version of every bookmark in id
+     * order; the simhash is null for rows written before the column existed.
+     */
+    public void forEachSignature(SignatureConsumer consumer) {
+        String sql = "SELECT id, simhash, version FROM bookmarks ORDER BY id";
+        
+        try (Connection conn = databaseInitializer.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            instrumentation.execute(sql, List.of(), () -> {
+                long count = 0;
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        long simhash = rs.getLong(2);
+                        consumer.accept(rs.getLong(1), rs.wasNull() ? null : simhash, rs.getLong(3));
+                        count++;
+                    }
+                }
+                return count;
+            }, count -> count);
+            
+        } catch (SQLException e) {
+            logger.error("Error streaming bookmark signatures", e);
+            throw new RuntimeException("Failed to stream bookmark signatures", e);
+        }
+    }
+
+    /**
+     * Streams the id and version of every bookmark in id order. Every write
+     * bumps the version, so this is enough to tell which rows changed.
+     */
+    public void forEachVersion(VersionConsumer consumer) {
+        String sql = "SELECT id, version FROM bookmarks ORDER BY id";
+        
+        try (Connection conn = databaseInitializer.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            instrumentation.execute(sql, List.of(), () -> {
+                long count = 0;
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        consumer.accept(rs.getLong(1), rs.getLong(2));
+                        count++;
+                    }
+                }
+                return count;
+            }, count -> count);
+            
+        } catch (SQLException e) {
+            logger.error("Error streaming bookmark versions", e);
+            throw new RuntimeException("Failed to stream bookmark versions", e);
+        }
+    }
+
+    /**
+     * Returns the bookmarks with the given ids that exist, in id order.
+     */
+    public List<Bookmark> findByIds(Collection<Long> ids) {
+        String sql = "SELECT * FROM bookmarks WHERE id IN (SELECT value FROM json_each(?)) ORDER BY id";
+        
+        try (Connection conn = databaseInitializer.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setString(1, ids.toString());
+            return instrumentation.execute(sql, List.of(ids.size()), () -> readAll(pstmt), List::size);
+            
+        } catch (SQLException e) {
+            logger.error("Error finding {} bookmarks by id", ids.size(), e);
+            throw new RuntimeException("Failed to find bookmarks", e);
+        }
+    }
+
+    /**
+     * Stores computed simhash values in one transaction. Only the simhash column
+     * is written: the version is not bumped and listeners are not notified.
+     * Rows that already have a simhash are left alone, since a write since the
+     * value was computed stored one for the new content.
+     *
+     * @return Number of rows updated (ids that no longer exist or already have a simhash are skipped)
+     */
+    public int saveSignatures(long[] ids, long[] signatures) {
+        String sql = "UPDATE bookmarks SET simhash = ? WHERE id = ? AND simhash IS NULL";
+        
+        try (Connection conn = databaseInitializer.getConnection()) {
+            conn.setAutoCommit(false);
+            
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < ids.length; i++) {
+                    pstmt.setLong(1, signatures[i]);
+                    pstmt.setLong(2, ids[i]);
+                    pstmt.addBatch();
+                }
+                
+                int[] counts = instrumentation.execute(sql, List.of(), pstmt::executeBatch, c -> c.length);
+                conn.commit();
+                int updated = 0;
+                for (int count : counts) {
+                    updated += Math.max(count, 0);
+                }
+                return updated;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
             
-            bookmark.setUpdatedAt(now);
-            logger.info("Updated bookmark with id: {}", bookmark.getId());
-            return bookmark;
+        } catch (SQLException e) {
+            logger.error("Error saving {} bookmark signatures", ids.length, e);
+            throw new RuntimeException("Failed to save bookmark signatures", e);
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} bookmarks with ids above {@code afterId}, in
+     * id order, for jobs that walk the table in chunks.
+     */
+    public List<Bookmark> findAfter(long afterId, int limit) {
+        String sql = "SELECT * FROM bookmarks WHERE id > ? ORDER BY id LIMIT ?";
+        
+        try (Connection conn = databaseInitializer.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setLong(1, afterId);
+            pstmt.setInt(2, limit);
+            return instrumentation.execute(sql, List.of(afterId, limit), () -> readAll(pstmt), List::size);
             
         } catch (SQLException e) {
-            logger.error("Error updating bookmark with id: {}", bookmark.getId(), e);
-            throw new RuntimeException("Failed to update bookmark", e);
+            logger.error("Error finding bookmarks after id: {}", afterId, e);
+            throw new RuntimeException("Failed to find bookmarks", e);
+        }
+    }
+
+    /**
+     * Number of bookmarks with ids above {@code afterId}.
+     */
+    public long countAfter(long afterId) {
+        String sql = "SELECT COUNT(*) FROM bookmarks WHERE id > ?";
+        
+        try (Connection conn = databaseInitializer.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setLong(1, afterId);
+            return instrumentation.execute(sql, List.of(afterId), () -> {
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? rs.getLong(1) : 0L;
+                }
+            }, count -> 1);
+            
+        } catch (SQLException e) {
+            logger.error("Error counting bookmarks after id: {}", afterId, e);
+            throw new RuntimeException("Failed to count bookmarks", e);
+        }
+    }
+
+    /**
+     * Returns the highest bookmark id, or 0 when the table is empty.
+     */
+    public long findMaxId() {
+        String sql = "SELECT COALESCE(MAX(id), 0) FROM bookmarks";
+        
+        try (Connection conn = databaseInitializer.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            return instrumentation.execute(sql, List.of(), () -> {
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? rs.getLong(1) : 0L;
+                }
+            }, maxId -> 1);
+            
+        } catch (SQLException e) {
+            logger.error("Error finding max bookmark id", e);
+            throw new RuntimeException("Failed to find max bookmark id", e);
         }
     }
 
     public boolean delete(Long id) {
-        String sql = "DELETE FROM bookmarks WHERE id = ?";
+        String sql = "DELETE FROM bookmarks WHERE id = ? RETURNING version";
         
         try (Connection conn = databaseInitializer.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setLong(1, id);
-            int affectedRows = pstmt.executeUpdate();
+            Long version = instrumentation.execute(sql, List.of(id), () -> {
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? rs.getLong(1) : null;
+                }
+            }, deleted -> deleted != null ? 1 : 0);
             
-            if (affectedRows > 0) {
-                logger.info("Deleted bookmark with id: {}", id);
+            if (version != null) {
+                logger.debug("Deleted bookmark with id: {}", id);
+                notifyListeners(listener -> listener.onDeleted(id, version));
                 return true;
             }
             
@@ -196,15 +650,9 @@ public class BookmarkRepository {
 
     private List<Bookmark> executeQuery(String sql) {
         try (Connection conn = databaseInitializer.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            
-            List<Bookmark> bookmarks = new ArrayList<>();
-            while (rs.next()) {
-                bookmarks.add(mapResultSetToBookmark(rs));
-            }
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
-            return bookmarks;
+            return instrumentation.execute(sql, List.of(), () -> readAll(pstmt), List::size);
             
         } catch (SQLException e) {
             logger.error("Error executing query: {}", sql, e);
@@ -212,16 +660,111 @@ public class BookmarkRepository {
         }
     }
 
+    /**
+     * Notifies listeners of a row written outside this class (e.g. applied from
+     * a replication stream), reading back its committed state. Nothing is
+     * published if the row is gone by then: whoever deleted it publishes that.
+     *
+     * @return Whether the row was found
+     */
+    boolean publishExternalChange(Long id, boolean created) {
+        Optional<Bookmark> bookmark = findById(id);
+        if (bookmark.isEmpty()) {
+            return false;
+        }
+        if (created) {
+            notifyListeners(listener -> listener.onCreated(bookmark.get()));
+        } else {
+            notifyListeners(listener -> listener.onUpdated(bookmark.get()));
+        }
+        return true;
+    }
+
+    /**
+     * Notifies listeners of rows removed outside this class (e.g. moved to the
+     * archive tier), given the version of each removed row by id.
+     */
+    void publishDeleted(Map<Long, Long> versions) {
+        versions.forEach((id, version) -> notifyListeners(listener -> listener.onDeleted(id, version)));
+    }
+
+    private void notifyListeners(Consumer<BookmarkChangeListener> event) {
+        for (BookmarkChangeListener listener : changeListeners) {
+            try {
+                event.accept(listener);
+            } catch (RuntimeException e) {
+                logger.error("Bookmark change listener {} failed", listener.getClass().getSimpleName(), e);
+            }
+        }
+    }
+
+    private static long signature(Bookmark bookmark) {
+        return SimHash.of(bookmark.getUrl(), bookmark.getTitle(), bookmark.getNotes());
+    }
+
+    /**
+     * {@code bookmark_simhash(url, title, notes)}, so that a partial update can
+     * hash the fields it does not write from the stored row.
+     */
+    private static void registerSignatureFunction(Connection conn) throws SQLException {
+        Function.create(conn, SIMHASH_FUNCTION, new Function() {
+            @Override
+            protected void xFunc() throws SQLException {
+                result(SimHash.of(value_text(0), value_text(1), value_text(2)));
+            }
+        }, Function.FLAG_DETERMINISTIC);
+    }
+
+    private Object pack(String column, String value) {
+        return columnCodec != null ? columnCodec.pack(column, value) : value;
+    }
+
+    private String text(String column) {
+        return columnCodec != null ? ColumnCodec.text(column) : column;
+    }
+
+    private void bindParameters(PreparedStatement pstmt, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            pstmt.setObject(i + 1, params.get(i));
+        }
+    }
+
+    private List<Bookmark> readAll(PreparedStatement pstmt) throws SQLException {
+        List<Bookmark> bookmarks = new ArrayList<>();
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                bookmarks.add(mapResultSetToBookmark(rs));
+            }
+        }
+        return bookmarks;
+    }
+
     private Bookmark mapResultSetToBookmark(ResultSet rs) throws SQLException {
         Bookmark bookmark = new Bookmark();
         bookmark.setId(rs.getLong("id"));
-        bookmark.setUrl(rs.getString("url"));
         bookmark.setTitle(rs.getString("title"));
         bookmark.setTags(rs.getString("tags"));
-        bookmark.setNotes(rs.getString("notes"));
+        if (columnCodec != null) {
+            bookmark.setUrl(columnCodec.read(rs, "url"));
+            columnCodec.readNotes(rs, bookmark);
+        } else {
+            bookmark.setUrl(rs.getString("url"));
+            bookmark.setNotes(rs.getString("notes"));
+        }
         bookmark.setStatus(BookmarkStatus.valueOf(rs.getString("status")));
         bookmark.setCreatedAt(LocalDateTime.parse(rs.getString("created_at")));
         bookmark.setUpdatedAt(LocalDateTime.parse(rs.getString("updated_at")));
+        bookmark.setVersion(rs.getLong("version"));
         return bookmark;
     }
+
+    @FunctionalInterface
+    public interface SignatureConsumer {
+        void accept(long id, Long simhash, long version);
+    }
+
+    @FunctionalInterface
+    public interface VersionConsumer {
+        void accept(long id, long version);
+    }
 }
@@ -0,0 +1,533 @@
+package com.hashim.repository;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkStatus;
+
+/**
+ * Compact binary copy of the bookmarks table, for warm starts and export.
+ *
+ * <p>Layout, with integers big-endian:
+ * <pre>
+ * header   magic "BMSN", format version (short)
+ * blocks   up to {@value #BLOCK_ROWS} rows each, stored column by column:
+ *          ids (varint deltas), versions (varint), statuses (one byte, an
+ *          index into the status table), created_at and updated_at (zigzag
+ *          varint deltas of epoch seconds, then varint nanos), and url,
+ *          title, tags and notes as string tables (varint length + 1 per row,
+ *          0 for null, followed by the UTF-8 bytes of the whole column)
+ * footer   status table, block directory (first id, last id, offset, rows),
+ *          row count, max id, time written (epoch millis), id of the database
+ *          the rows were read from (modified UTF-8, empty if unknown)
+ * trailer  CRC32C of everything before it, footer length, magic
+ * </pre>
+ *
+ * <p>Files are written under a temporary name, forced to disk and moved into
+ * place, so readers only ever see complete snapshots. {@link #open} maps the
+ * file and checks the checksum; rows are then decoded straight from the
+ * mapping a block at a time, with no shared read position, so several threads
+ * can decode different id ranges at once.
+ */
+public final class BookmarkSnapshot {
+    private static final int MAGIC = 0x424D534E; // "BMSN"
+    private static final short FORMAT_VERSION = 2;
+    private static final int HEADER_BYTES = 6;
+    private static final int TRAILER_BYTES = 12;
+    private static final int BLOCK_ROWS = 4096;
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final BookmarkStatus[] statuses;
+    private final long[] blockFirstIds;
+    private final long[] blockLastIds;
+    private final int[] blockOffsets;
+    private final Info info;
+
+    /**
+     * What a snapshot holds; {@code bytes} is the file size and {@code databaseId}
+     * the {@link DatabaseInitializer#getDatabaseId() id} of the source database, or null.
+     */
+    public record Info(long rows, long maxId, int blocks, long bytes, Instant writtenAt, String databaseId) {
+    }
+
+    private BookmarkSnapshot(Path path, MappedByteBuffer buffer, BookmarkStatus[] statuses, long[] blockFirstIds,
+                             long[] blockLastIds, int[] blockOffsets, Info info) {
+        this.path = path;
+        this.buffer = buffer;
+        this.statuses = statuses;
+        this.blockFirstIds = blockFirstIds;
+        this.blockLastIds = blockLastIds;
+        this.blockOffsets = blockOffsets;
+        this.info = info;
+    }
+
+    /**
+     * Writes the bookmarks passed by {@code source}, which must come in
+     * ascending id order (as {@link BookmarkRepository#forEach} streams them),
+     * and atomically replaces {@code target} with the result.
+     *
+     * @param databaseId Id of the database the bookmarks are read from, or null
+     */
+    public static Info write(Path target, String databaseId, Consumer<Consumer<Bookmark>> source)
+            throws IOException {
+        Path partial = target.resolveSibling(target.getFileName() + ".partial");
+        if (target.getParent() != null) {
+            Files.createDirectories(target.getParent());
+        }
+        try {
+            BlockWriter blocks;
+            long bytes;
+            long writtenAt = System.currentTimeMillis();
+            try (FileOutputStream file = new FileOutputStream(partial.toFile())) {
+                CRC32C crc = new CRC32C();
+                DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                        new BufferedOutputStream(file, 1 << 16), crc));
+                out.writeInt(MAGIC);
+                out.writeShort(FORMAT_VERSION);
+
+                blocks = new BlockWriter(out);
+                try {
+                    source.accept(blocks::add);
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                blocks.flush();
+
+                int footerStart = out.size();
+                BookmarkStatus[] statuses = BookmarkStatus.values();
+                out.writeShort(statuses.length);
+                for (BookmarkStatus status : statuses) {
+                    out.writeUTF(status.name());
+                }
+                out.writeInt(blocks.count);
+                for (int i = 0; i < blocks.count; i++) {
+                    out.writeLong(blocks.firstIds[i]);
+                    out.writeLong(blocks.lastIds[i]);
+                    out.writeInt(blocks.offsets[i]);
+                    out.writeInt(blocks.rows[i]);
+                }
+                out.writeLong(blocks.totalRows);
+                out.writeLong(blocks.maxId);
+                out.writeLong(writtenAt);
+                out.writeUTF(databaseId != null ? databaseId : "");
+                int footerLength = out.size() - footerStart;
+
+                out.writeInt((int) crc.getValue());
+                out.writeInt(footerLength);
+                out.writeInt(MAGIC);
+                out.flush();
+                bytes = out.size();
+                if (bytes >= Integer.MAX_VALUE) {
+                    throw new IOException("Snapshot too large to map: " + bytes + " bytes");
+                }
+                file.getChannel().force(true);
+            }
+            Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return new Info(blocks.totalRows, blocks.maxId, blocks.count, bytes, Instant.ofEpochMilli(writtenAt),
+                    databaseId);
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+
+    /**
+     * Maps a snapshot file and verifies its checksum.
+     *
+     * @throws IOException if the file cannot be read, is not a snapshot, is of
+     *         an unknown format version or is corrupt
+     */
+    public static BookmarkSnapshot open(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + TRAILER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a bookmark snapshot (size " + size + "): " + path);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        int size = buffer.capacity();
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(size - 4) != MAGIC) {
+            throw new IOException("Not a bookmark snapshot: " + path);
+        }
+        if (buffer.getShort(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported snapshot format version " + buffer.getShort(4) + ": " + path);
+        }
+        int checksumAt = size - TRAILER_BYTES;
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(0, checksumAt));
+        if ((int) crc.getValue() != buffer.getInt(checksumAt)) {
+            throw new IOException("Snapshot checksum mismatch: " + path);
+        }
+
+        Cursor footer = new Cursor(buffer, checksumAt - buffer.getInt(checksumAt + 4));
+        BookmarkStatus[] statuses = new BookmarkStatus[footer.readShort()];
+        for (int i = 0; i < statuses.length; i++) {
+            try {
+                statuses[i] = BookmarkStatus.valueOf(footer.readUtf());
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Snapshot has an unknown status: " + path, e);
+            }
+        }
+        int blocks = footer.readInt();
+        long[] firstIds = new long[blocks];
+        long[] lastIds = new long[blocks];
+        int[] offsets = new int[blocks];
+        for (int i = 0; i < blocks; i++) {
+            firstIds[i] = footer.readLong();
+            lastIds[i] = footer.readLong();
+            offsets[i] = footer.readInt();
+            footer.readInt();
+        }
+        long rows = footer.readLong();
+        long maxId = footer.readLong();
+        Instant writtenAt = Instant.ofEpochMilli(footer.readLong());
+        String databaseId = footer.readUtf();
+        return new BookmarkSnapshot(path, buffer, statuses, firstIds, lastIds, offsets,
+                new Info(rows, maxId, blocks, size, writtenAt, databaseId.isEmpty() ? null : databaseId));
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public Info getInfo() {
+        return info;
+    }
+
+    /**
+     * Passes the bookmarks with {@code fromId <= id < toId} in id order.
+     */
+    public void forEachInRange(long fromId, long toId, Consumer<Bookmark> consumer) {
+        for (int block = firstBlock(fromId); block < blockOffsets.length && blockFirstIds[block] < toId; block++) {
+            decodeBlock(block, fromId, toId, consumer);
+        }
+    }
+
+    /**
+     * Passes the id and version of every bookmark in id order, decoding nothing else.
+     */
+    public void forEachVersion(BookmarkRepository.VersionConsumer consumer) {
+        for (int offset : blockOffsets) {
+            Cursor in = new Cursor(buffer, offset);
+            int rows = in.readVarInt();
+            long[] ids = readIds(in, rows);
+            for (int i = 0; i < rows; i++) {
+                consumer.accept(ids[i], in.readVarLong());
+            }
+        }
+    }
+
+    private int firstBlock(long fromId) {
+        int index = Arrays.binarySearch(blockLastIds, fromId);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private void decodeBlock(int block, long fromId, long toId, Consumer<Bookmark> consumer) {
+        Cursor in = new Cursor(buffer, blockOffsets[block]);
+        int rows = in.readVarInt();
+        long[] ids = readIds(in, rows);
+        long[] versions = new long[rows];
+        for (int i = 0; i < rows; i++) {
+            versions[i] = in.readVarLong();
+        }
+        byte[] statusIndexes = in.readBytes(rows);
+        LocalDateTime[] createdAt = readTimestamps(in, rows);
+        LocalDateTime[] updatedAt = readTimestamps(in, rows);
+        String[] urls = readStrings(in, rows);
+        String[] titles = readStrings(in, rows);
+        String[] tags = readStrings(in, rows);
+        String[] notes = readStrings(in, rows);
+
+        for (int i = 0; i < rows; i++) {
+            if (ids[i] >= fromId && ids[i] < toId) {
+                Bookmark bookmark = new Bookmark(ids[i], urls[i], titles[i], tags[i], notes[i],
+                        statuses[statusIndexes[i]], createdAt[i], updatedAt[i]);
+                bookmark.setVersion(versions[i]);
+                consumer.accept(bookmark);
+            }
+        }
+    }
+
+    private static long[] readIds(Cursor in, int rows) {
+        long[] ids = new long[rows];
+        long id = 0;
+        for (int i = 0; i < rows; i++) {
+            id += in.readVarLong();
+            ids[i] = id;
+        }
+        return ids;
+    }
+
+    private static LocalDateTime[] readTimestamps(Cursor in, int rows) {
+        LocalDateTime[] timestamps = new LocalDateTime[rows];
+        long seconds = 0;
+        for (int i = 0; i < rows; i++) {
+            seconds += zigzagDecode(in.readVarLong());
+            timestamps[i] = LocalDateTime.ofEpochSecond(seconds, in.readVarInt(), ZoneOffset.UTC);
+        }
+        return timestamps;
+    }
+
+    private static String[] readStrings(Cursor in, int rows) {
+        int[] lengths = new int[rows];
+        int total = 0;
+        for (int i = 0; i < rows; i++) {
+            lengths[i] = in.readVarInt() - 1;
+            total += Math.max(0, lengths[i]);
+        }
+        byte[] bytes = in.readBytes(total);
+        String[] strings = new String[rows];
+        int offset = 0;
+        for (int i = 0; i < rows; i++) {
+            if (lengths[i] >= 0) {
+                strings[i] = new String(bytes, offset, lengths[i], StandardCharsets.UTF_8);
+                offset += lengths[i];
+            }
+        }
+        return strings;
+    }
+
+    private static long zigzagEncode(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long zigzagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Buffers up to {@link #BLOCK_ROWS} rows column by column and writes them as one block.
+     */
+    private static final class BlockWriter {
+        private final DataOutputStream out;
+        private final Column ids = new Column();
+        private final Column versions = new Column();
+        private final Column statuses = new Column();
+        private final Column createdAt = new Column();
+        private final Column updatedAt = new Column();
+        private final StringColumn urls = new StringColumn();
+        private final StringColumn titles = new StringColumn();
+        private final StringColumn tags = new StringColumn();
+        private final StringColumn notes = new StringColumn();
+        private long[] firstIds = new long[16];
+        private long[] lastIds = new long[16];
+        private int[] offsets = new int[16];
+        private int[] rows = new int[16];
+        private int count;
+        private int blockRows;
+        private long previousId;
+        private long previousCreated;
+        private long previousUpdated;
+        private long totalRows;
+        private long maxId;
+
+        BlockWriter(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void add(Bookmark bookmark) {
+            long id = bookmark.getId();
+            if (id <= maxId && totalRows > 0) {
+                throw new IllegalArgumentException("Bookmarks must be in ascending id order, got " + id
+                        + " after " + maxId);
+            }
+            if (blockRows == 0) {
+                if (count == firstIds.length) {
+                    firstIds = Arrays.copyOf(firstIds, count * 2);
+                    lastIds = Arrays.copyOf(lastIds, count * 2);
+                    offsets = Arrays.copyOf(offsets, count * 2);
+                    rows = Arrays.copyOf(rows, count * 2);
+                }
+                firstIds[count] = id;
+                previousId = 0;
+                previousCreated = 0;
+                previousUpdated = 0;
+            }
+            ids.writeVarLong(id - previousId);
+            previousId = id;
+            versions.writeVarLong(bookmark.getVersion() != null ? bookmark.getVersion() : 0);
+            statuses.write(bookmark.getStatus().ordinal());
+            previousCreated = writeTimestamp(createdAt, bookmark.getCreatedAt(), previousCreated);
+            previousUpdated = writeTimestamp(updatedAt, bookmark.getUpdatedAt(), previousUpdated);
+            urls.add(bookmark.getUrl());
+            titles.add(bookmark.getTitle());
+            tags.add(bookmark.getTags());
+            notes.add(bookmark.getNotes());
+            maxId = id;
+            totalRows++;
+            if (++blockRows == BLOCK_ROWS) {
+                try {
+                    flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        void flush() throws IOException {
+            if (blockRows == 0) {
+                return;
+            }
+            if (out.size() >= Integer.MAX_VALUE - (1 << 24)) {
+                throw new IOException("Snapshot too large to map");
+            }
+            lastIds[count] = previousId;
+            offsets[count] = out.size();
+            rows[count] = blockRows;
+            count++;
+
+            Column header = new Column();
+            header.writeVarLong(blockRows);
+            for (Column column : new Column[] {header, ids, versions, statuses, createdAt, updatedAt}) {
+                column.writeTo(out);
+            }
+            for (StringColumn column : new StringColumn[] {urls, titles, tags, notes}) {
+                column.writeTo(out);
+            }
+            blockRows = 0;
+        }
+
+        private static long writeTimestamp(Column column, LocalDateTime timestamp, long previous) {
+            long seconds = timestamp.toEpochSecond(ZoneOffset.UTC);
+            column.writeVarLong(zigzagEncode(seconds - previous));
+            column.writeVarLong(timestamp.getNano());
+            return seconds;
+        }
+    }
+
+    /**
+     * Growable byte array with varint writes; cleared when written out.
+     */
+    private static class Column {
+        private byte[] bytes = new byte[1024];
+        private int size;
+
+        void write(int b) {
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, size * 2);
+            }
+            bytes[size++] = (byte) b;
+        }
+
+        void write(byte[] data) {
+            if (size + data.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + data.length));
+            }
+            System.arraycopy(data, 0, bytes, size, data.length);
+            size += data.length;
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.write(bytes, 0, size);
+            size = 0;
+        }
+    }
+
+    private static final class StringColumn {
+        private final Column lengths = new Column();
+        private final Column data = new Column();
+
+        void add(String value) {
+            if (value == null) {
+                lengths.write(0);
+                return;
+            }
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            lengths.writeVarLong(encoded.length + 1L);
+            data.write(encoded);
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            lengths.writeTo(out);
+            data.writeTo(out);
+        }
+    }
+
+    /**
+     * Read position over the mapping, using absolute reads only so that the
+     * buffer itself is never modified.
+     */
+    private static final class Cursor {
+        private final MappedByteBuffer buffer;
+        private int position;
+
+        Cursor(MappedByteBuffer buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        short readShort() {
+            short value = buffer.getShort(position);
+            position += 2;
+            return value;
+        }
+
+        int readInt() {
+            int value = buffer.getInt(position);
+            position += 4;
+            return value;
+        }
+
+        long readLong() {
+            long value = buffer.getLong(position);
+            position += 8;
+            return value;
+        }
+
+        String readUtf() {
+            int length = buffer.getShort(position) & 0xFFFF;
+            position += 2;
+            return new String(readBytes(length), StandardCharsets.UTF_8);
+        }
+
+        byte[] readBytes(int length) {
+            byte[] bytes = new byte[length];
+            buffer.get(position, bytes);
+            position += length;
+            return bytes;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(position++);
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+
+        int readVarInt() {
+            return (int) readVarLong();
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package com.hashim.repository;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sqlite.Function;
+
+import com.hashim.model.Bookmark;
+import com.hashim.util.DictionaryTrainer;
+
+/**
+ * Transparent compression of long text columns of {@code bookmarks} with a
+ * shared dictionary per column, trained on the stored values.
+ *
+ * <p>A column holds TEXT for values stored as they are (short ones, or any
+ * written before a dictionary existed) and a BLOB for compressed ones: one
+ * byte naming the dictionary, then raw Deflate data primed with it. Readers
+ * go through {@link #read}, and SQL goes through the {@code unpack_text}
+ * function, which is registered on every connection so that LIKE searches and
+ * the replication triggers see the original text.
+ */
+public class ColumnCodec {
+    private static final Logger logger = LoggerFactory.getLogger(ColumnCodec.class);
+    /** Columns that may be stored compressed. */
+    public static final Set<String> PACKABLE_COLUMNS = Set.of("notes", "url");
+    public static final String UNPACK_FUNCTION = "unpack_text";
+    private static final int MAX_DICTIONARY_ID = 255;
+    // Datatype codes returned by value_type (sqlite3.h)
+    private static final int SQLITE_BLOB = 4;
+    private static final int SQLITE_NULL = 5;
+
+    private final DatabaseInitializer databaseInitializer;
+    private final Set<String> columns;
+    private final int minLength;
+    // Every dictionary ever trained, by id; values compressed with an old one stay readable
+    private final Map<Integer, byte[]> dictionaries = new ConcurrentHashMap<>();
+    // The dictionary new values of each column are compressed with
+    private final Map<String, Integer> current = new ConcurrentHashMap<>();
+
+    /**
+     * @param columns Columns to compress on write; a subset of {@link #PACKABLE_COLUMNS}
+     * @param minLength Values shorter than this many characters are stored as they are
+     */
+    public ColumnCodec(DatabaseInitializer databaseInitializer, Set<String> columns, int minLength) {
+        for (String column : columns) {
+            if (!PACKABLE_COLUMNS.contains(column)) {
+                throw new IllegalArgumentException("Column cannot be compressed: " + column);
+            }
+        }
+        this.databaseInitializer = databaseInitializer;
+        this.columns = Set.copyOf(columns);
+        this.minLength = minLength;
+    }
+
+    /**
+     * SQL expression for a column's text, for use in WHERE clauses.
+     */
+    public static String text(String column) {
+        return PACKABLE_COLUMNS.contains(column) ? UNPACK_FUNCTION + "(" + column + ")" : column;
+    }
+
+    /**
+     * Loads the stored dictionaries, replacing any loaded before (e.g. when a
+     * follower has bootstrapped from a leader's snapshot). Called again
+     * whenever a value names a dictionary that is not loaded.
+     */
+    public synchronized void load() {
+        String sql = "SELECT id, column_name, dictionary FROM compression_dictionaries ORDER BY id";
+
+        try (Connection conn = databaseInitializer.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            Map<Integer, byte[]> loaded = new LinkedHashMap<>();
+            Map<String, Integer> latest = new LinkedHashMap<>();
+            while (rs.next()) {
+                int id = rs.getInt("id");
+                loaded.put(id, rs.getBytes("dictionary"));
+                latest.put(rs.getString("column_name"), id);
+            }
+            dictionaries.putAll(loaded);
+            dictionaries.keySet().retainAll(loaded.keySet());
+            current.putAll(latest);
+            current.keySet().retainAll(latest.keySet());
+            logger.debug("Loaded {} compression dictionaries", dictionaries.size());
+
+        } catch (SQLException e) {
+            logger.error("Error loading compression dictionaries", e);
+            throw new RuntimeException("Failed to load compression dictionaries", e);
+        }
+    }
+
+    public Set<String> getColumns() {
+        return columns;
+    }
+
+    public boolean hasDictionary(String column) {
+        return current.containsKey(column);
+    }
+
+    /**
+     * The value to bind for a column: compressed bytes when the column is
+     * compressed, has a dictionary and that makes the value smaller, otherwise
+     * the text itself.
+     */
+    public Object pack(String column, String value) {
+        if (value == null || value.length() < minLength || !columns.contains(column)) {
+            return value;
+        }
+        Integer id = current.get(column);
+        if (id == null) {
+            return value;
+        }
+        byte[] raw = value.getBytes(StandardCharsets.UTF_8);
+        byte[] packed = deflate(raw, id, dictionaries.get(id));
+        return packed.length < raw.length ? packed : value;
+    }
+
+    /**
+     * Reads a column that may hold a compressed value.
+     */
+    public String read(ResultSet rs, String column) throws SQLException {
+        Object value = rs.getObject(column);
+        return value instanceof byte[] bytes ? unpack(bytes) : (String) value;
+    }
+
+    /**
+     * Sets a bookmark's notes from a row, leaving compressed notes to be
+     * decoded when they are first read.
+     */
+    public void readNotes(ResultSet rs, Bookmark bookmark) throws SQLException {
+        Object value = rs.getObject("notes");
+        if (value instanceof byte[] packed) {
+            bookmark.setLazyNotes(() -> unpack(packed));
+        } else {
+            bookmark.setNotes((String) value);
+        }
+    }
+
+    public String unpack(byte[] packed) {
+        int id = packed[0] & 0xFF;
+        byte[] dictionary = dictionaries.get(id);
+        if (dictionary == null) {
+            load();
+            dictionary = dictionaries.get(id);
+            if (dictionary == null) {
+                throw new IllegalStateException("Unknown compression dictionary: " + id);
+            }
+        }
+        return inflate(packed, dictionary);
+    }
+
+    /**
+     * Registers {@code unpack_text(value)}, which returns text unchanged and
+     * decompresses blobs.
+     */
+    public void registerFunctions(Connection conn) throws SQLException {
+        Function.create(conn, UNPACK_FUNCTION, new Function() {
+            @Override
+            protected void xFunc() throws SQLException {
+                int type = value_type(0);
+                if (type == SQLITE_BLOB) {
+                    result(unpack(value_blob(0)));
+                } else if (type == SQLITE_NULL) {
+                    result();
+                } else {
+                    result(value_text(0));
+                }
+            }
+        }, Function.FLAG_DETERMINISTIC);
+    }
+
+    /**
+     * Trains a new dictionary for a column from a random sample of its values
+     * and makes it the one new values are compressed with. Existing values
+     * keep the dictionary they were written with until rewritten.
+     *
+     * @return The new dictionary's id, or -1 if there were too few samples
+     */
+    public synchronized int train(String column, int sampleLimit, int minSamples, int maxBytes) {
+        if (!PACKABLE_COLUMNS.contains(column)) {
+            throw new IllegalArgumentException("Column cannot be compressed: " + column);
+        }
+        String sampleSql = "SELECT " + text(column) + " FROM bookmarks WHERE LENGTH(" + column + ") > 0 " +
+                "ORDER BY random() LIMIT ?";
+        String insertSql = "INSERT INTO compression_dictionaries (id, column_name, dictionary, sample_count, created_at) " +
+                "VALUES ((SELECT COALESCE(MAX(id), 0) + 1 FROM compression_dictionaries), ?, ?, ?, ?) RETURNING id";
+
+        try (Connection conn = databaseInitializer.getConnection()) {
+            List<String> samples = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(sampleSql)) {
+                pstmt.setInt(1, sampleLimit);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        samples.add(rs.getString(1));
+                    }
+                }
+            }
+            if (samples.size() < minSamples) {
+                logger.info("Not training a dictionary for {}: {} values, need {}", column, samples.size(), minSamples);
+                return -1;
+            }
+            if (dictionaries.size() >= MAX_DICTIONARY_ID) {
+                throw new IllegalStateException("All " + MAX_DICTIONARY_ID + " dictionary ids are in use");
+            }
+
+            byte[] dictionary = DictionaryTrainer.train(samples, maxBytes);
+            if (dictionary.length == 0) {
+                logger.info("Not storing a dictionary for {}: the sampled values have nothing in common", column);
+                return -1;
+            }
+            int id;
+            try (PreparedStatement pstmt = conn.prepareStatement(insertSql)) {
+                pstmt.setString(1, column);
+                pstmt.setBytes(2, dictionary);
+                pstmt.setInt(3, samples.size());
+                pstmt.setString(4, LocalDateTime.now().toString());
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                    id = rs.getInt(1);
+                }
+            }
+            dictionaries.put(id, dictionary);
+            current.put(column, id);
+            logger.info("Trained dictionary {} for {} from {} values ({} bytes)", id, column, samples.size(),
+                    dictionary.length);
+            return id;
+
+        } catch (SQLException e) {
+            logger.error("Error training compression dictionary for {}", column, e);
+            throw new RuntimeException("Failed to train compression dictionary", e);
+        }
+    }
+
+    /**
+     * Rewrites up to {@code limit} values of a column, after id {@code afterId},
+     * that are not yet compressed with the current dictionary. Only the
+     * storage changes, so neither the version nor the change listeners are touched,
+     * and the replication trigger does not capture the rewrite.
+     *
+     * @return The last id examined, or -1 when there are no more rows
+     */
+    public long repackBatch(String column, long afterId, int limit) {
+        Integer id = current.get(column);
+        if (id == null || !columns.contains(column)) {
+            return -1;
+        }
+        String selectSql = "SELECT id, version, " + column + " FROM bookmarks WHERE id > ? ORDER BY id LIMIT ?";
+        // The version check skips rows a request has rewritten in the meantime
+        String updateSql = "UPDATE bookmarks SET " + column + " = ? WHERE id = ? AND version = ?";
+
+        try (Connection conn = databaseInitializer.getConnection()) {
+            List<Object[]> updates = new ArrayList<>();
+            long lastId = -1;
+            try (PreparedStatement pstmt = conn.prepareStatement(selectSql)) {
+                pstmt.setLong(1, afterId);
+                pstmt.setInt(2, limit);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        lastId = rs.getLong("id");
+                        Object stored = rs.getObject(column);
+                        if (stored instanceof byte[] bytes && (bytes[0] & 0xFF) == id) {
+                            continue;
+                        }
+                        String value = stored instanceof byte[] bytes ? unpack(bytes) : (String) stored;
+                        Object packed = pack(column, value);
+                        if (packed instanceof byte[]) {
+                            updates.add(new Object[] {packed, lastId, rs.getLong("version")});
+                        }
+                    }
+                }
+            }
+
+            if (!updates.isEmpty()) {
+                conn.setAutoCommit(false);
+                try (PreparedStatement pstmt = conn.prepareStatement(updateSql)) {
+                    for (Object[] update : updates) {
+                        pstmt.setBytes(1, (byte[]) update[0]);
+                        pstmt.setLong(2, (Long) update[1]);
+                        pstmt.setLong(3, (Long) update[2]);
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+            return lastId;
+
+        } catch (SQLException e) {
+            logger.error("Error recompressing {}", column, e);
+            throw new RuntimeException("Failed to recompress column", e);
+        }
+    }
+
+    /**
+     * Stored and original sizes of each compressed column. Scans the table.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        try (Connection conn = databaseInitializer.getConnection();
+             Statement stmt = conn.createStatement()) {
+
+            for (String column : PACKABLE_COLUMNS) {
+                String sql = "SELECT COUNT(*), COALESCE(SUM(typeof(" + column + ") = 'blob'), 0), " +
+                        "COALESCE(SUM(LENGTH(CAST(" + column + " AS BLOB))), 0), " +
+                        "COALESCE(SUM(LENGTH(CAST(" + text(column) + " AS BLOB))), 0) FROM bookmarks";
+                try (ResultSet rs = stmt.executeQuery(sql)) {
+                    if (!rs.next()) {
+                        continue;
+                    }
+                    long storedBytes = rs.getLong(3);
+                    long rawBytes = rs.getLong(4);
+                    Map<String, Object> columnStats = new LinkedHashMap<>();
+                    columnStats.put("enabled", columns.contains(column));
+                    columnStats.put("dictionary", current.get(column));
+                    columnStats.put("rows", rs.getLong(1));
+                    columnStats.put("compressedRows", rs.getLong(2));
+                    columnStats.put("storedBytes", storedBytes);
+                    columnStats.put("rawBytes", rawBytes);
+                    columnStats.put("compressionRatio", rawBytes > 0 ? (double) storedBytes / rawBytes : null);
+                    stats.put(column, columnStats);
+                }
+            }
+            return stats;
+
+        } catch (SQLException e) {
+            logger.error("Error reading compression statistics", e);
+            throw new RuntimeException("Failed to read compression statistics", e);
+        }
+    }
+
+    private static byte[] deflate(byte[] raw, int id, byte[] dictionary) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            deflater.setDictionary(dictionary);
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+            out.write(id);
+            byte[] buffer = new byte[1024];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static String inflate(byte[] packed, byte[] dictionary) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setDictionary(dictionary);
+            inflater.setInput(packed, 1, packed.length - 1);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(packed.length * 3);
+            byte[] buffer = new byte[1024];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && inflater.needsInput()) {
+                    throw new IllegalStateException("Truncated compressed value");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt compressed value", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -2,54 +2,74 @@ package com.hashim.repository;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.Properties;
+import java.util.UUID;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sqlite.SQLiteConfig;
 
 public class DatabaseInitializer {
     private static final Logger logger = LoggerFactory.getLogger(DatabaseInitializer.class);
+    
+    // Stored in PRAGMA user_version; bump when adding a migration step below
+    public static final int SCHEMA_VERSION = 11;
+    
+    private static final String DATABASE_ID_KEY = "database_id";
+
     private final String databaseUrl;
+    private final Properties connectionProperties;
+    private volatile ConnectionInitializer connectionInitializer;
 
     public DatabaseInitializer(String databaseUrl) {
         this.databaseUrl = databaseUrl;
+        // Every explicit transaction here writes. In WAL mode a deferred one that
+        // reads first fails with SQLITE_BUSY_SNAPSHOT, without waiting, if another
+        // connection commits before it writes; an immediate one takes the write
+        // lock up front, waiting for it like any other write
+        SQLiteConfig config = new SQLiteConfig();
+        config.setTransactionMode(SQLiteConfig.TransactionMode.IMMEDIATE);
+        this.connectionProperties = config.toProperties();
     }
 
     public void initialize() {
-        try (Connection conn = DriverManager.getConnection(databaseUrl);
+        try (Connection conn = DriverManager.getConnection(databaseUrl, connectionProperties);
              Statement stmt = conn.createStatement()) {
             
-            // Create bookmarks table with updated schema
-            String createTableSql = """
-                CREATE TABLE IF NOT EXISTS bookmarks (
-                    id INTEGER PRIMARY KEY AUTOINCREMENT,
-                    url TEXT NOT NULL,
-                    title TEXT NOT NULL,
-                    tags TEXT DEFAULT '',
-                    notes TEXT DEFAULT '',
-                    status TEXT NOT NULL DEFAULT 'INBOX' CHECK (status IN ('INBOX', 'DONE')),
-                    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
-                    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
-                )
-                """;
-            
-            stmt.execute(createTableSql);
+            // Readers don't block the writer, and the maintenance scheduler checkpoints
+            // the log; the mode is stored in the file, so this only switches it once
+            enableWal(stmt);
             
-            // Create indexes for performance
-            String createStatusIndex = "CREATE INDEX IF NOT EXISTS idx_bookmarks_status ON bookmarks(status)";
-            stmt.execute(createStatusIndex);
+            int currentVersion = getUserVersion(stmt);
+            if (currentVersion == SCHEMA_VERSION) {
+                // Nothing to do: skip the DDL entirely on warm boots
+                logger.info("Database schema is up to date (version {})", currentVersion);
+                return;
+            }
+            if (currentVersion > SCHEMA_VERSION) {
+                throw new SQLException("Database schema version " + currentVersion +
+                        " is newer than supported version " + SCHEMA_VERSION);
+            }
             
-            String createCreatedAtIndex = "CREATE INDEX IF NOT EXISTS idx_bookmarks_created_at ON bookmarks(created_at DESC)";
-            stmt.execute(createCreatedAtIndex);
+            // Let the maintenance scheduler return free pages incrementally
+            // (only takes effect when the database file is created)
+            stmt.execute("PRAGMA auto_vacuum = INCREMENTAL");
             
-            String createTagsIndex = "CREATE INDEX IF NOT EXISTS idx_bookmarks_tags ON bookmarks(tags)";
-            stmt.execute(createTagsIndex);
+            conn.setAutoCommit(false);
+            try {
+                migrate(stmt, currentVersion);
+                stmt.execute("PRAGMA user_version = " + SCHEMA_VERSION);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
             
-            String createCompositeIndex = "CREATE INDEX IF NOT EXISTS idx_bookmarks_status_created ON bookmarks(status, created_at DESC)";
-            stmt.execute(createCompositeIndex);
-            
-            logger.info("Database initialized successfully");
+            logger.info("Database initialized successfully (schema version {} -> {})", currentVersion, SCHEMA_VERSION);
             
         } catch (SQLException e) {
             logger.error("Failed to initialize database", e);
@@ -57,7 +77,361 @@ public class DatabaseInitializer {
         }
     }
 
+    private void enableWal(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA journal_mode = WAL")) {
+            String mode = rs.next() ? rs.getString(1) : null;
+            if (!"wal".equalsIgnoreCase(mode)) {
+                // In-memory databases have no WAL; they keep their own journal mode
+                logger.info("Database journal mode is {}, not WAL", mode);
+            }
+        }
+    }
+
+    private void migrate(Statement stmt, int fromVersion) throws SQLException {
+        if (fromVersion < 1) {
+            createBaseSchema(stmt);
+        }
+        if (fromVersion < 2) {
+            createReplicationTables(stmt);
+        }
+        if (fromVersion < 3) {
+            // Row version for optimistic concurrency (If-Match / ETag)
+            stmt.execute("ALTER TABLE bookmarks ADD COLUMN version INTEGER NOT NULL DEFAULT 1");
+        }
+        if (fromVersion < 4) {
+            createArchiveTable(stmt);
+        }
+        if (fromVersion < 5) {
+            createDictionaryTable(stmt);
+        }
+        if (fromVersion < 6) {
+            // SimHash of title, notes and domain for near-duplicate search; existing
+            // rows stay NULL until NearDuplicateIndex backfills them
+            stmt.execute("ALTER TABLE bookmarks ADD COLUMN simhash INTEGER");
+        }
+        if (fromVersion < 7) {
+            createJobCheckpointTable(stmt);
+        }
+        if (fromVersion < 8) {
+            createSavedSearchTables(stmt);
+        }
+        if (fromVersion < 9) {
+            createActivityTables(stmt);
+        }
+        if (fromVersion < 10) {
+            createMetaTable(stmt);
+            stmt.execute("INSERT OR IGNORE INTO database_meta (key, value) VALUES ('" + DATABASE_ID_KEY + "', '"
+                    + UUID.randomUUID() + "')");
+        }
+        if (fromVersion < 11) {
+            allowArchiveReplicationOps(stmt);
+        }
+    }
+
+    private void createBaseSchema(Statement stmt) throws SQLException {
+        // Create bookmarks table with updated schema
+        String createTableSql = """
+            CREATE TABLE IF NOT EXISTS bookmarks (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                url TEXT NOT NULL,
+                title TEXT NOT NULL,
+                tags TEXT DEFAULT '',
+                notes TEXT DEFAULT '',
+                status TEXT NOT NULL DEFAULT 'INBOX' CHECK (status IN ('INBOX', 'DONE')),
+                created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+            )
+            """;
+        
+        stmt.execute(createTableSql);
+        
+        // Create indexes for performance
+        String createStatusIndex = "CREATE INDEX IF NOT EXISTS idx_bookmarks_status ON bookmarks(status)";
+        stmt.execute(createStatusIndex);
+        
+        String createCreatedAtIndex = "CREATE INDEX IF NOT EXISTS idx_bookmarks_created_at ON bookmarks(created_at DESC)";
+        stmt.execute(createCreatedAtIndex);
+        
+        String createTagsIndex = "CREATE INDEX IF NOT EXISTS idx_bookmarks_tags ON bookmarks(tags)";
+        stmt.execute(createTagsIndex);
+        
+        String createCompositeIndex = "CREATE INDEX IF NOT EXISTS idx_bookmarks_status_created ON bookmarks(status, created_at DESC)";
+        stmt.execute(createCompositeIndex);
+    }
+
+    private void createReplicationTables(Statement stmt) throws SQLException {
+        // Ordered change stream, filled by triggers on a replication leader
+        String createLogSql = """
+            CREATE TABLE IF NOT EXISTS replication_log (
+                seq INTEGER PRIMARY KEY AUTOINCREMENT,
+                bookmark_id INTEGER NOT NULL,
+                op TEXT NOT NULL CHECK (op IN ('UPSERT', 'DELETE')),
+                payload TEXT NOT NULL,
+                checksum INTEGER
+            )
+            """;
+        stmt.execute(createLogSql);
+
+        // Position a follower has applied the stream up to (single row)
+        String createStateSql = """
+            CREATE TABLE IF NOT EXISTS replication_state (
+                id INTEGER PRIMARY KEY CHECK (id = 1),
+                applied_seq INTEGER NOT NULL,
+                checksum INTEGER NOT NULL
+            )
+            """;
+        stmt.execute(createStateSql);
+    }
+
+    private void allowArchiveReplicationOps(Statement stmt) throws SQLException {
+        // Archive moves are replicated as ops of their own. A CHECK constraint cannot be
+        // altered, so the log is copied into a new table; the capture triggers refer to
+        // it and are dropped meanwhile (a leader installs them again when it starts).
+        for (String trigger : ReplicationLog.TRIGGERS) {
+            stmt.execute("DROP TRIGGER IF EXISTS " + trigger);
+        }
+        long lastSeq = 0;
+        try (ResultSet rs = stmt.executeQuery("SELECT seq FROM sqlite_sequence WHERE name = 'replication_log'")) {
+            if (rs.next()) {
+                lastSeq = rs.getLong(1);
+            }
+        }
+        stmt.execute("""
+            CREATE TABLE replication_log_new (
+                seq INTEGER PRIMARY KEY AUTOINCREMENT,
+                bookmark_id INTEGER NOT NULL,
+                op TEXT NOT NULL CHECK (op IN ('UPSERT', 'DELETE', 'ARCHIVE_UPSERT', 'ARCHIVE_DELETE')),
+                payload TEXT NOT NULL,
+                checksum INTEGER
+            )
+            """);
+        stmt.execute("INSERT INTO replication_log_new (seq, bookmark_id, op, payload, checksum) "
+                + "SELECT seq, bookmark_id, op, payload, checksum FROM replication_log");
+        stmt.execute("DROP TABLE replication_log");
+        stmt.execute("ALTER TABLE replication_log_new RENAME TO replication_log");
+        // Seqs handed out before must not be reused, even if the log was pruned empty
+        stmt.execute("UPDATE sqlite_sequence SET seq = MAX(seq, " + lastSeq + ") WHERE name = 'replication_log'");
+        stmt.execute("INSERT INTO sqlite_sequence (name, seq) SELECT 'replication_log', " + lastSeq
+                + " WHERE NOT EXISTS (SELECT 1 FROM sqlite_sequence WHERE name = 'replication_log')");
+    }
+
+    private void createArchiveTable(Statement stmt) throws SQLException {
+        // Cold tier for aged DONE bookmarks (see ArchiveRepository). Only looked up
+        // by id, so no secondary indexes; notes are stored compressed.
+        String createArchiveSql = """
+            CREATE TABLE IF NOT EXISTS bookmarks_archive (
+                id INTEGER PRIMARY KEY,
+                url TEXT NOT NULL,
+                title TEXT NOT NULL,
+                tags TEXT DEFAULT '',
+                notes_z BLOB,
+                status TEXT NOT NULL,
+                created_at TIMESTAMP NOT NULL,
+                updated_at TIMESTAMP NOT NULL,
+                version INTEGER NOT NULL DEFAULT 1,
+                archived_at TIMESTAMP NOT NULL
+            )
+            """;
+        stmt.execute(createArchiveSql);
+    }
+
+    private void createDictionaryTable(Statement stmt) throws SQLException {
+        // Preset Deflate dictionaries for compressed columns (see ColumnCodec).
+        // Rows are never updated: a compressed value names the dictionary it needs.
+        String createDictionarySql = """
+            CREATE TABLE IF NOT EXISTS compression_dictionaries (
+                id INTEGER PRIMARY KEY CHECK (id BETWEEN 1 AND 255),
+                column_name TEXT NOT NULL,
+                dictionary BLOB NOT NULL,
+                sample_count INTEGER NOT NULL,
+                created_at TIMESTAMP NOT NULL
+            )
+            """;
+        stmt.execute(createDictionarySql);
+    }
+
+    private void createJobCheckpointTable(Statement stmt) throws SQLException {
+        // Progress of resumable background jobs over the bookmarks table, one row per job
+        String createCheckpointSql = """
+            CREATE TABLE IF NOT EXISTS job_checkpoints (
+                name TEXT PRIMARY KEY,
+                last_id INTEGER NOT NULL,
+                processed INTEGER NOT NULL,
+                changed INTEGER NOT NULL,
+                invalid INTEGER NOT NULL,
+                started_at TIMESTAMP NOT NULL,
+                updated_at TIMESTAMP NOT NULL,
+                finished_at TIMESTAMP
+            )
+            """;
+        stmt.execute(createCheckpointSql);
+    }
+
+    private void createSavedSearchTables(Statement stmt) throws SQLException {
+        // Standing queries; the filter is the JSON form of BookmarkFilter
+        String createSearchSql = """
+            CREATE TABLE IF NOT EXISTS saved_searches (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                name TEXT NOT NULL UNIQUE,
+                filter TEXT NOT NULL,
+                sort_by TEXT NOT NULL,
+                sort_order TEXT NOT NULL,
+                created_at TIMESTAMP NOT NULL
+            )
+            """;
+        stmt.execute(createSearchSql);
+
+        // Matching bookmark ids per saved search, clustered in result order so a
+        // page is one range of the primary key (see SavedSearchService)
+        String createResultsSql = """
+            CREATE TABLE IF NOT EXISTS saved_search_results (
+                search_id INTEGER NOT NULL,
+                sort_key TEXT NOT NULL,
+                bookmark_id INTEGER NOT NULL,
+                PRIMARY KEY (search_id, sort_key, bookmark_id)
+            ) WITHOUT ROWID
+            """;
+        stmt.execute(createResultsSql);
+        stmt.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_saved_search_results_bookmark " +
+                "ON saved_search_results(bookmark_id, search_id)");
+    }
+
+    private void createActivityTables(Statement stmt) throws SQLException {
+        // Daily activity counts: CREATED, COMPLETED (to DONE) and REOPENED (back to INBOX)
+        String createRollupSql = """
+            CREATE TABLE IF NOT EXISTS activity_daily (
+                day TEXT NOT NULL,
+                event TEXT NOT NULL,
+                count INTEGER NOT NULL,
+                PRIMARY KEY (day, event)
+            ) WITHOUT ROWID
+            """;
+        stmt.execute(createRollupSql);
+
+        // A row counts as created only if its id is above every id used so far, so
+        // restoring an archived bookmark (or a follower re-inserting one) does not
+        // count it twice. sqlite_sequence is not yet bumped when the trigger runs.
+        stmt.execute("""
+            CREATE TRIGGER IF NOT EXISTS activity_bookmarks_insert AFTER INSERT ON bookmarks
+            WHEN NEW.id > COALESCE((SELECT seq FROM sqlite_sequence WHERE name = 'bookmarks'), 0)
+            BEGIN
+                INSERT INTO activity_daily (day, event, count) VALUES (substr(NEW.created_at, 1, 10), 'CREATED', 1)
+                    ON CONFLICT(day, event) DO UPDATE SET count = count + 1;
+                INSERT INTO activity_daily (day, event, count)
+                    SELECT substr(NEW.created_at, 1, 10), 'COMPLETED', 1 WHERE NEW.status = 'DONE'
+                    ON CONFLICT(day, event) DO UPDATE SET count = count + 1;
+            END
+            """);
+        stmt.execute("""
+            CREATE TRIGGER IF NOT EXISTS activity_bookmarks_status AFTER UPDATE OF status ON bookmarks
+            WHEN NEW.status <> OLD.status
+            BEGIN
+                INSERT INTO activity_daily (day, event, count) VALUES (substr(NEW.updated_at, 1, 10),
+                        CASE NEW.status WHEN 'DONE' THEN 'COMPLETED' ELSE 'REOPENED' END, 1)
+                    ON CONFLICT(day, event) DO UPDATE SET count = count + 1;
+            END
+            """);
+
+        // Rows that existed before the triggers are counted once by ActivityService:
+        // every id up to max_id, and completions last updated before the cutoff
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS activity_backfill (
+                id INTEGER PRIMARY KEY CHECK (id = 1),
+                max_id INTEGER NOT NULL,
+                cutoff TEXT NOT NULL,
+                finished_at TEXT
+            )
+            """);
+        stmt.execute("INSERT OR IGNORE INTO activity_backfill (id, max_id, cutoff) VALUES (1, " +
+                "COALESCE((SELECT seq FROM sqlite_sequence WHERE name = 'bookmarks'), 0), '" +
+                LocalDateTime.now() + "')");
+    }
+
+    private void createMetaTable(Statement stmt) throws SQLException {
+        // Key/value facts about the database file itself
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS database_meta (
+                key TEXT PRIMARY KEY,
+                value TEXT NOT NULL
+            ) WITHOUT ROWID
+            """);
+    }
+
+    /**
+     * Identity of this database's contents, written once when the schema is
+     * created and replaced by {@link #resetDatabaseId} when the contents are
+     * swapped for another copy. Files derived from the data (such as the
+     * bookmark snapshot) record it, so they are not applied to other data.
+     *
+     * @return The id, or null if the database has none
+     */
+    public String getDatabaseId() {
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT value FROM database_meta WHERE key = '" + DATABASE_ID_KEY + "'")) {
+            return rs.next() ? rs.getString(1) : null;
+
+        } catch (SQLException e) {
+            logger.error("Error reading database id", e);
+            throw new RuntimeException("Failed to read database id", e);
+        }
+    }
+
+    /**
+     * Gives the database a new id after its contents were replaced by a restore.
+     * The copy carries the id from when it was taken, which files derived from a
+     * later state of the same database may carry too.
+     *
+     * @return The new id
+     */
+    public String resetDatabaseId() {
+        String id = UUID.randomUUID().toString();
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement()) {
+            // A copy made before schema version 10 has no table yet
+            createMetaTable(stmt);
+            stmt.execute("INSERT OR REPLACE INTO database_meta (key, value) VALUES ('" + DATABASE_ID_KEY + "', '"
+                    + id + "')");
+            logger.info("Database id reset to {}", id);
+            return id;
+
+        } catch (SQLException e) {
+            logger.error("Error resetting database id", e);
+            throw new RuntimeException("Failed to reset database id", e);
+        }
+    }
+
+    private int getUserVersion(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Sets a hook run on every connection handed out by {@link #getConnection},
+     * e.g. to register SQL functions that queries and triggers rely on.
+     */
+    public void setConnectionInitializer(ConnectionInitializer connectionInitializer) {
+        this.connectionInitializer = connectionInitializer;
+    }
+
     public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(databaseUrl);
+        Connection conn = DriverManager.getConnection(databaseUrl, connectionProperties);
+        ConnectionInitializer initializer = connectionInitializer;
+        if (initializer != null) {
+            try {
+                initializer.initialize(conn);
+            } catch (SQLException | RuntimeException e) {
+                conn.close();
+                throw e;
+            }
+        }
+        return conn;
+    }
+
+    @FunctionalInterface
+    public interface ConnectionInitializer {
+        void initialize(Connection conn) throws SQLException;
     }
 }
@@ -0,0 +1,89 @@
+package com.hashim.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hashim.model.JobCheckpoint;
+
+/**
+ * Stores the progress of resumable background jobs in {@code job_checkpoints},
+ * so that a job interrupted by a restart continues after the last row it
+ * committed instead of starting over.
+ */
+public class JobCheckpointRepository {
+    private static final Logger logger = LoggerFactory.getLogger(JobCheckpointRepository.class);
+
+    private final DatabaseInitializer databaseInitializer;
+    private final QueryInstrumentation instrumentation;
+
+    public JobCheckpointRepository(DatabaseInitializer databaseInitializer, QueryInstrumentation instrumentation) {
+        this.databaseInitializer = databaseInitializer;
+        this.instrumentation = instrumentation;
+    }
+
+    public Optional<JobCheckpoint> find(String name) {
+        String sql = "SELECT * FROM job_checkpoints WHERE name = ?";
+
+        try (Connection conn = databaseInitializer.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, name);
+            return instrumentation.execute(sql, List.of(name), () -> {
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? Optional.of(mapCheckpoint(rs)) : Optional.<JobCheckpoint>empty();
+                }
+            }, found -> found.isPresent() ? 1 : 0);
+
+        } catch (SQLException e) {
+            logger.error("Error reading checkpoint of job {}", name, e);
+            throw new RuntimeException("Failed to read job checkpoint", e);
+        }
+    }
+
+    public void save(JobCheckpoint checkpoint) {
+        String sql = "INSERT INTO job_checkpoints (name, last_id, processed, changed, invalid, started_at, " +
+                     "updated_at, finished_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT(name) DO UPDATE SET " +
+                     "last_id = excluded.last_id, processed = excluded.processed, changed = excluded.changed, " +
+                     "invalid = excluded.invalid, started_at = excluded.started_at, " +
+                     "updated_at = excluded.updated_at, finished_at = excluded.finished_at";
+
+        try (Connection conn = databaseInitializer.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, checkpoint.name());
+            pstmt.setLong(2, checkpoint.lastId());
+            pstmt.setLong(3, checkpoint.processed());
+            pstmt.setLong(4, checkpoint.changed());
+            pstmt.setLong(5, checkpoint.invalid());
+            pstmt.setString(6, checkpoint.startedAt().toString());
+            pstmt.setString(7, LocalDateTime.now().toString());
+            pstmt.setString(8, checkpoint.finishedAt() != null ? checkpoint.finishedAt().toString() : null);
+            instrumentation.execute(sql, List.of(checkpoint.name(), checkpoint.lastId()), pstmt::executeUpdate,
+                    count -> count);
+
+        } catch (SQLException e) {
+            logger.error("Error saving checkpoint of job {}", checkpoint.name(), e);
+            throw new RuntimeException("Failed to save job checkpoint", e);
+        }
+    }
+
+    private JobCheckpoint mapCheckpoint(ResultSet rs) throws SQLException {
+        String finishedAt = rs.getString("finished_at");
+        return new JobCheckpoint(
+                rs.getString("name"),
+                rs.getLong("last_id"),
+                rs.getLong("processed"),
+                rs.getLong("changed"),
+                rs.getLong("invalid"),
+                LocalDateTime.parse(rs.getString("started_at")),
+                finishedAt != null ? LocalDateTime.parse(finishedAt) : null);
+    }
+}
@@ -0,0 +1,288 @@
+package com.hashim.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hashim.util.Tracer;
+
+/**
+ * Times repository JDBC calls and keeps a slow-query log.
+ * Every call is aggregated per query shape (the SQL text with literal id lists
+ * folded). Calls slower than the threshold are kept in a bounded ring together
+ * with redacted bind parameters, the row count and the EXPLAIN QUERY PLAN
+ * output, which is captured on a background thread.
+ */
+public class QueryInstrumentation {
+    private static final Logger logger = LoggerFactory.getLogger(QueryInstrumentation.class);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern ID_LIST = Pattern.compile("IN \\(\\s*\\d+(\\s*,\\s*\\d+)*\\s*\\)");
+    // Upper bound on distinct shapes tracked, in case callers ever inline literals
+    private static final int MAX_SHAPES = 500;
+    
+    private final DatabaseInitializer databaseInitializer;
+    private final long thresholdNanos;
+    private final int capacity;
+    private final Deque<SlowQuery> recent = new ArrayDeque<>();
+    private final Map<String, ShapeStats> shapes = new ConcurrentHashMap<>();
+    private final AtomicLong slowQueryCount = new AtomicLong();
+    private final ExecutorService explainExecutor;
+
+    public QueryInstrumentation(DatabaseInitializer databaseInitializer, long thresholdMs, int capacity) {
+        this.databaseInitializer = databaseInitializer;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMs);
+        this.capacity = capacity;
+        // Single worker with a bounded queue; plans are dropped rather than queued without limit
+        this.explainExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(capacity), r -> {
+                    Thread thread = new Thread(r, "slow-query-explain");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /**
+     * A JDBC call whose result is timed.
+     */
+    @FunctionalInterface
+    public interface SqlCall<T> {
+        T call() throws SQLException;
+    }
+
+    /**
+     * Extracts the row count (returned or affected) from a call result.
+     */
+    @FunctionalInterface
+    public interface RowCounter<T> {
+        long count(T result);
+    }
+
+    /**
+     * Runs a JDBC call, recording its timing against the statement's shape.
+     *
+     * @param sql The SQL text as prepared
+     * @param params Bind parameters in order (used for the log and EXPLAIN only)
+     * @param call The JDBC work to time
+     * @param rowCounter Derives the row count from the result
+     * @return The call's result
+     */
+    public <T> T execute(String sql, List<?> params, SqlCall<T> call, RowCounter<T> rowCounter) throws SQLException {
+        long start = System.nanoTime();
+        T result;
+        try (Tracer.Span span = Tracer.span(Tracer.Layer.REPOSITORY, sql)) {
+            result = call.call();
+        }
+        long elapsed = System.nanoTime() - start;
+        
+        long rows = rowCounter.count(result);
+        String shape = shapeOf(sql);
+        recordShape(shape, elapsed, rows);
+        
+        if (elapsed >= thresholdNanos) {
+            recordSlow(sql, shape, params, elapsed, rows);
+        }
+        return result;
+    }
+
+    /**
+     * Recent slow queries, newest first.
+     */
+    public List<SlowQuery> getRecentSlowQueries() {
+        synchronized (recent) {
+            return new ArrayList<>(recent);
+        }
+    }
+
+    /**
+     * Aggregated statistics per query shape, slowest total time first.
+     */
+    public List<Map<String, Object>> getShapeStats() {
+        List<Map<String, Object>> stats = new ArrayList<>();
+        shapes.forEach((shape, s) -> {
+            long count = s.count.sum();
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("shape", shape);
+            entry.put("count", count);
+            entry.put("slowCount", s.slowCount.sum());
+            entry.put("totalMs", s.totalNanos.sum() / 1_000_000.0);
+            entry.put("avgMs", count > 0 ? s.totalNanos.sum() / 1_000_000.0 / count : 0);
+            entry.put("maxMs", s.maxNanos.get() / 1_000_000.0);
+            entry.put("totalRows", s.rows.sum());
+            stats.add(entry);
+        });
+        stats.sort(Comparator.comparingDouble((Map<String, Object> m) -> (Double) m.get("totalMs")).reversed());
+        return stats;
+    }
+
+    public Map<String, Object> getSummary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("thresholdMs", TimeUnit.NANOSECONDS.toMillis(thresholdNanos));
+        summary.put("capacity", capacity);
+        summary.put("slowQueryCount", slowQueryCount.get());
+        summary.put("recent", getRecentSlowQueries());
+        summary.put("shapes", getShapeStats());
+        return summary;
+    }
+
+    public void reset() {
+        synchronized (recent) {
+            recent.clear();
+        }
+        shapes.clear();
+        slowQueryCount.set(0);
+    }
+
+    private void recordShape(String shape, long elapsedNanos, long rows) {
+        ShapeStats stats = shapes.get(shape);
+        if (stats == null) {
+            if (shapes.size() >= MAX_SHAPES) {
+                return;
+            }
+            stats = shapes.computeIfAbsent(shape, k -> new ShapeStats());
+        }
+        stats.count.increment();
+        stats.totalNanos.add(elapsedNanos);
+        stats.maxNanos.accumulate(elapsedNanos);
+        stats.rows.add(rows);
+        if (elapsedNanos >= thresholdNanos) {
+            stats.slowCount.increment();
+        }
+    }
+
+    private void recordSlow(String sql, String shape, List<?> params, long elapsedNanos, long rows) {
+        SlowQuery slowQuery = new SlowQuery(LocalDateTime.now(), shape, redact(params),
+                elapsedNanos / 1_000_000.0, rows);
+        slowQueryCount.incrementAndGet();
+        
+        synchronized (recent) {
+            recent.addFirst(slowQuery);
+            while (recent.size() > capacity) {
+                recent.removeLast();
+            }
+        }
+        logger.warn("Slow query ({} ms, {} rows): {} params={}",
+                String.format("%.1f", slowQuery.durationMs), rows, shape, slowQuery.params);
+        
+        // Capture the plan off the request thread, with the same bindings
+        List<Object> bindings = new ArrayList<>(params);
+        explainExecutor.execute(() -> slowQuery.plan = explain(sql, bindings));
+    }
+
+    private List<String> explain(String sql, List<Object> params) {
+        // EXPLAIN QUERY PLAN only plans the statement, so this is safe for writes as well
+        List<String> plan = new ArrayList<>();
+        try (Connection conn = databaseInitializer.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    plan.add(rs.getString("detail"));
+                }
+            }
+        } catch (SQLException e) {
+            logger.debug("Could not capture query plan for: {}", sql, e);
+            plan.add("unavailable: " + e.getMessage());
+        }
+        return plan;
+    }
+
+    private static String shapeOf(String sql) {
+        String shape = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        return ID_LIST.matcher(shape).replaceAll("IN (...)");
+    }
+
+    private static List<String> redact(List<?> params) {
+        List<String> redacted = new ArrayList<>(params.size());
+        for (Object param : params) {
+            if (param == null) {
+                redacted.add("NULL");
+            } else if (param instanceof Number) {
+                redacted.add(param.toString());
+            } else {
+                String value = param.toString();
+                // Keep LIKE wildcards so the pattern shape stays visible
+                String prefix = value.startsWith("%") ? "%" : "";
+                String suffix = value.length() > 1 && value.endsWith("%") ? "%" : "";
+                int length = value.length() - prefix.length() - suffix.length();
+                redacted.add(prefix + "<" + length + " chars>" + suffix);
+            }
+        }
+        return redacted;
+    }
+
+    /**
+     * A statement that exceeded the threshold.
+     */
+    public static class SlowQuery {
+        private final LocalDateTime timestamp;
+        private final String shape;
+        private final List<String> params;
+        private final double durationMs;
+        private final long rows;
+        // Filled in asynchronously once EXPLAIN QUERY PLAN has run
+        private volatile List<String> plan;
+
+        SlowQuery(LocalDateTime timestamp, String shape, List<String> params, double durationMs, long rows) {
+            this.timestamp = timestamp;
+            this.shape = shape;
+            this.params = params;
+            this.durationMs = durationMs;
+            this.rows = rows;
+        }
+
+        public LocalDateTime getTimestamp() {
+            return timestamp;
+        }
+
+        public String getShape() {
+            return shape;
+        }
+
+        public List<String> getParams() {
+            return params;
+        }
+
+        public double getDurationMs() {
+            return durationMs;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public List<String> getPlan() {
+            return plan;
+        }
+    }
+
+    private static class ShapeStats {
+        final LongAdder count = new LongAdder();
+        final LongAdder slowCount = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        final LongAdder rows = new LongAdder();
+    }
+}
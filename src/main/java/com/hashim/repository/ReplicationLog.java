@@ -0,0 +1,516 @@
+package com.hashim.repository;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sqlite.SQLiteConnection;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.hashim.model.ReplicationChange;
+
+/**
+ * SQL side of replication.
+ *
+ * <p>On the leader, triggers on {@code bookmarks} and {@code bookmarks_archive}
+ * append every committed change
+ * to {@code replication_log} in the same transaction, so no write path can
+ * bypass the stream. Checksums are chained in seq order when entries are first
+ * read ("sealed"), since triggers cannot compute them.
+ *
+ * <p>On a follower, batches of changes are applied in one transaction together
+ * with the new position in {@code replication_state}, so a crash never leaves
+ * the data and the position out of step. Applying an entry twice is harmless:
+ * every entry carries the full row.
+ *
+ * <p>The stream is only meaningful within one epoch, the leader's database id:
+ * a backup restore on the leader brings back an older log and reuses seqs, and
+ * gives the database a new id. A follower records the epoch its data came
+ * from when it restores a snapshot.
+ */
+public class ReplicationLog {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicationLog.class);
+    static final String[] TRIGGERS = {
+        "replication_bookmarks_insert", "replication_bookmarks_update", "replication_bookmarks_delete",
+        "replication_archive_insert", "replication_archive_delete"
+    };
+    // The archive's only blob column, hex-encoded in payloads
+    private static final String ARCHIVE_NOTES_COLUMN = "notes_z";
+    // database_meta key of the leader epoch a follower's data belongs to
+    private static final String EPOCH_KEY = "replication_epoch";
+
+    private final DatabaseInitializer databaseInitializer;
+    private final BookmarkRepository bookmarkRepository;
+
+    /**
+     * A follower's applied position: the last seq and its chained checksum.
+     */
+    public record Position(long seq, long checksum) {
+        public static final Position START = new Position(0, 0);
+    }
+
+    public ReplicationLog(DatabaseInitializer databaseInitializer, BookmarkRepository bookmarkRepository) {
+        this.databaseInitializer = databaseInitializer;
+        this.bookmarkRepository = bookmarkRepository;
+    }
+
+    /**
+     * (Re)creates the capture triggers, with a payload covering every current
+     * column of {@code bookmarks} or {@code bookmarks_archive}.
+     */
+    public void installTriggers() {
+        try (Connection conn = databaseInitializer.getConnection();
+             Statement stmt = conn.createStatement()) {
+            
+            StringBuilder newRow = new StringBuilder("json_object(");
+            // Repacking a compressed column rewrites only its encoding, without a version bump;
+            // an update is captured only if some other column changed
+            StringBuilder changed = new StringBuilder();
+            int i = 0;
+            for (String column : columns(conn, "bookmarks")) {
+                // Followers receive compressed columns as text (ColumnCodec's function is
+                // registered on every connection, so every writer can run the trigger)
+                boolean packable = ColumnCodec.PACKABLE_COLUMNS.contains(column);
+                String value = packable ? ColumnCodec.UNPACK_FUNCTION + "(NEW." + column + ")" : "NEW." + column;
+                newRow.append(i++ > 0 ? ", " : "").append('\'').append(column).append("', ").append(value);
+                if (!packable) {
+                    changed.append(changed.length() > 0 ? " OR " : "")
+                           .append("OLD.").append(column).append(" IS NOT NEW.").append(column);
+                }
+            }
+            newRow.append(')');
+            
+            // Rows are only ever inserted into or deleted from the archive
+            StringBuilder newArchiveRow = new StringBuilder("json_object(");
+            i = 0;
+            for (String column : columns(conn, "bookmarks_archive")) {
+                String value = column.equals(ARCHIVE_NOTES_COLUMN)
+                        ? "nullif(hex(NEW." + column + "), '')" : "NEW." + column;
+                newArchiveRow.append(i++ > 0 ? ", " : "").append('\'').append(column).append("', ").append(value);
+            }
+            newArchiveRow.append(')');
+            
+            conn.setAutoCommit(false);
+            dropTriggers(stmt);
+            stmt.execute("CREATE TRIGGER replication_bookmarks_insert AFTER INSERT ON bookmarks BEGIN "
+                    + "INSERT INTO replication_log (bookmark_id, op, payload) VALUES (NEW.id, 'UPSERT', " + newRow + "); END");
+            stmt.execute("CREATE TRIGGER replication_bookmarks_update AFTER UPDATE ON bookmarks WHEN " + changed + " BEGIN "
+                    + "INSERT INTO replication_log (bookmark_id, op, payload) VALUES (NEW.id, 'UPSERT', " + newRow + "); END");
+            stmt.execute("CREATE TRIGGER replication_bookmarks_delete AFTER DELETE ON bookmarks BEGIN "
+                    + "INSERT INTO replication_log (bookmark_id, op, payload) VALUES (OLD.id, 'DELETE', json_object('id', OLD.id)); END");
+            stmt.execute("CREATE TRIGGER replication_archive_insert AFTER INSERT ON bookmarks_archive BEGIN "
+                    + "INSERT INTO replication_log (bookmark_id, op, payload) VALUES (NEW.id, 'ARCHIVE_UPSERT', " + newArchiveRow + "); END");
+            stmt.execute("CREATE TRIGGER replication_archive_delete AFTER DELETE ON bookmarks_archive BEGIN "
+                    + "INSERT INTO replication_log (bookmark_id, op, payload) VALUES (OLD.id, 'ARCHIVE_DELETE', json_object('id', OLD.id)); END");
+            conn.commit();
+            logger.info("Replication capture triggers installed");
+            
+        } catch (SQLException e) {
+            logger.error("Error installing replication triggers", e);
+            throw new RuntimeException("Failed to install replication triggers", e);
+        }
+    }
+
+    /**
+     * Removes the capture triggers and any captured entries, for followers and
+     * standalone instances (a restored leader snapshot brings both along).
+     */
+    public void disableCapture() {
+        try (Connection conn = databaseInitializer.getConnection();
+             Statement stmt = conn.createStatement()) {
+            
+            dropTriggers(stmt);
+            stmt.execute("DELETE FROM replication_log");
+            
+        } catch (SQLException e) {
+            logger.error("Error disabling replication capture", e);
+            throw new RuntimeException("Failed to disable replication capture", e);
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} entries after {@code afterSeq}, sealing any
+     * entries that have no checksum yet.
+     */
+    public synchronized List<ReplicationChange> readChanges(long afterSeq, int limit) {
+        try (Connection conn = databaseInitializer.getConnection()) {
+            seal(conn);
+            
+            List<ReplicationChange> changes = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT seq, op, bookmark_id, payload, checksum FROM replication_log "
+                    + "WHERE seq > ? AND checksum IS NOT NULL ORDER BY seq LIMIT ?")) {
+                pstmt.setLong(1, afterSeq);
+                pstmt.setInt(2, limit);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        changes.add(new ReplicationChange(rs.getLong("seq"), rs.getString("op"),
+                                rs.getLong("bookmark_id"), rs.getString("payload"), rs.getLong("checksum")));
+                    }
+                }
+            }
+            return changes;
+            
+        } catch (SQLException e) {
+            logger.error("Error reading replication log", e);
+            throw new RuntimeException("Failed to read replication log", e);
+        }
+    }
+
+    /**
+     * Oldest and newest seq still in the log, as {@code [oldest, newest]};
+     * {@code oldest} is newest + 1 when the log is empty.
+     */
+    public long[] bounds() {
+        try (Connection conn = databaseInitializer.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(seq), MAX(seq) FROM replication_log")) {
+            
+            long newest = 0;
+            long oldest = 1;
+            if (rs.next() && rs.getObject(2) != null) {
+                oldest = rs.getLong(1);
+                newest = rs.getLong(2);
+            } else {
+                // AUTOINCREMENT keeps counting after the log has been pruned empty
+                newest = lastAssignedSeq(conn);
+                oldest = newest + 1;
+            }
+            return new long[] {oldest, newest};
+            
+        } catch (SQLException e) {
+            logger.error("Error reading replication log bounds", e);
+            throw new RuntimeException("Failed to read replication log bounds", e);
+        }
+    }
+
+    /**
+     * Deletes sealed entries, keeping the newest {@code retain}. The newest
+     * sealed entry is always kept as the anchor of the checksum chain.
+     */
+    public synchronized int prune(long retain) {
+        try (Connection conn = databaseInitializer.getConnection()) {
+            seal(conn);
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "DELETE FROM replication_log WHERE checksum IS NOT NULL "
+                    + "AND seq <= (SELECT MAX(seq) FROM replication_log WHERE checksum IS NOT NULL) - ?")) {
+                pstmt.setLong(1, Math.max(retain, 1));
+                int deleted = pstmt.executeUpdate();
+                if (deleted > 0) {
+                    logger.debug("Pruned {} replication log entries", deleted);
+                }
+                return deleted;
+            }
+        } catch (SQLException e) {
+            logger.error("Error pruning replication log", e);
+            throw new RuntimeException("Failed to prune replication log", e);
+        }
+    }
+
+    /**
+     * Writes a consistent copy of the whole database to {@code target}.
+     */
+    public synchronized void snapshotTo(Path target) {
+        try (Connection conn = databaseInitializer.getConnection();
+             Statement stmt = conn.createStatement()) {
+            
+            seal(conn);
+            stmt.execute("VACUUM INTO '" + target.toAbsolutePath().toString().replace("'", "''") + "'");
+            
+        } catch (SQLException e) {
+            logger.error("Error writing replication snapshot", e);
+            throw new RuntimeException("Failed to write replication snapshot", e);
+        }
+    }
+
+    /**
+     * The leader's current epoch.
+     */
+    public String epoch() {
+        return databaseInitializer.getDatabaseId();
+    }
+
+    /**
+     * The leader epoch of the follower's data, or null if it has never
+     * restored a snapshot.
+     */
+    public String appliedEpoch() {
+        try (Connection conn = databaseInitializer.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT value FROM database_meta WHERE key = ?")) {
+            
+            pstmt.setString(1, EPOCH_KEY);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+            
+        } catch (SQLException e) {
+            logger.error("Error reading replication epoch", e);
+            throw new RuntimeException("Failed to read replication epoch", e);
+        }
+    }
+
+    /**
+     * Replaces the local database with a leader snapshot and records the last
+     * sealed entry it contains as the applied position, and the leader's
+     * database id as the epoch. Entries after that are already reflected in
+     * the data and are simply applied again. The database gets a new id, so
+     * files derived from its previous contents are not reused.
+     */
+    public Position restoreFrom(Path snapshot) {
+        try (Connection conn = databaseInitializer.getConnection();
+             Statement stmt = conn.createStatement()) {
+            
+            // Through the backup API: the "restore from" statement does not take every path
+            int rc = conn.unwrap(SQLiteConnection.class).getDatabase()
+                    .restore("main", snapshot.toAbsolutePath().toString(), null);
+            if (rc != 0) {
+                throw new SQLException("SQLite restore returned code " + rc);
+            }
+            
+            Position position = Position.START;
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT seq, checksum FROM replication_log WHERE checksum IS NOT NULL ORDER BY seq DESC LIMIT 1")) {
+                if (rs.next()) {
+                    position = new Position(rs.getLong(1), rs.getLong(2));
+                }
+            }
+            savePosition(conn, position);
+            // The copy carries the leader's id; this database is a separate one from here on
+            String epoch = databaseInitializer.getDatabaseId();
+            databaseInitializer.resetDatabaseId();
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT OR REPLACE INTO database_meta (key, value) VALUES (?, ?)")) {
+                pstmt.setString(1, EPOCH_KEY);
+                pstmt.setString(2, epoch);
+                pstmt.executeUpdate();
+            }
+            return position;
+            
+        } catch (SQLException e) {
+            logger.error("Error restoring replication snapshot", e);
+            throw new RuntimeException("Failed to restore replication snapshot", e);
+        }
+    }
+
+    /**
+     * The follower's applied position, or null if it has never replicated.
+     */
+    public Position appliedPosition() {
+        try (Connection conn = databaseInitializer.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT applied_seq, checksum FROM replication_state WHERE id = 1")) {
+            
+            return rs.next() ? new Position(rs.getLong(1), rs.getLong(2)) : null;
+            
+        } catch (SQLException e) {
+            logger.error("Error reading replication position", e);
+            throw new RuntimeException("Failed to read replication position", e);
+        }
+    }
+
+    /**
+     * Applies verified changes in one transaction and advances the position to
+     * the last of them, then notifies the repository's change listeners.
+     */
+    public Position apply(List<ReplicationChange> changes) {
+        if (changes.isEmpty()) {
+            throw new IllegalArgumentException("No changes to apply");
+        }
+        
+        Map<Long, Boolean> touched = new LinkedHashMap<>();
+        // Version each deleted row had, by id
+        Map<Long, Long> deleted = new LinkedHashMap<>();
+        try (Connection conn = databaseInitializer.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Set<String> columns = new LinkedHashSet<>(columns(conn, "bookmarks"));
+                Set<String> archiveColumns = new LinkedHashSet<>(columns(conn, "bookmarks_archive"));
+                for (ReplicationChange change : changes) {
+                    // The archive tier has no change listeners
+                    if (ReplicationChange.ARCHIVE_UPSERT.equals(change.op())) {
+                        upsert(conn, "bookmarks_archive", archiveColumns,
+                                JsonParser.parseString(change.payload()).getAsJsonObject());
+                        continue;
+                    }
+                    if (ReplicationChange.ARCHIVE_DELETE.equals(change.op())) {
+                        try (PreparedStatement pstmt = conn.prepareStatement(
+                                "DELETE FROM bookmarks_archive WHERE id = ?")) {
+                            pstmt.setLong(1, change.bookmarkId());
+                            pstmt.executeUpdate();
+                        }
+                        continue;
+                    }
+                    boolean existed = exists(conn, change.bookmarkId());
+                    if (ReplicationChange.DELETE.equals(change.op())) {
+                        try (PreparedStatement pstmt = conn.prepareStatement(
+                                "DELETE FROM bookmarks WHERE id = ? RETURNING version")) {
+                            pstmt.setLong(1, change.bookmarkId());
+                            try (ResultSet rs = pstmt.executeQuery()) {
+                                if (rs.next()) {
+                                    deleted.put(change.bookmarkId(), rs.getLong(1));
+                                }
+                            }
+                        }
+                    } else {
+                        upsert(conn, "bookmarks", columns, JsonParser.parseString(change.payload()).getAsJsonObject());
+                    }
+                    // Remember whether the row is new as of this batch
+                    touched.putIfAbsent(change.bookmarkId(), !existed);
+                }
+                
+                ReplicationChange last = changes.get(changes.size() - 1);
+                Position position = new Position(last.seq(), last.checksum());
+                savePosition(conn, position);
+                conn.commit();
+                
+                touched.forEach((id, created) -> {
+                    if (!bookmarkRepository.publishExternalChange(id, created) && deleted.containsKey(id)) {
+                        bookmarkRepository.publishDeleted(Map.of(id, deleted.get(id)));
+                    }
+                });
+                return position;
+                
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            logger.error("Error applying replicated changes", e);
+            throw new RuntimeException("Failed to apply replicated changes", e);
+        }
+    }
+
+    private void upsert(Connection conn, String table, Set<String> columns, JsonObject row) throws SQLException {
+        List<String> names = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        for (Map.Entry<String, JsonElement> entry : row.entrySet()) {
+            // Columns the local schema does not have yet are skipped
+            if (columns.contains(entry.getKey())) {
+                names.add(entry.getKey());
+                JsonElement value = entry.getValue();
+                boolean blob = table.equals("bookmarks_archive") && entry.getKey().equals(ARCHIVE_NOTES_COLUMN);
+                values.add(value.isJsonNull() ? null
+                        : blob ? HexFormat.of().parseHex(value.getAsString())
+                        : value.getAsJsonPrimitive().isNumber() ? value.getAsLong() : value.getAsString());
+            }
+        }
+        
+        StringBuilder sql = new StringBuilder("INSERT INTO " + table + " (").append(String.join(", ", names))
+                .append(") VALUES (").append("?, ".repeat(names.size() - 1)).append("?) ON CONFLICT(id) DO UPDATE SET ");
+        for (int i = 0; i < names.size(); i++) {
+            sql.append(i > 0 ? ", " : "").append(names.get(i)).append(" = excluded.").append(names.get(i));
+        }
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < values.size(); i++) {
+                pstmt.setObject(i + 1, values.get(i));
+            }
+            pstmt.executeUpdate();
+        }
+    }
+
+    private boolean exists(Connection conn, long id) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT 1 FROM bookmarks WHERE id = ?")) {
+            pstmt.setLong(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Assigns chained checksums to unsealed entries in seq order.
+     */
+    private void seal(Connection conn) throws SQLException {
+        long previous = 0;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT checksum FROM replication_log WHERE checksum IS NOT NULL ORDER BY seq DESC LIMIT 1")) {
+            if (rs.next()) {
+                previous = rs.getLong(1);
+            }
+        }
+        
+        List<ReplicationChange> sealed = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT seq, op, bookmark_id, payload FROM replication_log WHERE checksum IS NULL ORDER BY seq")) {
+            while (rs.next()) {
+                long seq = rs.getLong(1);
+                String op = rs.getString(2);
+                long bookmarkId = rs.getLong(3);
+                String payload = rs.getString(4);
+                previous = ReplicationChange.checksum(previous, seq, op, bookmarkId, payload);
+                sealed.add(new ReplicationChange(seq, op, bookmarkId, payload, previous));
+            }
+        }
+        if (sealed.isEmpty()) {
+            return;
+        }
+        
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement pstmt = conn.prepareStatement("UPDATE replication_log SET checksum = ? WHERE seq = ?")) {
+            for (ReplicationChange change : sealed) {
+                pstmt.setLong(1, change.checksum());
+                pstmt.setLong(2, change.seq());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private void savePosition(Connection conn, Position position) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT INTO replication_state (id, applied_seq, checksum) VALUES (1, ?, ?) "
+                + "ON CONFLICT(id) DO UPDATE SET applied_seq = excluded.applied_seq, checksum = excluded.checksum")) {
+            pstmt.setLong(1, position.seq());
+            pstmt.setLong(2, position.checksum());
+            pstmt.executeUpdate();
+        }
+    }
+
+    private long lastAssignedSeq(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT seq FROM sqlite_sequence WHERE name = 'replication_log'")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private static void dropTriggers(Statement stmt) throws SQLException {
+        for (String trigger : TRIGGERS) {
+            stmt.execute("DROP TRIGGER IF EXISTS " + trigger);
+        }
+    }
+
+    private static List<String> columns(Connection conn, String table) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                columns.add(rs.getString("name"));
+            }
+        }
+        return columns;
+    }
+}
@@ -0,0 +1,236 @@
+package com.hashim.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+import com.hashim.model.BookmarkFilter;
+import com.hashim.model.SavedSearch;
+
+/**
+ * Saved searches and their materialized results. A result row is
+ * (search id, sort key, bookmark id); the primary key orders a search's
+ * results as its listing would, so reading a page is one range scan.
+ */
+public class SavedSearchRepository {
+    private static final Logger logger = LoggerFactory.getLogger(SavedSearchRepository.class);
+
+    private final DatabaseInitializer databaseInitializer;
+    private final QueryInstrumentation instrumentation;
+    private final Gson gson = new Gson();
+
+    public SavedSearchRepository(DatabaseInitializer databaseInitializer, QueryInstrumentation instrumentation) {
+        this.databaseInitializer = databaseInitializer;
+        this.instrumentation = instrumentation;
+    }
+
+    /**
+     * Stores a new saved search.
+     *
+     * @return The stored search, or empty if the name is taken
+     */
+    public Optional<SavedSearch> create(SavedSearch search) {
+        String sql = "INSERT INTO saved_searches (name, filter, sort_by, sort_order, created_at) " +
+                     "VALUES (?, ?, ?, ?, ?) ON CONFLICT (name) DO NOTHING RETURNING id";
+
+        try (Connection conn = databaseInitializer.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            List<Object> params = List.of(search.name(), gson.toJson(search.filter()), search.sortBy(),
+                    search.order(), search.createdAt().toString());
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            Long id = instrumentation.execute(sql, params, () -> {
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? rs.getLong(1) : null;
+                }
+            }, created -> created != null ? 1 : 0);
+            return Optional.ofNullable(id).map(created -> new SavedSearch(created, search.name(), search.filter(),
+                    search.sortBy(), search.order(), search.createdAt()));
+
+        } catch (SQLException e) {
+            logger.error("Error creating saved search {}", search.name(), e);
+            throw new RuntimeException("Failed to create saved search", e);
+        }
+    }
+
+    public List<SavedSearch> findAll() {
+        String sql = "SELECT * FROM saved_searches ORDER BY id";
+
+        try (Connection conn = databaseInitializer.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            return instrumentation.execute(sql, List.of(), () -> {
+                List<SavedSearch> searches = new ArrayList<>();
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        searches.add(mapSavedSearch(rs));
+                    }
+                }
+                return searches;
+            }, List::size);
+
+        } catch (SQLException e) {
+            logger.error("Error listing saved searches", e);
+            throw new RuntimeException("Failed to list saved searches", e);
+        }
+    }
+
+    /**
+     * Deletes a saved search and its results in one transaction.
+     */
+    public boolean delete(Long id) {
+        try (Connection conn = databaseInitializer.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement deleteResults = conn.prepareStatement(
+                         "DELETE FROM saved_search_results WHERE search_id = ?");
+                 PreparedStatement deleteSearch = conn.prepareStatement("DELETE FROM saved_searches WHERE id = ?")) {
+                deleteResults.setLong(1, id);
+                deleteResults.executeUpdate();
+                deleteSearch.setLong(1, id);
+                int deleted = deleteSearch.executeUpdate();
+                conn.commit();
+                return deleted > 0;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+
+        } catch (SQLException e) {
+            logger.error("Error deleting saved search with id: {}", id, e);
+            throw new RuntimeException("Failed to delete saved search", e);
+        }
+    }
+
+    /**
+     * Replaces all results of a search in one transaction.
+     *
+     * @param results Sort key per bookmark id
+     */
+    public void replaceResults(Long searchId, Map<Long, String> results) {
+        String sql = "INSERT INTO saved_search_results (search_id, sort_key, bookmark_id) VALUES (?, ?, ?)";
+
+        try (Connection conn = databaseInitializer.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement delete = conn.prepareStatement(
+                         "DELETE FROM saved_search_results WHERE search_id = ?");
+                 PreparedStatement insert = conn.prepareStatement(sql)) {
+                delete.setLong(1, searchId);
+                delete.executeUpdate();
+                for (Map.Entry<Long, String> result : results.entrySet()) {
+                    insert.setLong(1, searchId);
+                    insert.setString(2, result.getValue());
+                    insert.setLong(3, result.getKey());
+                    insert.addBatch();
+                }
+                instrumentation.execute(sql, List.of(searchId), insert::executeBatch, counts -> counts.length);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+
+        } catch (SQLException e) {
+            logger.error("Error materializing saved search with id: {}", searchId, e);
+            throw new RuntimeException("Failed to materialize saved search", e);
+        }
+    }
+
+    /**
+     * Sets which searches each bookmark belongs to, replacing their previous
+     * results, in one transaction. Bookmarks that had no results are only
+     * inserted, so one that matches nothing and never did costs a single lookup.
+     *
+     * @param memberships Per bookmark id, the sort key per saved search id it matches (empty: none)
+     */
+    public void replaceMemberships(Map<Long, Map<Long, String>> memberships) {
+        String membersSql = "SELECT DISTINCT bookmark_id FROM saved_search_results " +
+                "WHERE bookmark_id IN (SELECT value FROM json_each(?))";
+        String insertSql = "INSERT INTO saved_search_results (search_id, sort_key, bookmark_id) VALUES (?, ?, ?)";
+
+        try (Connection conn = databaseInitializer.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement members = conn.prepareStatement(membersSql);
+                 PreparedStatement delete = conn.prepareStatement(
+                         "DELETE FROM saved_search_results WHERE bookmark_id = ?");
+                 PreparedStatement insert = conn.prepareStatement(insertSql)) {
+                String ids = memberships.keySet().toString();
+                members.setString(1, ids);
+                Set<Long> existing = instrumentation.execute(membersSql, List.of(memberships.size()), () -> {
+                    Set<Long> found = new HashSet<>();
+                    try (ResultSet rs = members.executeQuery()) {
+                        while (rs.next()) {
+                            found.add(rs.getLong(1));
+                        }
+                    }
+                    return found;
+                }, Set::size);
+
+                for (Map.Entry<Long, Map<Long, String>> bookmark : memberships.entrySet()) {
+                    if (existing.contains(bookmark.getKey())) {
+                        delete.setLong(1, bookmark.getKey());
+                        delete.addBatch();
+                    }
+                    for (Map.Entry<Long, String> membership : bookmark.getValue().entrySet()) {
+                        insert.setLong(1, membership.getKey());
+                        insert.setString(2, membership.getValue());
+                        insert.setLong(3, bookmark.getKey());
+                        insert.addBatch();
+                    }
+                }
+                delete.executeBatch();
+                insert.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+
+        } catch (SQLException e) {
+            logger.error("Error updating saved search results of {} bookmarks", memberships.size(), e);
+            throw new RuntimeException("Failed to update saved search results", e);
+        }
+    }
+
+    public long countResults(Long searchId) {
+        String sql = "SELECT COUNT(*) FROM saved_search_results WHERE search_id = ?";
+
+        try (Connection conn = databaseInitializer.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, searchId);
+            return instrumentation.execute(sql, List.of(searchId), () -> {
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? rs.getLong(1) : 0L;
+                }
+            }, count -> 1);
+
+        } catch (SQLException e) {
+            logger.error("Error counting results of saved search with id: {}", searchId, e);
+            throw new RuntimeException("Failed to count saved search results", e);
+        }
+    }
+
+    private SavedSearch mapSavedSearch(ResultSet rs) throws SQLException {
+        return new SavedSearch(
+                rs.getLong("id"),
+                rs.getString("name"),
+                gson.fromJson(rs.getString("filter"), BookmarkFilter.class),
+                rs.getString("sort_by"),
+                rs.getString("sort_order"),
+                LocalDateTime.parse(rs.getString("created_at")));
+    }
+}
@@ -0,0 +1,48 @@
+package com.hashim.repository;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Versions at which bookmarks were recently deleted, for change listeners
+ * that keep rows: a callback of a write committed before the delete can still
+ * arrive after it, and must not bring the row back. A deleted id only returns
+ * (restored from the archive, or re-inserted by replication) at a higher
+ * version.
+ *
+ * <p>Only the latest {@value #CAPACITY} deletes are kept, far more than can
+ * be in flight at once. Not thread-safe: callers guard it with the lock that
+ * guards their rows, and clear it when they reload those rows from the table.
+ */
+public final class Tombstones {
+    private static final int CAPACITY = 65_536;
+
+    private final Map<Long, Long> versions = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+
+    public void add(long id, long version) {
+        Long previous = versions.remove(id);
+        versions.put(id, previous != null ? Math.max(previous, version) : version);
+    }
+
+    /**
+     * Whether a change of {@code id} at {@code version} is older than its
+     * delete. An unknown version is never considered stale.
+     */
+    public boolean covers(long id, Long version) {
+        Long deletedAt = versions.get(id);
+        return deletedAt != null && version != null && version <= deletedAt;
+    }
+
+    public void remove(long id) {
+        versions.remove(id);
+    }
+
+    public void clear() {
+        versions.clear();
+    }
+}
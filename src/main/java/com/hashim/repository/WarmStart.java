@@ -0,0 +1,267 @@
+package com.hashim.repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkStatus;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+/**
+ * The bookmarks table as of now, served from a {@link BookmarkSnapshot} while
+ * the in-memory indexes are built at startup, so that they page in the
+ * snapshot instead of reading and parsing every row over JDBC.
+ *
+ * <p>The snapshot is first reconciled with the table in one pass over the
+ * (id, version) pairs: rows added or changed since it was written are read in
+ * full and override it, and rows since removed are hidden. Must be registered
+ * as a change listener before {@link #reconcile}; writes committed from then
+ * on take precedence over what reconciliation read, and status-only changes
+ * are re-read from the table at the start of each range read. Overrides are
+ * ordered by row version, a removal ranking above the row it removed, so a
+ * callback arriving late neither replaces a newer row nor brings back a
+ * removed one.
+ */
+public class WarmStart implements BookmarkChangeListener {
+    private static final Logger logger = LoggerFactory.getLogger(WarmStart.class);
+    private static final int FETCH_BATCH = 500;
+
+    private final BookmarkSnapshot snapshot;
+    // Current rows that replace the snapshot's, by id
+    private final ConcurrentSkipListMap<Long, Change> overrides = new ConcurrentSkipListMap<>();
+    // Ids whose status changed since reconciliation; re-read before the next range read
+    private final Set<Long> statusChanged = ConcurrentHashMap.newKeySet();
+    private volatile boolean released;
+
+    /**
+     * How far the snapshot was behind the table.
+     */
+    public record Reconciliation(long snapshotRows, long added, long changed, long removed, long durationMs) {
+        public long differences() {
+            return added + changed + removed;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("snapshotRows", snapshotRows);
+            map.put("added", added);
+            map.put("changed", changed);
+            map.put("removed", removed);
+            map.put("durationMs", durationMs);
+            return map;
+        }
+    }
+
+    public WarmStart(BookmarkSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Compares the snapshot with the table and reads the rows that differ.
+     * Gives up, returning null, when more than {@code maxStaleShare} of the
+     * rows differ and reading the table outright would be about as fast.
+     */
+    public Reconciliation reconcile(BookmarkRepository repository, double maxStaleShare) {
+        long start = System.nanoTime();
+        LongArrayList snapshotIds = new LongArrayList();
+        LongArrayList snapshotVersions = new LongArrayList();
+        snapshot.forEachVersion((id, version) -> {
+            snapshotIds.add(id);
+            snapshotVersions.add(version);
+        });
+
+        // Merge join of the two id-ordered streams
+        LongArrayList fetch = new LongArrayList();
+        LongArrayList removed = new LongArrayList();
+        long[] counts = new long[3]; // cursor into the snapshot, added, changed
+        repository.forEachVersion((id, version) -> {
+            int cursor = (int) counts[0];
+            while (cursor < snapshotIds.size() && snapshotIds.getLong(cursor) < id) {
+                removed.add(snapshotIds.getLong(cursor++));
+            }
+            if (cursor < snapshotIds.size() && snapshotIds.getLong(cursor) == id) {
+                if (snapshotVersions.getLong(cursor) != version) {
+                    fetch.add(id);
+                    counts[2]++;
+                }
+                cursor++;
+            } else {
+                fetch.add(id);
+                counts[1]++;
+            }
+            counts[0] = cursor;
+        });
+        for (int cursor = (int) counts[0]; cursor < snapshotIds.size(); cursor++) {
+            removed.add(snapshotIds.getLong(cursor));
+        }
+
+        long differences = fetch.size() + removed.size();
+        if (differences > maxStaleShare * Math.max(1, snapshotIds.size())) {
+            logger.info("Snapshot {} is too far behind ({} of {} rows differ); reading the table instead",
+                    snapshot.getPath(), differences, snapshotIds.size());
+            return null;
+        }
+        for (int i = 0; i < fetch.size(); i += FETCH_BATCH) {
+            List<Long> batch = new ArrayList<>(FETCH_BATCH);
+            for (int j = i; j < Math.min(i + FETCH_BATCH, fetch.size()); j++) {
+                batch.add(fetch.getLong(j));
+            }
+            for (Bookmark bookmark : repository.findByIds(batch)) {
+                override(bookmark.getId(), Change.of(bookmark));
+            }
+        }
+        for (int i = 0; i < removed.size(); i++) {
+            overrides.putIfAbsent(removed.getLong(i), Change.REMOVED);
+        }
+        return new Reconciliation(snapshotIds.size(), counts[1], counts[2], removed.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Passes the bookmarks with {@code fromId <= id < toId} in id order:
+     * the snapshot's rows merged with the overrides.
+     */
+    public void forEachInRange(BookmarkRepository repository, long fromId, long toId, Consumer<Bookmark> consumer) {
+        refreshStatusChanges(repository);
+        Overrides pending = new Overrides(overrides.subMap(fromId, toId).entrySet().iterator());
+        snapshot.forEachInRange(fromId, toId, bookmark -> {
+            long id = bookmark.getId();
+            while (pending.id() < id) {
+                pending.emit(consumer);
+            }
+            if (pending.id() == id) {
+                pending.emit(consumer);
+            } else {
+                consumer.accept(bookmark);
+            }
+        });
+        while (pending.id() < Long.MAX_VALUE) {
+            pending.emit(consumer);
+        }
+    }
+
+    /**
+     * Drops the overrides; the view must no longer be used.
+     */
+    public void release() {
+        released = true;
+        overrides.clear();
+        statusChanged.clear();
+    }
+
+    @Override
+    public void onCreated(Bookmark bookmark) {
+        if (!released) {
+            override(bookmark.getId(), Change.of(bookmark));
+        }
+    }
+
+    @Override
+    public void onUpdated(Bookmark bookmark) {
+        onCreated(bookmark);
+    }
+
+    @Override
+    public void onStatusChanged(Long id, BookmarkStatus status, LocalDateTime updatedAt, long version) {
+        if (!released) {
+            statusChanged.add(id);
+        }
+    }
+
+    @Override
+    public void onDeleted(Long id, long version) {
+        if (!released) {
+            override(id, new Change(null, version));
+        }
+    }
+
+    private void override(long id, Change incoming) {
+        overrides.merge(id, incoming, (current, next) -> next.supersedes(current) ? next : current);
+    }
+
+    private synchronized void refreshStatusChanges(BookmarkRepository repository) {
+        if (statusChanged.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(statusChanged);
+        statusChanged.removeAll(ids);
+        Set<Long> missing = new HashSet<>(ids);
+        for (int i = 0; i < ids.size(); i += FETCH_BATCH) {
+            for (Bookmark bookmark : repository.findByIds(ids.subList(i, Math.min(i + FETCH_BATCH, ids.size())))) {
+                override(bookmark.getId(), Change.of(bookmark));
+                missing.remove(bookmark.getId());
+            }
+        }
+        for (Long id : missing) {
+            override(id, Change.REMOVED);
+        }
+    }
+
+    /**
+     * The current row, or its removal (null bookmark), at a row version;
+     * null when unknown.
+     */
+    private record Change(Bookmark bookmark, Long version) {
+        // Removed from the table, version unknown
+        static final Change REMOVED = new Change(null, null);
+
+        static Change of(Bookmark bookmark) {
+            return new Change(bookmark, bookmark.getVersion());
+        }
+
+        /**
+         * Whether this replaces {@code current}: when newer, or a removal
+         * of the same version. An unknown version always replaces.
+         */
+        boolean supersedes(Change current) {
+            if (version == null || current.version == null) {
+                return true;
+            }
+            long compared = Long.compare(version, current.version);
+            return compared > 0 || compared == 0 && bookmark == null;
+        }
+    }
+
+    /**
+     * Cursor over the overrides of a range, handing out copies so that
+     * consumers never share an instance.
+     */
+    private static final class Overrides {
+        private final Iterator<Map.Entry<Long, Change>> iterator;
+        private Map.Entry<Long, Change> current;
+
+        Overrides(Iterator<Map.Entry<Long, Change>> iterator) {
+            this.iterator = iterator;
+            this.current = iterator.hasNext() ? iterator.next() : null;
+        }
+
+        long id() {
+            return current != null ? current.getKey() : Long.MAX_VALUE;
+        }
+
+        void emit(Consumer<Bookmark> consumer) {
+            Bookmark bookmark = current.getValue().bookmark();
+            if (bookmark != null) {
+                Bookmark copy = new Bookmark(bookmark.getId(), bookmark.getUrl(), bookmark.getTitle(),
+                        bookmark.getTags(), bookmark.getNotes(), bookmark.getStatus(), bookmark.getCreatedAt(),
+                        bookmark.getUpdatedAt());
+                copy.setVersion(bookmark.getVersion());
+                consumer.accept(copy);
+            }
+            current = iterator.hasNext() ? iterator.next() : null;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.hashim.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hashim.exception.ValidationException;
+import com.hashim.model.ActivityCount;
+import com.hashim.model.ActivityEvent;
+import com.hashim.repository.ActivityRepository;
+import com.hashim.util.Tracer;
+
+/**
+ * Activity time series (bookmarks created, completed and reopened per day,
+ * week or month), read only from the daily rollup.
+ *
+ * <p>The rollup is kept current by triggers. History from before they were
+ * installed is counted once, in the background: the id range is split into
+ * chunks that are aggregated in parallel on their own connections, and the
+ * merged counts are written in one transaction. For that history the day a
+ * bookmark was completed is taken to be its last update, and earlier
+ * reopenings are unknown.
+ */
+public class ActivityService implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ActivityService.class);
+    private static final long BACKFILL_CHUNK_IDS = 50_000;
+    private static final int MAX_PERIODS = 1000;
+    private static final List<String> TABLES = List.of("bookmarks", "bookmarks_archive");
+
+    /**
+     * Bucket size of a series, with how far back it reaches by default.
+     */
+    private enum Interval {
+        DAY(ChronoUnit.DAYS, 30),
+        WEEK(ChronoUnit.WEEKS, 12),
+        MONTH(ChronoUnit.MONTHS, 12);
+
+        private final ChronoUnit unit;
+        private final int defaultPeriods;
+
+        Interval(ChronoUnit unit, int defaultPeriods) {
+            this.unit = unit;
+            this.defaultPeriods = defaultPeriods;
+        }
+
+        LocalDate start(LocalDate day) {
+            return switch (this) {
+                case DAY -> day;
+                case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTH -> day.withDayOfMonth(1);
+            };
+        }
+    }
+
+    private final ActivityRepository activityRepository;
+    private final int backfillThreads;
+    private final ExecutorService backfillExecutor;
+    private volatile boolean backfillComplete;
+
+    public ActivityService(ActivityRepository activityRepository, int backfillThreads) {
+        this.activityRepository = activityRepository;
+        this.backfillThreads = Math.max(1, backfillThreads);
+        this.backfillExecutor = Executors.newFixedThreadPool(this.backfillThreads, r -> {
+            Thread thread = new Thread(r, "activity-backfill");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Counts the pre-existing history in the background, unless that has been done.
+     */
+    public void startBackfill() {
+        ActivityRepository.Backfill backfill = activityRepository.findBackfill().orElse(null);
+        if (backfill == null || backfill.isFinished()) {
+            backfillComplete = true;
+            return;
+        }
+        Thread coordinator = new Thread(() -> backfill(backfill), "activity-backfill-coordinator");
+        coordinator.setDaemon(true);
+        coordinator.start();
+    }
+
+    /**
+     * Counts per period from {@code from} to {@code to} (ISO dates, inclusive).
+     * Periods are labelled by their first day; weeks start on Monday.
+     */
+    public Map<String, Object> getTimeseries(String intervalParam, String fromParam, String toParam) {
+        try (Tracer.Span span = Tracer.span(Tracer.Layer.SERVICE, "getTimeseries")) {
+            Interval interval = parseInterval(intervalParam);
+            LocalDate to = toParam != null ? parseDate(toParam, "to") : LocalDate.now();
+            LocalDate from = fromParam != null
+                    ? parseDate(fromParam, "from")
+                    : interval.start(to).minus(interval.defaultPeriods - 1, interval.unit);
+            if (from.isAfter(to)) {
+                throw new ValidationException("from must not be after to");
+            }
+            LocalDate first = interval.start(from);
+            if (interval.unit.between(first, interval.start(to)) >= MAX_PERIODS) {
+                throw new ValidationException("Range too large: at most " + MAX_PERIODS + " periods per request");
+            }
+
+            // Every period is present, so gaps in activity show as zeros
+            Map<LocalDate, EnumMap<ActivityEvent, Long>> periods = new TreeMap<>();
+            for (LocalDate period = first; !period.isAfter(to); period = period.plus(1, interval.unit)) {
+                periods.put(period, zeroCounts());
+            }
+            EnumMap<ActivityEvent, Long> totals = zeroCounts();
+            for (ActivityCount count : activityRepository.findDaily(from, to)) {
+                periods.get(interval.start(count.day())).merge(count.event(), count.count(), Long::sum);
+                totals.merge(count.event(), count.count(), Long::sum);
+            }
+
+            List<Map<String, Object>> series = new ArrayList<>(periods.size());
+            periods.forEach((period, counts) -> {
+                Map<String, Object> point = new LinkedHashMap<>();
+                point.put("period", period.toString());
+                point.putAll(byName(counts));
+                series.add(point);
+            });
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("interval", interval.name().toLowerCase(Locale.ROOT));
+            result.put("from", from.toString());
+            result.put("to", to.toString());
+            result.put("backfillComplete", backfillComplete);
+            result.put("totals", byName(totals));
+            result.put("series", series);
+            return result;
+        }
+    }
+
+    @Override
+    public void close() {
+        backfillExecutor.shutdownNow();
+    }
+
+    private void backfill(ActivityRepository.Backfill backfill) {
+        long start = System.nanoTime();
+        try {
+            List<Future<List<ActivityCount>>> chunks = new ArrayList<>();
+            for (String table : TABLES) {
+                for (long fromId = 1; fromId <= backfill.maxId(); fromId += BACKFILL_CHUNK_IDS) {
+                    long chunkFrom = fromId;
+                    long chunkTo = Math.min(fromId + BACKFILL_CHUNK_IDS - 1, backfill.maxId());
+                    chunks.add(backfillExecutor.submit(() ->
+                            activityRepository.countHistory(table, chunkFrom, chunkTo, backfill.cutoff())));
+                }
+            }
+
+            Map<String, ActivityCount> merged = new HashMap<>();
+            for (Future<List<ActivityCount>> chunk : chunks) {
+                for (ActivityCount count : chunk.get()) {
+                    merged.merge(count.day() + "/" + count.event(), count, (a, b) ->
+                            new ActivityCount(a.day(), a.event(), a.count() + b.count()));
+                }
+            }
+            activityRepository.completeBackfill(new ArrayList<>(merged.values()));
+            backfillComplete = true;
+            logger.info("Activity backfill finished: ids up to {}, {} chunks on {} threads, {} daily rows in {} ms",
+                    backfill.maxId(), chunks.size(), backfillThreads, merged.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.error("Activity backfill failed; it will be retried on the next start", e.getCause());
+        } catch (RuntimeException e) {
+            logger.error("Activity backfill failed; it will be retried on the next start", e);
+        } finally {
+            backfillExecutor.shutdown();
+        }
+    }
+
+    private static Interval parseInterval(String interval) {
+        if (interval == null || interval.trim().isEmpty()) {
+            return Interval.DAY;
+        }
+        try {
+            return Interval.valueOf(interval.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("interval must be one of: day, week, month");
+        }
+    }
+
+    private static LocalDate parseDate(String value, String name) {
+        try {
+            return LocalDate.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new ValidationException(name + " must be a date like 2024-01-31, got: " + value);
+        }
+    }
+
+    private static EnumMap<ActivityEvent, Long> zeroCounts() {
+        EnumMap<ActivityEvent, Long> counts = new EnumMap<>(ActivityEvent.class);
+        for (ActivityEvent event : ActivityEvent.values()) {
+            counts.put(event, 0L);
+        }
+        return counts;
+    }
+
+    private static Map<String, Long> byName(EnumMap<ActivityEvent, Long> counts) {
+        Map<String, Long> named = new LinkedHashMap<>();
+        counts.forEach((event, count) -> named.put(event.name().toLowerCase(Locale.ROOT), count));
+        return named;
+    }
+}
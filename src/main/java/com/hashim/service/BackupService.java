@@ -0,0 +1,349 @@
+package com.hashim.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sqlite.SQLiteConnection;
+import org.sqlite.core.DB;
+
+import com.hashim.exception.NotFoundException;
+import com.hashim.exception.ValidationException;
+import com.hashim.repository.DatabaseInitializer;
+
+/**
+ * Online backups through the SQLite backup API.
+ * Snapshots are copied page by page while the database stays available, pausing
+ * between steps so live traffic is not starved. Completed snapshots are kept
+ * in the backup directory subject to a count-based retention policy.
+ */
+public class BackupService implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(BackupService.class);
+    private static final DateTimeFormatter SNAPSHOT_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    private static final Pattern SNAPSHOT_NAME = Pattern.compile("bookmarks-\\d{8}-\\d{6}-\\d{3}\\.db");
+    // Consecutive busy/locked steps tolerated before a backup or restore gives up
+    private static final int MAX_BUSY_RETRIES = 100;
+    
+    private final DatabaseInitializer databaseInitializer;
+    private final Path backupDirectory;
+    private final int retainedSnapshots;
+    private final int pagesPerStep;
+    private final long stepPauseMs;
+    private final ScheduledExecutorService scheduler;
+    // Run after a restore has replaced the database's contents
+    private final List<Runnable> restoreListeners = new CopyOnWriteArrayList<>();
+    
+    // Metrics of the most recent run plus running totals
+    private final Object metricsLock = new Object();
+    private long snapshotsTaken;
+    private long snapshotsFailed;
+    private long lastDurationMs;
+    private long lastPages;
+    private long lastBytes;
+    private double lastThroughputBytesPerSec;
+    private LocalDateTime lastCompletedAt;
+
+    public BackupService(DatabaseInitializer databaseInitializer, Path backupDirectory, int retainedSnapshots,
+                         int pagesPerStep, long stepPauseMs) {
+        this.databaseInitializer = databaseInitializer;
+        this.backupDirectory = backupDirectory;
+        this.retainedSnapshots = retainedSnapshots;
+        this.pagesPerStep = pagesPerStep;
+        this.stepPauseMs = stepPauseMs;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "backup-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Registers a callback run after every successful restore, in registration
+     * order, for state derived from the database that the restore has made
+     * stale (in-memory indexes, materialized results, the bookmark snapshot).
+     */
+    public void addRestoreListener(Runnable listener) {
+        restoreListeners.add(listener);
+    }
+
+    /**
+     * Schedules periodic snapshots. An interval of zero leaves backups manual-only.
+     */
+    public void start(long intervalMinutes) {
+        if (intervalMinutes > 0) {
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    takeSnapshot();
+                } catch (RuntimeException e) {
+                    logger.error("Scheduled backup failed", e);
+                }
+            }, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+        }
+        logger.info("Backups enabled (directory: {}, interval: {} min, retention: {}, pages per step: {})",
+                backupDirectory, intervalMinutes, retainedSnapshots, pagesPerStep);
+    }
+
+    /**
+     * Takes an online snapshot of the live database and applies the retention policy.
+     *
+     * @return The completed snapshot
+     */
+    public synchronized Snapshot takeSnapshot() {
+        String name = "bookmarks-" + LocalDateTime.now().format(SNAPSHOT_TIMESTAMP) + ".db";
+        Path target = backupDirectory.resolve(name);
+        Path partial = backupDirectory.resolve(name + ".partial");
+        
+        long start = System.nanoTime();
+        AtomicInteger totalPages = new AtomicInteger();
+        
+        try (Connection conn = databaseInitializer.getConnection()) {
+            Files.createDirectories(backupDirectory);
+            long pageSize = queryLong(conn, "PRAGMA page_size");
+            
+            DB db = conn.unwrap(SQLiteConnection.class).getDatabase();
+            int rc = db.backup("main", partial.toString(), throttlingObserver(totalPages),
+                    (int) Math.max(stepPauseMs, 1), MAX_BUSY_RETRIES, pagesPerStep);
+            if (rc != 0) {
+                throw new SQLException("SQLite backup returned code " + rc);
+            }
+            
+            // Only complete snapshots ever carry the final name
+            Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+            
+            long durationMs = (System.nanoTime() - start) / 1_000_000;
+            long bytes = Files.size(target);
+            recordSuccess(durationMs, totalPages.get(), bytes);
+            logger.info("Backup {} completed: {} pages ({} bytes, page size {}) in {} ms",
+                    name, totalPages.get(), bytes, pageSize, durationMs);
+            
+            applyRetention();
+            return toSnapshot(target);
+            
+        } catch (SQLException | IOException e) {
+            recordFailure();
+            deleteQuietly(partial);
+            logger.error("Error taking backup {}", name, e);
+            throw new RuntimeException("Failed to take backup", e);
+        }
+    }
+
+    /**
+     * Restores the live database from a retained snapshot.
+     * A snapshot of the current state is taken first so the restore can be undone.
+     * A snapshot from an older schema version is migrated once restored; one from
+     * a newer version is refused. The database gets a new id and the restore
+     * listeners run afterwards.
+     *
+     * @param name The snapshot file name
+     * @return The snapshot taken before restoring
+     */
+    public synchronized Snapshot restore(String name) {
+        Path source = resolveSnapshot(name);
+        int schemaVersion = schemaVersion(source);
+        if (schemaVersion > DatabaseInitializer.SCHEMA_VERSION) {
+            throw new ValidationException("Snapshot " + name + " has schema version " + schemaVersion
+                    + ", newer than supported version " + DatabaseInitializer.SCHEMA_VERSION);
+        }
+        Snapshot safetySnapshot = takeSnapshot();
+        
+        long start = System.nanoTime();
+        try (Connection conn = databaseInitializer.getConnection()) {
+            DB db = conn.unwrap(SQLiteConnection.class).getDatabase();
+            int rc = db.restore("main", source.toString(), throttlingObserver(new AtomicInteger()),
+                    (int) Math.max(stepPauseMs, 1), MAX_BUSY_RETRIES, pagesPerStep);
+            if (rc != 0) {
+                throw new SQLException("SQLite restore returned code " + rc);
+            }
+            
+            logger.info("Restored database from {} in {} ms (previous state saved as {})",
+                    name, (System.nanoTime() - start) / 1_000_000, safetySnapshot.name());
+            if (schemaVersion < DatabaseInitializer.SCHEMA_VERSION) {
+                try {
+                    databaseInitializer.initialize();
+                } catch (RuntimeException e) {
+                    logger.error("Error migrating restored snapshot {}; restore {} to go back", name,
+                            safetySnapshot.name(), e);
+                    throw e;
+                }
+            }
+            databaseInitializer.resetDatabaseId();
+            for (Runnable listener : restoreListeners) {
+                // The restore itself has succeeded; one stale index must not keep the rest stale
+                try {
+                    listener.run();
+                } catch (RuntimeException e) {
+                    logger.error("Error rebuilding state after restoring {}", name, e);
+                }
+            }
+            return safetySnapshot;
+            
+        } catch (SQLException e) {
+            logger.error("Error restoring backup {}", name, e);
+            throw new RuntimeException("Failed to restore backup", e);
+        }
+    }
+
+    /**
+     * Lists retained snapshots, newest first.
+     */
+    public List<Snapshot> listSnapshots() {
+        List<Snapshot> snapshots = new ArrayList<>();
+        for (Path path : snapshotFiles()) {
+            snapshots.add(toSnapshot(path));
+        }
+        return snapshots;
+    }
+
+    public Map<String, Object> getMetrics() {
+        synchronized (metricsLock) {
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("snapshotsTaken", snapshotsTaken);
+            metrics.put("snapshotsFailed", snapshotsFailed);
+            metrics.put("lastDurationMs", lastDurationMs);
+            metrics.put("lastPages", lastPages);
+            metrics.put("lastBytes", lastBytes);
+            metrics.put("lastThroughputBytesPerSec", Math.round(lastThroughputBytesPerSec));
+            metrics.put("lastCompletedAt", lastCompletedAt);
+            metrics.put("retainedSnapshots", snapshotFiles().size());
+            metrics.put("retentionLimit", retainedSnapshots);
+            metrics.put("pagesPerStep", pagesPerStep);
+            metrics.put("stepPauseMs", stepPauseMs);
+            return metrics;
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private DB.ProgressObserver throttlingObserver(AtomicInteger totalPages) {
+        return (remaining, pageCount) -> {
+            totalPages.set(pageCount);
+            // Release the source between steps so writers can get in
+            if (remaining > 0 && stepPauseMs > 0) {
+                try {
+                    Thread.sleep(stepPauseMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+
+    private Path resolveSnapshot(String name) {
+        if (name == null || !SNAPSHOT_NAME.matcher(name).matches()) {
+            throw new ValidationException("Invalid snapshot name: " + name);
+        }
+        Path path = backupDirectory.resolve(name);
+        if (!Files.isRegularFile(path)) {
+            throw new NotFoundException("Snapshot not found: " + name);
+        }
+        return path;
+    }
+
+    private void applyRetention() {
+        List<Path> files = snapshotFiles();
+        for (int i = retainedSnapshots; i < files.size(); i++) {
+            deleteQuietly(files.get(i));
+            logger.info("Removed backup {} (retention: {})", files.get(i).getFileName(), retainedSnapshots);
+        }
+    }
+
+    private List<Path> snapshotFiles() {
+        if (!Files.isDirectory(backupDirectory)) {
+            return List.of();
+        }
+        try (Stream<Path> stream = Files.list(backupDirectory)) {
+            // Names embed the timestamp, so reverse name order is newest first
+            return stream.filter(p -> SNAPSHOT_NAME.matcher(p.getFileName().toString()).matches())
+                         .sorted(Comparator.comparing((Path p) -> p.getFileName().toString()).reversed())
+                         .toList();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to list backups", e);
+        }
+    }
+
+    private Snapshot toSnapshot(Path path) {
+        try {
+            Instant modified = Files.getLastModifiedTime(path).toInstant();
+            return new Snapshot(path.getFileName().toString(), Files.size(path),
+                    LocalDateTime.ofInstant(modified, ZoneId.systemDefault()));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read backup " + path.getFileName(), e);
+        }
+    }
+
+    private void recordSuccess(long durationMs, long pages, long bytes) {
+        synchronized (metricsLock) {
+            snapshotsTaken++;
+            lastDurationMs = durationMs;
+            lastPages = pages;
+            lastBytes = bytes;
+            lastThroughputBytesPerSec = bytes * 1000.0 / Math.max(durationMs, 1);
+            lastCompletedAt = LocalDateTime.now();
+        }
+    }
+
+    private void recordFailure() {
+        synchronized (metricsLock) {
+            snapshotsFailed++;
+        }
+    }
+
+    private int schemaVersion(Path snapshot) {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + snapshot);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            logger.error("Error reading schema version of backup {}", snapshot.getFileName(), e);
+            throw new RuntimeException("Failed to read backup " + snapshot.getFileName(), e);
+        }
+    }
+
+    private long queryLong(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Could not delete {}", path, e);
+        }
+    }
+
+    /**
+     * A retained backup file.
+     */
+    public record Snapshot(String name, long sizeBytes, LocalDateTime createdAt) {
+    }
+}
@@ -0,0 +1,58 @@
+package com.hashim.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkField;
+
+/**
+ * Result of a listing query that may be shared between coalesced callers.
+ * The serialized form is produced at most once and reused by every caller
+ * holding the same listing.
+ */
+public class BookmarkListing {
+    private final List<Bookmark> bookmarks;
+    // Properties to serialize, or null for all of them
+    private final Set<BookmarkField> fields;
+    private volatile byte[] serialized;
+
+    public BookmarkListing(List<Bookmark> bookmarks) {
+        this(bookmarks, null);
+    }
+
+    public BookmarkListing(List<Bookmark> bookmarks, Set<BookmarkField> fields) {
+        this.bookmarks = List.copyOf(bookmarks);
+        this.fields = fields;
+    }
+
+    public List<Bookmark> getBookmarks() {
+        return bookmarks;
+    }
+
+    public Set<BookmarkField> getFields() {
+        return fields;
+    }
+
+    /**
+     * Returns the UTF-8 serialized listing, serializing on first use.
+     *
+     * @param serializer Converts the bookmark list to its JSON representation
+     * @return Shared response buffer; callers must not modify it
+     */
+    public byte[] toJsonBytes(Function<List<Bookmark>, String> serializer) {
+        byte[] result = serialized;
+        if (result == null) {
+            synchronized (this) {
+                result = serialized;
+                if (result == null) {
+                    result = serializer.apply(bookmarks).getBytes(StandardCharsets.UTF_8);
+                    serialized = result;
+                }
+            }
+        }
+        return result;
+    }
+}
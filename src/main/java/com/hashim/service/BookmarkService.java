@@ -1,7 +1,19 @@
 package com.hashim.service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
+import org.roaringbitmap.RoaringBitmap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -9,11 +21,21 @@ import com.hashim.dto.CreateBookmarkRequest;
 import com.hashim.dto.UpdateBookmarkRequest;
 import com.hashim.dto.UpdateStatusRequest;
 import com.hashim.exception.NotFoundException;
+import com.hashim.exception.PreconditionFailedException;
+import com.hashim.index.BitmapIndex;
+import com.hashim.index.NearDuplicateIndex;
+import com.hashim.index.ReadModel;
+import com.hashim.index.RelatedIndex;
+import com.hashim.index.TrigramIndex;
 import com.hashim.exception.ValidationException;
 import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkField;
+import com.hashim.model.BookmarkFilter;
 import com.hashim.model.BookmarkStatus;
+import com.hashim.repository.ArchiveRepository;
 import com.hashim.repository.BookmarkQueryRepository;
 import com.hashim.repository.BookmarkRepository;
+import com.hashim.util.Tracer;
 import com.hashim.util.UrlValidator;
 import com.hashim.util.ValidationUtils;
 
@@ -21,35 +43,281 @@ public class BookmarkService {
     private static final Logger logger = LoggerFactory.getLogger(BookmarkService.class);
     private final BookmarkRepository bookmarkRepository;
     private final BookmarkQueryRepository queryRepository;
+    // Optional; null when status changes are written through synchronously
+    private final StatusWriteBehind statusWriteBehind;
+    
+    // Identical listings in flight at the same time share one query and one serialized buffer.
+    // The write generation is part of the key, so a listing requested after a write has
+    // completed never joins a query that may have started before that write.
+    private final SingleFlight<ListingKey, BookmarkListing> listingFlights = new SingleFlight<>();
+    private final AtomicLong writeGeneration = new AtomicLong();
+    
+    // Optional; narrow searches and filters to candidate ids
+    private TrigramIndex trigramIndex;
+    private int trigramMaxCandidates;
+    private BitmapIndex bitmapIndex;
+    private int bitmapMaxCandidates;
+    
+    // Optional; when set, reads are answered from memory instead of SQLite
+    private ReadModel readModel;
+    
+    // Optional; cold tier that lookups fall back to and writes restore from
+    private ArchiveRepository archiveRepository;
+    
+    // Optional; answers similar-bookmark lookups
+    private NearDuplicateIndex nearDuplicateIndex;
+    
+    // Optional; answers related-bookmark lookups
+    private RelatedIndex relatedIndex;
 
     public BookmarkService(BookmarkRepository bookmarkRepository, BookmarkQueryRepository queryRepository) {
+        this(bookmarkRepository, queryRepository, null);
+    }
+
+    public BookmarkService(BookmarkRepository bookmarkRepository, BookmarkQueryRepository queryRepository,
+                           StatusWriteBehind statusWriteBehind) {
         this.bookmarkRepository = bookmarkRepository;
         this.queryRepository = queryRepository;
+        this.statusWriteBehind = statusWriteBehind;
+    }
+
+    /**
+     * Enables index-assisted search. Above {@code maxCandidates} matches the
+     * plain LIKE scan is used, since the id list would cost more than it saves.
+     */
+    public void setTrigramIndex(TrigramIndex trigramIndex, int maxCandidates) {
+        this.trigramIndex = trigramIndex;
+        this.trigramMaxCandidates = maxCandidates;
+    }
+
+    /**
+     * Enables bitmap resolution of status, tag and domain filters. Above
+     * {@code maxCandidates} ids the filters are left to SQLite.
+     */
+    public void setBitmapIndex(BitmapIndex bitmapIndex, int maxCandidates) {
+        this.bitmapIndex = bitmapIndex;
+        this.bitmapMaxCandidates = maxCandidates;
+    }
+
+    /**
+     * Serves all reads from the in-memory snapshot. Writes still go to SQLite,
+     * which publishes them to the read model once committed.
+     */
+    public void setReadModel(ReadModel readModel) {
+        this.readModel = readModel;
+    }
+
+    /**
+     * Makes archived bookmarks transparent: lookups by id fall back to the
+     * archive, and any write to an archived bookmark first moves it back to
+     * the hot table. Listings include the archive only when asked to.
+     */
+    public void setArchiveRepository(ArchiveRepository archiveRepository) {
+        this.archiveRepository = archiveRepository;
+    }
+
+    public void setNearDuplicateIndex(NearDuplicateIndex nearDuplicateIndex) {
+        this.nearDuplicateIndex = nearDuplicateIndex;
+    }
+
+    public void setRelatedIndex(RelatedIndex relatedIndex) {
+        this.relatedIndex = relatedIndex;
     }
 
     public Bookmark createBookmark(CreateBookmarkRequest request) {
-        // Validate and normalize all fields
-        String normalizedUrl = UrlValidator.normalizeAndValidate(request.getUrl());
-        String normalizedTitle = ValidationUtils.validateAndNormalizeTitle(request.getTitle());
-        String normalizedTags = ValidationUtils.validateAndNormalizeTags(request.getTags());
-        String normalizedNotes = ValidationUtils.validateAndNormalizeNotes(request.getNotes());
+        try (Tracer.Span span = Tracer.span(Tracer.Layer.SERVICE, "createBookmark")) {
+            // Validate and normalize all fields
+            String normalizedUrl = UrlValidator.normalizeAndValidate(request.getUrl());
+            String normalizedTitle = ValidationUtils.validateAndNormalizeTitle(request.getTitle());
+            String normalizedTags = ValidationUtils.validateAndNormalizeTags(request.getTags());
+            String normalizedNotes = ValidationUtils.validateAndNormalizeNotes(request.getNotes());
         
-        Bookmark bookmark = new Bookmark();
-        bookmark.setUrl(normalizedUrl);
-        bookmark.setTitle(normalizedTitle);
-        bookmark.setTags(normalizedTags);
-        bookmark.setNotes(normalizedNotes);
-        bookmark.setStatus(BookmarkStatus.INBOX); // Default status
+            Bookmark bookmark = new Bookmark();
+            bookmark.setUrl(normalizedUrl);
+            bookmark.setTitle(normalizedTitle);
+            bookmark.setTags(normalizedTags);
+            bookmark.setNotes(normalizedNotes);
+            bookmark.setStatus(BookmarkStatus.INBOX); // Default status
         
-        return bookmarkRepository.create(bookmark);
+            try {
+                return bookmarkRepository.create(bookmark);
+            } finally {
+                writeGeneration.incrementAndGet();
+            }
+        }
     }
 
     public List<Bookmark> getAllBookmarks() {
-        return bookmarkRepository.findAll();
+        if (readModel != null) {
+            return applyPendingStatuses(readModel.snapshot().find(BookmarkFilter.NONE, null, "created_at", "desc",
+                    -1, 0));
+        }
+        return applyPendingStatuses(bookmarkRepository.findAll());
+    }
+    
+    /**
+     * Lists bookmarks for the API, coalescing identical concurrent requests.
+     * Without any filter parameter this returns the full collection, otherwise it
+     * applies the same validation and defaults as {@link #getBookmarksWithFilters}.
+     * Each of {@code tags} must match and none of {@code excludedTags}; any of
+     * {@code domains} may match.
+     */
+    public BookmarkListing listBookmarks(String searchQuery, String statusStr, List<String> tags,
+                                         List<String> excludedTags, List<String> domains,
+                                         String sortBy, String order, Integer limit, Integer offset) {
+        return listBookmarks(searchQuery, statusStr, tags, excludedTags, domains, sortBy, order, limit, offset, null);
+    }
+    
+    /**
+     * As above, returning only the properties named in {@code fields} (a
+     * comma-separated list of JSON names; {@code id} is always included).
+     * Without the read model only those columns are read from SQLite.
+     */
+    public BookmarkListing listBookmarks(String searchQuery, String statusStr, List<String> tags,
+                                         List<String> excludedTags, List<String> domains,
+                                         String sortBy, String order, Integer limit, Integer offset,
+                                         String fields) {
+        return listBookmarks(searchQuery, statusStr, tags, excludedTags, domains, sortBy, order, limit, offset,
+                fields, false);
+    }
+    
+    /**
+     * As above, also listing archived bookmarks when {@code includeArchived}
+     * is set. Such listings are always answered by SQLite.
+     */
+    public BookmarkListing listBookmarks(String searchQuery, String statusStr, List<String> tags,
+                                         List<String> excludedTags, List<String> domains,
+                                         String sortBy, String order, Integer limit, Integer offset,
+                                         String fields, boolean includeArchived) {
+        try (Tracer.Span span = Tracer.span(Tracer.Layer.SERVICE, "listBookmarks")) {
+            long generation = writeGeneration.get();
+            Set<BookmarkField> selected = parseFields(fields);
+        
+            if (searchQuery == null && statusStr == null && isEmpty(tags) && isEmpty(excludedTags) &&
+                isEmpty(domains) && sortBy == null && order == null && limit == null && offset == null) {
+                if (selected == null && !includeArchived) {
+                    ListingKey key = ListingKey.unfiltered(generation);
+                    return listingFlights.execute(key, () -> new BookmarkListing(getAllBookmarks()));
+                }
+                // Same rows and order as the unfiltered listing, through the query
+                ListingKey key = new ListingKey(BookmarkFilter.NONE, "created_at", "desc", -1, 0, generation, selected,
+                        includeArchived);
+                return listingFlights.execute(key, () -> new BookmarkListing(findWithFilters(key), selected));
+            }
+        
+            ListingKey key = normalizeFilters(parseFilter(searchQuery, statusStr, tags, excludedTags, domains),
+                    sortBy, order, limit, offset, generation, selected, includeArchived);
+            return listingFlights.execute(key, () -> new BookmarkListing(findWithFilters(key), selected));
+        }
     }
     
     public List<Bookmark> getBookmarksWithFilters(String searchQuery, String statusStr, String tag,
                                                    String sortBy, String order, Integer limit, Integer offset) {
+        List<String> tags = tag != null ? List.of(tag) : List.of();
+        return findWithFilters(normalizeFilters(parseFilter(searchQuery, statusStr, tags, null, null),
+                sortBy, order, limit, offset, writeGeneration.get(), null, false));
+    }
+    
+    /**
+     * Counts bookmarks matching the same filters as {@link #listBookmarks}. When the
+     * bitmap index can resolve them the count is its cardinality and SQLite is not queried.
+     */
+    public long countBookmarks(String searchQuery, String statusStr, List<String> tags,
+                               List<String> excludedTags, List<String> domains) {
+        return countBookmarks(searchQuery, statusStr, tags, excludedTags, domains, false);
+    }
+    
+    public long countBookmarks(String searchQuery, String statusStr, List<String> tags,
+                               List<String> excludedTags, List<String> domains, boolean includeArchived) {
+        try (Tracer.Span span = Tracer.span(Tracer.Layer.SERVICE, "countBookmarks")) {
+            BookmarkFilter filter = parseFilter(searchQuery, statusStr, tags, excludedTags, domains);
+            if (filter.status() != null) {
+                flushPendingStatuses();
+            }
+            if (includeArchived) {
+                // The indexes and the read model only cover the hot tier
+                return queryRepository.countWithFilters(filter, null, true);
+            }
+        
+            if (bitmapIndex != null && filter.searchQuery() == null) {
+                RoaringBitmap ids = bitmapIndex.resolve(filter);
+                if (ids != null) {
+                    return ids.getLongCardinality();
+                }
+            }
+        
+            Candidates candidates = resolveCandidates(filter);
+            if (candidates.isEmpty()) {
+                return 0;
+            }
+            if (readModel != null) {
+                return readModel.snapshot().count(candidates.filter(), candidates.ids());
+            }
+            return queryRepository.countWithFilters(candidates.filter(), candidates.ids());
+        }
+    }
+    
+    private List<Bookmark> findWithFilters(ListingKey key) {
+        // Queued status changes can be overlaid on the results unless they would change
+        // which rows match or how they are ordered; in that case write them out first
+        if (key.filter().status() != null || "updated_at".equals(key.sortBy())) {
+            flushPendingStatuses();
+        }
+        if (key.includeArchived()) {
+            // The indexes and the read model only cover the hot tier
+            return applyPendingStatuses(queryRepository.findWithFilters(key.filter(), key.sortBy(), key.order(),
+                    key.limit(), key.offset(), null, key.fields(), true));
+        }
+        
+        Candidates candidates = resolveCandidates(key.filter());
+        if (candidates.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (readModel != null) {
+            return applyPendingStatuses(readModel.snapshot().find(candidates.filter(), candidates.ids(),
+                    key.sortBy(), key.order(), key.limit(), key.offset()));
+        }
+        return applyPendingStatuses(queryRepository.findWithFilters(candidates.filter(), key.sortBy(), key.order(),
+                key.limit(), key.offset(), candidates.ids(), key.fields()));
+    }
+    
+    /**
+     * Narrows a filter to candidate ids using the in-memory indexes that are
+     * enabled. The SQL query still applies the returned filter to them.
+     */
+    private Candidates resolveCandidates(BookmarkFilter filter) {
+        RoaringBitmap ids = null;
+        BookmarkFilter remaining = filter;
+        int maxCandidates = 0;
+        
+        if (bitmapIndex != null && (filter.status() != null || filter.hasTermFilters())) {
+            ids = bitmapIndex.resolve(filter);
+            if (ids != null) {
+                // The index matches hosts exactly; SQL only approximates it
+                remaining = filter.withoutDomains();
+                maxCandidates = bitmapMaxCandidates;
+            }
+        }
+        // Once domains are left out of the SQL the ids must be passed whatever their number
+        boolean required = ids != null && !filter.domains().isEmpty();
+        
+        if (trigramIndex != null && filter.searchQuery() != null) {
+            int[] matches = trigramIndex.candidates(filter.searchQuery());
+            if (matches != null) {
+                RoaringBitmap searchIds = RoaringBitmap.bitmapOf(matches);
+                ids = ids != null ? RoaringBitmap.and(ids, searchIds) : searchIds;
+                maxCandidates = Math.max(maxCandidates, trigramMaxCandidates);
+            }
+        }
+        
+        if (ids == null || (!required && ids.getCardinality() > maxCandidates)) {
+            return new Candidates(null, filter);
+        }
+        return new Candidates(ids.toArray(), remaining);
+    }
+    
+    private BookmarkFilter parseFilter(String searchQuery, String statusStr, List<String> tags,
+                                       List<String> excludedTags, List<String> domains) {
         // Validate and parse status
         BookmarkStatus status = null;
         if (statusStr != null && !statusStr.trim().isEmpty()) {
@@ -60,6 +328,15 @@ public class BookmarkService {
             }
         }
         
+        // Normalize so that requests with equivalent filters map to the same key
+        String normalizedQuery = (searchQuery != null && !searchQuery.trim().isEmpty()) ? searchQuery : null;
+        return new BookmarkFilter(normalizedQuery, status, normalizeTerms(tags), normalizeTerms(excludedTags),
+                normalizeTerms(domains));
+    }
+    
+    private ListingKey normalizeFilters(BookmarkFilter filter, String sortBy, String order,
+                                        Integer limit, Integer offset, long generation, Set<BookmarkField> fields,
+                                        boolean includeArchived) {
         // Validate sort field
         if (sortBy != null && !isValidSortField(sortBy)) {
             throw new ValidationException("Sort field must be one of: created_at, updated_at, title");
@@ -77,7 +354,53 @@ public class BookmarkService {
         int actualLimit = (limit != null && limit > 0) ? Math.min(limit, 1000) : 100;
         int actualOffset = (offset != null && offset >= 0) ? offset : 0;
         
-        return queryRepository.findWithFilters(searchQuery, status, tag, sortBy, order, actualLimit, actualOffset);
+        String normalizedSort = sortBy != null ? sortBy.toLowerCase() : "created_at";
+        String normalizedOrder = "desc".equalsIgnoreCase(order) ? "desc" : "asc";
+        
+        return new ListingKey(filter, normalizedSort, normalizedOrder, actualLimit, actualOffset, generation, fields,
+                includeArchived);
+    }
+    
+    /**
+     * Parses a {@code fields=} list. Returns null when it is absent or selects
+     * every field, so that such requests share the unprojected listing.
+     */
+    private static Set<BookmarkField> parseFields(String fields) {
+        if (fields == null || fields.trim().isEmpty()) {
+            return null;
+        }
+        Set<BookmarkField> selected = EnumSet.of(BookmarkField.ID);
+        for (String name : fields.split(",")) {
+            if (name.trim().isEmpty()) {
+                continue;
+            }
+            BookmarkField field = BookmarkField.fromJsonName(name.trim());
+            if (field == null) {
+                throw new ValidationException("Unknown field: " + name.trim() + ". Must be one of: " +
+                        Arrays.stream(BookmarkField.values()).map(BookmarkField::jsonName)
+                                .collect(Collectors.joining(", ")));
+            }
+            selected.add(field);
+        }
+        return selected.size() == BookmarkField.values().length ? null : selected;
+    }
+    
+    /**
+     * Trims terms and drops blank ones, keeping the first occurrence of each.
+     */
+    private static List<String> normalizeTerms(List<String> terms) {
+        if (terms == null) {
+            return List.of();
+        }
+        return terms.stream()
+                .filter(term -> term != null && !term.trim().isEmpty())
+                .map(String::trim)
+                .distinct()
+                .toList();
+    }
+    
+    private static boolean isEmpty(List<String> values) {
+        return values == null || values.isEmpty();
     }
     
     private boolean isValidSortField(String field) {
@@ -87,13 +410,125 @@ public class BookmarkService {
     }
 
     public Bookmark getBookmarkById(Long id) {
-        return bookmarkRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("Bookmark not found with id: " + id));
+        try (Tracer.Span span = Tracer.span(Tracer.Layer.SERVICE, "getBookmarkById")) {
+            Optional<Bookmark> found = findHot(id);
+            if (found.isEmpty() && archiveRepository != null) {
+                found = archiveRepository.findById(id);
+            }
+            Bookmark bookmark = found
+                    .orElseThrow(() -> new NotFoundException("Bookmark not found with id: " + id));
+            return statusWriteBehind != null ? statusWriteBehind.applyPending(bookmark) : bookmark;
+        }
+    }
+    
+    /**
+     * Like {@link #getBookmarkById(Long)}, but first writes a queued status change
+     * of the bookmark, so that the result carries the version it is stored with.
+     * Used to answer conditional requests.
+     */
+    public Bookmark getCurrentBookmarkById(Long id) {
+        if (statusWriteBehind != null && statusWriteBehind.hasPending(id)) {
+            statusWriteBehind.flush();
+        }
+        return getBookmarkById(id);
+    }
+    
+    private Optional<Bookmark> findHot(Long id) {
+        return readModel != null
+                ? Optional.ofNullable(readModel.snapshot().findById(id))
+                : bookmarkRepository.findById(id);
+    }
+
+    /**
+     * Near-duplicates of a bookmark, closest first, each with its distance in
+     * SimHash bits. Archived bookmarks are not indexed and have none.
+     */
+    public List<Map<String, Object>> findSimilar(Long id, int limit) {
+        try (Tracer.Span span = Tracer.span(Tracer.Layer.SERVICE, "findSimilar")) {
+            if (nearDuplicateIndex == null) {
+                throw new NotFoundException("Similarity search is disabled");
+            }
+            getBookmarkById(id);
+            List<NearDuplicateIndex.Match> matches = nearDuplicateIndex.similar(id, limit);
+            if (matches.isEmpty()) {
+                return new ArrayList<>();
+            }
+            
+            Map<Long, Bookmark> bookmarks = findHot(matches.stream().mapToLong(NearDuplicateIndex.Match::id).toArray());
+            List<Map<String, Object>> similar = new ArrayList<>();
+            for (NearDuplicateIndex.Match match : matches) {
+                Bookmark bookmark = bookmarks.get(match.id());
+                // Deleted since the index was consulted
+                if (bookmark != null) {
+                    Map<String, Object> entry = new LinkedHashMap<>();
+                    entry.put("distance", match.distance());
+                    entry.put("bookmark", statusWriteBehind != null ? statusWriteBehind.applyPending(bookmark) : bookmark);
+                    similar.add(entry);
+                }
+            }
+            return similar;
+        }
+    }
+
+    /**
+     * Bookmarks that share tags, or tags that usually go with them, with the
+     * given one, best first. Archived bookmarks are not indexed and have none.
+     */
+    public List<Map<String, Object>> findRelated(Long id, int limit) {
+        try (Tracer.Span span = Tracer.span(Tracer.Layer.SERVICE, "findRelated")) {
+            if (relatedIndex == null) {
+                throw new NotFoundException("Related bookmarks are disabled");
+            }
+            getBookmarkById(id);
+            List<RelatedIndex.Match> matches = relatedIndex.related(id, limit);
+            if (matches.isEmpty()) {
+                return new ArrayList<>();
+            }
+            
+            Map<Long, Bookmark> bookmarks = findHot(matches.stream().mapToLong(RelatedIndex.Match::id).toArray());
+            List<Map<String, Object>> related = new ArrayList<>();
+            for (RelatedIndex.Match match : matches) {
+                Bookmark bookmark = bookmarks.get(match.id());
+                // Deleted since the index was consulted
+                if (bookmark != null) {
+                    Map<String, Object> entry = new LinkedHashMap<>();
+                    entry.put("score", match.score());
+                    entry.put("sharedTags", match.sharedTags());
+                    entry.put("bookmark", statusWriteBehind != null ? statusWriteBehind.applyPending(bookmark) : bookmark);
+                    related.add(entry);
+                }
+            }
+            return related;
+        }
+    }
+
+    /**
+     * Hot bookmarks by id, from the read model when there is one, else in one query.
+     */
+    private Map<Long, Bookmark> findHot(long[] ids) {
+        Map<Long, Bookmark> bookmarks = new HashMap<>();
+        if (readModel != null) {
+            for (long id : ids) {
+                findHot(id).ifPresent(bookmark -> bookmarks.put(bookmark.getId(), bookmark));
+            }
+        } else {
+            int[] intIds = Arrays.stream(ids).mapToInt(id -> (int) id).toArray();
+            for (Bookmark bookmark : queryRepository.findWithFilters(BookmarkFilter.NONE, "created_at", "desc",
+                    intIds.length, 0, intIds)) {
+                bookmarks.put(bookmark.getId(), bookmark);
+            }
+        }
+        return bookmarks;
     }
 
     public List<Bookmark> getBookmarksByStatus(String status) {
         try {
             BookmarkStatus bookmarkStatus = BookmarkStatus.valueOf(status.toUpperCase());
+            flushPendingStatuses();
+            if (readModel != null) {
+                return readModel.snapshot().find(new BookmarkFilter(null, bookmarkStatus, null, null, null), null,
+                        "created_at", "desc", -1, 0);
+            }
             return bookmarkRepository.findByStatus(bookmarkStatus);
         } catch (IllegalArgumentException e) {
             throw new ValidationException("Invalid status: " + status + ". Must be INBOX or DONE");
@@ -104,52 +539,235 @@ public class BookmarkService {
         if (query == null || query.trim().isEmpty()) {
             return getAllBookmarks();
         }
-        return bookmarkRepository.search(query);
+        if (readModel != null) {
+            return applyPendingStatuses(readModel.snapshot().find(new BookmarkFilter(query, null, null, null, null),
+                    null, "created_at", "desc", -1, 0));
+        }
+        return applyPendingStatuses(bookmarkRepository.search(query));
     }
 
     public Bookmark updateBookmark(Long id, UpdateBookmarkRequest request) {
-        // Validate and normalize all fields
-        String normalizedUrl = UrlValidator.normalizeAndValidate(request.getUrl());
-        String normalizedTitle = ValidationUtils.validateAndNormalizeTitle(request.getTitle());
-        String normalizedTags = ValidationUtils.validateAndNormalizeTags(request.getTags());
-        String normalizedNotes = ValidationUtils.validateAndNormalizeNotes(request.getNotes());
-        ValidationUtils.validateStatus(request.getStatus());
-        
-        Bookmark bookmark = getBookmarkById(id); // Will throw NotFoundException if not found
-        
-        bookmark.setUrl(normalizedUrl);
-        bookmark.setTitle(normalizedTitle);
-        bookmark.setTags(normalizedTags);
-        bookmark.setNotes(normalizedNotes);
-        
-        try {
-            BookmarkStatus status = BookmarkStatus.valueOf(request.getStatus().toUpperCase());
+        return updateBookmark(id, request, null);
+    }
+
+    /**
+     * Replaces a bookmark's fields in one statement.
+     *
+     * @param expectedVersion The version the client last saw (from If-Match), or null to overwrite unconditionally
+     * @throws PreconditionFailedException If the bookmark has changed since {@code expectedVersion}
+     */
+    public Bookmark updateBookmark(Long id, UpdateBookmarkRequest request, Long expectedVersion) {
+        try (Tracer.Span span = Tracer.span(Tracer.Layer.SERVICE, "updateBookmark")) {
+            // Validate and normalize all fields
+            String normalizedUrl = UrlValidator.normalizeAndValidate(request.getUrl());
+            String normalizedTitle = ValidationUtils.validateAndNormalizeTitle(request.getTitle());
+            String normalizedTags = ValidationUtils.validateAndNormalizeTags(request.getTags());
+            String normalizedNotes = ValidationUtils.validateAndNormalizeNotes(request.getNotes());
+            BookmarkStatus status = parseStatus(request.getStatus());
+            
+            Bookmark bookmark = new Bookmark();
+            bookmark.setId(id);
+            bookmark.setUrl(normalizedUrl);
+            bookmark.setTitle(normalizedTitle);
+            bookmark.setTags(normalizedTags);
+            bookmark.setNotes(normalizedNotes);
             bookmark.setStatus(status);
-        } catch (IllegalArgumentException e) {
-            throw new ValidationException("Invalid status: " + request.getStatus() + ". Must be INBOX or DONE");
+            
+            // A queued status change must not land after (and overwrite) this full update
+            flushPendingStatuses();
+            try {
+                Optional<Bookmark> updated = bookmarkRepository.update(bookmark, expectedVersion);
+                if (updated.isEmpty() && restoreArchived(id)) {
+                    updated = bookmarkRepository.update(bookmark, restoredVersion(expectedVersion));
+                }
+                return updated.orElseThrow(() -> updateRejected(id, expectedVersion));
+            } finally {
+                writeGeneration.incrementAndGet();
+            }
+        }
+    }
+    
+    /**
+     * Applies a JSON merge patch: only the properties present in {@code changes}
+     * are validated and written, in one statement. A null value clears tags or
+     * notes; url, title and status cannot be cleared.
+     *
+     * @param changes New value per JSON property name
+     * @param expectedVersion The version the client last saw (from If-Match), or null to overwrite unconditionally
+     * @throws PreconditionFailedException If the bookmark has changed since {@code expectedVersion}
+     */
+    public Bookmark patchBookmark(Long id, Map<String, String> changes, Long expectedVersion) {
+        try (Tracer.Span span = Tracer.span(Tracer.Layer.SERVICE, "patchBookmark")) {
+            if (changes.isEmpty()) {
+                throw new ValidationException("Patch must contain at least one of: url, title, tags, notes, status");
+            }
+            
+            Map<BookmarkField, Object> columns = new EnumMap<>(BookmarkField.class);
+            for (Map.Entry<String, String> change : changes.entrySet()) {
+                BookmarkField field = BookmarkField.fromJsonName(change.getKey());
+                String value = change.getValue();
+                if (field == null) {
+                    throw new ValidationException("Unknown field: " + change.getKey());
+                }
+                switch (field) {
+                    case URL -> columns.put(field, UrlValidator.normalizeAndValidate(value));
+                    case TITLE -> columns.put(field, ValidationUtils.validateAndNormalizeTitle(value));
+                    case TAGS -> columns.put(field, ValidationUtils.validateAndNormalizeTags(value));
+                    case NOTES -> columns.put(field, ValidationUtils.validateAndNormalizeNotes(value));
+                    case STATUS -> columns.put(field, parseStatus(value).name());
+                    default -> throw new ValidationException("Field cannot be changed: " + field.jsonName());
+                }
+            }
+            
+            // A queued status change must not land after (and overwrite) this update
+            flushPendingStatuses();
+            try {
+                Optional<Bookmark> updated = bookmarkRepository.updateFields(id, columns, expectedVersion);
+                if (updated.isEmpty() && restoreArchived(id)) {
+                    updated = bookmarkRepository.updateFields(id, columns, restoredVersion(expectedVersion));
+                }
+                return updated.orElseThrow(() -> updateRejected(id, expectedVersion));
+            } finally {
+                writeGeneration.incrementAndGet();
+            }
         }
-        
-        return bookmarkRepository.update(bookmark);
     }
     
     public Bookmark updateBookmarkStatus(Long id, UpdateStatusRequest request) {
-        ValidationUtils.validateStatus(request.getStatus());
-        
-        Bookmark bookmark = getBookmarkById(id);
+        return updateBookmarkStatus(id, request, null);
+    }
+
+    /**
+     * Changes a bookmark's status. Unconditional changes go through the
+     * write-behind queue when it is enabled (the returned bookmark then has no
+     * version until the batch is flushed); conditional ones are always written directly.
+     *
+     * @param expectedVersion The version the client last saw (from If-Match), or null to overwrite unconditionally
+     * @throws PreconditionFailedException If the bookmark has changed since {@code expectedVersion}
+     */
+    public Bookmark updateBookmarkStatus(Long id, UpdateStatusRequest request, Long expectedVersion) {
+        try (Tracer.Span span = Tracer.span(Tracer.Layer.SERVICE, "updateBookmarkStatus")) {
+            BookmarkStatus status = parseStatus(request.getStatus());
+            
+            try {
+                if (statusWriteBehind != null && expectedVersion == null) {
+                    // Acknowledged once journaled; the database write happens in the next batch,
+                    // which only updates hot rows, so the row must not be archived before the enqueue
+                    return statusWriteBehind.withRowsPinned(() -> {
+                        Optional<Bookmark> found = findHot(id);
+                        if (found.isEmpty() && restoreArchived(id)) {
+                            found = bookmarkRepository.findById(id);
+                        }
+                        Bookmark bookmark = statusWriteBehind.applyPending(found
+                                .orElseThrow(() -> new NotFoundException("Bookmark not found with id: " + id)));
+                        bookmark.setStatus(status);
+                        bookmark.setUpdatedAt(statusWriteBehind.enqueue(id, status));
+                        // The flush assigns the version
+                        bookmark.setVersion(null);
+                        return bookmark;
+                    });
+                }
+                flushPendingStatuses();
+                Optional<Bookmark> updated = bookmarkRepository.updateStatus(id, status, expectedVersion);
+                if (updated.isEmpty() && restoreArchived(id)) {
+                    updated = bookmarkRepository.updateStatus(id, status, restoredVersion(expectedVersion));
+                }
+                return updated.orElseThrow(() -> updateRejected(id, expectedVersion));
+            } finally {
+                writeGeneration.incrementAndGet();
+            }
+        }
+    }
+
+    public void deleteBookmark(Long id) {
+        try (Tracer.Span span = Tracer.span(Tracer.Layer.SERVICE, "deleteBookmark")) {
+            boolean deleted;
+            flushPendingStatuses();
+            try {
+                deleted = bookmarkRepository.delete(id)
+                        || (archiveRepository != null && archiveRepository.delete(id));
+            } finally {
+                writeGeneration.incrementAndGet();
+            }
         
+            if (!deleted) {
+                throw new NotFoundException("Bookmark not found with id: " + id);
+            }
+        }
+    }
+    
+    private List<Bookmark> applyPendingStatuses(List<Bookmark> bookmarks) {
+        if (statusWriteBehind != null && statusWriteBehind.pendingCount() > 0) {
+            bookmarks.forEach(statusWriteBehind::applyPending);
+        }
+        return bookmarks;
+    }
+    
+    private BookmarkStatus parseStatus(String status) {
+        ValidationUtils.validateStatus(status);
         try {
-            BookmarkStatus status = BookmarkStatus.valueOf(request.getStatus().toUpperCase());
-            bookmark.setStatus(status);
+            return BookmarkStatus.valueOf(status.toUpperCase());
         } catch (IllegalArgumentException e) {
-            throw new ValidationException("Invalid status: " + request.getStatus() + ". Must be INBOX or DONE");
+            throw new ValidationException("Invalid status: " + status + ". Must be INBOX or DONE");
         }
-        
-        return bookmarkRepository.update(bookmark);
     }
-
-    public void deleteBookmark(Long id) {
-        if (!bookmarkRepository.delete(id)) {
-            throw new NotFoundException("Bookmark not found with id: " + id);
+    
+    /**
+     * Explains an UPDATE that matched no row. Only on this path is the row read
+     * again, to tell a missing bookmark from a stale version.
+     */
+    private RuntimeException updateRejected(Long id, Long expectedVersion) {
+        if (expectedVersion != null) {
+            Optional<Bookmark> current = bookmarkRepository.findById(id);
+            if (current.isPresent()) {
+                return new PreconditionFailedException("Bookmark " + id + " has been modified (version " +
+                        current.get().getVersion() + ", expected " + expectedVersion + ")");
+            }
+        }
+        return new NotFoundException("Bookmark not found with id: " + id);
+    }
+    
+    /**
+     * Moves a bookmark back from the archive after a write found no hot row.
+     *
+     * @return true if it was archived, so the write should be retried
+     */
+    private boolean restoreArchived(Long id) {
+        return archiveRepository != null && archiveRepository.restore(id);
+    }
+    
+    /**
+     * The version a client that saw the archived row expects once it is
+     * restored, which moves it one version on.
+     */
+    private static Long restoredVersion(Long expectedVersion) {
+        return expectedVersion != null ? expectedVersion + 1 : null;
+    }
+    
+    private void flushPendingStatuses() {
+        if (statusWriteBehind != null) {
+            statusWriteBehind.flush();
+        }
+    }
+    
+    /**
+     * Coalescing key for listing queries: the normalized filter tuple plus the
+     * write generation observed when the request arrived.
+     */
+    private record ListingKey(BookmarkFilter filter, String sortBy, String order, int limit, int offset,
+                              long generation, Set<BookmarkField> fields, boolean includeArchived) {
+        static ListingKey unfiltered(long generation) {
+            return new ListingKey(null, null, null, -1, -1, generation, null, false);
+        }
+    }
+    
+    /**
+     * Candidate ids from the indexes (null for no restriction) and the filter
+     * SQLite still has to apply to them.
+     */
+    private record Candidates(int[] ids, BookmarkFilter filter) {
+        boolean isEmpty() {
+            return ids != null && ids.length == 0;
         }
     }
 }
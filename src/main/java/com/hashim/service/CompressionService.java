@@ -0,0 +1,128 @@
+package com.hashim.service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hashim.repository.ColumnCodec;
+
+/**
+ * Trains the column dictionaries and recompresses stored values with them.
+ * At startup each compressed column that has no dictionary yet gets one if
+ * there are enough values to learn from; a retrain can be requested through
+ * {@code /admin/compression} once the data has grown or drifted.
+ *
+ * <p>Recompression walks the table in id order in small batches with a pause
+ * between them, like the archiving job.
+ */
+public class CompressionService implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(CompressionService.class);
+
+    private final ColumnCodec columnCodec;
+    private final int trainingSamples;
+    private final int minTrainingRows;
+    private final int dictionarySize;
+    private final int batchSize;
+    private final long batchPauseMs;
+    private final ExecutorService executor;
+
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    public CompressionService(ColumnCodec columnCodec, int trainingSamples, int minTrainingRows, int dictionarySize,
+                              int batchSize, long batchPauseMs) {
+        this.columnCodec = columnCodec;
+        this.trainingSamples = trainingSamples;
+        this.minTrainingRows = minTrainingRows;
+        this.dictionarySize = dictionarySize;
+        this.batchSize = batchSize;
+        this.batchPauseMs = batchPauseMs;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "column-compression");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Trains dictionaries for columns that have none, in the background.
+     */
+    public void start() {
+        executor.execute(() -> {
+            try {
+                run(false);
+            } catch (RuntimeException e) {
+                logger.error("Column compression setup failed", e);
+            }
+        });
+    }
+
+    /**
+     * Trains a new dictionary for every compressed column and recompresses
+     * the stored values with it.
+     *
+     * @return Dictionary id and recompression batches per column
+     */
+    public Map<String, Object> retrain() {
+        return run(true);
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("columns", columnCodec.getStats());
+        status.put("lastRun", lastRun);
+        return status;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private synchronized Map<String, Object> run(boolean retrain) {
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("startedAt", LocalDateTime.now());
+        long start = System.nanoTime();
+
+        try {
+            for (String column : columnCodec.getColumns()) {
+                if (!retrain && columnCodec.hasDictionary(column)) {
+                    continue;
+                }
+                Map<String, Object> columnRun = new LinkedHashMap<>();
+                int id = columnCodec.train(column, trainingSamples, minTrainingRows, dictionarySize);
+                columnRun.put("dictionary", id > 0 ? id : null);
+                if (id > 0) {
+                    columnRun.put("batches", repack(column));
+                }
+                run.put(column, columnRun);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.put("error", "interrupted");
+        } catch (RuntimeException e) {
+            logger.error("Column compression failed", e);
+            run.put("error", e.getMessage());
+        }
+
+        run.put("totalMs", (System.nanoTime() - start) / 1_000_000);
+        lastRun = run;
+        return run;
+    }
+
+    private int repack(String column) throws InterruptedException {
+        int batches = 0;
+        long afterId = columnCodec.repackBatch(column, 0, batchSize);
+        while (afterId >= 0) {
+            batches++;
+            Thread.sleep(batchPauseMs);
+            afterId = columnCodec.repackBatch(column, afterId, batchSize);
+        }
+        logger.info("Recompressed {} in {} batches", column, batches);
+        return batches;
+    }
+}
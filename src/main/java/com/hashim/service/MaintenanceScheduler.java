@@ -0,0 +1,225 @@
+package com.hashim.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hashim.repository.DatabaseInitializer;
+import com.hashim.util.RequestRateTracker;
+
+/**
+ * Runs database housekeeping when the server is quiet:
+ * planner statistics (PRAGMA optimize / ANALYZE), incremental vacuum of free
+ * pages left by deletes, and WAL checkpoints. A run only starts when the
+ * request rate over the idle window is at or below the configured threshold
+ * and the minimum interval since the previous run has passed.
+ *
+ * <p>Databases created before incremental auto-vacuum was enabled are only
+ * switched over when asked to, since that takes a full VACUUM, which holds an
+ * exclusive lock while it rewrites the whole file.
+ */
+public class MaintenanceScheduler implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(MaintenanceScheduler.class);
+    // auto_vacuum modes as reported by PRAGMA auto_vacuum
+    private static final int AUTO_VACUUM_NONE = 0;
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+    
+    private final DatabaseInitializer databaseInitializer;
+    private final RequestRateTracker requestRateTracker;
+    private final int idleWindowSeconds;
+    private final long idleMaxRequests;
+    private final long minIntervalMs;
+    private final ScheduledExecutorService scheduler;
+    
+    private volatile long lastRunAt;
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    public MaintenanceScheduler(DatabaseInitializer databaseInitializer, RequestRateTracker requestRateTracker,
+                                int idleWindowSeconds, long idleMaxRequests, long minIntervalMinutes) {
+        this.databaseInitializer = databaseInitializer;
+        this.requestRateTracker = requestRateTracker;
+        this.idleWindowSeconds = idleWindowSeconds;
+        this.idleMaxRequests = idleMaxRequests;
+        this.minIntervalMs = TimeUnit.MINUTES.toMillis(minIntervalMinutes);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "db-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts checking for idle windows every {@code checkIntervalSeconds}.
+     */
+    public void start(long checkIntervalSeconds) {
+        scheduler.scheduleWithFixedDelay(this::runIfIdle, checkIntervalSeconds, checkIntervalSeconds, TimeUnit.SECONDS);
+        logger.info("Database maintenance enabled (idle: <= {} requests in {} s, min interval: {} min)",
+                idleMaxRequests, idleWindowSeconds, TimeUnit.MILLISECONDS.toMinutes(minIntervalMs));
+    }
+
+    /**
+     * Runs all maintenance steps now, regardless of traffic.
+     *
+     * @param convertAutoVacuum Whether a database without incremental auto-vacuum
+     *        is switched to it with a full VACUUM; otherwise its free pages are left alone
+     * @return Timings and page counts of the run
+     */
+    public synchronized Map<String, Object> runNow(boolean convertAutoVacuum) {
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("startedAt", LocalDateTime.now());
+        long start = System.nanoTime();
+        
+        try (Connection conn = databaseInitializer.getConnection();
+             Statement stmt = conn.createStatement()) {
+            
+            long pagesBefore = queryLong(stmt, "PRAGMA page_count");
+            long freeBefore = queryLong(stmt, "PRAGMA freelist_count");
+            run.put("pageCountBefore", pagesBefore);
+            run.put("freelistBefore", freeBefore);
+            
+            // Planner statistics; the first run has no sqlite_stat1 yet and needs a full ANALYZE
+            long stepStart = System.nanoTime();
+            if (queryLong(stmt, "SELECT count(*) FROM sqlite_master WHERE name = 'sqlite_stat1'") == 0) {
+                stmt.execute("ANALYZE");
+                run.put("analyze", "full");
+            } else {
+                stmt.execute("PRAGMA analysis_limit = 1000");
+                stmt.execute("PRAGMA optimize");
+                run.put("analyze", "optimize");
+            }
+            run.put("analyzeMs", elapsedMs(stepStart));
+            
+            // Give free pages back to the file system
+            stepStart = System.nanoTime();
+            long autoVacuum = queryLong(stmt, "PRAGMA auto_vacuum");
+            if (autoVacuum == AUTO_VACUUM_INCREMENTAL) {
+                incrementalVacuum(conn, freeBefore);
+                run.put("vacuum", "incremental");
+            } else if (autoVacuum == AUTO_VACUUM_NONE && convertAutoVacuum) {
+                // Databases created before incremental auto-vacuum need one full VACUUM to switch modes
+                stmt.execute("PRAGMA auto_vacuum = INCREMENTAL");
+                stmt.execute("VACUUM");
+                run.put("vacuum", "full (switched to incremental auto_vacuum)");
+            } else if (autoVacuum == AUTO_VACUUM_NONE) {
+                run.put("vacuum", "skipped (auto_vacuum is off; convertAutoVacuum=true switches it on with a full VACUUM)");
+            } else {
+                run.put("vacuum", "skipped");
+            }
+            run.put("vacuumMs", elapsedMs(stepStart));
+            
+            // Fold the WAL back into the main file
+            stepStart = System.nanoTime();
+            if ("wal".equalsIgnoreCase(queryString(stmt, "PRAGMA journal_mode"))) {
+                stmt.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+                run.put("walCheckpoint", "truncate");
+            } else {
+                run.put("walCheckpoint", "skipped (not in WAL mode)");
+            }
+            run.put("walCheckpointMs", elapsedMs(stepStart));
+            
+            long pagesAfter = queryLong(stmt, "PRAGMA page_count");
+            run.put("pageCountAfter", pagesAfter);
+            run.put("freelistAfter", queryLong(stmt, "PRAGMA freelist_count"));
+            run.put("reclaimedPages", pagesBefore - pagesAfter);
+            run.put("totalMs", elapsedMs(start));
+            
+            logger.info("Database maintenance completed in {} ms: analyze={} ({} ms), vacuum={} ({} ms), " +
+                        "checkpoint={} ({} ms), reclaimed {} pages ({} -> {})",
+                    run.get("totalMs"), run.get("analyze"), run.get("analyzeMs"), run.get("vacuum"),
+                    run.get("vacuumMs"), run.get("walCheckpoint"), run.get("walCheckpointMs"),
+                    run.get("reclaimedPages"), pagesBefore, pagesAfter);
+            
+        } catch (SQLException e) {
+            logger.error("Database maintenance failed", e);
+            run.put("error", e.getMessage());
+        }
+        
+        lastRunAt = System.currentTimeMillis();
+        lastRun = run;
+        return run;
+    }
+
+    public Map<String, Object> getLastRun() {
+        return lastRun;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void runIfIdle() {
+        try {
+            if (System.currentTimeMillis() - lastRunAt < minIntervalMs) {
+                return;
+            }
+            if (!requestRateTracker.isIdle(idleWindowSeconds, idleMaxRequests)) {
+                logger.debug("Skipping maintenance, server is busy");
+                return;
+            }
+            runNow(false);
+        } catch (RuntimeException e) {
+            logger.error("Scheduled maintenance failed", e);
+        }
+    }
+
+    /**
+     * Frees up to {@code freePages} pages in one transaction. The pragma frees one
+     * page per step, and executing a statement through JDBC only steps it once,
+     * so it is repeated until the free list is empty or stops shrinking.
+     */
+    private void incrementalVacuum(Connection conn, long freePages) throws SQLException {
+        if (freePages == 0) {
+            return;
+        }
+        conn.setAutoCommit(false);
+        try (PreparedStatement vacuum = conn.prepareStatement("PRAGMA incremental_vacuum");
+             PreparedStatement freelist = conn.prepareStatement("PRAGMA freelist_count")) {
+            long remaining = freePages;
+            while (remaining > 0) {
+                vacuum.execute();
+                long left;
+                try (ResultSet rs = freelist.executeQuery()) {
+                    left = rs.next() ? rs.getLong(1) : 0;
+                }
+                if (left >= remaining) {
+                    break;
+                }
+                remaining = left;
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    private long queryLong(Statement stmt, String sql) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private String queryString(Statement stmt, String sql) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.hashim.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hashim.exception.ValidationException;
+import com.hashim.model.Bookmark;
+import com.hashim.model.JobCheckpoint;
+import com.hashim.repository.BookmarkRepository;
+import com.hashim.repository.JobCheckpointRepository;
+import com.hashim.util.RequestRateTracker;
+import com.hashim.util.UrlValidator;
+import com.hashim.util.ValidationUtils;
+
+/**
+ * Re-applies the create/update normalization rules of {@link UrlValidator} and
+ * {@link ValidationUtils} to every stored bookmark, after those rules change.
+ *
+ * <p>The table is walked in id order in chunks of {@code batchSize}. Each chunk
+ * is normalized on a fork-join pool and only the rows that came out different
+ * are written back, in one transaction per chunk and only if the row was not
+ * modified in the meantime. Rows that no longer pass validation are counted
+ * and left as they are. Archived bookmarks are not walked: one restored later
+ * keeps the values it was archived with until the job is run again.
+ *
+ * <p>Throughput is capped at {@code maxRowsPerSecond}, and while more than
+ * {@code busyRequestsPerSecond} requests arrive the job waits (up to a few
+ * seconds per chunk) for traffic to drop. The position is checkpointed after
+ * every chunk, so a job interrupted by a restart resumes where it stopped.
+ */
+public class RenormalizationService implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(RenormalizationService.class);
+    private static final String JOB_NAME = "renormalize";
+    // Ids of rows that failed validation, kept for the status endpoint
+    private static final int MAX_INVALID_SAMPLES = 50;
+    private static final long BUSY_POLL_MS = 250;
+    private static final long MAX_BUSY_WAIT_MS = 5_000;
+
+    private final BookmarkRepository bookmarkRepository;
+    private final JobCheckpointRepository checkpointRepository;
+    private final RequestRateTracker requestRateTracker;
+    private final int threads;
+    private final int batchSize;
+    private final int maxRowsPerSecond;
+    private final long busyRequestsPerSecond;
+    private final ExecutorService executor;
+
+    private volatile boolean running;
+    private volatile boolean stopRequested;
+    private volatile JobCheckpoint checkpoint;
+    // Rows left when this run started, and the run's own progress, for the ETA
+    private volatile long runTotal;
+    private volatile long runProcessed;
+    private volatile long runStartedNanos;
+    private volatile String error;
+    private final List<Long> invalidSamples = Collections.synchronizedList(new ArrayList<>());
+
+    public RenormalizationService(BookmarkRepository bookmarkRepository, JobCheckpointRepository checkpointRepository,
+                                  RequestRateTracker requestRateTracker, int threads, int batchSize,
+                                  int maxRowsPerSecond, long busyRequestsPerSecond) {
+        this.bookmarkRepository = bookmarkRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.requestRateTracker = requestRateTracker;
+        this.threads = Math.max(1, threads);
+        this.batchSize = batchSize;
+        this.maxRowsPerSecond = maxRowsPerSecond;
+        this.busyRequestsPerSecond = busyRequestsPerSecond;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "renormalization");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Continues a job that a restart interrupted.
+     */
+    public void resumeInterrupted() {
+        JobCheckpoint saved = checkpointRepository.find(JOB_NAME).orElse(null);
+        if (saved != null && !saved.isFinished()) {
+            logger.info("Resuming re-normalization after id {} ({} rows done)", saved.lastId(), saved.processed());
+            start(false);
+        }
+    }
+
+    /**
+     * Starts the job in the background, unless it is already running.
+     *
+     * @param restart Start from the first row even if an unfinished checkpoint exists
+     * @return Status after starting
+     */
+    public synchronized Map<String, Object> start(boolean restart) {
+        if (!running) {
+            JobCheckpoint saved = checkpointRepository.find(JOB_NAME).orElse(null);
+            boolean fresh = saved == null || saved.isFinished() || restart;
+            JobCheckpoint initial = fresh ? JobCheckpoint.start(JOB_NAME) : saved;
+            checkpointRepository.save(initial);
+            checkpoint = initial;
+            if (fresh) {
+                invalidSamples.clear();
+            }
+            runTotal = bookmarkRepository.countAfter(initial.lastId());
+            runProcessed = 0;
+            runStartedNanos = System.nanoTime();
+            error = null;
+            stopRequested = false;
+            running = true;
+            executor.execute(this::run);
+        }
+        return getStatus();
+    }
+
+    /**
+     * Stops the job after the chunk in progress; it can be resumed later.
+     */
+    public Map<String, Object> stop() {
+        stopRequested = true;
+        return getStatus();
+    }
+
+    public Map<String, Object> getStatus() {
+        JobCheckpoint current = checkpoint;
+        if (current == null) {
+            current = checkpointRepository.find(JOB_NAME).orElse(null);
+        }
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", running);
+        status.put("stopRequested", running && stopRequested);
+        if (current != null) {
+            status.put("startedAt", current.startedAt());
+            status.put("finishedAt", current.finishedAt());
+            status.put("lastId", current.lastId());
+            status.put("processed", current.processed());
+            status.put("changed", current.changed());
+            status.put("invalid", current.invalid());
+        }
+        if (running) {
+            double elapsedSeconds = (System.nanoTime() - runStartedNanos) / 1e9;
+            long done = runProcessed;
+            double rate = elapsedSeconds > 0 ? done / elapsedSeconds : 0;
+            long remaining = Math.max(0, runTotal - done);
+            status.put("remainingEstimate", remaining);
+            status.put("percent", runTotal > 0 ? Math.min(100.0, 100.0 * done / runTotal) : 100.0);
+            status.put("rowsPerSecond", Math.round(rate));
+            status.put("etaSeconds", rate > 0 ? Math.round(remaining / rate) : null);
+        }
+        synchronized (invalidSamples) {
+            status.put("invalidIds", new ArrayList<>(invalidSamples));
+        }
+        status.put("error", error);
+        return status;
+    }
+
+    @Override
+    public void close() {
+        stopRequested = true;
+        executor.shutdownNow();
+    }
+
+    private void run() {
+        ForkJoinPool pool = new ForkJoinPool(threads, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("renormalization-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        long start = System.nanoTime();
+        try {
+            while (!stopRequested) {
+                long chunkStart = System.nanoTime();
+                JobCheckpoint current = checkpoint;
+                List<Bookmark> chunk = bookmarkRepository.findAfter(current.lastId(), batchSize);
+                if (chunk.isEmpty()) {
+                    checkpoint = current.finish();
+                    checkpointRepository.save(checkpoint);
+                    logger.info("Re-normalization finished: {} rows, {} changed, {} invalid ({} ms)",
+                            checkpoint.processed(), checkpoint.changed(), checkpoint.invalid(),
+                            (System.nanoTime() - start) / 1_000_000);
+                    break;
+                }
+
+                AtomicLong invalid = new AtomicLong();
+                List<Bookmark> changed = pool.submit(() -> chunk.parallelStream()
+                        .map(bookmark -> renormalize(bookmark, invalid))
+                        .filter(Objects::nonNull)
+                        .toList()).get();
+                int written = changed.isEmpty() ? 0 : bookmarkRepository.updateContents(changed).size();
+
+                checkpoint = current.advance(chunk.get(chunk.size() - 1).getId(), chunk.size(), written, invalid.get());
+                checkpointRepository.save(checkpoint);
+                runProcessed += chunk.size();
+                throttle(chunk.size(), chunkStart);
+            }
+            if (stopRequested && !checkpoint.isFinished()) {
+                logger.info("Re-normalization stopped after id {}", checkpoint.lastId());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = "interrupted";
+        } catch (ExecutionException e) {
+            logger.error("Re-normalization failed", e.getCause());
+            error = e.getCause().getMessage();
+        } catch (RuntimeException e) {
+            logger.error("Re-normalization failed", e);
+            error = e.getMessage();
+        } finally {
+            pool.shutdownNow();
+            running = false;
+        }
+    }
+
+    /**
+     * The bookmark with its fields normalized, or null if nothing changed or
+     * a field no longer validates.
+     */
+    private Bookmark renormalize(Bookmark bookmark, AtomicLong invalid) {
+        try {
+            String url = UrlValidator.normalizeAndValidate(bookmark.getUrl());
+            String title = ValidationUtils.validateAndNormalizeTitle(bookmark.getTitle());
+            String tags = ValidationUtils.validateAndNormalizeTags(bookmark.getTags());
+            String notes = ValidationUtils.validateAndNormalizeNotes(bookmark.getNotes());
+            if (url.equals(bookmark.getUrl()) && title.equals(bookmark.getTitle())
+                    && tags.equals(bookmark.getTags()) && notes.equals(bookmark.getNotes())) {
+                return null;
+            }
+
+            Bookmark normalized = new Bookmark();
+            normalized.setId(bookmark.getId());
+            normalized.setVersion(bookmark.getVersion());
+            normalized.setUrl(url);
+            normalized.setTitle(title);
+            normalized.setTags(tags);
+            normalized.setNotes(notes);
+            return normalized;
+        } catch (ValidationException e) {
+            invalid.incrementAndGet();
+            synchronized (invalidSamples) {
+                if (invalidSamples.size() < MAX_INVALID_SAMPLES) {
+                    invalidSamples.add(bookmark.getId());
+                }
+            }
+            logger.debug("Bookmark {} no longer validates: {}", bookmark.getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Keeps the row rate under the cap, and gives way to request traffic.
+     */
+    private void throttle(int rows, long chunkStart) throws InterruptedException {
+        long minNanos = TimeUnit.SECONDS.toNanos(rows) / Math.max(1, maxRowsPerSecond);
+        long remainingNanos = minNanos - (System.nanoTime() - chunkStart);
+        if (remainingNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(remainingNanos);
+        }
+        long waited = 0;
+        while (!stopRequested && waited < MAX_BUSY_WAIT_MS
+                && !requestRateTracker.isIdle(1, busyRequestsPerSecond)) {
+            Thread.sleep(BUSY_POLL_MS);
+            waited += BUSY_POLL_MS;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.hashim.service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.hashim.model.ReplicationChange;
+import com.hashim.repository.ReplicationLog;
+import com.hashim.repository.ReplicationLog.Position;
+
+/**
+ * Follower side of replication: pulls the leader's change stream over HTTP,
+ * verifies the checksum chain and applies it to the local SQLite copy.
+ *
+ * <p>A follower without a usable position (first start, or too far behind the
+ * leader's retained log) bootstraps from a full snapshot before anything else
+ * reads the local database. A broken chain or a gap stops replication; the
+ * follower keeps serving what it has and reports the problem in its status.
+ * So does a leader epoch change (a backup restore on the leader); a restart
+ * then bootstraps again.
+ */
+public class ReplicationFollower {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicationFollower.class);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    public enum State {
+        STARTING, STREAMING, CAUGHT_UP, LEADER_UNREACHABLE, DIVERGED, NEEDS_RESYNC
+    }
+
+    private final ReplicationLog replicationLog;
+    private final String leaderUrl;
+    private final String adminToken;
+    private final long pollIntervalMs;
+    private final int batchSize;
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final Gson gson = new Gson();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "replication-follower");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Object positionMonitor = new Object();
+    private volatile Position position = Position.START;
+    // Leader epoch of the local data, sent with every poll
+    private volatile String epoch;
+    private volatile long leaderSeq;
+    private volatile long caughtUpAt = System.currentTimeMillis();
+    private volatile State state = State.STARTING;
+    private volatile String lastError;
+
+    public ReplicationFollower(ReplicationLog replicationLog, String leaderUrl, String adminToken,
+                               long pollIntervalMs, int batchSize) {
+        this.replicationLog = replicationLog;
+        this.leaderUrl = leaderUrl.endsWith("/") ? leaderUrl.substring(0, leaderUrl.length() - 1) : leaderUrl;
+        this.adminToken = adminToken;
+        this.pollIntervalMs = pollIntervalMs;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Establishes the starting position, downloading a snapshot if needed. Runs
+     * at startup before the database is read by anything else.
+     */
+    public void bootstrap() {
+        replicationLog.disableCapture();
+        Position stored = replicationLog.appliedPosition();
+        epoch = replicationLog.appliedEpoch();
+        
+        try {
+            JsonObject leaderStatus = JsonParser.parseString(get("/replication/status")).getAsJsonObject();
+            long oldestSeq = leaderStatus.get("oldestSeq").getAsLong();
+            leaderSeq = leaderStatus.get("lastSeq").getAsLong();
+            String leaderEpoch = epochOf(leaderStatus);
+            
+            if (stored == null || stored.seq() < oldestSeq - 1 || !Objects.equals(epoch, leaderEpoch)) {
+                stored = restoreSnapshot();
+                epoch = replicationLog.appliedEpoch();
+            }
+        } catch (IOException e) {
+            logger.warn("Leader {} unreachable during bootstrap, starting from local data: {}", leaderUrl, e.getMessage());
+            state = State.LEADER_UNREACHABLE;
+            lastError = e.getMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted during replication bootstrap", e);
+        }
+        
+        position = stored != null ? stored : Position.START;
+        logger.info("Replication follower starting at seq {} (leader {})", position.seq(), leaderUrl);
+    }
+
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::poll, 0, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Blocks until the follower has applied {@code seq}, for read-your-writes.
+     * Returns false if that did not happen within {@code timeoutMs}.
+     */
+    public boolean awaitSeq(long seq, long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        synchronized (positionMonitor) {
+            while (position.seq() < seq) {
+                long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMs <= 0) {
+                    return false;
+                }
+                positionMonitor.wait(remainingMs);
+            }
+        }
+        return true;
+    }
+
+    public long appliedSeq() {
+        return position.seq();
+    }
+
+    public String getLeaderUrl() {
+        return leaderUrl;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        long applied = position.seq();
+        status.put("role", "follower");
+        status.put("leader", leaderUrl);
+        status.put("state", state.name());
+        status.put("appliedSeq", applied);
+        status.put("leaderSeq", leaderSeq);
+        status.put("lagChanges", Math.max(0, leaderSeq - applied));
+        status.put("lagMs", applied >= leaderSeq ? 0 : System.currentTimeMillis() - caughtUpAt);
+        status.put("lastError", lastError);
+        return status;
+    }
+
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Called after a backup restore has replaced the local database, which
+     * brings back the position and epoch the backup was taken at.
+     */
+    public void onRestore() {
+        Position restored = replicationLog.appliedPosition();
+        epoch = replicationLog.appliedEpoch();
+        synchronized (positionMonitor) {
+            position = restored != null ? restored : Position.START;
+        }
+        logger.info("Replication follower restarting at seq {} after a restore", position.seq());
+    }
+
+    private void poll() {
+        if (state == State.DIVERGED || state == State.NEEDS_RESYNC) {
+            return;
+        }
+        try {
+            boolean more = true;
+            while (more) {
+                // The leader answers 410 Gone, with snapshotRequired set, once it has pruned the changes we need
+                HttpResponse<String> response = send("/replication/changes?after=" + position.seq()
+                        + "&limit=" + batchSize
+                        + (epoch != null ? "&epoch=" + URLEncoder.encode(epoch, StandardCharsets.UTF_8) : ""));
+                if (response.statusCode() != 200 && response.statusCode() != 410) {
+                    throw new IOException("GET /replication/changes returned HTTP " + response.statusCode());
+                }
+                JsonObject batch = JsonParser.parseString(response.body()).getAsJsonObject();
+                leaderSeq = batch.get("lastSeq").getAsLong();
+                if (batch.get("snapshotRequired").getAsBoolean()) {
+                    fail(State.NEEDS_RESYNC, Objects.equals(epoch, epochOf(batch))
+                            ? "Leader no longer has changes after seq " + position.seq()
+                                    + "; restart the follower with an empty database to resync"
+                            : "Leader database was restored from a backup (epoch " + epochOf(batch)
+                                    + "); restart the follower to resync");
+                    return;
+                }
+                
+                List<ReplicationChange> changes = Arrays.asList(
+                        gson.fromJson(batch.get("changes"), ReplicationChange[].class));
+                if (!changes.isEmpty()) {
+                    apply(changes);
+                }
+                more = !changes.isEmpty() && position.seq() < leaderSeq;
+            }
+            
+            state = State.CAUGHT_UP;
+            caughtUpAt = System.currentTimeMillis();
+            lastError = null;
+            
+        } catch (IOException e) {
+            if (state != State.LEADER_UNREACHABLE) {
+                logger.warn("Replication leader {} unreachable: {}", leaderUrl, e.getMessage());
+            }
+            state = State.LEADER_UNREACHABLE;
+            lastError = e.getMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.error("Replication poll failed", e);
+            lastError = e.getMessage();
+        }
+    }
+
+    private void apply(List<ReplicationChange> changes) {
+        // Verify the whole batch against the chain before touching the database
+        long expectedSeq = position.seq();
+        long previousChecksum = position.checksum();
+        for (ReplicationChange change : changes) {
+            if (expectedSeq > 0 && change.seq() <= expectedSeq) {
+                fail(State.DIVERGED, "Out-of-order change seq " + change.seq() + " after " + expectedSeq);
+                return;
+            }
+            if (!change.verifies(previousChecksum)) {
+                fail(State.DIVERGED, "Checksum mismatch at seq " + change.seq());
+                return;
+            }
+            expectedSeq = change.seq();
+            previousChecksum = change.checksum();
+        }
+        
+        state = State.STREAMING;
+        Position applied = replicationLog.apply(changes);
+        synchronized (positionMonitor) {
+            position = applied;
+            positionMonitor.notifyAll();
+        }
+        logger.debug("Applied {} replicated changes up to seq {}", changes.size(), applied.seq());
+    }
+
+    private Position restoreSnapshot() throws IOException, InterruptedException {
+        Path file = Files.createTempFile("replication-bootstrap-", ".db");
+        try {
+            long start = System.nanoTime();
+            HttpResponse<Path> response = client.send(request("/replication/snapshot"),
+                    HttpResponse.BodyHandlers.ofFile(file));
+            if (response.statusCode() != 200) {
+                throw new IOException("Snapshot request failed with HTTP " + response.statusCode());
+            }
+            Position restored = replicationLog.restoreFrom(file);
+            replicationLog.disableCapture();
+            logger.info("Bootstrapped from leader snapshot ({} bytes) at seq {} in {} ms", Files.size(file),
+                    restored.seq(), (System.nanoTime() - start) / 1_000_000);
+            return restored;
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private String get(String path) throws IOException, InterruptedException {
+        HttpResponse<String> response = send(path);
+        if (response.statusCode() != 200) {
+            throw new IOException("GET " + path + " returned HTTP " + response.statusCode());
+        }
+        return response.body();
+    }
+
+    private HttpResponse<String> send(String path) throws IOException, InterruptedException {
+        return client.send(request(path), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest request(String path) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(leaderUrl + path)).timeout(REQUEST_TIMEOUT).GET();
+        if (adminToken != null && !adminToken.isEmpty()) {
+            builder.header("Authorization", "Bearer " + adminToken);
+        }
+        return builder.build();
+    }
+
+    private static String epochOf(JsonObject response) {
+        return response.has("epoch") && !response.get("epoch").isJsonNull() ? response.get("epoch").getAsString() : null;
+    }
+
+    private void fail(State failure, String message) {
+        logger.error("Replication stopped: {}", message);
+        state = failure;
+        lastError = message;
+    }
+}
@@ -0,0 +1,131 @@
+package com.hashim.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hashim.model.ReplicationChange;
+import com.hashim.repository.ReplicationLog;
+
+/**
+ * Leader side of replication: captures every committed write into the change
+ * log and serves it, in seq order with chained checksums, to followers. The
+ * log is pruned to a fixed number of entries; followers that fall further
+ * behind bootstrap again from a full snapshot, as do followers of an earlier
+ * epoch (see {@link ReplicationLog}), whose positions mean nothing after a
+ * backup restore.
+ */
+public class ReplicationLeader {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicationLeader.class);
+    private static final long PRUNE_INTERVAL_SECONDS = 60;
+
+    private final ReplicationLog replicationLog;
+    private final long retention;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "replication-prune");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * A page of the change stream. {@code snapshotRequired} is set when entries
+     * after the requested position have already been pruned, or the position
+     * is from another epoch.
+     */
+    public record ChangeBatch(String epoch, long oldestSeq, long lastSeq, boolean snapshotRequired,
+                              List<ReplicationChange> changes) {
+    }
+
+    public ReplicationLeader(ReplicationLog replicationLog, long retention) {
+        this.replicationLog = replicationLog;
+        this.retention = retention;
+    }
+
+    public void start() {
+        replicationLog.installTriggers();
+        scheduler.scheduleWithFixedDelay(this::prune, PRUNE_INTERVAL_SECONDS, PRUNE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        logger.info("Replication leader started (retaining {} log entries)", retention);
+    }
+
+    /**
+     * @param epoch The epoch {@code afterSeq} belongs to; not checked when null
+     */
+    public ChangeBatch changes(long afterSeq, int limit, String epoch) {
+        String current = replicationLog.epoch();
+        long[] bounds = replicationLog.bounds();
+        if (afterSeq < bounds[0] - 1 || epoch != null && !epoch.equals(current)) {
+            return new ChangeBatch(current, bounds[0], bounds[1], true, List.of());
+        }
+        List<ReplicationChange> changes = replicationLog.readChanges(afterSeq, limit);
+        return new ChangeBatch(current, bounds[0], bounds[1], false, changes);
+    }
+
+    /**
+     * Called after a backup restore has replaced the database, which then has
+     * a new id and so starts a new epoch. The capture triggers are installed
+     * again, since the backup may have been taken without them.
+     */
+    public void onRestore() {
+        replicationLog.installTriggers();
+        logger.info("Replication epoch is now {}; followers of the previous one need a new snapshot",
+                replicationLog.epoch());
+    }
+
+    /**
+     * Writes a consistent copy of the database to a temporary file. The caller
+     * deletes it once sent.
+     */
+    public Path snapshot() {
+        try {
+            Path target = Files.createTempFile("replication-snapshot-", ".db");
+            // VACUUM INTO refuses to overwrite an existing file
+            Files.delete(target);
+            long start = System.nanoTime();
+            replicationLog.snapshotTo(target);
+            logger.info("Wrote replication snapshot ({} bytes) in {} ms", Files.size(target),
+                    (System.nanoTime() - start) / 1_000_000);
+            return target;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create replication snapshot", e);
+        }
+    }
+
+    /**
+     * The newest seq in the log; returned to writers as a read-your-writes token.
+     */
+    public long lastSeq() {
+        return replicationLog.bounds()[1];
+    }
+
+    public Map<String, Object> getStatus() {
+        long[] bounds = replicationLog.bounds();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("role", "leader");
+        status.put("epoch", replicationLog.epoch());
+        status.put("oldestSeq", bounds[0]);
+        status.put("lastSeq", bounds[1]);
+        status.put("retention", retention);
+        return status;
+    }
+
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void prune() {
+        try {
+            replicationLog.prune(retention);
+        } catch (RuntimeException e) {
+            logger.error("Replication log pruning failed", e);
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.hashim.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hashim.dto.SavedSearchRequest;
+import com.hashim.exception.NotFoundException;
+import com.hashim.exception.ValidationException;
+import com.hashim.index.BookmarkMatcher;
+import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkFilter;
+import com.hashim.model.BookmarkStatus;
+import com.hashim.model.SavedSearch;
+import com.hashim.repository.BookmarkChangeListener;
+import com.hashim.repository.BookmarkQueryRepository;
+import com.hashim.repository.BookmarkRepository;
+import com.hashim.repository.SavedSearchRepository;
+import com.hashim.util.Tracer;
+import com.hashim.util.ValidationUtils;
+
+/**
+ * Saved searches with materialized results. A search is evaluated against the
+ * whole table once, when it is created; after that every committed write is
+ * evaluated against each saved search with {@link BookmarkMatcher} and the
+ * bookmark's result rows are replaced, so reading a saved search never runs
+ * its filter.
+ *
+ * <p>That maintenance runs off the write path, on a single thread: written ids
+ * are collected (a bookmark written repeatedly is evaluated once) and evaluated
+ * in batches against the rows as committed when the batch runs. A callback that
+ * arrives late therefore cannot put back an older state of the bookmark.
+ * Reading results waits for the writes made before it.
+ *
+ * <p>Results only cover the hot tier (archived bookmarks leave them and come
+ * back when restored). After changes made behind the application's back,
+ * {@link #refresh} rebuilds a search's results; restoring a backup rebuilds
+ * all of them through {@link #refreshAll}.
+ */
+public class SavedSearchService implements BookmarkChangeListener, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(SavedSearchService.class);
+    private static final int NAME_MAX_LENGTH = 100;
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 1000;
+    private static final int MAINTENANCE_BATCH_SIZE = 500;
+
+    private final SavedSearchRepository savedSearchRepository;
+    private final BookmarkRepository bookmarkRepository;
+    private final BookmarkQueryRepository queryRepository;
+    // Optional; queued status changes are written before results that depend on them are read
+    private final StatusWriteBehind statusWriteBehind;
+    private final List<SavedSearch> searches = new CopyOnWriteArrayList<>();
+
+    // Bookmarks written while a search is being materialized, re-evaluated once it is
+    private volatile boolean materializing;
+    private final Set<Long> changedWhileMaterializing = ConcurrentHashMap.newKeySet();
+
+    // Bookmarks whose results are to be re-evaluated, and whether a drain is queued for them
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean drainQueued = new AtomicBoolean();
+    // Marked bookmarks not evaluated yet, including those in the batch being evaluated
+    private final AtomicInteger unevaluated = new AtomicInteger();
+    private final ExecutorService maintenance;
+
+    public SavedSearchService(SavedSearchRepository savedSearchRepository, BookmarkRepository bookmarkRepository,
+                              BookmarkQueryRepository queryRepository, StatusWriteBehind statusWriteBehind) {
+        this.savedSearchRepository = savedSearchRepository;
+        this.bookmarkRepository = bookmarkRepository;
+        this.queryRepository = queryRepository;
+        this.statusWriteBehind = statusWriteBehind;
+        this.maintenance = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "saved-search-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void load() {
+        searches.addAll(savedSearchRepository.findAll());
+        logger.info("Loaded {} saved searches", searches.size());
+    }
+
+    public synchronized Map<String, Object> create(SavedSearchRequest request) {
+        try (Tracer.Span span = Tracer.span(Tracer.Layer.SERVICE, "createSavedSearch")) {
+            String name = request.getName() != null ? request.getName().trim() : "";
+            if (name.isEmpty()) {
+                throw new ValidationException("Name cannot be empty");
+            }
+            if (name.length() > NAME_MAX_LENGTH) {
+                throw new ValidationException("Name cannot exceed " + NAME_MAX_LENGTH + " characters");
+            }
+            BookmarkFilter filter = new BookmarkFilter(
+                    request.getQ() != null && !request.getQ().trim().isEmpty() ? request.getQ() : null,
+                    parseStatus(request.getStatus()), normalizeTerms(request.getTags()),
+                    normalizeTerms(request.getExcludeTags()), normalizeTerms(request.getDomains()));
+            String sortBy = request.getSort() != null ? request.getSort().toLowerCase() : "created_at";
+            if (!sortBy.equals("created_at") && !sortBy.equals("updated_at") && !sortBy.equals("title")) {
+                throw new ValidationException("Sort field must be one of: created_at, updated_at, title");
+            }
+            String order = request.getOrder() != null ? request.getOrder().toLowerCase() : "asc";
+            if (!order.equals("asc") && !order.equals("desc")) {
+                throw new ValidationException("Order must be asc or desc");
+            }
+
+            SavedSearch search = savedSearchRepository.create(
+                    new SavedSearch(null, name, filter, sortBy, order, LocalDateTime.now()))
+                    .orElseThrow(() -> new ValidationException("A saved search named " + name + " already exists"));
+            // Registered first, so writes during the initial scan are not missed
+            searches.add(search);
+            materialize(search);
+            return describe(search);
+        }
+    }
+
+    public List<Map<String, Object>> list() {
+        return searches.stream().map(this::describe).toList();
+    }
+
+    public Map<String, Object> get(Long id) {
+        return describe(find(id));
+    }
+
+    /**
+     * Deletes a search and its results. Runs on the maintenance thread, so a
+     * batch evaluated against the search before it was removed cannot store
+     * results for it afterwards.
+     */
+    public synchronized void delete(Long id) {
+        SavedSearch search = find(id);
+        try {
+            maintenance.submit(() -> {
+                searches.remove(search);
+                savedSearchRepository.delete(id);
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while deleting saved search", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause
+                    : new RuntimeException("Failed to delete saved search", e.getCause());
+        }
+    }
+
+    /**
+     * Rebuilds a search's results from the table.
+     */
+    public synchronized Map<String, Object> refresh(Long id) {
+        SavedSearch search = find(id);
+        materialize(search);
+        return describe(search);
+    }
+
+    /**
+     * Rebuilds the results of every search, after the table was replaced.
+     */
+    public synchronized void refreshAll() {
+        for (SavedSearch search : searches) {
+            materialize(search);
+        }
+    }
+
+    /**
+     * A page of a saved search's results, in its sort order.
+     */
+    public Map<String, Object> getResults(Long id, Integer limit, Integer offset) {
+        try (Tracer.Span span = Tracer.span(Tracer.Layer.SERVICE, "getSavedSearchResults")) {
+            SavedSearch search = find(id);
+            ValidationUtils.validatePositive(limit, "limit");
+            ValidationUtils.validateNonNegative(offset, "offset");
+            int actualLimit = limit != null ? Math.min(limit, MAX_LIMIT) : DEFAULT_LIMIT;
+            int actualOffset = offset != null ? offset : 0;
+
+            // Queued status changes reach the results only once written
+            if (statusWriteBehind != null && statusWriteBehind.pendingCount() > 0
+                    && (search.filter().status() != null || "updated_at".equals(search.sortBy()))) {
+                statusWriteBehind.flush();
+            }
+            awaitMaintenance();
+            List<Bookmark> bookmarks = queryRepository.findSavedSearchResults(id, search.descending(),
+                    actualLimit, actualOffset);
+            if (statusWriteBehind != null && statusWriteBehind.pendingCount() > 0) {
+                bookmarks.forEach(statusWriteBehind::applyPending);
+            }
+
+            Map<String, Object> results = describe(search);
+            results.put("limit", actualLimit);
+            results.put("offset", actualOffset);
+            results.put("bookmarks", bookmarks);
+            return results;
+        }
+    }
+
+    @Override
+    public void onCreated(Bookmark bookmark) {
+        markChanged(bookmark.getId());
+    }
+
+    @Override
+    public void onUpdated(Bookmark bookmark) {
+        markChanged(bookmark.getId());
+    }
+
+    @Override
+    public void onStatusChanged(Long id, BookmarkStatus status, LocalDateTime updatedAt, long version) {
+        markChanged(id);
+    }
+
+    @Override
+    public void onDeleted(Long id, long version) {
+        markChanged(id);
+    }
+
+    /**
+     * Evaluates the remaining changes and stops the maintenance thread.
+     */
+    @Override
+    public void close() {
+        maintenance.shutdown();
+        try {
+            maintenance.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void markChanged(Long id) {
+        if (materializing) {
+            changedWhileMaterializing.add(id);
+        }
+        if (searches.isEmpty()) {
+            return;
+        }
+        if (changed.add(id)) {
+            unevaluated.incrementAndGet();
+        }
+        if (drainQueued.compareAndSet(false, true)) {
+            try {
+                maintenance.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // Shutting down; refresh rebuilds results missed here
+                logger.warn("Saved search maintenance stopped, results of bookmark {} not updated", id);
+            }
+        }
+    }
+
+    private void drain() {
+        // Cleared first: an id added from here on queues another drain
+        drainQueued.set(false);
+        while (!changed.isEmpty()) {
+            List<Long> batch = new ArrayList<>(MAINTENANCE_BATCH_SIZE);
+            Iterator<Long> ids = changed.iterator();
+            while (ids.hasNext() && batch.size() < MAINTENANCE_BATCH_SIZE) {
+                batch.add(ids.next());
+                ids.remove();
+            }
+            try {
+                evaluate(batch);
+            } catch (RuntimeException e) {
+                logger.error("Error updating saved search results of {} bookmarks (refresh rebuilds them)",
+                        batch.size(), e);
+            } finally {
+                unevaluated.addAndGet(-batch.size());
+            }
+        }
+    }
+
+    /**
+     * Waits until the changes marked so far have been evaluated. The drain that
+     * covers them is queued ahead of the marker task.
+     */
+    private void awaitMaintenance() {
+        if (unevaluated.get() == 0) {
+            return;
+        }
+        try {
+            maintenance.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to wait for saved search maintenance", e);
+        }
+    }
+
+    private void evaluate(List<Long> ids) {
+        // Ids that are no longer in the table (deleted or archived) match nothing
+        Map<Long, Map<Long, String>> memberships = new LinkedHashMap<>();
+        for (Long id : ids) {
+            memberships.put(id, Map.of());
+        }
+        for (Bookmark bookmark : bookmarkRepository.findByIds(ids)) {
+            Map<Long, String> matches = new HashMap<>();
+            for (SavedSearch search : searches) {
+                if (BookmarkMatcher.matches(search.filter(), bookmark)) {
+                    matches.put(search.id(), search.sortKey(bookmark));
+                }
+            }
+            memberships.put(bookmark.getId(), matches);
+        }
+        savedSearchRepository.replaceMemberships(memberships);
+    }
+
+    /**
+     * Evaluates a search against every bookmark and stores the matches. Rows
+     * written meanwhile may have been read before the write; they are
+     * evaluated again afterwards.
+     */
+    private void materialize(SavedSearch search) {
+        long start = System.nanoTime();
+        changedWhileMaterializing.clear();
+        materializing = true;
+        try {
+            Map<Long, String> results = new HashMap<>();
+            bookmarkRepository.forEach(bookmark -> {
+                if (BookmarkMatcher.matches(search.filter(), bookmark)) {
+                    results.put(bookmark.getId(), search.sortKey(bookmark));
+                }
+            });
+            savedSearchRepository.replaceResults(search.id(), results);
+            logger.info("Materialized saved search {} ({} results in {} ms)", search.name(), results.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            materializing = false;
+        }
+        changedWhileMaterializing.forEach(this::markChanged);
+        changedWhileMaterializing.clear();
+    }
+
+    private SavedSearch find(Long id) {
+        for (SavedSearch search : searches) {
+            if (search.id().equals(id)) {
+                return search;
+            }
+        }
+        throw new NotFoundException("Saved search not found with id: " + id);
+    }
+
+    private Map<String, Object> describe(SavedSearch search) {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("id", search.id());
+        description.put("name", search.name());
+        description.put("filter", search.filter());
+        description.put("sort", search.sortBy());
+        description.put("order", search.order());
+        description.put("createdAt", search.createdAt());
+        description.put("total", savedSearchRepository.countResults(search.id()));
+        return description;
+    }
+
+    private static BookmarkStatus parseStatus(String status) {
+        if (status == null || status.trim().isEmpty()) {
+            return null;
+        }
+        ValidationUtils.validateStatus(status);
+        return BookmarkStatus.valueOf(status.trim().toUpperCase());
+    }
+
+    private static List<String> normalizeTerms(List<String> terms) {
+        if (terms == null) {
+            return List.of();
+        }
+        return terms.stream()
+                .filter(term -> term != null && !term.trim().isEmpty())
+                .map(String::trim)
+                .distinct()
+                .toList();
+    }
+}
@@ -0,0 +1,268 @@
+package com.hashim.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkStatus;
+import com.hashim.repository.BookmarkChangeListener;
+import com.hashim.repository.BookmarkRepository;
+import com.hashim.repository.BookmarkSnapshot;
+import com.hashim.repository.DatabaseInitializer;
+import com.hashim.repository.WarmStart;
+
+/**
+ * Keeps a {@link BookmarkSnapshot} of all bookmarks on disk and warms the
+ * in-memory indexes from it at startup.
+ *
+ * <p>Between {@link #beginWarmStart()} and {@link #endWarmStart()} the
+ * repository streams rows from the mapped snapshot, reconciled with the table
+ * (see {@link WarmStart}). The snapshot is rewritten in the background when
+ * bookmarks have changed since it was last written, and can be downloaded as
+ * an export.
+ *
+ * <p>A snapshot records the id of the database it was written from and is only
+ * used for warm starts of that database. After the database is restored from a
+ * copy (which gives it a new id), {@link #invalidate()} drops the file.
+ */
+public class SnapshotService implements BookmarkChangeListener, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotService.class);
+
+    private final BookmarkRepository bookmarkRepository;
+    private final DatabaseInitializer databaseInitializer;
+    private final Path path;
+    private final double maxStaleShare;
+    private final ScheduledExecutorService scheduler;
+    // Set by every change; a write clears it before reading, so changes during a write are kept
+    private volatile boolean dirty = true;
+    private WarmStart warmStart;
+
+    // Outcome of the warm start and the most recent write
+    private final Object metricsLock = new Object();
+    private Map<String, Object> lastWarmStart = Map.of();
+    private BookmarkSnapshot.Info lastWrite;
+    private long lastWriteDurationMs;
+    private long writes;
+    private long writesFailed;
+
+    /**
+     * @param maxStalePercent Share of rows that may differ between snapshot and
+     *        table for the snapshot still to be used at startup
+     */
+    public SnapshotService(BookmarkRepository bookmarkRepository, DatabaseInitializer databaseInitializer, Path path,
+                           int maxStalePercent) {
+        this.bookmarkRepository = bookmarkRepository;
+        this.databaseInitializer = databaseInitializer;
+        this.path = path;
+        this.maxStaleShare = maxStalePercent / 100.0;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Maps the snapshot and, if it is usable, serves the repository's row
+     * streams from it until {@link #endWarmStart()}. A missing, corrupt or
+     * too stale snapshot, or one written from another database, leaves the
+     * repository reading the table.
+     */
+    public void beginWarmStart() {
+        long start = System.nanoTime();
+        Map<String, Object> outcome = new LinkedHashMap<>();
+        try {
+            BookmarkSnapshot snapshot = BookmarkSnapshot.open(path);
+            // Versions only identify rows within one database's history
+            String databaseId = databaseInitializer.getDatabaseId();
+            if (databaseId == null || !databaseId.equals(snapshot.getInfo().databaseId())) {
+                throw new IOException("written from database " + snapshot.getInfo().databaseId()
+                        + ", this is " + databaseId);
+            }
+            WarmStart candidate = new WarmStart(snapshot);
+            bookmarkRepository.addChangeListener(candidate);
+            WarmStart.Reconciliation reconciliation = candidate.reconcile(bookmarkRepository, maxStaleShare);
+            outcome.put("snapshot", toMap(snapshot.getInfo()));
+            if (reconciliation == null) {
+                candidate.release();
+                outcome.put("used", false);
+                outcome.put("reason", "too stale");
+            } else {
+                warmStart = candidate;
+                bookmarkRepository.setWarmStart(candidate);
+                dirty = reconciliation.differences() > 0;
+                outcome.put("used", true);
+                outcome.put("reconciliation", reconciliation.toMap());
+                logger.info("Warm start from snapshot {}: {} rows, {} added, {} changed, {} removed since it was " +
+                        "written ({} ms)", path, reconciliation.snapshotRows(), reconciliation.added(),
+                        reconciliation.changed(), reconciliation.removed(), reconciliation.durationMs());
+            }
+        } catch (NoSuchFileException e) {
+            outcome.put("used", false);
+            outcome.put("reason", "no snapshot");
+            logger.info("No snapshot at {}; indexes are built from the table", path);
+        } catch (IOException e) {
+            outcome.put("used", false);
+            outcome.put("reason", e.getMessage());
+            logger.warn("Ignoring unusable snapshot {}: {}", path, e.getMessage());
+        }
+        outcome.put("durationMs", (System.nanoTime() - start) / 1_000_000);
+        synchronized (metricsLock) {
+            lastWarmStart = outcome;
+        }
+    }
+
+    /**
+     * Switches the repository back to the table once the indexes are built,
+     * and writes a fresh snapshot in the background if this one was behind.
+     */
+    public void endWarmStart() {
+        if (warmStart != null) {
+            bookmarkRepository.setWarmStart(null);
+            warmStart.release();
+            warmStart = null;
+        }
+        if (dirty) {
+            scheduler.execute(this::writeIfChanged);
+        }
+    }
+
+    /**
+     * Schedules background rewrites. An interval of zero only writes after startup and on demand.
+     */
+    public void start(long intervalMinutes) {
+        if (intervalMinutes > 0) {
+            scheduler.scheduleWithFixedDelay(this::writeIfChanged, intervalMinutes, intervalMinutes,
+                    TimeUnit.MINUTES);
+        }
+        logger.info("Bookmark snapshots enabled (path: {}, interval: {} min)", path, intervalMinutes);
+    }
+
+    /**
+     * Writes the snapshot now, replacing the previous one atomically.
+     */
+    public synchronized Map<String, Object> write() {
+        long start = System.nanoTime();
+        dirty = false;
+        try {
+            BookmarkSnapshot.Info info = BookmarkSnapshot.write(path, databaseInitializer.getDatabaseId(),
+                    bookmarkRepository::forEach);
+            long durationMs = (System.nanoTime() - start) / 1_000_000;
+            synchronized (metricsLock) {
+                lastWrite = info;
+                lastWriteDurationMs = durationMs;
+                writes++;
+            }
+            logger.info("Snapshot {} written: {} rows, {} bytes in {} ms", path, info.rows(), info.bytes(),
+                    durationMs);
+            return getStatus();
+        } catch (IOException | RuntimeException e) {
+            dirty = true;
+            synchronized (metricsLock) {
+                writesFailed++;
+            }
+            logger.error("Error writing snapshot {}", path, e);
+            throw new RuntimeException("Failed to write snapshot", e);
+        }
+    }
+
+    /**
+     * Deletes the snapshot file after the database's contents were replaced, so
+     * it is neither exported nor used for a warm start, and writes a new one in
+     * the background.
+     */
+    public synchronized void invalidate() {
+        dirty = true;
+        try {
+            if (Files.deleteIfExists(path)) {
+                logger.info("Snapshot {} deleted: the database was restored", path);
+            }
+        } catch (IOException e) {
+            // Not used for a warm start either way: the database id no longer matches
+            logger.warn("Error deleting snapshot {}", path, e);
+        }
+        synchronized (metricsLock) {
+            lastWrite = null;
+        }
+        scheduler.execute(this::writeIfChanged);
+    }
+
+    /**
+     * The snapshot file for export, or null if none has been written.
+     */
+    public Path getFile() {
+        return Files.exists(path) ? path : null;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("path", path.toString());
+        status.put("changedSinceWrite", dirty);
+        synchronized (metricsLock) {
+            status.put("lastWrite", lastWrite != null ? toMap(lastWrite) : null);
+            status.put("lastWriteDurationMs", lastWriteDurationMs);
+            status.put("writes", writes);
+            status.put("writesFailed", writesFailed);
+            status.put("warmStart", lastWarmStart);
+        }
+        return status;
+    }
+
+    @Override
+    public void onCreated(Bookmark bookmark) {
+        dirty = true;
+    }
+
+    @Override
+    public void onUpdated(Bookmark bookmark) {
+        dirty = true;
+    }
+
+    @Override
+    public void onStatusChanged(Long id, BookmarkStatus status, LocalDateTime updatedAt, long version) {
+        dirty = true;
+    }
+
+    @Override
+    public void onDeleted(Long id, long version) {
+        dirty = true;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void writeIfChanged() {
+        if (!dirty) {
+            return;
+        }
+        try {
+            write();
+        } catch (RuntimeException e) {
+            // Logged by write(); retried at the next interval
+        }
+    }
+
+    private static Map<String, Object> toMap(BookmarkSnapshot.Info info) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("rows", info.rows());
+        map.put("maxId", info.maxId());
+        map.put("blocks", info.blocks());
+        map.put("bytes", info.bytes());
+        map.put("writtenAt", info.writtenAt().toString());
+        map.put("databaseId", info.databaseId());
+        return map;
+    }
+}
@@ -0,0 +1,351 @@
+package com.hashim.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkStatus;
+import com.hashim.repository.BookmarkRepository;
+
+/**
+ * Write-behind path for status changes.
+ * Each change is appended to a local journal and fsync'ed before it is acknowledged.
+ * Repeated changes to the same bookmark are coalesced in memory and flushed to the
+ * database in a single batched transaction on a short interval. On startup any
+ * journal left behind by a crash is replayed before new changes are accepted.
+ */
+public class StatusWriteBehind implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(StatusWriteBehind.class);
+    
+    private final BookmarkRepository bookmarkRepository;
+    private final Path journalPath;
+    private final long flushIntervalMs;
+    private final ScheduledExecutorService scheduler;
+    
+    // Guards pending and inFlight; never held across file I/O, so reads don't wait for an fsync
+    private final Object lock = new Object();
+    // Guards the journal channel and file; taken before lock, so a compaction
+    // never misses a change that is in the journal but not yet in pending
+    private final Object journalLock = new Object();
+    // Serializes flushes so batches reach the database in acknowledgement order
+    private final Object flushLock = new Object();
+    // Shared by a lookup and the enqueue that follows it, exclusive while hot rows are moved away
+    private final ReadWriteLock rowGuard = new ReentrantReadWriteLock();
+    private Map<Long, PendingStatus> pending = new LinkedHashMap<>();
+    // The batch being written by the current flush; still overlaid on reads until it has committed
+    private Map<Long, PendingStatus> inFlight = Map.of();
+    private FileChannel journal;
+
+    public StatusWriteBehind(BookmarkRepository bookmarkRepository, Path journalPath, long flushIntervalMs) {
+        this.bookmarkRepository = bookmarkRepository;
+        this.journalPath = journalPath;
+        this.flushIntervalMs = flushIntervalMs;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "status-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Replays any journal left from a previous run and starts the periodic flush.
+     */
+    public void start() {
+        recover();
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        logger.info("Status write-behind enabled (journal: {}, flush interval: {} ms)", journalPath, flushIntervalMs);
+    }
+
+    /**
+     * Durably records a status change. Returns once the change is in the journal.
+     *
+     * @param id The bookmark id
+     * @param status The new status
+     * @return The timestamp recorded as the bookmark's updated_at
+     */
+    public LocalDateTime enqueue(Long id, BookmarkStatus status) {
+        LocalDateTime now = LocalDateTime.now();
+        PendingStatus change = new PendingStatus(status, now);
+        
+        synchronized (journalLock) {
+            try {
+                appendToJournal(id, change);
+            } catch (IOException e) {
+                logger.error("Error appending status change for bookmark {} to journal", id, e);
+                throw new RuntimeException("Failed to record status change", e);
+            }
+            synchronized (lock) {
+                pending.put(id, change);
+            }
+        }
+        return now;
+    }
+
+    /**
+     * Overlays a not-yet-flushed status change onto a bookmark read from the database.
+     * The version is cleared in that case: the flush assigns the one this state gets,
+     * so the stored version no longer identifies the representation.
+     */
+    public Bookmark applyPending(Bookmark bookmark) {
+        PendingStatus change;
+        synchronized (lock) {
+            change = pending.get(bookmark.getId());
+            if (change == null) {
+                change = inFlight.get(bookmark.getId());
+            }
+        }
+        if (change != null) {
+            bookmark.setStatus(change.status());
+            bookmark.setUpdatedAt(change.updatedAt());
+            bookmark.setVersion(null);
+        }
+        return bookmark;
+    }
+
+    /**
+     * Whether a status change for the bookmark has not been committed yet.
+     */
+    public boolean hasPending(Long id) {
+        synchronized (lock) {
+            return pending.containsKey(id) || inFlight.containsKey(id);
+        }
+    }
+
+    /**
+     * Writes all pending changes to the database in one transaction and compacts the journal.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            Map<Long, PendingStatus> batch;
+            synchronized (lock) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                inFlight = batch;
+                pending = new LinkedHashMap<>();
+            }
+            
+            Map<Long, BookmarkStatus> statuses = new LinkedHashMap<>();
+            Map<Long, LocalDateTime> timestamps = new LinkedHashMap<>();
+            batch.forEach((id, change) -> {
+                statuses.put(id, change.status());
+                timestamps.put(id, change.updatedAt());
+            });
+            
+            try {
+                bookmarkRepository.updateStatuses(statuses, timestamps);
+            } catch (RuntimeException e) {
+                // Keep the batch for the next attempt unless newer changes superseded it
+                synchronized (lock) {
+                    Map<Long, PendingStatus> restored = new LinkedHashMap<>(batch);
+                    restored.putAll(pending);
+                    pending = restored;
+                    inFlight = Map.of();
+                }
+                throw e;
+            }
+            
+            synchronized (lock) {
+                inFlight = Map.of();
+            }
+            synchronized (journalLock) {
+                try {
+                    rewriteJournal();
+                } catch (IOException e) {
+                    // The flushed entries stay in the journal; replaying them is idempotent
+                    logger.error("Error compacting status journal", e);
+                }
+            }
+            logger.debug("Flushed {} coalesced status changes", batch.size());
+        }
+    }
+
+    /**
+     * Runs a lookup and the {@link #enqueue} that depends on it without a hot row
+     * being moved away in between (see {@link #withChangesFlushed}).
+     */
+    public <T> T withRowsPinned(Supplier<T> action) {
+        rowGuard.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            rowGuard.readLock().unlock();
+        }
+    }
+
+    /**
+     * Flushes and then runs {@code action} while no new change can be enqueued through
+     * {@link #withRowsPinned}. For writes that move or remove hot rows: a change enqueued
+     * in between would otherwise be flushed against a row that no longer exists and be lost.
+     * Status changes wait for the duration, so {@code action} should be one short transaction.
+     */
+    public <T> T withChangesFlushed(Supplier<T> action) {
+        rowGuard.writeLock().lock();
+        try {
+            flush();
+            return action.get();
+        } finally {
+            rowGuard.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Changes not yet committed to the database, including a batch being flushed.
+     */
+    public int pendingCount() {
+        synchronized (lock) {
+            return pending.size() + inFlight.size();
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+        synchronized (journalLock) {
+            closeJournal();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.error("Error flushing status changes, will retry", e);
+        }
+    }
+
+    private void recover() {
+        if (Files.exists(journalPath)) {
+            int replayed = 0;
+            try (BufferedReader reader = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(" ");
+                    if (parts.length != 3) {
+                        // A torn last line means the change was never acknowledged
+                        logger.warn("Skipping malformed status journal entry: {}", line);
+                        continue;
+                    }
+                    try {
+                        pending.put(Long.parseLong(parts[0]),
+                                new PendingStatus(BookmarkStatus.valueOf(parts[1]), LocalDateTime.parse(parts[2])));
+                        replayed++;
+                    } catch (RuntimeException e) {
+                        logger.warn("Skipping malformed status journal entry: {}", line);
+                    }
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read status journal " + journalPath, e);
+            }
+            logger.info("Replaying {} status changes from journal", replayed);
+        }
+        
+        synchronized (journalLock) {
+            try {
+                openJournal();
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to open status journal " + journalPath, e);
+            }
+        }
+        flush();
+    }
+
+    private void appendToJournal(Long id, PendingStatus change) throws IOException {
+        String line = id + " " + change.status().name() + " " + change.updatedAt() + "\n";
+        ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            journal.write(buffer);
+        }
+        journal.force(false);
+    }
+
+    private void rewriteJournal() throws IOException {
+        // Write the remaining entries to a new file and swap it in atomically,
+        // so a crash never leaves a journal missing acknowledged changes
+        Path tempPath = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+        try (FileChannel temp = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            StringBuilder content = new StringBuilder();
+            synchronized (lock) {
+                pending.forEach((id, change) ->
+                        content.append(id).append(' ').append(change.status().name())
+                               .append(' ').append(change.updatedAt()).append('\n'));
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                temp.write(buffer);
+            }
+            temp.force(true);
+        }
+        
+        closeJournal();
+        Files.move(tempPath, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        openJournal();
+        // The rename is only durable once the directory entry is; until then a
+        // crash can bring back the old journal, or lose the file altogether
+        forceDirectory(journalPath.toAbsolutePath().getParent());
+    }
+
+    private static void forceDirectory(Path directory) throws IOException {
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Some platforms (Windows) cannot open a directory; renames are durable there
+            if (Files.isDirectory(directory) && !System.getProperty("os.name", "").startsWith("Windows")) {
+                throw e;
+            }
+        }
+    }
+
+    private void openJournal() throws IOException {
+        Path parent = journalPath.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        journal = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                logger.warn("Error closing status journal", e);
+            }
+            journal = null;
+        }
+    }
+
+    private record PendingStatus(BookmarkStatus status, LocalDateTime updatedAt) {
+    }
+}
@@ -0,0 +1,128 @@
+package com.hashim.service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hashim.repository.ArchiveRepository;
+
+/**
+ * Moves DONE bookmarks that have not been updated for {@code ageDays} to the
+ * archive tier. Each run works in batches of {@code batchSize} rows, one short
+ * transaction each, pausing between them so request writes are not held off
+ * for the length of the whole run.
+ */
+public class TieringService implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(TieringService.class);
+
+    private final ArchiveRepository archiveRepository;
+    // Optional; queued status changes are written before rows are moved, and held off while they are
+    private final StatusWriteBehind statusWriteBehind;
+    private final int ageDays;
+    private final int batchSize;
+    private final long batchPauseMs;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    public TieringService(ArchiveRepository archiveRepository, StatusWriteBehind statusWriteBehind,
+                          int ageDays, int batchSize, long batchPauseMs) {
+        this.archiveRepository = archiveRepository;
+        this.statusWriteBehind = statusWriteBehind;
+        this.ageDays = ageDays;
+        this.batchSize = batchSize;
+        this.batchPauseMs = batchPauseMs;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "tiering");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts archiving every {@code intervalMinutes}, the first run one interval after startup.
+     */
+    public void start(long intervalMinutes) {
+        scheduler.scheduleWithFixedDelay(this::runScheduled, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+        logger.info("Archiving DONE bookmarks older than {} days every {} min (batches of {})",
+                ageDays, intervalMinutes, batchSize);
+    }
+
+    /**
+     * Archives all eligible bookmarks now.
+     *
+     * @return Batches, rows moved and timings of the run
+     */
+    public synchronized Map<String, Object> runNow() {
+        Map<String, Object> run = new LinkedHashMap<>();
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(ageDays);
+        run.put("startedAt", LocalDateTime.now());
+        run.put("cutoff", cutoff);
+        long start = System.nanoTime();
+
+        int batches = 0;
+        long moved = 0;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                // The batch update only touches hot rows; a queued change must land first,
+                // and none may be enqueued for a row while it is being moved
+                int count = statusWriteBehind != null
+                        ? statusWriteBehind.withChangesFlushed(() -> archiveRepository.archiveBatch(cutoff, batchSize))
+                        : archiveRepository.archiveBatch(cutoff, batchSize);
+                if (count == 0) {
+                    break;
+                }
+                batches++;
+                moved += count;
+                if (count < batchSize) {
+                    break;
+                }
+                Thread.sleep(batchPauseMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.put("error", "interrupted");
+        } catch (RuntimeException e) {
+            logger.error("Archiving failed after {} batches", batches, e);
+            run.put("error", e.getMessage());
+        }
+
+        run.put("batches", batches);
+        run.put("archived", moved);
+        run.put("totalMs", (System.nanoTime() - start) / 1_000_000);
+        if (moved > 0) {
+            logger.info("Archived {} bookmarks in {} batches ({} ms)", moved, batches, run.get("totalMs"));
+        }
+
+        lastRun = run;
+        return run;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("ageDays", ageDays);
+        status.put("batchSize", batchSize);
+        status.putAll(archiveRepository.getStats());
+        status.put("lastRun", lastRun);
+        return status;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void runScheduled() {
+        try {
+            runNow();
+        } catch (RuntimeException e) {
+            logger.error("Scheduled archiving failed", e);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.hashim.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hashim.dto.CreateBookmarkRequest;
+import com.hashim.dto.ErrorResponse;
+import com.hashim.dto.UpdateBookmarkRequest;
+import com.hashim.dto.UpdateStatusRequest;
+import com.hashim.exception.NotFoundException;
+import com.hashim.exception.ValidationException;
+import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkField;
+import com.hashim.repository.BookmarkQueryRepository;
+import com.hashim.repository.BookmarkRepository;
+import com.hashim.repository.ColumnCodec;
+import com.hashim.repository.DatabaseInitializer;
+import com.hashim.repository.QueryInstrumentation;
+
+import io.javalin.json.JsonMapper;
+
+/**
+ * Replays a synthetic workload through {@link BookmarkService} and the JSON
+ * mapper after startup, so that class loading, JIT compilation of the request
+ * path, SQLite statement preparation and Gson's adapter cache are done before
+ * the instance reports ready.
+ *
+ * <p>The workload runs on its own throwaway database, with a service wired
+ * like the live one minus the optional indexes; the live data is never read
+ * or written. Each round creates, reads, lists, counts, updates, patches and
+ * deletes bookmarks and takes the validation and not-found paths, stopping
+ * after the configured number of rounds or time budget.
+ */
+public class WarmUpService {
+    private static final Logger logger = LoggerFactory.getLogger(WarmUpService.class);
+    // Bookmarks kept in the throwaway database so that listings return full pages
+    private static final int SEED_ROWS = 100;
+    private static final String[] STATUSES = {"INBOX", "DONE"};
+    private static final String[] SORTS = {"created_at", "updated_at", "title"};
+    private static final String[] TAGS = {"java", "jvm", "performance", "sqlite", "web"};
+
+    private final JsonMapper jsonMapper;
+    private final Set<String> compressedColumns;
+    private final int compressionMinLength;
+    private final int rounds;
+    private final long maxDurationMs;
+    private volatile Map<String, Object> result;
+
+    /**
+     * @param jsonMapper The live application's mapper, so that its adapters are the ones warmed
+     * @param rounds Rounds of the workload to run; zero skips the warm-up
+     * @param maxDurationMs Time budget, after which the warm-up stops early
+     */
+    public WarmUpService(JsonMapper jsonMapper, Set<String> compressedColumns, int compressionMinLength, int rounds,
+                         long maxDurationMs) {
+        this.jsonMapper = jsonMapper;
+        this.compressedColumns = compressedColumns;
+        this.compressionMinLength = compressionMinLength;
+        this.rounds = rounds;
+        this.maxDurationMs = maxDurationMs;
+    }
+
+    /**
+     * Runs the warm-up on a background thread; {@link #isReady()} turns true when it ends.
+     */
+    public void start() {
+        if (rounds <= 0) {
+            result = Map.of("skipped", true);
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                result = run();
+            } catch (RuntimeException e) {
+                // A failed warm-up only costs speed, so the instance still becomes ready
+                logger.error("Warm-up failed; serving without it", e);
+                result = Map.of("failed", e.toString());
+            }
+        }, "warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public boolean isReady() {
+        return result != null;
+    }
+
+    /**
+     * Timings of the finished warm-up, or null while it is running.
+     */
+    public Map<String, Object> getResult() {
+        return result;
+    }
+
+    private Map<String, Object> run() {
+        Path directory;
+        try {
+            directory = Files.createTempDirectory("bookmark-warm-up");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create the warm-up database", e);
+        }
+        try {
+            return run(createService(directory));
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    private Map<String, Object> run(BookmarkService service) {
+        long start = System.nanoTime();
+        long deadline = start + maxDurationMs * 1_000_000;
+        for (int i = 0; i < SEED_ROWS; i++) {
+            create(service, i);
+        }
+
+        long[] roundNanos = new long[rounds];
+        int completed = 0;
+        while (completed < rounds && System.nanoTime() < deadline) {
+            long roundStart = System.nanoTime();
+            round(service, completed);
+            roundNanos[completed++] = System.nanoTime() - roundStart;
+        }
+
+        long durationMs = (System.nanoTime() - start) / 1_000_000;
+        int tail = Math.max(1, completed / 10);
+        double firstRoundMs = completed > 0 ? roundNanos[0] / 1e6 : 0;
+        double lastRoundsMs = completed > 0
+                ? Arrays.stream(roundNanos, completed - tail, completed).average().orElse(0) / 1e6
+                : 0;
+        Map<String, Object> timings = new LinkedHashMap<>();
+        timings.put("rounds", completed);
+        timings.put("durationMs", durationMs);
+        timings.put("firstRoundMs", Math.round(firstRoundMs * 100) / 100.0);
+        timings.put("lastRoundsMs", Math.round(lastRoundsMs * 100) / 100.0);
+        timings.put("budgetExceeded", completed < rounds);
+        logger.info("Warm-up finished: {} rounds in {} ms; a round took {} ms at first and {} ms at the end{}",
+                completed, durationMs, timings.get("firstRoundMs"), timings.get("lastRoundsMs"),
+                completed < rounds ? " (stopped by the " + maxDurationMs + " ms budget)" : "");
+        return timings;
+    }
+
+    /**
+     * One pass over the request path, in the shapes the controllers use.
+     */
+    private void round(BookmarkService service, int round) {
+        Bookmark created = create(service, SEED_ROWS + round);
+        long id = created.getId();
+        toJson(service.getBookmarkById(id));
+
+        String status = STATUSES[round % STATUSES.length];
+        String tag = TAGS[round % TAGS.length];
+        String fields = round % 2 == 0 ? null : "id,title,url,tags,status";
+        BookmarkListing listing = service.listBookmarks(round % 3 == 0 ? "warm" : null, status, List.of(tag),
+                List.of(), round % 4 == 0 ? List.of("example.com") : List.of(), SORTS[round % SORTS.length],
+                round % 2 == 0 ? "asc" : "desc", 20, 0, fields);
+        listing.toJsonBytes(bookmarks -> jsonMapper.toJsonString(listing.getFields() != null
+                ? BookmarkField.project(bookmarks, listing.getFields()) : bookmarks, List.class));
+        BookmarkListing all = service.listBookmarks(null, null, null, null, null, null, null, null, null);
+        all.toJsonBytes(bookmarks -> jsonMapper.toJsonString(bookmarks, List.class));
+        toJson(Map.of("count", service.countBookmarks(null, status, List.of(tag), List.of(), List.of())));
+
+        UpdateBookmarkRequest update = jsonMapper.fromJsonString("{\"url\":\"https://example.com/warm/" + round +
+                "\",\"title\":\"Warm-up " + round + "\",\"tags\":\"" + tag + ",warm\",\"notes\":\"Updated during " +
+                "warm-up\",\"status\":\"" + status + "\"}", UpdateBookmarkRequest.class);
+        toJson(service.updateBookmark(id, update, created.getVersion()));
+        toJson(service.patchBookmark(id, Map.of("notes", "Patched during warm-up"), null));
+        UpdateStatusRequest statusRequest = jsonMapper.fromJsonString(
+                "{\"status\":\"" + STATUSES[(round + 1) % STATUSES.length] + "\"}", UpdateStatusRequest.class);
+        toJson(service.updateBookmarkStatus(id, statusRequest));
+
+        // Error paths, as rendered by the exception handlers
+        try {
+            service.createBookmark(new CreateBookmarkRequest("", "", null, null));
+        } catch (ValidationException e) {
+            toJson(new ErrorResponse("VALIDATION_ERROR", e.getMessage()));
+        }
+        try {
+            service.getBookmarkById(Long.MAX_VALUE);
+        } catch (NotFoundException e) {
+            toJson(new ErrorResponse("NOT_FOUND", e.getMessage()));
+        }
+
+        // Keep the table at its seeded size
+        service.deleteBookmark(id);
+    }
+
+    private Bookmark create(BookmarkService service, int n) {
+        CreateBookmarkRequest request = jsonMapper.fromJsonString("{\"url\":\"example.com/warm/" + n +
+                "\",\"title\":\"Warm-up bookmark " + n + "\",\"tags\":\"" + TAGS[n % TAGS.length] + "," +
+                TAGS[(n + 2) % TAGS.length] + "\",\"notes\":\"Synthetic bookmark written to warm up the request " +
+                "path before the instance reports ready.\"}", CreateBookmarkRequest.class);
+        Bookmark bookmark = service.createBookmark(request);
+        toJson(bookmark);
+        return bookmark;
+    }
+
+    private void toJson(Object value) {
+        jsonMapper.toJsonString(value, value.getClass());
+    }
+
+    private BookmarkService createService(Path directory) {
+        // Durability is irrelevant here, and fsyncs would only slow the rounds down
+        DatabaseInitializer databaseInitializer = new DatabaseInitializer(
+                "jdbc:sqlite:" + directory.resolve("warm-up.db") + "?synchronous=OFF");
+        databaseInitializer.initialize();
+        ColumnCodec columnCodec = new ColumnCodec(databaseInitializer, compressedColumns, compressionMinLength);
+        databaseInitializer.setConnectionInitializer(columnCodec::registerFunctions);
+        columnCodec.load();
+
+        // Threshold high enough that nothing lands in the slow-query log
+        QueryInstrumentation instrumentation = new QueryInstrumentation(databaseInitializer, Long.MAX_VALUE, 1);
+        BookmarkRepository bookmarkRepository = new BookmarkRepository(databaseInitializer, instrumentation);
+        bookmarkRepository.setColumnCodec(columnCodec);
+        BookmarkQueryRepository queryRepository = new BookmarkQueryRepository(databaseInitializer, instrumentation);
+        queryRepository.setColumnCodec(columnCodec);
+        return new BookmarkService(bookmarkRepository, queryRepository);
+    }
+
+    private static void deleteRecursively(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            logger.warn("Could not delete warm-up database {}", directory, e);
+        }
+    }
+}
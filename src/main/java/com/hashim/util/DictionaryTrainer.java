@@ -0,0 +1,145 @@
+package com.hashim.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
+/**
+ * Builds a preset dictionary for Deflate from sample values, in the manner of
+ * zstd's COVER trainer: every k-character substring is scored by the number
+ * of samples it occurs in, and the dictionary is assembled greedily from the
+ * sample segments that cover the most frequent substrings not yet covered.
+ *
+ * <p>Deflate finds matches more cheaply at short distances, so the segments
+ * that scored best are placed at the end of the dictionary.
+ */
+public final class DictionaryTrainer {
+    // Length of the substrings counted, and of the segments copied into the dictionary
+    private static final int K = 8;
+    private static final int SEGMENT_LENGTH = 48;
+    // Substrings seen in fewer samples than this are not worth a dictionary entry
+    private static final int MIN_SAMPLES = 2;
+    private static final long PRIME = 1_000_003L;
+    // Bounds the substring table to a few tens of MB whatever the sample count
+    private static final int MAX_SAMPLE_CHARS = 1 << 20;
+
+    private DictionaryTrainer() {
+    }
+
+    /**
+     * @param samples Representative values; at least a few dozen for a useful dictionary
+     * @param maxBytes Maximum dictionary size in UTF-8 bytes (Deflate uses at most 32 KiB)
+     * @return The dictionary, empty if the samples have nothing in common
+     */
+    public static byte[] train(List<String> samples, int maxBytes) {
+        int total = 0;
+        for (int i = 0; i < samples.size(); i++) {
+            total += samples.get(i).length();
+            if (total > MAX_SAMPLE_CHARS) {
+                samples = samples.subList(0, i);
+                break;
+            }
+        }
+        Long2IntOpenHashMap frequencies = countSubstrings(samples);
+
+        // Candidate segments at a fixed stride through every sample, best first.
+        // Scores only drop as substrings get covered, so a popped candidate whose
+        // rescored value still beats the next one can be taken without rescoring the rest.
+        PriorityQueue<Segment> candidates = new PriorityQueue<>();
+        for (int s = 0; s < samples.size(); s++) {
+            String sample = samples.get(s);
+            for (int start = 0; start + K <= sample.length(); start += SEGMENT_LENGTH / 2) {
+                int end = Math.min(start + SEGMENT_LENGTH, sample.length());
+                int score = score(sample, start, end, frequencies);
+                if (score > 0) {
+                    candidates.add(new Segment(s, start, end, score));
+                }
+            }
+        }
+
+        List<String> chosen = new ArrayList<>();
+        int size = 0;
+        while (!candidates.isEmpty() && size < maxBytes) {
+            Segment top = candidates.poll();
+            String sample = samples.get(top.sample());
+            int score = score(sample, top.start(), top.end(), frequencies);
+            if (score <= 0) {
+                continue;
+            }
+            Segment next = candidates.peek();
+            if (next != null && score < next.score()) {
+                candidates.add(new Segment(top.sample(), top.start(), top.end(), score));
+                continue;
+            }
+
+            String segment = sample.substring(top.start(), top.end());
+            chosen.add(segment);
+            size += segment.getBytes(StandardCharsets.UTF_8).length;
+            // Substrings in a chosen segment no longer add to other segments' scores
+            for (int i = top.start(); i + K <= top.end(); i++) {
+                frequencies.remove(hash(sample, i));
+            }
+        }
+
+        StringBuilder dictionary = new StringBuilder(size);
+        for (int i = chosen.size() - 1; i >= 0; i--) {
+            dictionary.append(chosen.get(i));
+        }
+        byte[] bytes = dictionary.toString().getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= maxBytes) {
+            return bytes;
+        }
+        // Drop from the front, where the weakest segments are
+        byte[] trimmed = new byte[maxBytes];
+        System.arraycopy(bytes, bytes.length - maxBytes, trimmed, 0, maxBytes);
+        return trimmed;
+    }
+
+    /**
+     * Number of samples each k-character substring occurs in, keyed by hash.
+     */
+    private static Long2IntOpenHashMap countSubstrings(List<String> samples) {
+        Long2IntOpenHashMap frequencies = new Long2IntOpenHashMap();
+        LongOpenHashSet seen = new LongOpenHashSet();
+        for (String sample : samples) {
+            seen.clear();
+            for (int i = 0; i + K <= sample.length(); i++) {
+                long hash = hash(sample, i);
+                if (seen.add(hash)) {
+                    frequencies.addTo(hash, 1);
+                }
+            }
+        }
+        return frequencies;
+    }
+
+    private static int score(String sample, int start, int end, Long2IntOpenHashMap frequencies) {
+        int score = 0;
+        for (int i = start; i + K <= end; i++) {
+            int frequency = frequencies.get(hash(sample, i));
+            if (frequency >= MIN_SAMPLES) {
+                score += frequency;
+            }
+        }
+        return score;
+    }
+
+    private static long hash(String s, int start) {
+        long hash = 0;
+        for (int i = start; i < start + K; i++) {
+            hash = hash * PRIME + s.charAt(i);
+        }
+        return hash;
+    }
+
+    private record Segment(int sample, int start, int end, int score) implements Comparable<Segment> {
+        @Override
+        public int compareTo(Segment other) {
+            return Integer.compare(other.score, score);
+        }
+    }
+}
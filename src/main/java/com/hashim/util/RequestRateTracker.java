@@ -0,0 +1,61 @@
+package com.hashim.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts requests in one-second buckets over a sliding window.
+ * Used to find low-traffic periods for background work.
+ */
+public class RequestRateTracker {
+    private final int windowSeconds;
+    private final AtomicLongArray counts;
+    private final AtomicLongArray bucketSeconds;
+
+    public RequestRateTracker(int windowSeconds) {
+        this.windowSeconds = windowSeconds;
+        this.counts = new AtomicLongArray(windowSeconds);
+        this.bucketSeconds = new AtomicLongArray(windowSeconds);
+    }
+
+    /**
+     * Records one request at the current time.
+     */
+    public void record() {
+        long second = System.currentTimeMillis() / 1000;
+        int index = (int) (second % windowSeconds);
+        
+        long bucketSecond = bucketSeconds.get(index);
+        if (bucketSecond != second && bucketSeconds.compareAndSet(index, bucketSecond, second)) {
+            // First request in this second: the bucket still holds an old second's count
+            counts.set(index, 0);
+        }
+        counts.incrementAndGet(index);
+    }
+
+    /**
+     * Number of requests seen in the last {@code seconds} seconds (capped at the window size).
+     */
+    public long countLast(int seconds) {
+        long now = System.currentTimeMillis() / 1000;
+        int span = Math.min(seconds, windowSeconds);
+        long total = 0;
+        for (int i = 0; i < windowSeconds; i++) {
+            long age = now - bucketSeconds.get(i);
+            if (age >= 0 && age < span) {
+                total += counts.get(i);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Whether at most {@code maxRequests} requests arrived in the last {@code seconds} seconds.
+     */
+    public boolean isIdle(int seconds, long maxRequests) {
+        return countLast(seconds) <= maxRequests;
+    }
+
+    public int getWindowSeconds() {
+        return windowSeconds;
+    }
+}
@@ -0,0 +1,94 @@
+package com.hashim.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Appends every API request to a replayable log, one request per line:
+ * {@code offsetMs<TAB>METHOD<TAB>path?query<TAB>body}, with tabs, newlines and
+ * backslashes in the body escaped. The load test harness can replay this file.
+ */
+public class RequestRecorder implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(RequestRecorder.class);
+    
+    private final BufferedWriter writer;
+    private final long startNanos = System.nanoTime();
+
+    public RequestRecorder(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        logger.info("Recording requests to {}", file);
+    }
+
+    public void record(String method, String path, String query, String body) {
+        long offsetMs = (System.nanoTime() - startNanos) / 1_000_000;
+        String target = query != null && !query.isEmpty() ? path + "?" + query : path;
+        String line = offsetMs + "\t" + method + "\t" + target + "\t" + escape(body != null ? body : "");
+        
+        synchronized (writer) {
+            try {
+                writer.write(line);
+                writer.newLine();
+                writer.flush();
+            } catch (IOException e) {
+                logger.warn("Could not record request {} {}", method, target, e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (writer) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                logger.warn("Error closing request log", e);
+            }
+        }
+    }
+
+    public static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> escaped.append("\\\\");
+                case '\t' -> escaped.append("\\t");
+                case '\n' -> escaped.append("\\n");
+                case '\r' -> escaped.append("\\r");
+                default -> escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    public static String unescape(String value) {
+        StringBuilder unescaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                switch (next) {
+                    case 't' -> unescaped.append('\t');
+                    case 'n' -> unescaped.append('\n');
+                    case 'r' -> unescaped.append('\r');
+                    default -> unescaped.append(next);
+                }
+            } else {
+                unescaped.append(c);
+            }
+        }
+        return unescaped.toString();
+    }
+}
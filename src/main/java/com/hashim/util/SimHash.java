@@ -0,0 +1,95 @@
+package com.hashim.util;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import com.hashim.index.BookmarkTerms;
+
+/**
+ * 64-bit SimHash fingerprints of bookmark content. Every word of the title and
+ * notes, and the domain, is hashed to 64 bits; each bit of the fingerprint is
+ * the sign of the weighted vote of the features on that bit. Bookmarks that
+ * share most of their words end up a few bits apart, so near-duplicates are
+ * found by Hamming distance.
+ */
+public final class SimHash {
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int MIN_WORD_LENGTH = 2;
+    // A title word says more about the page than a word from the notes
+    private static final int TITLE_WEIGHT = 2;
+    private static final int NOTES_WEIGHT = 1;
+    private static final int DOMAIN_WEIGHT = 2;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private SimHash() {
+    }
+
+    /**
+     * @return The fingerprint, or 0 if the bookmark has no words and no domain
+     */
+    public static long of(String url, String title, String notes) {
+        Map<String, Integer> features = new HashMap<>();
+        addWords(features, title, TITLE_WEIGHT);
+        addWords(features, notes, NOTES_WEIGHT);
+        String domain = BookmarkTerms.domain(url);
+        if (domain != null) {
+            // Prefixed so that a domain never votes as the same feature as a word
+            features.merge("site:" + domain, DOMAIN_WEIGHT, Integer::sum);
+        }
+        if (features.isEmpty()) {
+            return 0;
+        }
+
+        int[] votes = new int[64];
+        for (Map.Entry<String, Integer> feature : features.entrySet()) {
+            long hash = hash(feature.getKey());
+            int weight = feature.getValue();
+            for (int bit = 0; bit < 64; bit++) {
+                votes[bit] += (hash >>> bit & 1) != 0 ? weight : -weight;
+            }
+        }
+        long fingerprint = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (votes[bit] > 0) {
+                fingerprint |= 1L << bit;
+            }
+        }
+        return fingerprint;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    private static void addWords(Map<String, Integer> features, String text, int weight) {
+        if (text == null) {
+            return;
+        }
+        for (String word : WORD_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (word.length() >= MIN_WORD_LENGTH) {
+                features.merge(word, weight, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * FNV-1a followed by the MurmurHash3 finalizer, so that every input bit
+     * affects every output bit.
+     */
+    private static long hash(String feature) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < feature.length(); i++) {
+            hash ^= feature.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb53a2f4f7491L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
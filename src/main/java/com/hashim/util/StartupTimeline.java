@@ -0,0 +1,65 @@
+package com.hashim.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records how long each startup phase takes, from JVM start to the first
+ * response served.
+ */
+public class StartupTimeline {
+    private static final Logger logger = LoggerFactory.getLogger(StartupTimeline.class);
+    
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private long lastMarkNanos;
+    private volatile Long firstResponseMs;
+
+    public StartupTimeline() {
+        // Time spent before main(): JVM boot, class loading, CDS mapping
+        phases.put("jvm", ManagementFactory.getRuntimeMXBean().getUptime());
+        lastMarkNanos = System.nanoTime();
+    }
+
+    /**
+     * Ends the current phase, attributing the time since the previous mark to it.
+     */
+    public synchronized void mark(String phase) {
+        long now = System.nanoTime();
+        phases.put(phase, (now - lastMarkNanos) / 1_000_000);
+        lastMarkNanos = now;
+    }
+
+    /**
+     * Records time-to-first-response. Only the first call has an effect.
+     */
+    public void markFirstResponse() {
+        if (firstResponseMs != null) {
+            return;
+        }
+        synchronized (this) {
+            if (firstResponseMs == null) {
+                firstResponseMs = ManagementFactory.getRuntimeMXBean().getUptime();
+                logger.info("First response served {} ms after JVM start (startup phases: {})",
+                        firstResponseMs, phases);
+            }
+        }
+    }
+
+    /**
+     * Milliseconds since JVM start.
+     */
+    public long uptimeMs() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    public synchronized Map<String, Object> toMap() {
+        Map<String, Object> timeline = new LinkedHashMap<>();
+        timeline.put("phasesMs", new LinkedHashMap<>(phases));
+        timeline.put("firstResponseMs", firstResponseMs);
+        return timeline;
+    }
+}
@@ -0,0 +1,273 @@
+package com.hashim.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import com.google.gson.Gson;
+
+/**
+ * Per-request tracing. Each API request gets a trace id (also put in the MDC as
+ * {@code traceId}) and a tree of spans tagged with the layer they ran in.
+ * Time is attributed to layers as self time, so a repository call inside a
+ * service call is not counted twice.
+ *
+ * <p>Spans are opened through the static {@link #span} from anywhere on the
+ * request thread and cost one thread-local lookup when no trace is active.
+ * Finished traces go into a bounded ring for {@code /admin/traces}; a sample
+ * of them, plus every slow or failed one, is written as one JSON line to the
+ * {@code com.hashim.trace} logger, which logback hands to an async appender.
+ */
+public class Tracer {
+    private static final Logger traceLog = LoggerFactory.getLogger("com.hashim.trace");
+    private static final ThreadLocal<Trace> CURRENT = new ThreadLocal<>();
+    private static final Pattern TRACE_ID = Pattern.compile("[0-9A-Za-z-]{1,64}");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    // Spans beyond this are still timed into the layer totals but not listed
+    private static final int MAX_SPANS = 64;
+    private static final int MAX_SPAN_NAME = 80;
+    private static final Span NOOP = new Span(null, Layer.CONTROLLER, "", null);
+
+    public enum Layer {
+        CONTROLLER, SERVICE, REPOSITORY, SERIALIZATION;
+
+        String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final double sampleRate;
+    private final long slowThresholdNanos;
+    private final Trace[] recent;
+    private final Gson gson = new Gson();
+    private final LongAdder finished = new LongAdder();
+    private final LongAdder emitted = new LongAdder();
+    private int nextSlot;
+
+    public Tracer(double sampleRate, long slowThresholdMs, int capacity) {
+        this.sampleRate = sampleRate;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMs);
+        this.recent = new Trace[capacity];
+    }
+
+    /**
+     * Starts a trace for the current request thread and opens its controller
+     * span. A well-formed incoming id is reused so traces can be correlated
+     * across processes.
+     *
+     * @return The trace id
+     */
+    public String begin(String method, String path, String incomingId) {
+        String traceId = incomingId != null && TRACE_ID.matcher(incomingId).matches()
+                ? incomingId : newTraceId();
+        Trace trace = new Trace(traceId, method, path);
+        CURRENT.set(trace);
+        MDC.put("traceId", traceId);
+        trace.root = span(Layer.CONTROLLER, method + " " + path);
+        return traceId;
+    }
+
+    /**
+     * Closes the current trace, records it and emits it if sampled.
+     */
+    public void end(int status) {
+        Trace trace = CURRENT.get();
+        if (trace == null) {
+            return;
+        }
+        trace.root.close();
+        CURRENT.remove();
+        MDC.remove("traceId");
+
+        trace.status = status;
+        trace.durationNanos = System.nanoTime() - trace.startNanos;
+        synchronized (recent) {
+            recent[nextSlot] = trace;
+            nextSlot = (nextSlot + 1) % recent.length;
+        }
+        finished.increment();
+
+        boolean sampled = trace.durationNanos >= slowThresholdNanos || status >= 500
+                || ThreadLocalRandom.current().nextDouble() < sampleRate;
+        if (sampled && traceLog.isInfoEnabled()) {
+            traceLog.info(gson.toJson(trace.toMap()));
+            emitted.increment();
+        }
+    }
+
+    /**
+     * Opens a span on the current thread's trace; a no-op outside a trace.
+     * Use with try-with-resources.
+     */
+    public static Span span(Layer layer, String name) {
+        Trace trace = CURRENT.get();
+        if (trace == null) {
+            return NOOP;
+        }
+        Span span = new Span(trace, layer, name, trace.open.peek());
+        trace.open.push(span);
+        return span;
+    }
+
+    /**
+     * The slowest of the recently finished traces, slowest first.
+     */
+    public List<Map<String, Object>> slowest(int limit) {
+        List<Trace> traces = new ArrayList<>(recent.length);
+        synchronized (recent) {
+            for (Trace trace : recent) {
+                if (trace != null) {
+                    traces.add(trace);
+                }
+            }
+        }
+        traces.sort(Comparator.comparingLong((Trace t) -> t.durationNanos).reversed());
+
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Trace trace : traces.subList(0, Math.min(limit, traces.size()))) {
+            result.add(trace.toMap());
+        }
+        return result;
+    }
+
+    public Map<String, Object> getSummary(int limit) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("sampleRate", sampleRate);
+        summary.put("slowThresholdMs", TimeUnit.NANOSECONDS.toMillis(slowThresholdNanos));
+        summary.put("capacity", recent.length);
+        summary.put("tracesFinished", finished.sum());
+        summary.put("tracesEmitted", emitted.sum());
+        summary.put("slowest", slowest(limit));
+        return summary;
+    }
+
+    private static String newTraceId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return String.format("%016x%016x", random.nextLong(), random.nextLong());
+    }
+
+    private static double toMs(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+
+    /**
+     * An open span. Closing it attributes its self time to its layer.
+     */
+    public static final class Span implements AutoCloseable {
+        private final Trace trace;
+        private final Layer layer;
+        private final String name;
+        private final Span parent;
+        private final long startNanos;
+        private long childNanos;
+        private boolean closed;
+
+        private Span(Trace trace, Layer layer, String name, Span parent) {
+            this.trace = trace;
+            this.layer = layer;
+            this.name = name;
+            this.parent = parent;
+            this.startNanos = trace != null ? System.nanoTime() : 0;
+        }
+
+        @Override
+        public void close() {
+            if (trace == null || closed) {
+                return;
+            }
+            closed = true;
+            long duration = System.nanoTime() - startNanos;
+            trace.selfNanos[layer.ordinal()] += duration - childNanos;
+            if (parent != null) {
+                parent.childNanos += duration;
+            }
+            // Normally the top of the stack; also unwinds children left open by a failure
+            while (!trace.open.isEmpty() && trace.open.pop() != this) {
+                // discard
+            }
+
+            if (trace.spans.size() < MAX_SPANS) {
+                trace.spans.add(new SpanRecord(layer.key(), spanName(name), depth(),
+                        toMs(startNanos - trace.startNanos), toMs(duration)));
+            } else {
+                trace.droppedSpans++;
+            }
+        }
+
+        private int depth() {
+            int depth = 0;
+            for (Span s = parent; s != null; s = s.parent) {
+                depth++;
+            }
+            return depth;
+        }
+
+        private static String spanName(String name) {
+            String collapsed = WHITESPACE.matcher(Objects.toString(name, "")).replaceAll(" ").trim();
+            return collapsed.length() > MAX_SPAN_NAME ? collapsed.substring(0, MAX_SPAN_NAME) + "..." : collapsed;
+        }
+    }
+
+    private record SpanRecord(String layer, String name, int depth, double startMs, double durationMs) {
+    }
+
+    private static final class Trace {
+        private final String traceId;
+        private final String method;
+        private final String path;
+        private final long startEpochMs = System.currentTimeMillis();
+        private final long startNanos = System.nanoTime();
+        private final Deque<Span> open = new ArrayDeque<>();
+        private final List<SpanRecord> spans = new ArrayList<>();
+        private final long[] selfNanos = new long[Layer.values().length];
+        private Span root;
+        private int droppedSpans;
+        private volatile int status;
+        private volatile long durationNanos;
+
+        Trace(String traceId, String method, String path) {
+            this.traceId = traceId;
+            this.method = method;
+            this.path = path;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> layers = new LinkedHashMap<>();
+            for (Layer layer : Layer.values()) {
+                layers.put(layer.key(), toMs(selfNanos[layer.ordinal()]));
+            }
+            // Spans are recorded as they close; list them in start order
+            SpanRecord[] ordered = spans.toArray(new SpanRecord[0]);
+            Arrays.sort(ordered, Comparator.comparingDouble(SpanRecord::startMs));
+
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("traceId", traceId);
+            map.put("timestamp", startEpochMs);
+            map.put("method", method);
+            map.put("path", path);
+            map.put("status", status);
+            map.put("durationMs", toMs(durationNanos));
+            map.put("layersMs", layers);
+            map.put("spans", ordered);
+            if (droppedSpans > 0) {
+                map.put("droppedSpans", droppedSpans);
+            }
+            return map;
+        }
+    }
+}
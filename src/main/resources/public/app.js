@@ -25,6 +25,8 @@ document.addEventListener('DOMContentLoaded', () => {
     
     searchInput.addEventListener('input', debounce(handleFilter, 300));
     tagFilter.addEventListener('input', debounce(handleFilter, 300));
+    searchInput.addEventListener('input', debounce(() => loadSuggestions(searchInput, 'searchSuggestions'), 150));
+    tagFilter.addEventListener('input', debounce(() => loadSuggestions(tagFilter, 'tagSuggestions'), 150));
     filterStatus.addEventListener('change', handleFilter);
     addBookmarkBtn.addEventListener('click', showAddForm);
     bookmarkForm.addEventListener('submit', handleSubmit);
@@ -69,6 +71,30 @@ function handleFilter() {
     loadBookmarks();
 }
 
+// Fill a datalist with typeahead suggestions for the input's current value
+async function loadSuggestions(input, listId) {
+    const prefix = input.value.trim();
+    const list = document.getElementById(listId);
+    if (!prefix) {
+        list.innerHTML = '';
+        return;
+    }
+    
+    try {
+        const response = await fetch(`/api/suggest?prefix=${encodeURIComponent(prefix)}&limit=5`);
+        if (!response.ok) return;
+        
+        const suggestions = await response.json();
+        const terms = listId === 'tagSuggestions'
+            ? suggestions.tags
+            : [...suggestions.tags, ...suggestions.titles, ...suggestions.domains];
+        const unique = [...new Set(terms.map(entry => entry.term))];
+        list.innerHTML = unique.map(term => `<option value="${escapeHtml(term)}"></option>`).join('');
+    } catch (error) {
+        // Suggestions are best-effort
+    }
+}
+
 // Render bookmarks
 function renderBookmarks() {
     if (bookmarks.length === 0) {
@@ -204,11 +230,16 @@ async function handleSubmit(e) {
         
         let response;
         if (isEditing) {
-            // PUT request for update
+            // PUT request for update; If-Match rejects it if someone else edited the bookmark meanwhile
             data.status = status;
+            const headers = { 'Content-Type': 'application/json' };
+            const original = bookmarks.find(b => b.id === editingId);
+            if (original && original.version != null) {
+                headers['If-Match'] = `"${original.version}"`;
+            }
             response = await fetch(`${API_URL}/${editingId}`, {
                 method: 'PUT',
-                headers: { 'Content-Type': 'application/json' },
+                headers,
                 body: JSON.stringify(data)
             });
         } else {
@@ -0,0 +1,116 @@
+package com.hashim.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkFilter;
+import com.hashim.model.BookmarkStatus;
+import com.hashim.repository.ArchiveRepository;
+import com.hashim.repository.BookmarkRepository;
+import com.hashim.repository.DatabaseInitializer;
+import com.hashim.repository.QueryInstrumentation;
+
+class BitmapIndexTest {
+    @TempDir
+    Path tempDir;
+
+    private DatabaseInitializer databaseInitializer;
+    private QueryInstrumentation instrumentation;
+    private BookmarkRepository bookmarkRepository;
+    private BitmapIndex bitmapIndex;
+
+    @BeforeEach
+    void setUp() {
+        databaseInitializer = new DatabaseInitializer("jdbc:sqlite:" + tempDir.resolve("test.db"));
+        databaseInitializer.initialize();
+        instrumentation = new QueryInstrumentation(databaseInitializer, Long.MAX_VALUE, 1);
+        bookmarkRepository = new BookmarkRepository(databaseInitializer, instrumentation);
+        bitmapIndex = new BitmapIndex(bookmarkRepository, 1000);
+        bookmarkRepository.addChangeListener(bitmapIndex);
+    }
+
+    @Test
+    void countsFollowCommittedWrites() {
+        Bookmark a = create("https://example.com/a", "java,jvm");
+        create("https://docs.example.com/b", "java");
+        create("https://other.org/c", "rust");
+        bitmapIndex.rebuild(2);
+        bookmarkRepository.updateStatus(a.getId(), BookmarkStatus.DONE, null);
+        Bookmark d = create("https://example.com/d", "jvm");
+
+        assertEquals(4, count(BookmarkFilter.NONE));
+        assertEquals(1, count(filter(BookmarkStatus.DONE, List.of(), List.of())));
+        assertEquals(2, count(filter(null, List.of("java"), List.of())));
+        assertEquals(3, count(filter(null, List.of(), List.of("example.com"))));
+        assertEquals(3, count(filter(null, List.of(), List.of(" WWW.Example.com"))));
+        assertEquals(1, count(filter(null, List.of(), List.of("www.docs.example.com"))));
+
+        assertTrue(bookmarkRepository.delete(d.getId()));
+        assertEquals(3, count(BookmarkFilter.NONE));
+        assertEquals(1, count(filter(null, List.of("jvm"), List.of())));
+    }
+
+    @Test
+    void lateUpdateDoesNotBringBackDeletedRow() {
+        Bookmark created = create("https://example.com/a", "java");
+        bitmapIndex.rebuild(1);
+        Bookmark updated = bookmarkRepository.updateStatus(created.getId(), BookmarkStatus.DONE, null).orElseThrow();
+        assertTrue(bookmarkRepository.delete(created.getId()));
+
+        // The update's callback arrives after the delete's
+        bitmapIndex.onUpdated(updated);
+
+        assertEquals(0, count(BookmarkFilter.NONE));
+        assertEquals(0, count(filter(BookmarkStatus.DONE, List.of(), List.of())));
+    }
+
+    @Test
+    void olderChangesDoNotReplaceNewerOnes() {
+        Bookmark created = create("https://example.com/a", "java");
+        bitmapIndex.rebuild(1);
+        bookmarkRepository.updateStatus(created.getId(), BookmarkStatus.DONE, null);
+
+        bitmapIndex.onStatusChanged(created.getId(), BookmarkStatus.INBOX, null, created.getVersion());
+        bitmapIndex.onUpdated(created);
+
+        assertEquals(1, count(filter(BookmarkStatus.DONE, List.of(), List.of())));
+        assertEquals(0, count(filter(BookmarkStatus.INBOX, List.of(), List.of())));
+    }
+
+    @Test
+    void archivedRowIsCountedAgainWhenRestored() {
+        Bookmark created = create("https://example.com/a", "java");
+        bookmarkRepository.updateStatus(created.getId(), BookmarkStatus.DONE, null);
+        bitmapIndex.rebuild(1);
+        ArchiveRepository archiveRepository = new ArchiveRepository(databaseInitializer, instrumentation,
+                bookmarkRepository);
+
+        assertEquals(1, archiveRepository.archiveBatch(LocalDateTime.now().plusDays(1), 10));
+        assertEquals(0, count(BookmarkFilter.NONE));
+        assertTrue(archiveRepository.restore(created.getId()));
+        assertEquals(1, count(filter(BookmarkStatus.DONE, List.of("java"), List.of())));
+    }
+
+    private long count(BookmarkFilter filter) {
+        return bitmapIndex.resolve(filter).getLongCardinality();
+    }
+
+    private static BookmarkFilter filter(BookmarkStatus status, List<String> tags, List<String> domains) {
+        return new BookmarkFilter(null, status, tags, null, domains);
+    }
+
+    private Bookmark create(String url, String tags) {
+        LocalDateTime now = LocalDateTime.now();
+        return bookmarkRepository.create(new Bookmark(null, url, "Title", tags, "notes", BookmarkStatus.INBOX,
+                now, now));
+    }
+}
@@ -0,0 +1,112 @@
+package com.hashim.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkStatus;
+import com.hashim.repository.BookmarkRepository;
+import com.hashim.repository.DatabaseInitializer;
+import com.hashim.repository.QueryInstrumentation;
+
+class NearDuplicateIndexTest {
+    private static final String TITLE = "Structured concurrency in modern Java applications explained";
+
+    @TempDir
+    Path tempDir;
+
+    private DatabaseInitializer databaseInitializer;
+    private BookmarkRepository bookmarkRepository;
+    private NearDuplicateIndex nearDuplicateIndex;
+
+    @BeforeEach
+    void setUp() {
+        databaseInitializer = new DatabaseInitializer("jdbc:sqlite:" + tempDir.resolve("test.db"));
+        databaseInitializer.initialize();
+        bookmarkRepository = new BookmarkRepository(databaseInitializer,
+                new QueryInstrumentation(databaseInitializer, Long.MAX_VALUE, 1));
+        nearDuplicateIndex = new NearDuplicateIndex(bookmarkRepository, 3, 1, true);
+        bookmarkRepository.addChangeListener(nearDuplicateIndex);
+    }
+
+    @Test
+    void lateUpdateDoesNotBringBackDeletedBookmark() {
+        Bookmark original = create("https://example.com/post", TITLE);
+        Bookmark copy = create("https://example.com/post?ref=feed", "Unrelated");
+        nearDuplicateIndex.rebuild();
+        Bookmark updated = bookmarkRepository.update(withTitle(copy, TITLE), null).orElseThrow();
+        assertEquals(1, nearDuplicateIndex.similar(original.getId(), 10).size());
+        assertTrue(bookmarkRepository.delete(copy.getId()));
+
+        // The update's callback arrives after the delete's
+        nearDuplicateIndex.onUpdated(updated);
+
+        assertEquals(List.of(), nearDuplicateIndex.similar(original.getId(), 10));
+    }
+
+    @Test
+    void olderUpdateDoesNotReplaceNewerSignature() {
+        Bookmark original = create("https://example.com/post", TITLE);
+        Bookmark copy = create("https://example.com/post?ref=feed", "Unrelated");
+        nearDuplicateIndex.rebuild();
+        bookmarkRepository.update(withTitle(copy, TITLE), null);
+        bookmarkRepository.updateStatus(copy.getId(), BookmarkStatus.DONE, null);
+
+        nearDuplicateIndex.onUpdated(copy);
+
+        List<NearDuplicateIndex.Match> similar = nearDuplicateIndex.similar(original.getId(), 10);
+        assertEquals(1, similar.size());
+        assertEquals(copy.getId(), similar.get(0).id());
+    }
+
+    @Test
+    void backfillDoesNotOverwriteSignatureOfNewerWrite() throws SQLException {
+        Bookmark missing = create("https://example.com/old", "Written before the column existed");
+        Bookmark rewritten = create("https://example.com/post", TITLE);
+        try (Connection conn = databaseInitializer.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE bookmarks SET simhash = NULL");
+        }
+        // The row is rewritten between the backfill reading it and saving its signature
+        bookmarkRepository.update(withTitle(rewritten, "Unrelated"), null);
+        Map<Long, Long> before = signatures();
+
+        int saved = bookmarkRepository.saveSignatures(new long[] {missing.getId(), rewritten.getId()},
+                new long[] {42, 43});
+
+        assertEquals(1, saved);
+        Map<Long, Long> after = signatures();
+        assertEquals(42L, after.get(missing.getId()));
+        assertEquals(before.get(rewritten.getId()), after.get(rewritten.getId()));
+    }
+
+    private Map<Long, Long> signatures() {
+        Map<Long, Long> signatures = new HashMap<>();
+        bookmarkRepository.forEachSignature((id, simhash, version) -> signatures.put(id, simhash));
+        return signatures;
+    }
+
+    private Bookmark create(String url, String title) {
+        LocalDateTime now = LocalDateTime.now();
+        return bookmarkRepository.create(new Bookmark(null, url, title, "java", null, BookmarkStatus.INBOX, now,
+                now));
+    }
+
+    private static Bookmark withTitle(Bookmark bookmark, String title) {
+        return new Bookmark(bookmark.getId(), bookmark.getUrl(), title, bookmark.getTags(), bookmark.getNotes(),
+                bookmark.getStatus(), bookmark.getCreatedAt(), LocalDateTime.now());
+    }
+}
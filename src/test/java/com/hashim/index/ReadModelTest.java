@@ -0,0 +1,101 @@
+package com.hashim.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkStatus;
+import com.hashim.repository.ArchiveRepository;
+import com.hashim.repository.BookmarkRepository;
+import com.hashim.repository.DatabaseInitializer;
+import com.hashim.repository.QueryInstrumentation;
+
+class ReadModelTest {
+    @TempDir
+    Path tempDir;
+
+    private DatabaseInitializer databaseInitializer;
+    private QueryInstrumentation instrumentation;
+    private BookmarkRepository bookmarkRepository;
+    private ReadModel readModel;
+
+    @BeforeEach
+    void setUp() {
+        databaseInitializer = new DatabaseInitializer("jdbc:sqlite:" + tempDir.resolve("test.db"));
+        databaseInitializer.initialize();
+        instrumentation = new QueryInstrumentation(databaseInitializer, Long.MAX_VALUE, 1);
+        bookmarkRepository = new BookmarkRepository(databaseInitializer, instrumentation);
+        readModel = new ReadModel(bookmarkRepository);
+        bookmarkRepository.addChangeListener(readModel);
+        readModel.load();
+    }
+
+    @Test
+    void lateUpdateDoesNotBringBackDeletedRow() {
+        Bookmark created = create("https://example.com/a");
+        Bookmark updated = bookmarkRepository.updateStatus(created.getId(), BookmarkStatus.DONE, null).orElseThrow();
+        assertTrue(bookmarkRepository.delete(created.getId()));
+
+        // The update's callback arrives after the delete's
+        readModel.onUpdated(updated);
+
+        assertNull(readModel.snapshot().findById(created.getId()));
+        assertEquals(0, readModel.snapshot().size());
+    }
+
+    @Test
+    void olderUpdateDoesNotReplaceNewerRow() {
+        Bookmark created = create("https://example.com/a");
+        bookmarkRepository.updateStatus(created.getId(), BookmarkStatus.DONE, null);
+
+        readModel.onUpdated(created);
+
+        Bookmark read = readModel.snapshot().findById(created.getId());
+        assertEquals(BookmarkStatus.DONE, read.getStatus());
+        assertEquals(created.getVersion() + 1, read.getVersion());
+    }
+
+    @Test
+    void archivedRowComesBackWhenRestored() {
+        Bookmark created = create("https://example.com/a");
+        Bookmark done = bookmarkRepository.updateStatus(created.getId(), BookmarkStatus.DONE, null).orElseThrow();
+        ArchiveRepository archiveRepository = new ArchiveRepository(databaseInitializer, instrumentation,
+                bookmarkRepository);
+
+        assertEquals(1, archiveRepository.archiveBatch(LocalDateTime.now().plusDays(1), 10));
+        assertNull(readModel.snapshot().findById(created.getId()));
+
+        assertTrue(archiveRepository.restore(created.getId()));
+        Bookmark restored = readModel.snapshot().findById(created.getId());
+        assertNotNull(restored);
+        assertEquals(done.getVersion() + 1, restored.getVersion());
+    }
+
+    @Test
+    void loadForgetsDeletesOfThePreviousContents() {
+        Bookmark created = create("https://example.com/a");
+        readModel.onDeleted(created.getId(), created.getVersion() + 5);
+        assertNull(readModel.snapshot().findById(created.getId()));
+
+        // As after restoring a backup that still has the row, at a lower version
+        readModel.load();
+        readModel.onUpdated(bookmarkRepository.updateStatus(created.getId(), BookmarkStatus.DONE, null).orElseThrow());
+
+        assertEquals(BookmarkStatus.DONE, readModel.snapshot().findById(created.getId()).getStatus());
+    }
+
+    private Bookmark create(String url) {
+        LocalDateTime now = LocalDateTime.now();
+        return bookmarkRepository.create(new Bookmark(null, url, "Title", "tag", "notes", BookmarkStatus.INBOX,
+                now, now));
+    }
+}
@@ -0,0 +1,76 @@
+package com.hashim.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkStatus;
+import com.hashim.repository.BookmarkRepository;
+import com.hashim.repository.DatabaseInitializer;
+import com.hashim.repository.QueryInstrumentation;
+
+class RelatedIndexTest {
+    @TempDir
+    Path tempDir;
+
+    private BookmarkRepository bookmarkRepository;
+    private RelatedIndex relatedIndex;
+
+    @BeforeEach
+    void setUp() {
+        DatabaseInitializer databaseInitializer = new DatabaseInitializer("jdbc:sqlite:" + tempDir.resolve("test.db"));
+        databaseInitializer.initialize();
+        bookmarkRepository = new BookmarkRepository(databaseInitializer,
+                new QueryInstrumentation(databaseInitializer, Long.MAX_VALUE, 1));
+        relatedIndex = new RelatedIndex(bookmarkRepository);
+        relatedIndex.build();
+        bookmarkRepository.addChangeListener(relatedIndex);
+    }
+
+    @Test
+    void lateUpdateDoesNotBringBackDeletedBookmark() {
+        Bookmark query = create("java,jvm");
+        Bookmark created = create("java");
+        Bookmark updated = bookmarkRepository.update(withTags(created, "java,jvm"), null).orElseThrow();
+        assertTrue(bookmarkRepository.delete(created.getId()));
+
+        // The update's callback arrives after the delete's
+        relatedIndex.onUpdated(updated);
+
+        assertEquals(List.of(), relatedIndex.related(query.getId(), 10));
+    }
+
+    @Test
+    void olderUpdateDoesNotReplaceNewerTags() {
+        Bookmark query = create("rust");
+        Bookmark created = create("java");
+        bookmarkRepository.update(withTags(created, "rust"), null);
+        bookmarkRepository.updateStatus(created.getId(), BookmarkStatus.DONE, null);
+
+        relatedIndex.onUpdated(created);
+
+        List<RelatedIndex.Match> related = relatedIndex.related(query.getId(), 10);
+        assertEquals(1, related.size());
+        assertEquals(created.getId(), related.get(0).id());
+        assertEquals(List.of("rust"), related.get(0).sharedTags());
+    }
+
+    private Bookmark create(String tags) {
+        LocalDateTime now = LocalDateTime.now();
+        return bookmarkRepository.create(new Bookmark(null, "https://example.com/" + tags, "Title", tags, null,
+                BookmarkStatus.INBOX, now, now));
+    }
+
+    private static Bookmark withTags(Bookmark bookmark, String tags) {
+        return new Bookmark(bookmark.getId(), bookmark.getUrl(), bookmark.getTitle(), tags, bookmark.getNotes(),
+                bookmark.getStatus(), bookmark.getCreatedAt(), LocalDateTime.now());
+    }
+}
@@ -0,0 +1,74 @@
+package com.hashim.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkStatus;
+import com.hashim.repository.BookmarkRepository;
+import com.hashim.repository.DatabaseInitializer;
+import com.hashim.repository.QueryInstrumentation;
+
+class SuggestIndexTest {
+    @TempDir
+    Path tempDir;
+
+    private BookmarkRepository bookmarkRepository;
+    private SuggestIndex suggestIndex;
+
+    @BeforeEach
+    void setUp() {
+        DatabaseInitializer databaseInitializer = new DatabaseInitializer("jdbc:sqlite:" + tempDir.resolve("test.db"));
+        databaseInitializer.initialize();
+        bookmarkRepository = new BookmarkRepository(databaseInitializer,
+                new QueryInstrumentation(databaseInitializer, Long.MAX_VALUE, 1));
+        suggestIndex = new SuggestIndex(bookmarkRepository);
+        suggestIndex.build();
+        bookmarkRepository.addChangeListener(suggestIndex);
+    }
+
+    @Test
+    void lateUpdateDoesNotBringBackDeletedTerms() {
+        Bookmark created = create("Kotlin coroutines", "kotlin");
+        Bookmark renamed = copy(created, "Kotlin flows");
+        Bookmark updated = bookmarkRepository.update(renamed, null).orElseThrow();
+        assertTrue(bookmarkRepository.delete(created.getId()));
+
+        // The update's callback arrives after the delete's
+        suggestIndex.onUpdated(updated);
+
+        assertEquals(List.of(), suggestIndex.suggest("kot", 10).tags());
+        assertEquals(List.of(), suggestIndex.suggest("flo", 10).titles());
+    }
+
+    @Test
+    void olderUpdateDoesNotReplaceNewerTerms() {
+        Bookmark created = create("Kotlin coroutines", "kotlin");
+        bookmarkRepository.update(copy(created, "Kotlin flows"), null);
+        bookmarkRepository.updateStatus(created.getId(), BookmarkStatus.DONE, null);
+
+        suggestIndex.onUpdated(created);
+
+        assertEquals(List.of(new RadixTrie.Entry("flows", 1)), suggestIndex.suggest("flo", 10).titles());
+        assertEquals(List.of(), suggestIndex.suggest("cor", 10).titles());
+    }
+
+    private Bookmark create(String title, String tags) {
+        LocalDateTime now = LocalDateTime.now();
+        return bookmarkRepository.create(new Bookmark(null, "https://example.com/a", title, tags, null,
+                BookmarkStatus.INBOX, now, now));
+    }
+
+    private static Bookmark copy(Bookmark bookmark, String title) {
+        return new Bookmark(bookmark.getId(), bookmark.getUrl(), title, bookmark.getTags(), bookmark.getNotes(),
+                bookmark.getStatus(), bookmark.getCreatedAt(), LocalDateTime.now());
+    }
+}
@@ -0,0 +1,87 @@
+package com.hashim.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkStatus;
+
+class ActivityTriggerTest {
+    @TempDir
+    Path tempDir;
+
+    private DatabaseInitializer databaseInitializer;
+    private QueryInstrumentation instrumentation;
+    private BookmarkRepository bookmarkRepository;
+
+    @BeforeEach
+    void setUp() {
+        databaseInitializer = new DatabaseInitializer("jdbc:sqlite:" + tempDir.resolve("test.db"));
+        databaseInitializer.initialize();
+        instrumentation = new QueryInstrumentation(databaseInitializer, Long.MAX_VALUE, 1);
+        bookmarkRepository = new BookmarkRepository(databaseInitializer, instrumentation);
+    }
+
+    @Test
+    void countsEachStatusTransition() throws SQLException {
+        Long id = create("https://example.com/a").getId();
+
+        bookmarkRepository.updateStatus(id, BookmarkStatus.DONE, null);
+        bookmarkRepository.updateStatus(id, BookmarkStatus.INBOX, null);
+        // Same status again is not a transition
+        bookmarkRepository.updateStatus(id, BookmarkStatus.INBOX, null);
+
+        Map<String, Long> counts = counts();
+        assertEquals(1L, counts.get("CREATED"));
+        assertEquals(1L, counts.get("COMPLETED"));
+        assertEquals(1L, counts.get("REOPENED"));
+    }
+
+    @Test
+    void restoringAnArchivedBookmarkIsNotCountedAsCreated() throws SQLException {
+        // The restored row has the highest id used so far
+        Long id = create("https://example.com/a").getId();
+        bookmarkRepository.updateStatus(id, BookmarkStatus.DONE, null);
+
+        ArchiveRepository archiveRepository = new ArchiveRepository(databaseInitializer, instrumentation,
+                bookmarkRepository);
+        assertEquals(1, archiveRepository.archiveBatch(LocalDateTime.now().plusDays(1), 10));
+        assertTrue(archiveRepository.restore(id));
+
+        Map<String, Long> counts = counts();
+        assertEquals(1L, counts.get("CREATED"));
+        assertEquals(1L, counts.get("COMPLETED"));
+        assertEquals(BookmarkStatus.DONE, bookmarkRepository.findById(id).orElseThrow().getStatus());
+    }
+
+    private Bookmark create(String url) {
+        LocalDateTime now = LocalDateTime.now();
+        return bookmarkRepository.create(new Bookmark(null, url, "Title", "tag", "notes", BookmarkStatus.INBOX,
+                now, now));
+    }
+
+    private Map<String, Long> counts() throws SQLException {
+        Map<String, Long> counts = new HashMap<>();
+        try (Connection conn = databaseInitializer.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT event, SUM(count) FROM activity_daily GROUP BY event")) {
+            while (rs.next()) {
+                counts.put(rs.getString(1), rs.getLong(2));
+            }
+        }
+        return counts;
+    }
+}
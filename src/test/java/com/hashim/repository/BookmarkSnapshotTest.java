@@ -0,0 +1,119 @@
+package com.hashim.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkStatus;
+
+class BookmarkSnapshotTest {
+    // More than one block
+    private static final int ROWS = 5000;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void roundTripsEveryColumn() throws IOException {
+        List<Bookmark> bookmarks = bookmarks(ROWS);
+        Path file = tempDir.resolve("bookmarks.snapshot");
+
+        BookmarkSnapshot.Info written = BookmarkSnapshot.write(file, "db-1", bookmarks::forEach);
+        BookmarkSnapshot snapshot = BookmarkSnapshot.open(file);
+
+        BookmarkSnapshot.Info info = snapshot.getInfo();
+        assertEquals(ROWS, info.rows());
+        assertEquals(bookmarks.get(ROWS - 1).getId(), info.maxId());
+        assertEquals(2, info.blocks());
+        assertEquals(Files.size(file), info.bytes());
+        assertEquals("db-1", info.databaseId());
+        assertEquals(written, info);
+
+        List<Bookmark> read = new ArrayList<>();
+        snapshot.forEachInRange(Long.MIN_VALUE, Long.MAX_VALUE, read::add);
+        assertEquals(ROWS, read.size());
+        for (int i = 0; i < ROWS; i++) {
+            assertSame(bookmarks.get(i), read.get(i));
+        }
+
+        List<Long> versions = new ArrayList<>();
+        snapshot.forEachVersion((id, version) -> versions.add(version));
+        assertEquals(bookmarks.stream().map(Bookmark::getVersion).toList(), versions);
+    }
+
+    @Test
+    void readsIdRangesAcrossBlocks() throws IOException {
+        List<Bookmark> bookmarks = bookmarks(ROWS);
+        Path file = tempDir.resolve("bookmarks.snapshot");
+        BookmarkSnapshot.write(file, null, bookmarks::forEach);
+        BookmarkSnapshot snapshot = BookmarkSnapshot.open(file);
+        assertNull(snapshot.getInfo().databaseId());
+
+        // Ids are 3, 6, 9, ...; the range spans the block boundary
+        List<Long> ids = new ArrayList<>();
+        snapshot.forEachInRange(12_000, 12_301, bookmark -> ids.add(bookmark.getId()));
+        List<Long> expected = new ArrayList<>();
+        for (long id = 12_000; id < 12_301; id += 3) {
+            expected.add(id);
+        }
+        assertEquals(expected, ids);
+    }
+
+    @Test
+    void rejectsCorruptFile() throws IOException {
+        Path file = tempDir.resolve("bookmarks.snapshot");
+        BookmarkSnapshot.write(file, "db-1", bookmarks(10)::forEach);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x01;
+        Files.write(file, bytes);
+
+        assertThrows(IOException.class, () -> BookmarkSnapshot.open(file));
+    }
+
+    @Test
+    void rejectsRowsOutOfIdOrder() {
+        List<Bookmark> bookmarks = new ArrayList<>(bookmarks(2));
+        bookmarks.add(bookmarks.get(0));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> BookmarkSnapshot.write(tempDir.resolve("bookmarks.snapshot"), null, bookmarks::forEach));
+    }
+
+    private static List<Bookmark> bookmarks(int count) {
+        List<Bookmark> bookmarks = new ArrayList<>();
+        LocalDateTime created = LocalDateTime.of(2024, 1, 1, 12, 0, 0, 123_456_789);
+        for (int i = 1; i <= count; i++) {
+            Bookmark bookmark = new Bookmark((long) i * 3, "https://example.com/" + i, "Title " + i + " é中",
+                    i % 4 == 0 ? "" : "tag" + (i % 7), i % 5 == 0 ? null : "notes " + i,
+                    i % 2 == 0 ? BookmarkStatus.DONE : BookmarkStatus.INBOX,
+                    // Not monotonic, so the timestamp deltas go both ways
+                    created.plusSeconds(i * 37L % 1000), created.plusMinutes(i).withNano(i));
+            bookmark.setVersion((long) (i % 9) + 1);
+            bookmarks.add(bookmark);
+        }
+        return bookmarks;
+    }
+
+    private static void assertSame(Bookmark expected, Bookmark actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getUrl(), actual.getUrl());
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getTags(), actual.getTags());
+        assertEquals(expected.getNotes(), actual.getNotes());
+        assertEquals(expected.getStatus(), actual.getStatus());
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+        assertEquals(expected.getUpdatedAt(), actual.getUpdatedAt());
+        assertEquals(expected.getVersion(), actual.getVersion());
+    }
+}
@@ -0,0 +1,128 @@
+package com.hashim.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkStatus;
+import com.hashim.model.ReplicationChange;
+
+class ReplicationLogTest {
+    @TempDir
+    Path tempDir;
+
+    private Node leader;
+    private Node follower;
+
+    /**
+     * One database with the repositories a replication node uses.
+     */
+    private record Node(DatabaseInitializer databaseInitializer, BookmarkRepository bookmarkRepository,
+                        ArchiveRepository archiveRepository, ReplicationLog replicationLog) {
+        static Node open(Path file) {
+            DatabaseInitializer databaseInitializer = new DatabaseInitializer("jdbc:sqlite:" + file);
+            databaseInitializer.initialize();
+            ColumnCodec columnCodec = new ColumnCodec(databaseInitializer, Set.of(), 0);
+            databaseInitializer.setConnectionInitializer(columnCodec::registerFunctions);
+            QueryInstrumentation instrumentation = new QueryInstrumentation(databaseInitializer, Long.MAX_VALUE, 1);
+            BookmarkRepository bookmarkRepository = new BookmarkRepository(databaseInitializer, instrumentation);
+            return new Node(databaseInitializer, bookmarkRepository,
+                    new ArchiveRepository(databaseInitializer, instrumentation, bookmarkRepository),
+                    new ReplicationLog(databaseInitializer, bookmarkRepository));
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        leader = Node.open(tempDir.resolve("leader.db"));
+        leader.replicationLog().installTriggers();
+        follower = Node.open(tempDir.resolve("follower.db"));
+    }
+
+    @Test
+    void followerKeepsArchivedRows() {
+        Bookmark archived = create(BookmarkStatus.DONE, "Notes worth keeping, repeated. ".repeat(10));
+        Bookmark kept = create(BookmarkStatus.INBOX, "");
+        long seq = replicate(0);
+
+        assertEquals(1, leader.archiveRepository().archiveBatch(LocalDateTime.now(), 10));
+        seq = replicate(seq);
+
+        assertFalse(follower.bookmarkRepository().findById(archived.getId()).isPresent());
+        Bookmark copy = follower.archiveRepository().findById(archived.getId()).orElseThrow();
+        assertEquals(archived.getNotes(), copy.getNotes());
+        assertEquals(archived.getVersion(), copy.getVersion());
+        assertTrue(follower.bookmarkRepository().findById(kept.getId()).isPresent());
+
+        assertTrue(leader.archiveRepository().restore(archived.getId()));
+        replicate(seq);
+
+        assertFalse(follower.archiveRepository().findById(archived.getId()).isPresent());
+        assertEquals(archived.getNotes(), follower.bookmarkRepository().findById(archived.getId()).orElseThrow()
+                .getNotes());
+    }
+
+    @Test
+    void deletedArchivedRowIsDeletedOnFollower() {
+        Bookmark archived = create(BookmarkStatus.DONE, null);
+        assertEquals(1, leader.archiveRepository().archiveBatch(LocalDateTime.now(), 10));
+        long seq = replicate(0);
+        assertTrue(follower.archiveRepository().findById(archived.getId()).isPresent());
+
+        assertTrue(leader.archiveRepository().delete(archived.getId()));
+        replicate(seq);
+
+        assertFalse(follower.archiveRepository().findById(archived.getId()).isPresent());
+    }
+
+    @Test
+    void upgradeKeepsTheLogAndItsSeqs() throws SQLException {
+        create(BookmarkStatus.INBOX, "");
+        create(BookmarkStatus.INBOX, "");
+        leader.replicationLog().prune(1);
+        assertEquals(List.of(2L), seqs(leader.replicationLog().readChanges(0, 10)));
+
+        try (Connection conn = leader.databaseInitializer().getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA user_version = 10");
+        }
+        leader.databaseInitializer().initialize();
+        leader.replicationLog().installTriggers();
+        create(BookmarkStatus.INBOX, "");
+
+        List<ReplicationChange> changes = leader.replicationLog().readChanges(0, 10);
+        assertEquals(List.of(2L, 3L), seqs(changes));
+        assertTrue(changes.get(1).verifies(changes.get(0).checksum()));
+    }
+
+    private Bookmark create(BookmarkStatus status, String notes) {
+        LocalDateTime now = LocalDateTime.now();
+        return leader.bookmarkRepository().create(new Bookmark(null, "https://example.com/" + System.nanoTime(),
+                "Title", "tag", notes, status, now, now));
+    }
+
+    private long replicate(long afterSeq) {
+        List<ReplicationChange> changes = leader.replicationLog().readChanges(afterSeq, 1000);
+        return changes.isEmpty() ? afterSeq : follower.replicationLog().apply(changes).seq();
+    }
+
+    private static List<Long> seqs(List<ReplicationChange> changes) {
+        List<Long> seqs = new ArrayList<>();
+        changes.forEach(change -> seqs.add(change.seq()));
+        return seqs;
+    }
+}
@@ -0,0 +1,113 @@
+package com.hashim.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkStatus;
+
+class WarmStartTest {
+    @TempDir
+    Path tempDir;
+
+    private DatabaseInitializer databaseInitializer;
+    private BookmarkRepository bookmarkRepository;
+
+    @BeforeEach
+    void setUp() {
+        databaseInitializer = new DatabaseInitializer("jdbc:sqlite:" + tempDir.resolve("test.db"));
+        databaseInitializer.initialize();
+        bookmarkRepository = new BookmarkRepository(databaseInitializer,
+                new QueryInstrumentation(databaseInitializer, Long.MAX_VALUE, 1));
+    }
+
+    @Test
+    void reconcilesChangesMadeAfterTheSnapshot() throws IOException {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ids.add(create("https://example.com/" + i).getId());
+        }
+        Path file = tempDir.resolve("bookmarks.snapshot");
+        BookmarkSnapshot.write(file, databaseInitializer.getDatabaseId(), bookmarkRepository::forEach);
+
+        bookmarkRepository.updateStatus(ids.get(2), BookmarkStatus.DONE, null);
+        bookmarkRepository.delete(ids.get(5));
+        create("https://example.com/new");
+
+        WarmStart warmStart = new WarmStart(BookmarkSnapshot.open(file));
+        WarmStart.Reconciliation reconciliation = warmStart.reconcile(bookmarkRepository, 1.0);
+        assertNotNull(reconciliation);
+        assertEquals(10, reconciliation.snapshotRows());
+        assertEquals(1, reconciliation.added());
+        assertEquals(1, reconciliation.changed());
+        assertEquals(1, reconciliation.removed());
+
+        List<String> expected = new ArrayList<>();
+        bookmarkRepository.forEach(bookmark -> expected.add(describe(bookmark)));
+        List<String> merged = new ArrayList<>();
+        warmStart.forEachInRange(bookmarkRepository, Long.MIN_VALUE, Long.MAX_VALUE,
+                bookmark -> merged.add(describe(bookmark)));
+        assertEquals(expected, merged);
+    }
+
+    @Test
+    void givesUpWhenTooManyRowsDiffer() throws IOException {
+        Bookmark created = create("https://example.com/a");
+        create("https://example.com/b");
+        Path file = tempDir.resolve("bookmarks.snapshot");
+        BookmarkSnapshot.write(file, databaseInitializer.getDatabaseId(), bookmarkRepository::forEach);
+
+        bookmarkRepository.updateStatus(created.getId(), BookmarkStatus.DONE, null);
+
+        assertNull(new WarmStart(BookmarkSnapshot.open(file)).reconcile(bookmarkRepository, 0.0));
+    }
+
+    @Test
+    void lateCallbacksDoNotReplaceNewerRows() throws IOException {
+        Bookmark deleted = create("https://example.com/a");
+        Bookmark changed = create("https://example.com/b");
+        Path file = tempDir.resolve("bookmarks.snapshot");
+        BookmarkSnapshot.write(file, databaseInitializer.getDatabaseId(), bookmarkRepository::forEach);
+        WarmStart warmStart = new WarmStart(BookmarkSnapshot.open(file));
+        bookmarkRepository.addChangeListener(warmStart);
+        assertNotNull(warmStart.reconcile(bookmarkRepository, 1.0));
+
+        Bookmark updated = bookmarkRepository.updateStatus(deleted.getId(), BookmarkStatus.DONE, null).orElseThrow();
+        bookmarkRepository.delete(deleted.getId());
+        bookmarkRepository.updateStatus(changed.getId(), BookmarkStatus.DONE, null);
+        Bookmark latest = bookmarkRepository.updateStatus(changed.getId(), BookmarkStatus.INBOX, null).orElseThrow();
+
+        // Callbacks of earlier writes arriving after those of later ones
+        warmStart.onUpdated(updated);
+        warmStart.onUpdated(changed);
+
+        List<String> merged = new ArrayList<>();
+        warmStart.forEachInRange(bookmarkRepository, Long.MIN_VALUE, Long.MAX_VALUE,
+                bookmark -> merged.add(describe(bookmark)));
+        assertEquals(List.of(describe(latest)), merged);
+    }
+
+    private Bookmark create(String url) {
+        LocalDateTime now = LocalDateTime.now();
+        return bookmarkRepository.create(new Bookmark(null, url, "Title", "tag", "notes", BookmarkStatus.INBOX,
+                now, now));
+    }
+
+    private static String describe(Bookmark bookmark) {
+        return String.join("|", String.valueOf(bookmark.getId()), bookmark.getUrl(), bookmark.getTitle(),
+                bookmark.getTags(), bookmark.getNotes(), bookmark.getStatus().name(),
+                String.valueOf(bookmark.getCreatedAt()), String.valueOf(bookmark.getUpdatedAt()),
+                String.valueOf(bookmark.getVersion()));
+    }
+}
@@ -0,0 +1,98 @@
+package com.hashim.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.hashim.exception.ValidationException;
+import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkStatus;
+import com.hashim.repository.BookmarkRepository;
+import com.hashim.repository.DatabaseInitializer;
+import com.hashim.repository.QueryInstrumentation;
+
+class BackupServiceTest {
+    @TempDir
+    Path tempDir;
+
+    private DatabaseInitializer databaseInitializer;
+    private BookmarkRepository bookmarkRepository;
+    private BackupService backupService;
+
+    @BeforeEach
+    void setUp() {
+        databaseInitializer = new DatabaseInitializer("jdbc:sqlite:" + tempDir.resolve("test.db"));
+        databaseInitializer.initialize();
+        bookmarkRepository = new BookmarkRepository(databaseInitializer,
+                new QueryInstrumentation(databaseInitializer, Long.MAX_VALUE, 1));
+        backupService = new BackupService(databaseInitializer, tempDir.resolve("backups"), 10, 100, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        backupService.close();
+    }
+
+    @Test
+    void olderSnapshotIsMigratedOnRestore() throws SQLException {
+        Bookmark kept = create("https://example.com/a");
+        BackupService.Snapshot snapshot = backupService.takeSnapshot();
+        setSchemaVersion(snapshot, DatabaseInitializer.SCHEMA_VERSION - 1);
+        create("https://example.com/b");
+
+        backupService.restore(snapshot.name());
+
+        try (Connection conn = databaseInitializer.getConnection()) {
+            assertEquals(DatabaseInitializer.SCHEMA_VERSION, schemaVersion(conn));
+        }
+        assertTrue(bookmarkRepository.findById(kept.getId()).isPresent());
+        assertEquals(1, bookmarkRepository.countAfter(0));
+    }
+
+    @Test
+    void newerSnapshotIsRefused() throws SQLException {
+        create("https://example.com/a");
+        BackupService.Snapshot snapshot = backupService.takeSnapshot();
+        setSchemaVersion(snapshot, DatabaseInitializer.SCHEMA_VERSION + 1);
+        create("https://example.com/b");
+
+        assertThrows(ValidationException.class, () -> backupService.restore(snapshot.name()));
+
+        assertEquals(2, bookmarkRepository.countAfter(0));
+        assertEquals(1, backupService.listSnapshots().size(), "No safety snapshot for a refused restore");
+    }
+
+    private void setSchemaVersion(BackupService.Snapshot snapshot, int version) throws SQLException {
+        Path file = tempDir.resolve("backups").resolve(snapshot.name());
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + file);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA user_version = " + version);
+        }
+    }
+
+    private static int schemaVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private Bookmark create(String url) {
+        LocalDateTime now = LocalDateTime.now();
+        return bookmarkRepository.create(new Bookmark(null, url, "Title", "tag", null, BookmarkStatus.INBOX, now,
+                now));
+    }
+}
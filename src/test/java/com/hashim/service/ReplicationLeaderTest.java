@@ -0,0 +1,99 @@
+package com.hashim.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkStatus;
+import com.hashim.repository.BookmarkRepository;
+import com.hashim.repository.ColumnCodec;
+import com.hashim.repository.DatabaseInitializer;
+import com.hashim.repository.QueryInstrumentation;
+import com.hashim.repository.ReplicationLog;
+
+class ReplicationLeaderTest {
+    @TempDir
+    Path tempDir;
+
+    private DatabaseInitializer databaseInitializer;
+    private BookmarkRepository bookmarkRepository;
+    private ReplicationLog replicationLog;
+    private ReplicationLeader leader;
+
+    @BeforeEach
+    void setUp() {
+        databaseInitializer = new DatabaseInitializer("jdbc:sqlite:" + tempDir.resolve("leader.db"));
+        databaseInitializer.initialize();
+        ColumnCodec columnCodec = new ColumnCodec(databaseInitializer, Set.of(), 0);
+        databaseInitializer.setConnectionInitializer(columnCodec::registerFunctions);
+        bookmarkRepository = new BookmarkRepository(databaseInitializer,
+                new QueryInstrumentation(databaseInitializer, Long.MAX_VALUE, 1));
+        replicationLog = new ReplicationLog(databaseInitializer, bookmarkRepository);
+        leader = new ReplicationLeader(replicationLog, 1000);
+        leader.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        leader.close();
+    }
+
+    @Test
+    void followersOfThePreviousEpochNeedASnapshotAfterARestore() {
+        create();
+        BackupService backupService = new BackupService(databaseInitializer, tempDir.resolve("backups"), 5, 100, 0);
+        backupService.addRestoreListener(leader::onRestore);
+        String backup = backupService.takeSnapshot().name();
+        create();
+        String epoch = replicationLog.epoch();
+        long seq = leader.lastSeq();
+        assertFalse(leader.changes(seq, 10, epoch).snapshotRequired());
+
+        backupService.restore(backup);
+
+        assertNotEquals(epoch, replicationLog.epoch());
+        assertTrue(leader.changes(seq, 10, epoch).snapshotRequired());
+        // Writes are captured again, in the new epoch
+        create();
+        ReplicationLeader.ChangeBatch batch = leader.changes(0, 10, replicationLog.epoch());
+        assertFalse(batch.snapshotRequired());
+        assertEquals(replicationLog.epoch(), batch.epoch());
+        assertEquals(2, batch.changes().size());
+    }
+
+    @Test
+    void snapshotCarriesTheEpochToTheFollower() throws IOException {
+        create();
+        // The restore must take any path
+        Path snapshot = Files.move(leader.snapshot(), tempDir.resolve("leader's snapshot.db"));
+        DatabaseInitializer followerDatabase = new DatabaseInitializer("jdbc:sqlite:" + tempDir.resolve("follower.db"));
+        followerDatabase.initialize();
+        ReplicationLog followerLog = new ReplicationLog(followerDatabase, new BookmarkRepository(followerDatabase,
+                new QueryInstrumentation(followerDatabase, Long.MAX_VALUE, 1)));
+
+        ReplicationLog.Position position = followerLog.restoreFrom(snapshot);
+
+        assertEquals(leader.lastSeq(), position.seq());
+        assertEquals(replicationLog.epoch(), followerLog.appliedEpoch());
+        assertNotEquals(replicationLog.epoch(), followerDatabase.getDatabaseId());
+    }
+
+    private Bookmark create() {
+        LocalDateTime now = LocalDateTime.now();
+        return bookmarkRepository.create(new Bookmark(null, "https://example.com/" + System.nanoTime(), "Title",
+                "tag", "notes", BookmarkStatus.INBOX, now, now));
+    }
+}
@@ -0,0 +1,127 @@
+package com.hashim.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.hashim.dto.SavedSearchRequest;
+import com.hashim.exception.NotFoundException;
+import com.hashim.exception.ValidationException;
+import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkStatus;
+import com.hashim.repository.BookmarkQueryRepository;
+import com.hashim.repository.BookmarkRepository;
+import com.hashim.repository.DatabaseInitializer;
+import com.hashim.repository.QueryInstrumentation;
+import com.hashim.repository.SavedSearchRepository;
+
+class SavedSearchServiceTest {
+    @TempDir
+    Path tempDir;
+
+    private DatabaseInitializer databaseInitializer;
+    private BookmarkRepository bookmarkRepository;
+    private SavedSearchService savedSearchService;
+
+    @BeforeEach
+    void setUp() {
+        databaseInitializer = new DatabaseInitializer("jdbc:sqlite:" + tempDir.resolve("test.db"));
+        databaseInitializer.initialize();
+        QueryInstrumentation instrumentation = new QueryInstrumentation(databaseInitializer, Long.MAX_VALUE, 1);
+        bookmarkRepository = new BookmarkRepository(databaseInitializer, instrumentation);
+        savedSearchService = new SavedSearchService(new SavedSearchRepository(databaseInitializer, instrumentation),
+                bookmarkRepository, new BookmarkQueryRepository(databaseInitializer, instrumentation), null);
+        savedSearchService.load();
+        bookmarkRepository.addChangeListener(savedSearchService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        savedSearchService.close();
+    }
+
+    @Test
+    void resultsFollowWrites() {
+        Bookmark existing = create("https://example.com/a", "java");
+        create("https://example.com/b", "python");
+        Long id = search("Java", "java");
+        assertEquals(List.of(existing.getId()), resultIds(id));
+
+        Bookmark added = create("https://example.com/c", "java");
+        assertEquals(List.of(existing.getId(), added.getId()), resultIds(id));
+
+        bookmarkRepository.update(withTags(existing, "python"), null);
+        assertEquals(List.of(added.getId()), resultIds(id));
+
+        bookmarkRepository.delete(added.getId());
+        assertEquals(List.of(), resultIds(id));
+    }
+
+    @Test
+    void rejectsDuplicateName() {
+        search("Java", "java");
+
+        assertThrows(ValidationException.class, () -> search("Java", "python"));
+        assertEquals(1, savedSearchService.list().size());
+    }
+
+    @Test
+    void deleteLeavesNoResults() throws SQLException {
+        Long id = search("Java", "java");
+        for (int i = 0; i < 50; i++) {
+            create("https://example.com/" + i, "java");
+        }
+
+        savedSearchService.delete(id);
+        create("https://example.com/after", "java");
+        search("Python", "python");
+
+        assertThrows(NotFoundException.class, () -> savedSearchService.get(id));
+        assertEquals(0, resultRows(id));
+    }
+
+    private Long search(String name, String tag) {
+        SavedSearchRequest request = new SavedSearchRequest();
+        request.setName(name);
+        request.setTags(List.of(tag));
+        return (Long) savedSearchService.create(request).get("id");
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> resultIds(Long id) {
+        Map<String, Object> results = savedSearchService.getResults(id, null, null);
+        return ((List<Bookmark>) results.get("bookmarks")).stream().map(Bookmark::getId).toList();
+    }
+
+    private long resultRows(Long id) throws SQLException {
+        try (Connection conn = databaseInitializer.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM saved_search_results WHERE search_id = " + id)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private Bookmark create(String url, String tags) {
+        LocalDateTime now = LocalDateTime.now();
+        return bookmarkRepository.create(new Bookmark(null, url, "Title", tags, null, BookmarkStatus.INBOX, now,
+                now));
+    }
+
+    private static Bookmark withTags(Bookmark bookmark, String tags) {
+        return new Bookmark(bookmark.getId(), bookmark.getUrl(), bookmark.getTitle(), tags, bookmark.getNotes(),
+                bookmark.getStatus(), bookmark.getCreatedAt(), LocalDateTime.now());
+    }
+}
@@ -0,0 +1,183 @@
+package com.hashim.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkStatus;
+import com.hashim.repository.BookmarkChangeListener;
+import com.hashim.repository.BookmarkRepository;
+import com.hashim.repository.DatabaseInitializer;
+import com.hashim.repository.QueryInstrumentation;
+
+class StatusWriteBehindTest {
+    // Long enough that only the test flushes
+    private static final long FLUSH_INTERVAL_MS = 60_000;
+
+    @TempDir
+    Path tempDir;
+
+    private BookmarkRepository bookmarkRepository;
+    private StatusWriteBehind writeBehind;
+
+    @BeforeEach
+    void setUp() {
+        DatabaseInitializer databaseInitializer = new DatabaseInitializer("jdbc:sqlite:" + tempDir.resolve("test.db"));
+        databaseInitializer.initialize();
+        bookmarkRepository = new BookmarkRepository(databaseInitializer,
+                new QueryInstrumentation(databaseInitializer, Long.MAX_VALUE, 1));
+        writeBehind = new StatusWriteBehind(bookmarkRepository, tempDir.resolve("status.journal"), FLUSH_INTERVAL_MS);
+        writeBehind.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        writeBehind.close();
+    }
+
+    @Test
+    void queuedChangeIsOverlaidUntilFlushed() {
+        Bookmark created = create("https://example.com/a");
+
+        writeBehind.enqueue(created.getId(), BookmarkStatus.DONE);
+        assertTrue(writeBehind.hasPending(created.getId()));
+        assertEquals(BookmarkStatus.INBOX, find(created.getId()).getStatus());
+
+        Bookmark read = writeBehind.applyPending(find(created.getId()));
+        assertEquals(BookmarkStatus.DONE, read.getStatus());
+        assertNull(read.getVersion(), "The stored version does not describe the overlaid state");
+
+        writeBehind.flush();
+        assertFalse(writeBehind.hasPending(created.getId()));
+        Bookmark flushed = writeBehind.applyPending(find(created.getId()));
+        assertEquals(BookmarkStatus.DONE, flushed.getStatus());
+        assertEquals(created.getVersion() + 1, flushed.getVersion());
+    }
+
+    @Test
+    void repeatedChangesAreCoalesced() {
+        Bookmark created = create("https://example.com/a");
+
+        writeBehind.enqueue(created.getId(), BookmarkStatus.DONE);
+        writeBehind.enqueue(created.getId(), BookmarkStatus.INBOX);
+        writeBehind.enqueue(created.getId(), BookmarkStatus.DONE);
+        assertEquals(1, writeBehind.pendingCount());
+
+        writeBehind.flush();
+        Bookmark flushed = find(created.getId());
+        assertEquals(BookmarkStatus.DONE, flushed.getStatus());
+        assertEquals(created.getVersion() + 1, flushed.getVersion(), "One write for the coalesced changes");
+        assertEquals(0, writeBehind.pendingCount());
+    }
+
+    @Test
+    void batchBeingFlushedStaysVisible() throws Exception {
+        Bookmark created = create("https://example.com/a");
+        Bookmark stale = find(created.getId());
+        CountDownLatch inFlush = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        bookmarkRepository.addChangeListener(new BookmarkChangeListener() {
+            @Override
+            public void onStatusChanged(Long id, BookmarkStatus status, LocalDateTime updatedAt, long version) {
+                // Called by the flush before it has cleared the batch
+                inFlush.countDown();
+                await(release);
+            }
+        });
+
+        writeBehind.enqueue(created.getId(), BookmarkStatus.DONE);
+        CompletableFuture<Void> flush = CompletableFuture.runAsync(writeBehind::flush);
+        await(inFlush);
+        try {
+            assertTrue(writeBehind.hasPending(created.getId()));
+            assertEquals(1, writeBehind.pendingCount());
+            Bookmark read = writeBehind.applyPending(stale);
+            assertEquals(BookmarkStatus.DONE, read.getStatus());
+            assertNull(read.getVersion());
+        } finally {
+            release.countDown();
+        }
+        flush.get(10, TimeUnit.SECONDS);
+        assertFalse(writeBehind.hasPending(created.getId()));
+    }
+
+    @Test
+    void journalIsReplayedOnStart() {
+        Bookmark created = create("https://example.com/a");
+        writeBehind.enqueue(created.getId(), BookmarkStatus.DONE);
+
+        // A second instance over the same journal stands in for a restart after a crash
+        StatusWriteBehind restarted = new StatusWriteBehind(bookmarkRepository, tempDir.resolve("status.journal"),
+                FLUSH_INTERVAL_MS);
+        restarted.start();
+        try {
+            assertEquals(BookmarkStatus.DONE, find(created.getId()).getStatus());
+            assertEquals(0, restarted.pendingCount());
+        } finally {
+            restarted.close();
+        }
+    }
+
+    @Test
+    void changesEnqueuedDuringCompactionStayJournaled() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            ids.add(create("https://example.com/" + i).getId());
+        }
+
+        CompletableFuture<Void> enqueues = CompletableFuture.runAsync(() ->
+                ids.forEach(id -> writeBehind.enqueue(id, BookmarkStatus.DONE)));
+        while (!enqueues.isDone()) {
+            writeBehind.flush();
+        }
+        enqueues.get(10, TimeUnit.SECONDS);
+
+        // Whatever the flushes did not write must be in the compacted journal
+        StatusWriteBehind restarted = new StatusWriteBehind(bookmarkRepository, tempDir.resolve("status.journal"),
+                FLUSH_INTERVAL_MS);
+        restarted.start();
+        try {
+            for (Long id : ids) {
+                assertEquals(BookmarkStatus.DONE, find(id).getStatus());
+            }
+        } finally {
+            restarted.close();
+        }
+    }
+
+    private Bookmark create(String url) {
+        LocalDateTime now = LocalDateTime.now();
+        return bookmarkRepository.create(new Bookmark(null, url, "Title", "tag", "notes", BookmarkStatus.INBOX,
+                now, now));
+    }
+
+    private Bookmark find(Long id) {
+        return bookmarkRepository.findById(id).orElseThrow();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Timed out waiting for the flush");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
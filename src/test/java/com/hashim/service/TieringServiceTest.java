@@ -0,0 +1,98 @@
+package com.hashim.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.hashim.model.Bookmark;
+import com.hashim.model.BookmarkStatus;
+import com.hashim.repository.ArchiveRepository;
+import com.hashim.repository.BookmarkRepository;
+import com.hashim.repository.DatabaseInitializer;
+import com.hashim.repository.QueryInstrumentation;
+
+class TieringServiceTest {
+    @TempDir
+    Path tempDir;
+
+    private DatabaseInitializer databaseInitializer;
+    private BookmarkRepository bookmarkRepository;
+    private ArchiveRepository archiveRepository;
+    private StatusWriteBehind writeBehind;
+
+    @BeforeEach
+    void setUp() {
+        databaseInitializer = new DatabaseInitializer("jdbc:sqlite:" + tempDir.resolve("test.db"));
+        databaseInitializer.initialize();
+        QueryInstrumentation instrumentation = new QueryInstrumentation(databaseInitializer, Long.MAX_VALUE, 1);
+        bookmarkRepository = new BookmarkRepository(databaseInitializer, instrumentation);
+        archiveRepository = new ArchiveRepository(databaseInitializer, instrumentation, bookmarkRepository);
+        writeBehind = new StatusWriteBehind(bookmarkRepository, tempDir.resolve("status.journal"), 60_000);
+        writeBehind.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        writeBehind.close();
+    }
+
+    @Test
+    void archivesAgedDoneBookmarksInBatches() throws SQLException {
+        for (int i = 0; i < 3; i++) {
+            age(create(BookmarkStatus.DONE));
+        }
+        Bookmark recent = create(BookmarkStatus.DONE);
+        Bookmark inbox = age(create(BookmarkStatus.INBOX));
+
+        Map<String, Object> run = new TieringService(archiveRepository, null, 30, 2, 0).runNow();
+
+        assertEquals(2, run.get("batches"));
+        assertEquals(3L, run.get("archived"));
+        Map<String, Object> stats = archiveRepository.getStats();
+        assertEquals(2L, stats.get("hotRows"));
+        assertEquals(3L, stats.get("archivedRows"));
+        assertTrue(bookmarkRepository.findById(recent.getId()).isPresent());
+        assertTrue(bookmarkRepository.findById(inbox.getId()).isPresent());
+    }
+
+    @Test
+    void queuedStatusChangeLandsBeforeTheMove() throws SQLException {
+        Bookmark reopened = age(create(BookmarkStatus.DONE));
+        writeBehind.enqueue(reopened.getId(), BookmarkStatus.INBOX);
+
+        Map<String, Object> run = new TieringService(archiveRepository, writeBehind, 30, 10, 0).runNow();
+
+        assertEquals(0L, run.get("archived"));
+        assertFalse(archiveRepository.findById(reopened.getId()).isPresent());
+        assertEquals(BookmarkStatus.INBOX, bookmarkRepository.findById(reopened.getId()).orElseThrow().getStatus());
+    }
+
+    private Bookmark create(BookmarkStatus status) {
+        LocalDateTime now = LocalDateTime.now();
+        return bookmarkRepository.create(new Bookmark(null, "https://example.com/" + System.nanoTime(), "Title",
+                "tag", "notes", status, now, now));
+    }
+
+    // Writes always stamp the current time, so rows are aged directly
+    private Bookmark age(Bookmark bookmark) throws SQLException {
+        try (Connection conn = databaseInitializer.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("UPDATE bookmarks SET updated_at = ? WHERE id = ?")) {
+            pstmt.setString(1, LocalDateTime.now().minusDays(60).toString());
+            pstmt.setLong(2, bookmark.getId());
+            pstmt.executeUpdate();
+        }
+        return bookmark;
+    }
+}